@@ -3,14 +3,26 @@ package com.mdm.agent.skills;
 import com.mdm.agent.core.BaseBotAgent;
 import com.mdm.shared.api.MCPClient;
 
+import java.util.concurrent.CompletableFuture;
+
 public class LifeSciencesBot extends BaseBotAgent {
+    private static final String DOMAIN = "drug_interactions";
+
     public LifeSciencesBot(MCPClient mcpClient) {
         super(mcpClient);
     }
 
     @Override
     public String execute(String input) {
-        String context = mcpClient.fetchContext("drug_interactions");
+        return answer(input, mcpClient.fetchContext(DOMAIN));
+    }
+
+    @Override
+    public CompletableFuture<String> executeAsync(String input) {
+        return mcpClient.fetchContextAsync(DOMAIN).thenApply(context -> answer(input, context));
+    }
+
+    private static String answer(String input, String context) {
         return "Checked interactions for: " + input + ". Context: " + context;
     }
-} 
\ No newline at end of file
+}
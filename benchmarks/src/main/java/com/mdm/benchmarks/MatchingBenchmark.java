@@ -0,0 +1,76 @@
+package com.mdm.benchmarks;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MergeResult;
+import com.mdm.mcp.service.DroolsRuleEngineService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch matching and merging over a whole data set, as done by
+ * {@code /find-matches} and {@code /execute-merge}: standardization, blocking,
+ * rule scoring and (for merging) clustering plus survivorship.
+ *
+ * One operation processes all {@code entityCount} entities; the 1M data sets
+ * take minutes per operation and need the 8 GB heap configured below.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class MatchingBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entityCount;
+
+    @Param({"0.05", "0.2"})
+    private double duplicateRate;
+
+    @Param({"PARALLEL"})
+    private String matchingMode;
+
+    private AnnotationConfigApplicationContext context;
+    private DroolsRuleEngineService ruleEngine;
+    private List<DataEntity> entities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = RuleEngineContext.start(Map.of("mdm.matching.mode", matchingMode));
+        ruleEngine = context.getBean(DroolsRuleEngineService.class);
+        entities = SyntheticEntities.generate(entityCount, duplicateRate, 42L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MatchCandidate> findMatchCandidates() {
+        return ruleEngine.findMatchCandidates(entities);
+    }
+
+    @Benchmark
+    public List<MergeResult> executeEntityMerging() {
+        return ruleEngine.executeEntityMerging(entities);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mdm.benchmarks;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MergeResult;
+import com.mdm.mcp.service.DroolsRuleEngineService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single pair merges as done by {@code /merge-entities}: one match session, then
+ * the merge session and survivorship. Operations cycle through {@code pairCount}
+ * pairs, so the JIT cannot specialize on a single input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MergeEntitiesBenchmark {
+
+    @Param({"1000"})
+    private int pairCount;
+
+    private AnnotationConfigApplicationContext context;
+    private DroolsRuleEngineService ruleEngine;
+    private List<List<DataEntity>> pairs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = RuleEngineContext.start(Map.of());
+        ruleEngine = context.getBean(DroolsRuleEngineService.class);
+        pairs = SyntheticEntities.clusters(pairCount, 2, 42L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MergeResult mergeEntities() {
+        List<DataEntity> pair = pairs.get(next);
+        next = next + 1 == pairs.size() ? 0 : next + 1;
+        return ruleEngine.mergeEntities(pair.get(0), pair.get(1));
+    }
+}
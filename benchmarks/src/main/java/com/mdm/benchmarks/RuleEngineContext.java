@@ -0,0 +1,42 @@
+package com.mdm.benchmarks;
+
+import com.mdm.mcp.service.BlockMatcher;
+import com.mdm.mcp.service.CandidateSearchService;
+import com.mdm.mcp.service.DroolsRuleEngineService;
+import com.mdm.mcp.service.MatchClusterer;
+import com.mdm.mcp.service.MatchKeyStandardizer;
+import com.mdm.mcp.service.MergeMetrics;
+import com.mdm.mcp.service.RuleBaseManager;
+import com.mdm.mcp.service.SurvivorshipEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Starts just the rule engine beans, without web, JPA or Redis, so that the
+ * benchmarks measure the same code paths the server runs. Properties override
+ * the {@code @Value} defaults, e.g. {@code mdm.matching.mode}.
+ */
+final class RuleEngineContext {
+
+    private RuleEngineContext() {
+    }
+
+    static AnnotationConfigApplicationContext start(Map<String, Object> properties) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(MergeMetrics.class, RuleBaseManager.class, BlockMatcher.class, MatchClusterer.class,
+            MatchKeyStandardizer.class, CandidateSearchService.class,
+            SurvivorshipEngine.class, DroolsRuleEngineService.class);
+        context.refresh();
+        if (!context.getBean(DroolsRuleEngineService.class).isDroolsAvailable()) {
+            context.close();
+            throw new IllegalStateException("Drools rule base failed to compile; refusing to benchmark the fallback engine");
+        }
+        return context;
+    }
+}
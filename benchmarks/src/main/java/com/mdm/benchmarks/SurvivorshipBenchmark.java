@@ -0,0 +1,86 @@
+package com.mdm.benchmarks;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MergeResult;
+import com.mdm.mcp.service.DroolsRuleEngineService;
+import com.mdm.mcp.service.MatchClusterer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clustering, the merge rules and survivorship on pre-scored candidates, i.e.
+ * everything after matching. Each cluster is a chain of high confidence edges
+ * between {@code clusterSize} copies of a record, so the merge rules and the
+ * survivorship tables see N-way clusters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SurvivorshipBenchmark {
+
+    @Param({"1000", "100000"})
+    private int clusterCount;
+
+    @Param({"2", "5", "20"})
+    private int clusterSize;
+
+    private AnnotationConfigApplicationContext context;
+    private DroolsRuleEngineService ruleEngine;
+    private MatchClusterer clusterer;
+    private List<MatchCandidate> candidates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = RuleEngineContext.start(Map.of());
+        ruleEngine = context.getBean(DroolsRuleEngineService.class);
+        clusterer = context.getBean(MatchClusterer.class);
+        candidates = new ArrayList<>(clusterCount * (clusterSize - 1));
+        for (List<DataEntity> cluster : SyntheticEntities.clusters(clusterCount, clusterSize, 42L)) {
+            for (int i = 1; i < cluster.size(); i++) {
+                candidates.add(MatchCandidate.builder()
+                    .entity1(cluster.get(i - 1))
+                    .entity2(cluster.get(i))
+                    .confidenceScore(0.95)
+                    .matchReason("Synthetic duplicate")
+                    .ruleName("Benchmark")
+                    .build());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MatchClusterer.ClusteringResult cluster() {
+        return clusterer.cluster(candidates);
+    }
+
+    @Benchmark
+    public List<MergeResult> mergeCandidates() {
+        return ruleEngine.mergeCandidates(candidates);
+    }
+}
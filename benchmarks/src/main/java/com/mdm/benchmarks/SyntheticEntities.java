@@ -0,0 +1,172 @@
+package com.mdm.benchmarks;
+
+import com.mdm.mcp.model.DataEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic PERSON and ORGANIZATION entities for the benchmarks.
+ *
+ * A {@code duplicateRate} share of the entities are noisy copies of an earlier
+ * entity from another source system: re-cased e-mail, reformatted phone number,
+ * dashed SSN, a typo in the name and occasionally a missing attribute. The rest
+ * are distinct records whose names are drawn from a few thousand syllable
+ * combinations, so blocks and fuzzy name candidates have realistic sizes.
+ */
+public final class SyntheticEntities {
+
+    public static final double PERSON_SHARE = 0.7;
+
+    private static final String[] SYLLABLES = {
+        "an", "ber", "ca", "da", "el", "fa", "ger", "ha", "in", "jo", "ka", "li", "ma", "no", "ol",
+        "pa", "ri", "sa", "ta", "ul", "va", "wi", "xa", "yo", "zu", "mar", "son", "ton", "ley", "ric"
+    };
+
+    private static final String[] COMPANY_SUFFIXES = { "Inc", "LLC", "Corp", "Ltd", "Group", "Holdings" };
+
+    private static final String[] STREETS = { "Main St", "Oak Ave", "Pine Rd", "Maple Dr", "Cedar Ln", "Elm St" };
+
+    private static final String[] SOURCE_SYSTEMS = { "CRM", "ERP", "BILLING", "SUPPORT" };
+
+    private SyntheticEntities() {
+    }
+
+    public static List<DataEntity> generate(int count, double duplicateRate, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<DataEntity> entities = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            DataEntity entity;
+            if (i > 0 && random.nextDouble() < duplicateRate) {
+                entity = duplicate(entities.get(random.nextInt(i)), i, random);
+            } else if (random.nextDouble() < PERSON_SHARE) {
+                entity = person(i, random);
+            } else {
+                entity = organization(i, random);
+            }
+            entity.setUpdatedAt(now.minusMinutes(random.nextInt(525_600)));
+            entity.setCreatedAt(entity.getUpdatedAt().minusDays(random.nextInt(365)));
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Clusters of {@code clusterSize} copies of the same record each, for
+     * exercising merging and survivorship without the matching step.
+     */
+    public static List<List<DataEntity>> clusters(int clusterCount, int clusterSize, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<List<DataEntity>> clusters = new ArrayList<>(clusterCount);
+        int id = 0;
+        for (int c = 0; c < clusterCount; c++) {
+            DataEntity original = random.nextDouble() < PERSON_SHARE ? person(id++, random) : organization(id++, random);
+            original.setUpdatedAt(LocalDateTime.now().minusMinutes(random.nextInt(525_600)));
+            List<DataEntity> members = new ArrayList<>(clusterSize);
+            members.add(original);
+            for (int m = 1; m < clusterSize; m++) {
+                DataEntity copy = duplicate(original, id++, random);
+                copy.setUpdatedAt(LocalDateTime.now().minusMinutes(random.nextInt(525_600)));
+                members.add(copy);
+            }
+            clusters.add(members);
+        }
+        return clusters;
+    }
+
+    private static DataEntity person(int id, SplittableRandom random) {
+        String firstName = capitalize(syllables(random, 2));
+        String lastName = capitalize(syllables(random, 2 + random.nextInt(2)));
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("firstName", firstName);
+        attributes.put("lastName", lastName);
+        attributes.put("email", firstName.toLowerCase(Locale.ROOT) + "." + lastName.toLowerCase(Locale.ROOT) + id + "@example.com");
+        attributes.put("phoneNumber", phone(id));
+        attributes.put("ssn", String.format("%09d", 100_000_000 + id));
+        attributes.put("address", address(random));
+        return entity(id, "PERSON", attributes, random);
+    }
+
+    private static DataEntity organization(int id, SplittableRandom random) {
+        String name = capitalize(syllables(random, 3)) + " " + COMPANY_SUFFIXES[random.nextInt(COMPANY_SUFFIXES.length)];
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("companyName", name);
+        attributes.put("address", address(random));
+        attributes.put("email", "info" + id + "@" + name.toLowerCase(Locale.ROOT).replace(' ', '-') + ".com");
+        attributes.put("phoneNumber", phone(id));
+        return entity(id, "ORGANIZATION", attributes, random);
+    }
+
+    private static DataEntity duplicate(DataEntity original, int id, SplittableRandom random) {
+        Map<String, String> attributes = new HashMap<>(original.getAttributes());
+        attributes.computeIfPresent("email", (key, email) -> random.nextBoolean() ? email.toUpperCase(Locale.ROOT) : " " + email);
+        attributes.computeIfPresent("phoneNumber", (key, phone) -> reformatPhone(phone));
+        attributes.computeIfPresent("ssn", (key, ssn) -> ssn.substring(0, 3) + "-" + ssn.substring(3, 5) + "-" + ssn.substring(5));
+        if (random.nextDouble() < 0.3) {
+            attributes.computeIfPresent("lastName", (key, name) -> typo(name, random));
+        }
+        if (random.nextDouble() < 0.2) {
+            // Drop one identifier so that not every duplicate matches on every key
+            attributes.remove(random.nextBoolean() ? "email" : "phoneNumber");
+        }
+        return entity(id, original.getEntityType(), attributes, random);
+    }
+
+    private static DataEntity entity(int id, String type, Map<String, String> attributes, SplittableRandom random) {
+        DataEntity entity = new DataEntity();
+        entity.setEntityId(type.substring(0, 3) + "-" + id);
+        entity.setEntityType(type);
+        entity.setSourceSystem(SOURCE_SYSTEMS[random.nextInt(SOURCE_SYSTEMS.length)]);
+        entity.setConfidenceScore(0.5 + random.nextDouble() * 0.5);
+        entity.setStatus("ACTIVE");
+        entity.setAttributes(attributes);
+        return entity;
+    }
+
+    private static String syllables(SplittableRandom random, int count) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return name.toString();
+    }
+
+    private static String capitalize(String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+
+    private static String typo(String value, SplittableRandom random) {
+        if (value.length() < 4) {
+            return value;
+        }
+        char[] chars = value.toCharArray();
+        int i = 1 + random.nextInt(chars.length - 2);
+        char swap = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = swap;
+        return new String(chars);
+    }
+
+    private static String phone(int id) {
+        long number = 2_000_000_000L + id;
+        return String.format("%03d-%03d-%04d", number / 10_000_000, number / 10_000 % 1000, number % 10_000);
+    }
+
+    private static String reformatPhone(String phone) {
+        String digits = phone.replaceAll("\\D", "");
+        if (digits.length() != 10) {
+            return phone;
+        }
+        return "+1 (" + digits.substring(0, 3) + ") " + digits.substring(3, 6) + " " + digits.substring(6);
+    }
+
+    private static String address(SplittableRandom random) {
+        return (1 + random.nextInt(9999)) + " " + STREETS[random.nextInt(STREETS.length)];
+    }
+}
@@ -1,52 +1,131 @@
 package com.mdm.mcp.api;
 
-import com.mdm.shared.api.MCPClient;
 import com.mdm.shared.core.BotAgent;
+import com.mdm.shared.core.BotRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/bot")
+@Slf4j
 public class BotController {
     
     @Autowired
-    private MCPClient mcpClient;
-    
+    private BotRegistry botRegistry;
+
+    // Inputs of a batch executed at once, unless the request asks for fewer
+    @Value("${mdm.bots.max-concurrency:32}")
+    private int maxConcurrency = 32;
+
+    // Deadline of each call, single or in a batch
+    @Value("${mdm.bots.call-timeout:PT30S}")
+    private Duration callTimeout = Duration.ofSeconds(30);
+
+    @Value("${mdm.bots.max-batch-size:10000}")
+    private int maxBatchSize = 10_000;
+
+    @Data
+    public static class BatchRequest {
+        private String botType;
+        private List<String> inputs;
+        private Integer maxConcurrency;
+    }
+
+    @GetMapping("/types")
+    public Set<String> getBotTypes() {
+        return botRegistry.getBotTypes();
+    }
+
+    /**
+     * Runs one input. The request thread is released while the bot waits on
+     * the MCP server.
+     */
     @PostMapping("/execute")
-    public Map<String, String> executeBot(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> executeBot(@RequestBody Map<String, String> request) {
         String botType = request.get("botType");
         String input = request.get("input");
-        
-        BotAgent bot = createBot(botType);
-        String result = bot.execute(input);
-        
-        return Map.of(
-            "botType", botType,
-            "input", input,
-            "result", result
-        );
-    }
-    
-    private BotAgent createBot(String botType) {
-        if ("LifeSciencesBot".equals(botType)) {
-            return new LifeSciencesBot(mcpClient);
-        } else {
-            throw new IllegalArgumentException("Unknown bot type: " + botType);
+
+        Optional<BotAgent> bot = botRegistry.find(botType);
+        if (bot.isEmpty()) {
+            return CompletableFuture.completedFuture(unknownBotType(botType));
         }
+        return bot.get().executeAsync(input)
+            .orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .handle((result, error) -> {
+                if (error == null) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("botType", botType);
+                    response.put("input", input);
+                    response.put("result", result);
+                    return ResponseEntity.ok(response);
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Bot execution failed");
+                errorResponse.put("message", cause instanceof TimeoutException
+                    ? "Timed out after " + callTimeout.toMillis() + " ms"
+                    : cause.getMessage());
+                if (cause instanceof TimeoutException) {
+                    return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorResponse);
+                }
+                log.error("Error executing bot {}", botType, cause);
+                return ResponseEntity.internalServerError().body(errorResponse);
+            });
     }
-    
-    // Simple implementation of LifeSciencesBot
-    private static class LifeSciencesBot extends BotAgent {
-        public LifeSciencesBot(MCPClient mcpClient) {
-            super(mcpClient);
-        }
 
-        @Override
-        public String execute(String input) {
-            String context = mcpClient.fetchContext("drug_interactions");
-            return "Checked interactions for: " + input + ". Context: " + context;
+    /**
+     * Runs many inputs in parallel, at most {@code mdm.bots.max-concurrency}
+     * at a time, each within {@code mdm.bots.call-timeout}. Failed or timed out
+     * inputs are reported in their result; the others still complete.
+     */
+    @PostMapping("/execute-batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> executeBatch(@RequestBody BatchRequest request) {
+        Optional<BotAgent> bot = botRegistry.find(request.getBotType());
+        if (bot.isEmpty()) {
+            return CompletableFuture.completedFuture(unknownBotType(request.getBotType()));
+        }
+        List<String> inputs = request.getInputs() == null ? List.of() : request.getInputs();
+        if (inputs.size() > maxBatchSize) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Batch too large");
+            errorResponse.put("message", inputs.size() + " inputs, at most " + maxBatchSize + " are allowed");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
         }
+        int concurrency = request.getMaxConcurrency() == null
+            ? maxConcurrency
+            : Math.max(1, Math.min(request.getMaxConcurrency(), maxConcurrency));
+        long start = System.currentTimeMillis();
+        return bot.get().executeAllAsync(inputs, concurrency, callTimeout).thenApply(results -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("botType", request.getBotType());
+            response.put("count", results.size());
+            response.put("failed", results.stream().filter(result -> !result.isSuccess()).count());
+            response.put("durationMillis", System.currentTimeMillis() - start);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    private static ResponseEntity<Map<String, Object>> unknownBotType(String botType) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Unknown bot type");
+        errorResponse.put("message", "Unknown bot type: " + botType);
+        return ResponseEntity.badRequest().body(errorResponse);
     }
-} 
\ No newline at end of file
+}
@@ -1,19 +1,43 @@
 package com.mdm.mcp.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.CompactMatchCandidates;
 import com.mdm.mcp.model.DataEntity;
 import com.mdm.mcp.model.MatchCandidate;
 import com.mdm.mcp.model.MergeResult;
+import com.mdm.mcp.model.MergeRule;
 import com.mdm.mcp.service.DroolsRuleEngineService;
+import com.mdm.mcp.service.EntityCache;
+import com.mdm.mcp.service.EntitySource;
+import com.mdm.mcp.service.EntitySpool;
+import com.mdm.mcp.service.EntityStore;
+import com.mdm.mcp.service.IncrementalMatchService;
+import com.mdm.mcp.service.MatchKeyIndex;
+import com.mdm.mcp.service.MergeOutputWriter;
+import com.mdm.mcp.service.NameSimilarityService;
+import com.mdm.mcp.service.RuleBaseManager;
+import com.mdm.mcp.service.RuleExecutionContext;
+import com.mdm.mcp.service.SurvivorshipEngine;
+import com.mdm.mcp.service.SurvivorshipStrategy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/entity-merge")
@@ -21,9 +45,40 @@ import java.util.Map;
 @Slf4j
 public class EntityMergeController {
     
+    private static final long STREAM_FLUSH_INTERVAL_MS = 200;
+    private static final String FORMAT_FULL = "full";
+    private static final String FORMAT_COMPACT = "compact";
+    
     @Autowired
     private DroolsRuleEngineService ruleEngineService;
     
+    @Autowired
+    private IncrementalMatchService incrementalMatchService;
+    
+    @Autowired
+    private NameSimilarityService nameSimilarityService;
+    
+    @Autowired
+    private EntityStore entityStore;
+    
+    @Autowired
+    private MergeOutputWriter mergeOutputWriter;
+    
+    @Autowired
+    private EntityCache entityCache;
+    
+    @Autowired
+    private MatchKeyIndex matchKeyIndex;
+    
+    @Autowired
+    private SurvivorshipEngine survivorshipEngine;
+    
+    @Autowired
+    private RuleBaseManager ruleBaseManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     // Store sample entities for demo purposes
     private List<DataEntity> sampleEntities = new ArrayList<>();
     
@@ -111,7 +166,8 @@ public class EntityMergeController {
     }
     
     @GetMapping("/find-match-candidates")
-    public ResponseEntity<Map<String, Object>> findMatchCandidates() {
+    public ResponseEntity<Map<String, Object>> findMatchCandidates(
+            @RequestParam(name = "format", defaultValue = FORMAT_FULL) String format) {
         try {
             if (sampleEntities.isEmpty()) {
                 // Load sample data if not already loaded
@@ -124,7 +180,7 @@ public class EntityMergeController {
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Match candidates found");
-            response.put("candidates", candidates);
+            putCandidates(response, candidates, format);
             response.put("count", candidates.size());
             
             log.info("Found {} match candidates", candidates.size());
@@ -139,8 +195,15 @@ public class EntityMergeController {
         }
     }
     
+    /**
+     * With {@code format=compact}, the candidates reference a table of the
+     * distinct entities instead of embedding both entities, see
+     * {@link CompactMatchCandidates}.
+     */
     @PostMapping("/find-matches")
-    public ResponseEntity<Map<String, Object>> findMatchCandidatesWithBody(@RequestBody List<DataEntity> entities) {
+    public ResponseEntity<Map<String, Object>> findMatchCandidatesWithBody(
+            @RequestBody List<DataEntity> entities,
+            @RequestParam(name = "format", defaultValue = FORMAT_FULL) String format) {
         try {
             log.info("Finding match candidates for {} entities", entities.size());
             
@@ -148,7 +211,7 @@ public class EntityMergeController {
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Match candidates found");
-            response.put("candidates", candidates);
+            putCandidates(response, candidates, format);
             response.put("count", candidates.size());
             
             log.info("Found {} match candidates", candidates.size());
@@ -163,6 +226,178 @@ public class EntityMergeController {
         }
     }
     
+    /**
+     * Fuzzy name matching (typos, initials, phonetic variants) across all posted
+     * entities, independent of the match rules.
+     */
+    @PostMapping("/find-similar-names")
+    public ResponseEntity<Map<String, Object>> findSimilarNames(
+            @RequestBody List<DataEntity> entities,
+            @RequestParam(name = "threshold", required = false) Double threshold,
+            @RequestParam(name = "format", defaultValue = FORMAT_FULL) String format) {
+        try {
+            double minScore = threshold != null ? threshold : nameSimilarityService.getSimilarityThreshold();
+            List<MatchCandidate> candidates = nameSimilarityService.findSimilarNames(entities, minScore);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Similar names found");
+            putCandidates(response, candidates, format);
+            response.put("count", candidates.size());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error finding similar names", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to find similar names");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Streaming variant of {@code /find-matches}: reads entities as NDJSON or a JSON
+     * array, spooling them to a temporary file, and once the input is read and
+     * blocked writes each {@link MatchCandidate} as an NDJSON line as soon as it is found.
+     */
+    @PostMapping(value = "/find-matches/stream", consumes = {NdjsonWriter.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public void findMatchCandidatesStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        streamResults(request, response, "Failed to find match candidates",
+            (entities, spool, writer) -> ruleEngineService.streamMatchCandidates(entities, spool, writer::write));
+    }
+    
+    /**
+     * Saves a single entity and matches it only against the persisted entities
+     * sharing one of its match keys.
+     */
+    @PostMapping("/entities")
+    public ResponseEntity<Map<String, Object>> saveAndMatch(@RequestBody DataEntity entity) {
+        try {
+            log.info("Saving and matching entity {}", entity.getEntityId());
+            
+            RuleExecutionContext context = incrementalMatchService.saveAndMatch(entity);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Entity saved and matched");
+            response.put("entityId", entity.getEntityId());
+            response.put("candidates", context.getMatchCandidates());
+            response.put("results", context.getMergeResults());
+            response.put("count", context.getMatchCandidates().size());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error saving and matching entity", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to save and match entity");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Persists entities without matching them, e.g. to load a population for
+     * {@code /bulk-merge-stored}.
+     */
+    @PostMapping("/entities/bulk")
+    public ResponseEntity<Map<String, Object>> saveEntities(@RequestBody List<DataEntity> entities) {
+        try {
+            log.info("Saving {} entities", entities.size());
+            
+            entityStore.saveAll(entities);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Entities saved");
+            response.put("count", entities.size());
+            response.put("attributeStore", entityStore.getAttributeStore());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error saving entities", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to save entities");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Deduplicates the live persisted entities of one type: they are bulk loaded with
+     * their attributes and merged, and the merge results, golden records and
+     * MERGED source statuses are written back in chunks.
+     */
+    @PostMapping("/bulk-merge-stored")
+    public ResponseEntity<Map<String, Object>> bulkMergeStored(@RequestParam(name = "entityType") String entityType) {
+        try {
+            long start = System.currentTimeMillis();
+            List<DataEntity> entities = entityStore.findActiveByEntityType(entityType);
+            long loadMillis = System.currentTimeMillis() - start;
+            log.info("Loaded {} {} entities in {} ms", entities.size(), entityType, loadMillis);
+            
+            List<MergeResult> results = ruleEngineService.executeEntityMerging(entities);
+            start = System.currentTimeMillis();
+            mergeOutputWriter.write(results);
+            long writeMillis = System.currentTimeMillis() - start;
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Bulk merge completed");
+            response.put("results", results);
+            response.put("count", results.size());
+            response.put("loadedEntities", entities.size());
+            response.put("loadMillis", loadMillis);
+            response.put("writeMillis", writeMillis);
+            
+            log.info("Bulk merge of stored {} entities completed: {} results", entityType, results.size());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error during bulk merge of stored entities", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to perform bulk merge");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Full-population variant of {@code /bulk-merge-stored} for large types: the
+     * entities are scanned from the store in slices straight into the streaming
+     * merge, which keeps only their ids and blocks and loads them again by id
+     * for scoring and merging. The results are written in chunks. Only counts
+     * are returned, the results are in {@code merge_results}.
+     */
+    @PostMapping("/dedup-stored")
+    public ResponseEntity<Map<String, Object>> dedupStored(@RequestParam(name = "entityType") String entityType) {
+        try {
+            long start = System.currentTimeMillis();
+            long scanned;
+            long written;
+            try (Stream<DataEntity> entities = entityStore.streamActiveByEntityType(entityType);
+                 EntitySource source = entityStore.openSource();
+                 MergeOutputWriter.Batch batch = mergeOutputWriter.open()) {
+                scanned = ruleEngineService.streamEntityMerging(entities.iterator(), source, batch::add);
+                batch.flush();
+                written = batch.getWritten();
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Deduplication completed");
+            response.put("scannedEntities", scanned);
+            response.put("count", written);
+            response.put("durationMillis", System.currentTimeMillis() - start);
+            
+            log.info("Deduplication of stored {} entities completed: {} entities, {} results", entityType, scanned, written);
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error during deduplication of stored entities", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to deduplicate stored entities");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
     @PostMapping("/bulk-merge")
     public ResponseEntity<Map<String, Object>> bulkMerge() {
         try {
@@ -216,6 +451,43 @@ public class EntityMergeController {
         }
     }
     
+    /**
+     * Streaming variant of {@code /bulk-merge-with-body}: the input is blocked
+     * while it is being read and spooled to a temporary file, and once it ends the
+     * candidates are scored and clustered, and each {@link MergeResult} is written
+     * as an NDJSON line as its group of entities is merged.
+     */
+    @PostMapping(value = "/bulk-merge/stream", consumes = {NdjsonWriter.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public void bulkMergeStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        streamResults(request, response, "Failed to perform bulk merge",
+            (entities, spool, writer) -> ruleEngineService.streamEntityMerging(entities, spool, writer::write));
+    }
+    
+    private void streamResults(HttpServletRequest request, HttpServletResponse response, String errorMessage,
+                               StreamPipeline pipeline) throws IOException {
+        response.setContentType(NdjsonWriter.CONTENT_TYPE);
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, response.getOutputStream(), STREAM_FLUSH_INTERVAL_MS);
+        try (NdjsonEntityReader entities = new NdjsonEntityReader(objectMapper, request.getInputStream());
+             EntitySpool spool = new EntitySpool(objectMapper)) {
+            long consumed = pipeline.run(entities, spool, writer);
+            log.info("Streamed {} results for {} entities", writer.getCount(), consumed);
+        } catch (Exception e) {
+            // The status line is already sent, so the error is reported as the last record
+            log.error(errorMessage, e);
+            Map<String, Object> errorRecord = new HashMap<>();
+            errorRecord.put("error", errorMessage);
+            errorRecord.put("message", e.getMessage());
+            writer.write(errorRecord);
+        } finally {
+            writer.close();
+        }
+    }
+    
+    @FunctionalInterface
+    private interface StreamPipeline {
+        long run(NdjsonEntityReader entities, EntitySpool spool, NdjsonWriter writer);
+    }
+    
     @PostMapping("/merge-entities")
     public ResponseEntity<Map<String, Object>> mergeEntitiesByQuery(
             @RequestParam(name = "entityId1") String entityId1, 
@@ -331,6 +603,175 @@ public class EntityMergeController {
         }
     }
     
+    @GetMapping("/entities/{entityId}")
+    public ResponseEntity<Map<String, Object>> getEntity(@PathVariable(name = "entityId") String entityId) {
+        return cachedLookup(entityId, entityCache.getEntity(entityId), "Entity not found");
+    }
+    
+    /**
+     * Resolves a source entity id to the golden record it was merged into, or to
+     * the entity itself while it is not merged. Served from the entity cache.
+     */
+    @GetMapping("/entities/{entityId}/golden-record")
+    public ResponseEntity<Map<String, Object>> getGoldenRecord(@PathVariable(name = "entityId") String entityId) {
+        return cachedLookup(entityId, entityCache.resolveGoldenRecord(entityId), "Golden record not found");
+    }
+    
+    /**
+     * Batch exact-match probe: for each posted entity, the ids of the stored
+     * entities of the type sharing one of its standardized match keys.
+     */
+    @PostMapping("/match-keys/probe")
+    public ResponseEntity<Map<String, Object>> probeMatchKeys(@RequestParam(name = "entityType") String entityType,
+                                                              @RequestBody List<DataEntity> entities) {
+        try {
+            long start = System.nanoTime();
+            Map<String, Set<String>> matches = matchKeyIndex.findEntityIdsSharingKeys(entityType, entities);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("matches", matches);
+            response.put("count", matches.size());
+            response.put("probeMicros", (System.nanoTime() - start) / 1_000);
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error probing match keys", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to probe match keys");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Rebuilds the match keys of the stored live entities of a type.
+     */
+    @PostMapping("/match-keys/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildMatchKeys(@RequestParam(name = "entityType") String entityType) {
+        try {
+            long indexed = entityStore.reindexMatchKeys(entityType);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Match keys rebuilt");
+            response.put("indexedEntities", indexed);
+            response.put("matchKeys", matchKeyIndex.count());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error rebuilding match keys", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to rebuild match keys");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(entityCache.getStats());
+    }
+    
+    private static void putCandidates(Map<String, Object> response, List<MatchCandidate> candidates, String format) {
+        if (FORMAT_COMPACT.equalsIgnoreCase(format)) {
+            CompactMatchCandidates compact = CompactMatchCandidates.of(candidates);
+            response.put("entities", compact.getEntities());
+            response.put("candidates", compact.getCandidates());
+        } else {
+            response.put("candidates", candidates);
+        }
+    }
+    
+    private ResponseEntity<Map<String, Object>> cachedLookup(String entityId, Optional<DataEntity> entity, String notFoundMessage) {
+        Map<String, Object> response = new HashMap<>();
+        if (entity.isEmpty()) {
+            response.put("error", notFoundMessage);
+            response.put("entityId", entityId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("entityId", entityId);
+        response.put("entity", entity.get());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Survivorship strategies per entity type, as compiled from the active merge rules.
+     */
+    @GetMapping("/survivorship-rules")
+    public ResponseEntity<Map<String, Object>> getSurvivorshipRules() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("strategies", Arrays.stream(SurvivorshipStrategy.values()).map(Enum::name).toList());
+        response.put("rules", survivorshipEngine.describe());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Stores the survivorship rules of an entity type, e.g.
+     * {@code {"ruleName": "person-survivorship", "entityType": "PERSON",
+     * "survivorshipRules": "{\"email\": \"MOST_RECENT\"}"}}, and applies them to
+     * subsequent merges.
+     */
+    @PostMapping("/survivorship-rules")
+    public ResponseEntity<Map<String, Object>> saveSurvivorshipRules(@RequestBody MergeRule rule) {
+        try {
+            MergeRule saved = survivorshipEngine.save(rule);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Survivorship rules saved");
+            response.put("rule", saved);
+            response.put("rules", survivorshipEngine.tableFor(saved.getEntityType()).describe());
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid survivorship rules");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            log.error("Error saving survivorship rules", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to save survivorship rules");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Recompiles the rules from the DRL files and the active stored merge rules
+     * and swaps them in once they compile and validate. Matching continues on
+     * the current rules meanwhile; rejected rules leave them in place.
+     */
+    @PostMapping("/rules/reload")
+    public ResponseEntity<Map<String, Object>> reloadRules() {
+        try {
+            RuleBaseManager.ReloadResult result = ruleEngineService.reloadRules().join();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("reload", result);
+            if (!result.isSuccess()) {
+                response.put("error", "Rules rejected");
+                response.put("message", result.getError());
+                return ResponseEntity.badRequest().body(response);
+            }
+            response.put("message", "Rules reloaded");
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error reloading rules", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to reload rules");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    @GetMapping("/rules/status")
+    public ResponseEntity<Map<String, Object>> ruleStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("droolsAvailable", ruleEngineService.isDroolsAvailable());
+        response.put("lastReload", ruleBaseManager.getLastReload());
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> response = new HashMap<>();
@@ -1,21 +1,36 @@
 package com.mdm.mcp.api;
 
-import com.mdm.shared.api.MCPClient;
+import com.mdm.shared.api.HttpMCPClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * The {@link HttpMCPClient} used by the bots, configured by {@code mdm.mcp.client.*}.
+ * By default it calls this server's own {@link MCPContextController}.
+ */
 @Component
-public class MCPClientImpl implements MCPClient {
-    
-    @Override
-    public String fetchContext(String domain) {
-        // This would typically make HTTP calls to the MCP server
-        // For now, return a mock response
-        return "Mock context for domain: " + domain;
-    }
-    
-    @Override
-    public void sendRequest(String request) {
-        // This would typically send requests to the MCP server
-        System.out.println("Sending request: " + request);
+public class MCPClientImpl extends HttpMCPClient {
+
+    public MCPClientImpl(@Value("${mdm.mcp.client.base-url:http://localhost:${server.port:8080}}") String baseUrl,
+                         @Value("${mdm.mcp.client.connect-timeout:PT2S}") Duration connectTimeout,
+                         @Value("${mdm.mcp.client.request-timeout:PT5S}") Duration requestTimeout,
+                         @Value("${mdm.mcp.client.max-retries:2}") int maxRetries,
+                         @Value("${mdm.mcp.client.retry-backoff:PT0.1S}") Duration retryBackoff,
+                         @Value("${mdm.mcp.client.max-concurrent-requests:64}") int maxConcurrentRequests,
+                         @Value("${mdm.mcp.client.cache.ttl:PT1M}") Duration cacheTtl,
+                         @Value("${mdm.mcp.client.cache.maximum-size:10000}") int cacheMaximumSize) {
+        super(Settings.builder()
+            .baseUri(URI.create(baseUrl))
+            .connectTimeout(connectTimeout)
+            .requestTimeout(requestTimeout)
+            .maxRetries(maxRetries)
+            .retryBackoff(retryBackoff)
+            .maxConcurrentRequests(maxConcurrentRequests)
+            .cacheTtl(cacheTtl)
+            .cacheMaximumSize(cacheMaximumSize)
+            .build());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.mdm.mcp.api;
+
+import com.mdm.mcp.model.Rule;
+import com.mdm.mcp.service.RuleService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Server side of {@link com.mdm.shared.api.HttpMCPClient}: the context of a
+ * domain is its list of rules.
+ */
+@RestController
+@RequestMapping("/mcp")
+@Slf4j
+public class MCPContextController {
+    @Autowired
+    private RuleService ruleService;
+
+    @GetMapping("/context/{domain}")
+    public List<Rule> getContext(@PathVariable(name = "domain") String domain) {
+        return ruleService.getRules(domain);
+    }
+
+    @PostMapping("/requests")
+    public ResponseEntity<Void> receiveRequest(@RequestBody String request) {
+        log.info("Received MCP request: {}", request);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,196 @@
+package com.mdm.mcp.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MergeJob;
+import com.mdm.mcp.service.MergeJobService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Asynchronous bulk merges: a job is submitted, returns its id right away and
+ * runs in the background, see {@link MergeJobService}.
+ */
+@RestController
+@RequestMapping("/api/entity-merge/jobs")
+@CrossOrigin(originPatterns = "*")
+@Slf4j
+public class MergeJobController {
+
+    private static final long STREAM_POLL_INTERVAL_MS = 500;
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    @Autowired
+    private MergeJobService mergeJobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Submits a bulk merge of the given entities; the asynchronous variant of
+     * {@code /bulk-merge-with-body}.
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submit(@RequestBody List<DataEntity> entities,
+                                                      @RequestParam(name = "persist", defaultValue = "false") boolean persist) {
+        try {
+            return accepted(mergeJobService.submit(entities, persist));
+        } catch (Exception e) {
+            log.error("Error submitting merge job", e);
+            return error("Failed to submit merge job", e);
+        }
+    }
+
+    /**
+     * Submits a bulk merge of the live stored entities of a type; the asynchronous
+     * variant of {@code /bulk-merge-stored}.
+     */
+    @PostMapping("/stored")
+    public ResponseEntity<Map<String, Object>> submitStored(@RequestParam(name = "entityType") String entityType) {
+        try {
+            return accepted(mergeJobService.submitStored(entityType));
+        } catch (Exception e) {
+            log.error("Error submitting merge job", e);
+            return error("Failed to submit merge job", e);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> listJobs(@RequestParam(name = "limit", defaultValue = "50") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobs", mergeJobService.findRecent(Math.max(1, Math.min(limit, 1000))));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable(name = "jobId") String jobId) {
+        Optional<MergeJob> job = mergeJobService.find(jobId);
+        if (job.isEmpty()) {
+            return notFound(jobId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("job", job.get());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * A page of the results written so far; {@code nextOffset} continues after it.
+     */
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<Map<String, Object>> getResults(@PathVariable(name = "jobId") String jobId,
+                                                          @RequestParam(name = "offset", defaultValue = "0") long offset,
+                                                          @RequestParam(name = "limit", defaultValue = "1000") int limit) {
+        Optional<MergeJob> job = mergeJobService.find(jobId);
+        if (job.isEmpty()) {
+            return notFound(jobId);
+        }
+        List<String> page = mergeJobService.findResults(jobId, Math.max(0, offset), Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        List<Object> results = new ArrayList<>(page.size());
+        try {
+            for (String result : page) {
+                results.add(objectMapper.readTree(result));
+            }
+        } catch (IOException e) {
+            log.error("Error reading results of merge job {}", jobId, e);
+            return error("Failed to read merge job results", e);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", job.get().getStatus());
+        response.put("results", results);
+        response.put("offset", offset);
+        response.put("nextOffset", offset + results.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Streams the results as NDJSON while they are written, from {@code offset}
+     * until the job has finished.
+     */
+    @GetMapping("/{jobId}/results/stream")
+    public void streamResults(@PathVariable(name = "jobId") String jobId,
+                              @RequestParam(name = "offset", defaultValue = "0") long offset,
+                              HttpServletResponse response) throws IOException {
+        if (mergeJobService.find(jobId).isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Merge job not found");
+            return;
+        }
+        response.setContentType(NdjsonWriter.CONTENT_TYPE);
+        OutputStream out = response.getOutputStream();
+        long next = Math.max(0, offset);
+        while (true) {
+            // Read the status first, so no result written before the job finished is missed
+            boolean finished = mergeJobService.find(jobId).map(job -> job.getStatus().isFinished()).orElse(true);
+            List<String> page = mergeJobService.findResults(jobId, next, MAX_PAGE_SIZE);
+            for (String result : page) {
+                out.write(result.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+            next += page.size();
+            out.flush();
+            if (page.isEmpty() && finished) {
+                break;
+            }
+            if (page.isEmpty()) {
+                try {
+                    Thread.sleep(STREAM_POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable(name = "jobId") String jobId) {
+        if (!mergeJobService.cancel(jobId)) {
+            Optional<MergeJob> job = mergeJobService.find(jobId);
+            if (job.isEmpty()) {
+                return notFound(jobId);
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Merge job already finished");
+            response.put("job", job.get());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Merge job cancelled");
+        response.put("job", mergeJobService.find(jobId).orElse(null));
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> accepted(MergeJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Merge job queued");
+        response.put("jobId", job.getJobId());
+        response.put("job", job);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> notFound(String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Merge job not found");
+        response.put("jobId", jobId);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(String message, Exception e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        errorResponse.put("message", e.getMessage());
+        return ResponseEntity.internalServerError().body(errorResponse);
+    }
+}
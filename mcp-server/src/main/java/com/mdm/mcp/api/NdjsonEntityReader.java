@@ -0,0 +1,63 @@
+package com.mdm.mcp.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads {@link DataEntity} records one at a time with Jackson's streaming
+ * parser, so the request body is never bound as a whole. Accepts both
+ * newline-delimited JSON (one entity per line) and a single JSON array.
+ */
+public class NdjsonEntityReader implements Iterator<DataEntity>, Closeable {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private boolean inArray;
+    private JsonToken nextToken;
+
+    public NdjsonEntityReader(ObjectMapper objectMapper, InputStream in) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(in);
+        this.nextToken = parser.nextToken();
+        if (nextToken == JsonToken.START_ARRAY) {
+            inArray = true;
+            nextToken = parser.nextToken();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextToken == JsonToken.START_OBJECT;
+    }
+
+    @Override
+    public DataEntity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            DataEntity entity = objectMapper.readValue(parser, DataEntity.class);
+            nextToken = parser.nextToken();
+            if (inArray && nextToken == JsonToken.END_ARRAY) {
+                nextToken = parser.nextToken();
+            }
+            return entity;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid entity record near " + parser.currentLocation(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
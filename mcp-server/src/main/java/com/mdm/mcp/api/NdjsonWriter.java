@@ -0,0 +1,57 @@
+package com.mdm.mcp.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes one JSON record per line to a response stream. Output is flushed at
+ * most every {@code flushIntervalMillis}, so the client sees the first results
+ * early without paying a flush per record.
+ */
+public class NdjsonWriter {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final JsonGenerator generator;
+    private final ObjectWriter writer;
+    private final long flushIntervalMillis;
+    private long lastFlush;
+    private long count;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out, long flushIntervalMillis) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.setRootValueSeparator(null);
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public void write(Object record) {
+        try {
+            writer.writeValue(generator, record);
+            generator.writeRaw('\n');
+            count++;
+            long now = System.currentTimeMillis();
+            if (count == 1 || now - lastFlush >= flushIntervalMillis) {
+                generator.flush();
+                lastFlush = now;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void close() throws IOException {
+        generator.flush();
+        generator.close();
+    }
+}
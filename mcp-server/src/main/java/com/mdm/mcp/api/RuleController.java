@@ -1,22 +1,47 @@
 package com.mdm.mcp.api;
 
+import com.mdm.mcp.model.DataEntity;
 import com.mdm.mcp.model.Rule;
 import com.mdm.mcp.service.RuleService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/rules")
 @CrossOrigin(originPatterns = "*")
+@Slf4j
 public class RuleController {
     @Autowired
     private RuleService ruleService;
 
     @PostMapping
-    public void addRule(@RequestBody Rule rule) {
-        ruleService.saveRule(rule);
+    public ResponseEntity<Map<String, Object>> addRule(@RequestBody Rule rule) {
+        try {
+            Rule saved = ruleService.saveRule(rule);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Rule saved");
+            response.put("rule", saved);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid rule");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            log.error("Error saving rule", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to save rule");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
     }
 
     @GetMapping
@@ -25,7 +50,42 @@ public class RuleController {
     }
 
     @GetMapping("/{domain}")
-    public List<Rule> getRulesByDomain(@PathVariable String domain) {
+    public List<Rule> getRulesByDomain(@PathVariable(name = "domain") String domain) {
         return ruleService.getRules(domain);
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the rules of a domain over the posted entities and returns the
+     * entities as changed by the rule actions, with the rules fired and the
+     * flags raised per entity.
+     */
+    @PostMapping("/{domain}/evaluate")
+    public ResponseEntity<Map<String, Object>> evaluate(@PathVariable(name = "domain") String domain,
+                                                        @RequestBody List<DataEntity> entities) {
+        try {
+            List<RuleService.EvaluationResult> results = ruleService.evaluate(domain, entities);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("domain", domain);
+            response.put("evaluated", entities.size());
+            response.put("results", results);
+            response.put("entities", entities);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error evaluating rules of domain {}", domain, e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to evaluate rules");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Stored rules that do not compile, by id, with the compile error.
+     */
+    @GetMapping("/invalid")
+    public Map<String, String> getInvalidRules() {
+        return ruleService.getInvalidRules();
+    }
+}
@@ -0,0 +1,21 @@
+package com.mdm.mcp.config;
+
+import com.mdm.agent.skills.LifeSciencesBot;
+import com.mdm.shared.api.MCPClient;
+import com.mdm.shared.core.BotRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The bots served by {@code /bot}, one shared instance per bot type. The bots
+ * themselves live in the agentic framework.
+ */
+@Configuration
+public class BotConfig {
+
+    @Bean
+    public BotRegistry botRegistry(MCPClient mcpClient) {
+        return new BotRegistry()
+            .register("LifeSciencesBot", new LifeSciencesBot(mcpClient));
+    }
+}
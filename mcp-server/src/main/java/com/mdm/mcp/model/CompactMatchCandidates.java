@@ -0,0 +1,71 @@
+package com.mdm.mcp.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Match candidates with every entity serialized once: {@code entities} holds
+ * each distinct entity, and each candidate is a tuple
+ * {@code [entity1, entity2, confidenceScore, ruleName]} of indexes into it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactMatchCandidates {
+
+    private List<DataEntity> entities;
+    private List<Candidate> candidates;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    @JsonPropertyOrder({"entity1", "entity2", "confidenceScore", "ruleName"})
+    public static class Candidate {
+        private int entity1;
+        private int entity2;
+        private Double confidenceScore;
+        private String ruleName;
+    }
+
+    /**
+     * Entities are deduplicated by entity id, and by identity when they have none.
+     */
+    public static CompactMatchCandidates of(List<MatchCandidate> matchCandidates) {
+        List<DataEntity> entities = new ArrayList<>();
+        Map<String, Integer> byId = new HashMap<>();
+        Map<DataEntity, Integer> withoutId = new IdentityHashMap<>();
+        List<Candidate> candidates = new ArrayList<>(matchCandidates.size());
+        for (MatchCandidate candidate : matchCandidates) {
+            int entity1 = index(candidate.getEntity1(), entities, byId, withoutId);
+            int entity2 = index(candidate.getEntity2(), entities, byId, withoutId);
+            candidates.add(new Candidate(entity1, entity2, candidate.getConfidenceScore(), candidate.getRuleName()));
+        }
+        return new CompactMatchCandidates(entities, candidates);
+    }
+
+    private static int index(DataEntity entity, List<DataEntity> entities,
+                             Map<String, Integer> byId, Map<DataEntity, Integer> withoutId) {
+        String entityId = entity.getEntityId();
+        Integer index = entityId != null ? byId.get(entityId) : withoutId.get(entity);
+        if (index == null) {
+            index = entities.size();
+            entities.add(entity);
+            if (entityId != null) {
+                byId.put(entityId, index);
+            } else {
+                withoutId.put(entity, index);
+            }
+        }
+        return index;
+    }
+}
@@ -1,25 +1,40 @@
 package com.mdm.mcp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mdm.mcp.service.MatchKeyListener;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 @Entity
 @Table(name = "entities")
+@EntityListeners(MatchKeyListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class DataEntity {
     
+    // Sequence ids (pre-allocated in blocks) keep Hibernate insert batching enabled, unlike IDENTITY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "entities_seq")
+    @SequenceGenerator(name = "entities_seq", sequenceName = "entities_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "entity_id", unique = true, nullable = false)
@@ -45,7 +60,9 @@ public class DataEntity {
     
     @ElementCollection
     @CollectionTable(name = "entity_attributes", 
-        joinColumns = @JoinColumn(name = "entity_id"))
+        joinColumns = @JoinColumn(name = "entity_id"),
+        indexes = @Index(name = "idx_entity_attributes_name_value", columnList = "attribute_name, attribute_value"))
+    @BatchSize(size = 256)
     @MapKeyColumn(name = "attribute_name")
     @Column(name = "attribute_value")
     private Map<String, String> attributes = new HashMap<>();
@@ -53,10 +70,135 @@ public class DataEntity {
     @ElementCollection
     @CollectionTable(name = "entity_relationships", 
         joinColumns = @JoinColumn(name = "entity_id"))
+    @BatchSize(size = 256)
     @MapKeyColumn(name = "relationship_type")
     @Column(name = "related_entity_id")
     private Map<String, String> relationships = new HashMap<>();
     
+    // Standardized match keys, set by the standardization stage before matching
+    // and cleared whenever the attributes change
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient MatchKeys matchKeys;
+    
+    // What getAttributes() returns: the attributes, clearing the match keys on every write
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient AttributeView attributeView;
+    
+    /**
+     * Returns the match keys set by {@code MatchKeyStandardizer}. If the entity
+     * has not been standardized since its attributes last changed, they are
+     * derived now, with the country code configured for the standardizer.
+     */
+    @JsonIgnore
+    public MatchKeys getMatchKeys() {
+        MatchKeys keys = matchKeys;
+        if (keys == null) {
+            keys = MatchKeys.from(attributes);
+            matchKeys = keys;
+        }
+        return keys;
+    }
+    
+    /**
+     * The attributes. Changes made through the returned map, like a rule action
+     * setting an attribute, clear the match keys; its views (entry, key and
+     * value sets) are read-only.
+     */
+    public Map<String, String> getAttributes() {
+        // Hibernate sets the field directly, so the view follows the current map
+        Map<String, String> current = attributes;
+        if (current == null) {
+            return null;
+        }
+        AttributeView view = attributeView;
+        if (view == null || view.attributes != current) {
+            view = new AttributeView(current);
+            attributeView = view;
+        }
+        return view;
+    }
+    
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes instanceof AttributeView view ? view.attributes : attributes;
+        this.matchKeys = null;
+    }
+    
+    private final class AttributeView extends AbstractMap<String, String> {
+        private final Map<String, String> attributes;
+        
+        AttributeView(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+        
+        @Override
+        public int size() {
+            return attributes.size();
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return attributes.containsKey(key);
+        }
+        
+        @Override
+        public String get(Object key) {
+            return attributes.get(key);
+        }
+        
+        @Override
+        public String put(String key, String value) {
+            matchKeys = null;
+            return attributes.put(key, value);
+        }
+        
+        @Override
+        public String remove(Object key) {
+            matchKeys = null;
+            return attributes.remove(key);
+        }
+        
+        @Override
+        public void putAll(Map<? extends String, ? extends String> values) {
+            matchKeys = null;
+            attributes.putAll(values);
+        }
+        
+        @Override
+        public void clear() {
+            matchKeys = null;
+            attributes.clear();
+        }
+        
+        @Override
+        public void replaceAll(BiFunction<? super String, ? super String, ? extends String> function) {
+            matchKeys = null;
+            attributes.replaceAll(function);
+        }
+        
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return Collections.unmodifiableMap(attributes).entrySet();
+        }
+        
+        @Override
+        public Set<String> keySet() {
+            return Collections.unmodifiableSet(attributes.keySet());
+        }
+        
+        @Override
+        public Collection<String> values() {
+            return Collections.unmodifiableCollection(attributes.values());
+        }
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -67,4 +209,10 @@ public class DataEntity {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
+    
+    // Loading and refreshing set the attributes without going through the setter
+    @PostLoad
+    protected void onLoad() {
+        matchKeys = null;
+    }
 } 
\ No newline at end of file
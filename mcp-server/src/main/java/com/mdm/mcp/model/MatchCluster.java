@@ -0,0 +1,25 @@
+package com.mdm.mcp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MatchCluster {
+    
+    private String clusterId;
+    
+    // Entities transitively linked by high-confidence matches; one golden record per cluster
+    private List<DataEntity> members;
+    
+    // Weakest match score linking the cluster together
+    private Double confidenceScore;
+    
+    private Integer edgeCount;
+}
@@ -0,0 +1,193 @@
+package com.mdm.mcp.model;
+
+import lombok.Getter;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Standardized match keys of an entity, derived once from its raw attributes so
+ * that blocking, the match rules and the fallback matcher compare normalized
+ * values without re-parsing strings for every pair. A key is {@code null} when
+ * the entity has no usable value for it.
+ */
+@Getter
+public final class MatchKeys {
+
+    public static final String DEFAULT_COUNTRY_CODE = "1";
+
+    // mdm.matching.phone.default-country-code, set by MatchKeyStandardizer
+    private static volatile String configuredCountryCode = DEFAULT_COUNTRY_CODE;
+
+    // Lower-cased, trimmed e-mail address
+    private final String email;
+
+    // E.164 phone number (+<country code><number>), or bare digits if it cannot be interpreted
+    private final String phone;
+
+    // SSN digits only
+    private final String ssn;
+
+    // Accent-folded, lower-cased name tokens separated by single spaces
+    private final String name;
+
+    // Normalized "company name|address" of organizations
+    private final String company;
+
+    private final NameSignature nameSignature;
+
+    private MatchKeys(String email, String phone, String ssn, NameSignature nameSignature, String company) {
+        this.email = email;
+        this.phone = phone;
+        this.ssn = ssn;
+        this.nameSignature = nameSignature;
+        this.name = nameSignature.isEmpty() ? null : nameSignature.getNormalized();
+        this.company = company;
+    }
+
+    /**
+     * The keys of the attributes, with the configured default country code.
+     */
+    public static MatchKeys from(Map<String, String> attributes) {
+        return from(attributes, configuredCountryCode);
+    }
+
+    public static void configureDefaultCountryCode(String defaultCountryCode) {
+        configuredCountryCode = defaultCountryCode;
+    }
+
+    public static MatchKeys from(Map<String, String> attributes, String defaultCountryCode) {
+        if (attributes == null || attributes.isEmpty()) {
+            return new MatchKeys(null, null, null, NameSignature.EMPTY, null);
+        }
+        String fullName = attributes.get("fullName");
+        if (fullName == null) {
+            String firstName = attributes.get("firstName");
+            String lastName = attributes.get("lastName");
+            if (firstName != null || lastName != null) {
+                fullName = (firstName == null ? "" : firstName) + " " + (lastName == null ? "" : lastName);
+            }
+        }
+        String companyName = normalizeText(attributes.get("companyName"));
+        String address = normalizeText(attributes.get("address"));
+        return new MatchKeys(
+            normalizeEmail(attributes.get("email")),
+            normalizePhone(attributes.get("phoneNumber"), defaultCountryCode),
+            emptyToNull(digitsOnly(attributes.get("ssn"))),
+            NameSignature.of(foldAccents(fullName)),
+            companyName != null && address != null ? companyName + "|" + address : null);
+    }
+
+    public static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes a phone number to E.164. Numbers written with a leading "+" or
+     * "00" already carry their country code; national numbers (a leading trunk
+     * "0", or at most 10 digits) get {@code defaultCountryCode}. Extensions are
+     * dropped.
+     */
+    public static String normalizePhone(String phone, String defaultCountryCode) {
+        if (phone == null) {
+            return null;
+        }
+        String value = phone.trim().toLowerCase(Locale.ROOT);
+        int extension = indexOfExtension(value);
+        if (extension >= 0) {
+            value = value.substring(0, extension);
+        }
+        String digits = digitsOnly(value);
+        if (digits.isEmpty()) {
+            return null;
+        }
+
+        boolean international = value.startsWith("+");
+        if (!international && digits.startsWith("00")) {
+            digits = digits.substring(2);
+            international = true;
+        }
+        if (!international) {
+            if (digits.startsWith("0")) {
+                digits = defaultCountryCode + digits.substring(1);
+            } else if (digits.length() <= 10) {
+                digits = defaultCountryCode + digits;
+            }
+        }
+        // E.164 allows at most 15 digits; keep anything else comparable as plain digits
+        return digits.length() <= 15 ? "+" + digits : digits;
+    }
+
+    /**
+     * Lower-cases the text, removes diacritics and collapses whitespace.
+     */
+    public static String normalizeText(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return foldAccents(text.trim()).toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    public static String foldAccents(String text) {
+        if (text == null) {
+            return null;
+        }
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return text;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            switch (c) {
+                case '\u00DF' -> folded.append("ss");
+                case '\u00E6' -> folded.append("ae");
+                case '\u00C6' -> folded.append("AE");
+                case '\u00F8' -> folded.append('o');
+                case '\u00D8' -> folded.append('O');
+                case '\u0142' -> folded.append('l');
+                case '\u0141' -> folded.append('L');
+                default -> folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    private static int indexOfExtension(String phone) {
+        int ext = phone.indexOf("ext");
+        int x = phone.indexOf('x');
+        if (ext >= 0 && (x < 0 || ext < x)) {
+            return ext;
+        }
+        return x;
+    }
+
+    private static String digitsOnly(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
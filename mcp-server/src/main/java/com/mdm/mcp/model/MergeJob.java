@@ -0,0 +1,69 @@
+package com.mdm.mcp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * State and progress of an asynchronous bulk merge job. The counters double as
+ * checkpoints: {@code scoredBlocks} for the matching phase and
+ * {@code mergedThrough} for the merging phase.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MergeJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    public enum Phase {
+        MATCHING,
+        MERGING
+    }
+
+    private String jobId;
+    private Status status;
+    private Phase phase;
+
+    // Stored entities of this type are merged; null for jobs submitted with their entities
+    private String entityType;
+    private boolean persistOutput;
+
+    // Null until the stored entities have been loaded
+    private Integer totalEntities;
+    // Entities blocked so far
+    private int processedEntities;
+    // Null until the input has been blocked
+    private Integer totalBlocks;
+    private int scoredBlocks;
+    private long candidates;
+    private long merges;
+    private long resultsWritten;
+    // Key of the last group of candidates merged, null before the first
+    private Integer mergedThrough;
+    private String error;
+
+    @JsonIgnore
+    private String owner;
+    @JsonIgnore
+    private LocalDateTime heartbeatAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
@@ -1,5 +1,6 @@
 package com.mdm.mcp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -37,4 +38,8 @@ public class MergeResult {
     
     // Relationships created/modified
     private List<String> relationshipChanges;
+    
+    // Golden record created by the merge, kept for persisting it; responses only carry its id
+    @JsonIgnore
+    private DataEntity mergedEntity;
 } 
\ No newline at end of file
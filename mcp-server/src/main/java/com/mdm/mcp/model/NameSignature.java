@@ -0,0 +1,152 @@
+package com.mdm.mcp.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Name features computed once per entity and reused for every comparison:
+ * normalized tokens, a packed Soundex code per token and the sorted set of
+ * padded character trigrams of all tokens.
+ */
+public final class NameSignature {
+
+    public static final NameSignature EMPTY = new NameSignature("", new String[0], new int[0], new int[0]);
+
+    private final String source;
+    private final String normalized;
+    private final String[] tokens;
+    private final int[] phoneticCodes;
+    private final int[] qgrams;
+
+    private NameSignature(String source, String[] tokens, int[] phoneticCodes, int[] qgrams) {
+        this.source = source;
+        this.normalized = String.join(" ", tokens);
+        this.tokens = tokens;
+        this.phoneticCodes = phoneticCodes;
+        this.qgrams = qgrams;
+    }
+
+    public static NameSignature of(String name) {
+        if (name == null || name.isBlank()) {
+            return EMPTY;
+        }
+        List<String> tokenList = new ArrayList<>(4);
+        StringBuilder token = new StringBuilder();
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokenList.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (tokenList.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] tokens = tokenList.toArray(new String[0]);
+        int[] phoneticCodes = new int[tokens.length];
+        int gramCount = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            phoneticCodes[i] = soundex(tokens[i]);
+            gramCount += tokens[i].length();
+        }
+
+        // Trigrams of " token ", so token boundaries and single-letter initials count too
+        int[] qgrams = new int[gramCount];
+        int g = 0;
+        for (String t : tokens) {
+            char first = ' ';
+            char second = t.charAt(0);
+            for (int i = 1; i <= t.length(); i++) {
+                char c = i < t.length() ? t.charAt(i) : ' ';
+                qgrams[g++] = trigram(first, second, c);
+                first = second;
+                second = c;
+            }
+        }
+        Arrays.sort(qgrams);
+        int distinct = 0;
+        for (int i = 0; i < qgrams.length; i++) {
+            if (i == 0 || qgrams[i] != qgrams[distinct - 1]) {
+                qgrams[distinct++] = qgrams[i];
+            }
+        }
+        return new NameSignature(name, tokens, phoneticCodes, Arrays.copyOf(qgrams, distinct));
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * The tokens joined by single spaces.
+     */
+    public String getNormalized() {
+        return normalized;
+    }
+
+    public int tokenCount() {
+        return tokens.length;
+    }
+
+    public String token(int i) {
+        return tokens[i];
+    }
+
+    /**
+     * @return the packed Soundex code of the token, or -1 if it does not start with a letter
+     */
+    public int phoneticCode(int i) {
+        return phoneticCodes[i];
+    }
+
+    /**
+     * Sorted, distinct trigram codes. The array is shared and must not be modified.
+     */
+    public int[] qgrams() {
+        return qgrams;
+    }
+
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    // Unique for Latin-1 characters; other characters may collide, which only adds candidates
+    private static int trigram(char c1, char c2, char c3) {
+        return ((c1 & 0x3FF) << 20) | ((c2 & 0x3FF) << 10) | (c3 & 0x3FF);
+    }
+
+    // Soundex packed as (first letter << 12) | d1 << 8 | d2 << 4 | d3
+    private static final String SOUNDEX_DIGITS = "01230120022455012623010202";
+
+    static int soundex(String token) {
+        char first = token.charAt(0);
+        if (first < 'a' || first > 'z') {
+            return -1;
+        }
+        int code = (first - 'a') << 12;
+        int digits = 0;
+        char last = SOUNDEX_DIGITS.charAt(first - 'a');
+        for (int i = 1; i < token.length() && digits < 3; i++) {
+            char c = token.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char digit = SOUNDEX_DIGITS.charAt(c - 'a');
+            if (digit != '0' && digit != last) {
+                code |= (digit - '0') << (8 - 4 * digits);
+                digits++;
+            }
+            // h and w do not separate letters with the same code
+            if (c != 'h' && c != 'w') {
+                last = digit;
+            }
+        }
+        return code;
+    }
+}
@@ -1,15 +1,31 @@
 package com.mdm.mcp.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Entity
+@Table(name = "rules")
 @Data
 public class Rule {
     @Id
+    @Column(name = "rule_id", length = 50)
     private String ruleId;
+
+    @Column(name = "domain", length = 50, nullable = false)
     private String domain;
+
+    @Column(name = "condition", columnDefinition = "TEXT", nullable = false)
     private String condition;
+
+    @Column(name = "action", columnDefinition = "TEXT", nullable = false)
     private String action;
-}
\ No newline at end of file
+
+    // Rules of a domain run in this order; kept when a rule is saved again
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
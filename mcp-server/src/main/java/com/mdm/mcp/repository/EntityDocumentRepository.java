@@ -0,0 +1,288 @@
+package com.mdm.mcp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * JDBC access to the {@code entity_documents} table, which stores each entity
+ * with its attributes and relationships as JSONB columns. Unlike the
+ * {@code @ElementCollection} mapping, an entity is read and written in a single
+ * row, so loading N entities is one query instead of N + 1.
+ *
+ * Requires PostgreSQL.
+ */
+@Repository
+public class EntityDocumentRepository {
+
+    /** Attributes with an expression index in {@code db/entity-documents.sql}. */
+    public static final Set<String> INDEXED_ATTRIBUTES = Set.of("email", "phoneNumber", "ssn", "companyName", "fullName");
+
+    private static final String SCHEMA = "db/entity-documents.sql";
+
+    private static final int FETCH_SIZE = 5_000;
+    private static final int WRITE_BATCH_SIZE = 1_000;
+
+    private static final TypeReference<Map<String, String>> STRING_MAP = new TypeReference<>() {};
+
+    private static final String COLUMNS =
+        "id, entity_id, entity_type, source_system, confidence_score, status, created_at, updated_at, attributes, relationships";
+
+    private static final String UPSERT =
+        "INSERT INTO entity_documents (entity_id, entity_type, source_system, confidence_score, status, " +
+        "created_at, updated_at, attributes, relationships) VALUES (?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?::jsonb) " +
+        "ON CONFLICT (entity_id) DO UPDATE SET entity_type = EXCLUDED.entity_type, " +
+        "source_system = EXCLUDED.source_system, confidence_score = EXCLUDED.confidence_score, " +
+        "status = EXCLUDED.status, updated_at = EXCLUDED.updated_at, " +
+        "attributes = EXCLUDED.attributes, relationships = EXCLUDED.relationships";
+
+    private static final String ACTIVE = "(status IS NULL OR status <> 'MERGED')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final RowMapper<DataEntity> rowMapper = this::mapRow;
+
+    public void createSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(jdbcTemplate.getDataSource());
+    }
+
+    /**
+     * Inserts or updates the entity and sets its generated id.
+     */
+    public DataEntity save(DataEntity entity) {
+        touch(entity);
+        Long id = jdbcTemplate.queryForObject(UPSERT + " RETURNING id", Long.class, parameters(entity));
+        entity.setId(id);
+        return entity;
+    }
+
+    /**
+     * Inserts or updates the entities in JDBC batches. Generated ids are not read
+     * back; they are set when the entities are loaded again.
+     */
+    public void saveAll(Collection<DataEntity> entities) {
+        for (DataEntity entity : entities) {
+            touch(entity);
+        }
+        jdbcTemplate.batchUpdate(UPSERT, entities, WRITE_BATCH_SIZE, (ps, entity) -> {
+            Object[] parameters = parameters(entity);
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+        });
+    }
+
+    /**
+     * Sets the status of all given entities in one statement.
+     *
+     * @return the number of updated rows
+     */
+    public int updateStatus(Collection<String> entityIds, String status) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                "UPDATE entity_documents SET status = ?, updated_at = ? WHERE entity_id = ANY (?)");
+            ps.setString(1, status);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setArray(3, connection.createArrayOf("varchar", entityIds.toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Loads all live entities of a type, attributes included, in one query. Rows
+     * are fetched in chunks of {@value #FETCH_SIZE}, which PostgreSQL only does
+     * inside a transaction.
+     */
+    public List<DataEntity> findActiveByEntityType(String entityType) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM entity_documents WHERE entity_type = ? AND " + ACTIVE + " ORDER BY id");
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, entityType);
+            return ps;
+        }, rowMapper);
+    }
+
+    // Keyset scans: each call returns the next slice of entities after afterId, in id order, for EntityStore's streams
+
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM entity_documents", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    public List<DataEntity> findByEntityTypeAfter(String entityType, long afterId, int limit) {
+        return findAfter("entity_type = ?", entityType, afterId, limit);
+    }
+
+    public List<DataEntity> findActiveByEntityTypeAfter(String entityType, long afterId, int limit) {
+        return findAfter("entity_type = ? AND " + ACTIVE, entityType, afterId, limit);
+    }
+
+    public List<DataEntity> findByStatusAfter(String status, long afterId, int limit) {
+        return findAfter("status = ?", status, afterId, limit);
+    }
+
+    public List<DataEntity> findBySourceSystemAfter(String sourceSystem, long afterId, int limit) {
+        return findAfter("source_system = ?", sourceSystem, afterId, limit);
+    }
+
+    public List<DataEntity> findByMinConfidenceScoreAfter(double minConfidence, long afterId, int limit) {
+        return findAfter("confidence_score >= ?", minConfidence, afterId, limit);
+    }
+
+    private List<DataEntity> findAfter(String condition, Object value, long afterId, int limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM entity_documents WHERE " + condition + " AND id > ? ORDER BY id LIMIT ?");
+            ps.setFetchSize(limit);
+            ps.setObject(1, value);
+            ps.setLong(2, afterId);
+            ps.setInt(3, limit);
+            return ps;
+        }, rowMapper);
+    }
+
+    public Optional<DataEntity> findByEntityId(String entityId) {
+        List<DataEntity> entities = jdbcTemplate.query(
+            "SELECT " + COLUMNS + " FROM entity_documents WHERE entity_id = ?", rowMapper, entityId);
+        return entities.isEmpty() ? Optional.empty() : Optional.of(entities.get(0));
+    }
+
+    public List<DataEntity> findByIds(Collection<Long> ids) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT " + COLUMNS + " FROM entity_documents WHERE id = ANY (?)");
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, rowMapper);
+    }
+
+    public List<DataEntity> findActiveByEntityIds(String entityType, Collection<String> entityIds) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM entity_documents WHERE entity_type = ? AND " + ACTIVE + " AND entity_id = ANY (?)");
+            ps.setString(1, entityType);
+            ps.setArray(2, connection.createArrayOf("varchar", entityIds.toArray()));
+            return ps;
+        }, rowMapper);
+    }
+
+    /**
+     * Finds the live entities of a type whose attribute holds any of the given
+     * values. Match key attributes use their expression index, any other
+     * attribute the GIN index through JSONB containment.
+     */
+    public List<DataEntity> findActiveByAttributeValues(String entityType, String attributeName, Collection<String> values) {
+        if (values.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (INDEXED_ATTRIBUTES.contains(attributeName)) {
+            // The key is inlined (it comes from the fixed set above) so that the planner can match the index expression
+            String sql = "SELECT " + COLUMNS + " FROM entity_documents WHERE entity_type = ? AND " + ACTIVE +
+                " AND (attributes ->> '" + attributeName + "') = ANY (?)";
+            return jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setString(1, entityType);
+                ps.setArray(2, connection.createArrayOf("varchar", values.toArray()));
+                return ps;
+            }, rowMapper);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM entity_documents WHERE entity_type = ? AND " + ACTIVE + " AND (");
+        List<Object> parameters = new ArrayList<>(values.size() + 1);
+        parameters.add(entityType);
+        for (String value : values) {
+            sql.append(parameters.size() > 1 ? " OR " : "").append("attributes @> ?::jsonb");
+            parameters.add(toJson(Map.of(attributeName, value)));
+        }
+        sql.append(')');
+        return jdbcTemplate.query(sql.toString(), rowMapper, parameters.toArray());
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM entity_documents", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private Object[] parameters(DataEntity entity) {
+        return new Object[] {
+            entity.getEntityId(),
+            entity.getEntityType(),
+            entity.getSourceSystem(),
+            entity.getConfidenceScore(),
+            entity.getStatus(),
+            Timestamp.valueOf(entity.getCreatedAt()),
+            Timestamp.valueOf(entity.getUpdatedAt()),
+            toJson(entity.getAttributes()),
+            toJson(entity.getRelationships())
+        };
+    }
+
+    private static void touch(DataEntity entity) {
+        LocalDateTime now = LocalDateTime.now();
+        if (entity.getCreatedAt() == null) {
+            entity.setCreatedAt(now);
+        }
+        entity.setUpdatedAt(now);
+    }
+
+    private DataEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        DataEntity entity = new DataEntity();
+        entity.setId(rs.getLong("id"));
+        entity.setEntityId(rs.getString("entity_id"));
+        entity.setEntityType(rs.getString("entity_type"));
+        entity.setSourceSystem(rs.getString("source_system"));
+        double confidence = rs.getDouble("confidence_score");
+        entity.setConfidenceScore(rs.wasNull() ? null : confidence);
+        entity.setStatus(rs.getString("status"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        entity.setCreatedAt(createdAt == null ? null : createdAt.toLocalDateTime());
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        entity.setUpdatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime());
+        entity.setAttributes(fromJson(rs.getString("attributes")));
+        entity.setRelationships(fromJson(rs.getString("relationships")));
+        return entity;
+    }
+
+    private String toJson(Map<String, String> values) {
+        try {
+            return objectMapper.writeValueAsString(values == null ? Map.of() : values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize entity document", e);
+        }
+    }
+
+    private Map<String, String> fromJson(String json) throws SQLException {
+        if (json == null) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, STRING_MAP);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Malformed entity document", e);
+        }
+    }
+}
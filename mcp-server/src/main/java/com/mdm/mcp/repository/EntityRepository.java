@@ -1,11 +1,18 @@
 package com.mdm.mcp.repository;
 
 import com.mdm.mcp.model.DataEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +27,19 @@ public interface EntityRepository extends JpaRepository<DataEntity, Long> {
     
     List<DataEntity> findByEntityType(String entityType);
     
+    /**
+     * Loads the live entities of a type with their attributes in one query; the
+     * relationships follow in batches (see {@code @BatchSize} on {@link DataEntity}).
+     */
+    @Query("SELECT DISTINCT e FROM DataEntity e LEFT JOIN FETCH e.attributes " +
+           "WHERE e.entityType = :entityType AND (e.status IS NULL OR e.status <> 'MERGED')")
+    List<DataEntity> findActiveWithAttributesByEntityType(@Param("entityType") String entityType);
+    
+    @Query("SELECT DISTINCT e FROM DataEntity e LEFT JOIN FETCH e.attributes " +
+           "WHERE e.entityType = :entityType AND (e.status IS NULL OR e.status <> 'MERGED') AND e.entityId IN :entityIds")
+    List<DataEntity> findActiveWithAttributesByEntityIds(@Param("entityType") String entityType,
+                                                         @Param("entityIds") Collection<String> entityIds);
+    
     List<DataEntity> findByStatus(String status);
     
     List<DataEntity> findByEntityTypeAndStatus(String entityType, String status);
@@ -36,9 +56,52 @@ public interface EntityRepository extends JpaRepository<DataEntity, Long> {
     @Query("SELECT e FROM DataEntity e WHERE e.attributes['companyName'] = :companyName")
     List<DataEntity> findByCompanyName(@Param("companyName") String companyName);
     
+    /**
+     * Probes the (attribute_name, attribute_value) index for live entities of a type
+     * holding any of the given values.
+     */
+    @Query("SELECT DISTINCT e FROM DataEntity e JOIN e.attributes a " +
+           "WHERE e.entityType = :entityType AND (e.status IS NULL OR e.status <> 'MERGED') " +
+           "AND KEY(a) = :attributeName AND VALUE(a) IN :values")
+    List<DataEntity> findActiveByAttributeValues(@Param("entityType") String entityType,
+                                                 @Param("attributeName") String attributeName,
+                                                 @Param("values") Collection<String> values);
+    
+    @Modifying
+    @Query("UPDATE DataEntity e SET e.status = :status, e.updatedAt = :updatedAt WHERE e.entityId IN :entityIds")
+    int updateStatusByEntityIds(@Param("entityIds") Collection<String> entityIds,
+                                @Param("status") String status,
+                                @Param("updatedAt") LocalDateTime updatedAt);
+    
     @Query("SELECT e FROM DataEntity e WHERE e.confidenceScore >= :minConfidence")
     List<DataEntity> findByMinConfidenceScore(@Param("minConfidence") Double minConfidence);
     
     @Query("SELECT e FROM DataEntity e WHERE e.sourceSystem = :sourceSystem")
     List<DataEntity> findBySourceSystem(@Param("sourceSystem") String sourceSystem);
-} 
\ No newline at end of file
+    
+    // Keyset scans: each call returns the next slice of ids after afterId, in id order, for EntityStore's streams
+    
+    @Query("SELECT MAX(e.id) FROM DataEntity e")
+    Long findMaxId();
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT e.id FROM DataEntity e WHERE e.entityType = :entityType AND e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsByEntityTypeAfter(@Param("entityType") String entityType, @Param("afterId") Long afterId, Limit limit);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT e.id FROM DataEntity e WHERE e.entityType = :entityType AND (e.status IS NULL OR e.status <> 'MERGED') " +
+           "AND e.id > :afterId ORDER BY e.id")
+    List<Long> findActiveIdsByEntityTypeAfter(@Param("entityType") String entityType, @Param("afterId") Long afterId, Limit limit);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT e.id FROM DataEntity e WHERE e.status = :status AND e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsByStatusAfter(@Param("status") String status, @Param("afterId") Long afterId, Limit limit);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT e.id FROM DataEntity e WHERE e.sourceSystem = :sourceSystem AND e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsBySourceSystemAfter(@Param("sourceSystem") String sourceSystem, @Param("afterId") Long afterId, Limit limit);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT e.id FROM DataEntity e WHERE e.confidenceScore >= :minConfidence AND e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsByMinConfidenceScoreAfter(@Param("minConfidence") Double minConfidence, @Param("afterId") Long afterId, Limit limit);
+}
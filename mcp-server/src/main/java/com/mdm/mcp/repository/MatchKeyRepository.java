@@ -0,0 +1,108 @@
+package com.mdm.mcp.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to the {@code match_keys} table, see
+ * {@link com.mdm.mcp.service.MatchKeyIndex}.
+ */
+@Repository
+public class MatchKeyRepository {
+
+    private static final String SCHEMA = "db/match-keys.sql";
+
+    private static final int MAX_IN_LIST_SIZE = 1_000;
+
+    private static final int FETCH_SIZE = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void createSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(jdbcTemplate.getDataSource());
+    }
+
+    /**
+     * Replaces all keys of the given entities.
+     *
+     * @param keys rows of {@code key_hash, entity_id, key_type, entity_type}
+     */
+    public void replace(Collection<String> entityIds, List<Object[]> keys) {
+        deleteByEntityIds(entityIds);
+        if (!keys.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO match_keys (key_hash, entity_id, key_type, entity_type) VALUES (?, ?, ?, ?)", keys);
+        }
+    }
+
+    public void deleteByEntityIds(Collection<String> entityIds) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(entityIds.size());
+        for (String entityId : entityIds) {
+            args.add(new Object[] {entityId});
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM match_keys WHERE entity_id = ?", args);
+    }
+
+    /**
+     * Batch probe: the ids of the entities of a type holding each of the given
+     * key hashes, with one primary key lookup per hash and one query per
+     * {@value #MAX_IN_LIST_SIZE} hashes.
+     */
+    public Map<Long, List<String>> findEntityIds(String entityType, Collection<Long> keyHashes) {
+        Map<Long, List<String>> entityIds = new HashMap<>();
+        List<Long> hashes = new ArrayList<>(keyHashes);
+        for (int from = 0; from < hashes.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = hashes.subList(from, Math.min(hashes.size(), from + MAX_IN_LIST_SIZE));
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(entityType);
+            args.addAll(chunk);
+            jdbcTemplate.query("SELECT key_hash, entity_id FROM match_keys WHERE entity_type = ? AND key_hash IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                rs -> {
+                    entityIds.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2));
+                }, args.toArray());
+        }
+        return entityIds;
+    }
+
+    public Map<String, Long> countByKeyType() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT key_type, COUNT(*) FROM match_keys GROUP BY key_type",
+            rs -> {
+                counts.put(rs.getString(1), rs.getLong(2));
+            });
+        return counts;
+    }
+
+    /**
+     * Reads all keys as {@code key_type, key_hash} rows, fetched in chunks of
+     * {@value #FETCH_SIZE}; PostgreSQL only does so inside a transaction.
+     */
+    public void forEachKey(RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT key_type, key_hash FROM match_keys");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM match_keys", Long.class);
+        return count == null ? 0 : count;
+    }
+}
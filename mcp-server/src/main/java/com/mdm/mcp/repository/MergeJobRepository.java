@@ -0,0 +1,223 @@
+package com.mdm.mcp.repository;
+
+import com.mdm.mcp.model.MergeJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to the {@code merge_jobs} table and the input, candidates and
+ * results of each job. Updates of a job only apply while it is unfinished and
+ * owned by the caller, so an instance that lost a job (cancelled, or taken
+ * over after missing its heartbeats) cannot overwrite it.
+ */
+@Repository
+public class MergeJobRepository {
+
+    private static final String SCHEMA = "db/merge-jobs.sql";
+
+    private static final int MAX_IN_LIST_SIZE = 1_000;
+
+    private static final String UNFINISHED = "status IN ('QUEUED', 'RUNNING')";
+
+    private static final RowMapper<MergeJob> JOB_MAPPER = (rs, rowNum) -> MergeJob.builder()
+        .jobId(rs.getString("job_id"))
+        .status(MergeJob.Status.valueOf(rs.getString("status")))
+        .phase(rs.getString("phase") == null ? null : MergeJob.Phase.valueOf(rs.getString("phase")))
+        .entityType(rs.getString("entity_type"))
+        .persistOutput(rs.getBoolean("persist_output"))
+        .totalEntities((Integer) rs.getObject("total_entities", Integer.class))
+        .processedEntities(rs.getInt("processed_entities"))
+        .totalBlocks((Integer) rs.getObject("total_blocks", Integer.class))
+        .scoredBlocks(rs.getInt("scored_blocks"))
+        .candidates(rs.getLong("candidates"))
+        .merges(rs.getLong("merges"))
+        .resultsWritten(rs.getLong("results_written"))
+        .mergedThrough((Integer) rs.getObject("merged_through", Integer.class))
+        .error(rs.getString("error"))
+        .owner(rs.getString("owner"))
+        .heartbeatAt(toLocalDateTime(rs.getTimestamp("heartbeat_at")))
+        .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+        .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+        .finishedAt(toLocalDateTime(rs.getTimestamp("finished_at")))
+        .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void createSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(jdbcTemplate.getDataSource());
+    }
+
+    public void insert(MergeJob job) {
+        jdbcTemplate.update("INSERT INTO merge_jobs (job_id, status, phase, entity_type, persist_output, total_entities, " +
+                "processed_entities, scored_blocks, candidates, merges, results_written, owner, heartbeat_at, " +
+                "created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, 0, 0, 0, 0, 0, ?, ?, ?, ?)",
+            job.getJobId(), job.getStatus().name(), job.getPhase() == null ? null : job.getPhase().name(),
+            job.getEntityType(), job.isPersistOutput(), job.getTotalEntities(), job.getOwner(),
+            toTimestamp(job.getHeartbeatAt()), toTimestamp(job.getCreatedAt()), toTimestamp(job.getCreatedAt()));
+    }
+
+    public Optional<MergeJob> findById(String jobId) {
+        return jdbcTemplate.query("SELECT * FROM merge_jobs WHERE job_id = ?", JOB_MAPPER, jobId).stream().findFirst();
+    }
+
+    public List<MergeJob> findRecent(int limit) {
+        return jdbcTemplate.query("SELECT * FROM merge_jobs ORDER BY created_at DESC LIMIT ?", JOB_MAPPER, limit);
+    }
+
+    /**
+     * Unfinished jobs whose owner has not sent a heartbeat since {@code staleBefore}.
+     */
+    public List<String> findStale(LocalDateTime staleBefore) {
+        return jdbcTemplate.queryForList("SELECT job_id FROM merge_jobs WHERE " + UNFINISHED +
+            " AND (heartbeat_at IS NULL OR heartbeat_at < ?) ORDER BY created_at", String.class, toTimestamp(staleBefore));
+    }
+
+    /**
+     * Takes over a stale job; of several instances trying at once, only one succeeds.
+     */
+    public boolean claim(String jobId, String owner, LocalDateTime staleBefore) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update("UPDATE merge_jobs SET owner = ?, heartbeat_at = ?, updated_at = ? WHERE job_id = ? AND " +
+                UNFINISHED + " AND (heartbeat_at IS NULL OR heartbeat_at < ?)",
+            owner, toTimestamp(now), toTimestamp(now), jobId, toTimestamp(staleBefore)) == 1;
+    }
+
+    public void heartbeat(Collection<String> jobIds, String owner) {
+        Timestamp now = toTimestamp(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(jobIds.size());
+        for (String jobId : jobIds) {
+            args.add(new Object[] {now, jobId, owner});
+        }
+        jdbcTemplate.batchUpdate("UPDATE merge_jobs SET heartbeat_at = ? WHERE job_id = ? AND owner = ? AND " + UNFINISHED, args);
+    }
+
+    /**
+     * Stores the state and counters of a job owned by {@code job.getOwner()}.
+     *
+     * @return {@code false} if the job has been cancelled or taken over meanwhile
+     */
+    public boolean update(MergeJob job) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update("UPDATE merge_jobs SET status = ?, phase = ?, total_entities = ?, processed_entities = ?, " +
+                "total_blocks = ?, scored_blocks = ?, candidates = ?, merges = ?, results_written = ?, merged_through = ?, " +
+                "error = ?, heartbeat_at = ?, updated_at = ?, finished_at = ? " +
+                "WHERE job_id = ? AND owner = ? AND " + UNFINISHED,
+            job.getStatus().name(), job.getPhase() == null ? null : job.getPhase().name(), job.getTotalEntities(),
+            job.getProcessedEntities(), job.getTotalBlocks(), job.getScoredBlocks(), job.getCandidates(), job.getMerges(),
+            job.getResultsWritten(), job.getMergedThrough(), job.getError(),
+            toTimestamp(now), toTimestamp(now), toTimestamp(job.getFinishedAt()), job.getJobId(), job.getOwner()) == 1;
+    }
+
+    /**
+     * @return {@code false} if the job does not exist or has already finished
+     */
+    public boolean cancel(String jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update("UPDATE merge_jobs SET status = 'CANCELLED', updated_at = ?, finished_at = ? " +
+            "WHERE job_id = ? AND " + UNFINISHED, toTimestamp(now), toTimestamp(now), jobId) == 1;
+    }
+
+    public void insertEntities(String jobId, int firstSeq, List<String> entities) {
+        List<Object[]> args = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            args.add(new Object[] {jobId, firstSeq + i, entities.get(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO merge_job_entities (job_id, seq, entity) VALUES (?, ?, ?)", args);
+    }
+
+    /**
+     * Input entities as JSON, in seq order, starting at {@code fromSeq}.
+     */
+    public List<String> findEntities(String jobId, int fromSeq, int limit) {
+        return jdbcTemplate.queryForList("SELECT entity FROM merge_job_entities WHERE job_id = ? AND seq >= ? " +
+            "ORDER BY seq LIMIT ?", String.class, jobId, fromSeq, limit);
+    }
+
+    /**
+     * Input entities as JSON by seq, with one query per {@value #MAX_IN_LIST_SIZE} seqs.
+     */
+    public Map<Integer, String> findEntities(String jobId, int[] seqs) {
+        Map<Integer, String> entities = new HashMap<>();
+        for (int from = 0; from < seqs.length; from += MAX_IN_LIST_SIZE) {
+            int to = Math.min(seqs.length, from + MAX_IN_LIST_SIZE);
+            List<Object> args = new ArrayList<>(to - from + 1);
+            args.add(jobId);
+            for (int i = from; i < to; i++) {
+                args.add(seqs[i]);
+            }
+            jdbcTemplate.query("SELECT seq, entity FROM merge_job_entities WHERE job_id = ? AND seq IN (" +
+                    String.join(", ", Collections.nCopies(to - from, "?")) + ")",
+                rs -> {
+                    entities.put(rs.getInt(1), rs.getString(2));
+                }, args.toArray());
+        }
+        return entities;
+    }
+
+    /**
+     * @param candidates rows of {@code entity1_seq, entity2_seq, confidence_score, match_reason, rule_name}
+     */
+    public void insertCandidates(String jobId, long firstSeq, List<Object[]> candidates) {
+        List<Object[]> args = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Object[] candidate = candidates.get(i);
+            args.add(new Object[] {jobId, firstSeq + i, candidate[0], candidate[1], candidate[2], candidate[3], candidate[4]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO merge_job_candidates (job_id, seq, entity1_seq, entity2_seq, confidence_score, " +
+            "match_reason, rule_name) VALUES (?, ?, ?, ?, ?, ?, ?)", args);
+    }
+
+    public void forEachCandidate(String jobId, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT entity1_seq, entity2_seq, confidence_score, match_reason, rule_name " +
+            "FROM merge_job_candidates WHERE job_id = ? ORDER BY seq", handler, jobId);
+    }
+
+    public void insertResults(String jobId, long firstSeq, List<String> results) {
+        List<Object[]> args = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            args.add(new Object[] {jobId, firstSeq + i, results.get(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO merge_job_results (job_id, seq, result) VALUES (?, ?, ?)", args);
+    }
+
+    /**
+     * Results as JSON, in the order they were produced.
+     */
+    public List<String> findResults(String jobId, long offset, int limit) {
+        return jdbcTemplate.queryForList("SELECT result FROM merge_job_results WHERE job_id = ? AND seq >= ? " +
+            "ORDER BY seq LIMIT ?", String.class, jobId, offset, limit);
+    }
+
+    /**
+     * Drops the input and candidates of a finished job; its results are kept.
+     */
+    public void deleteWorkingData(String jobId) {
+        jdbcTemplate.update("DELETE FROM merge_job_candidates WHERE job_id = ?", jobId);
+        jdbcTemplate.update("DELETE FROM merge_job_entities WHERE job_id = ?", jobId);
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,177 @@
+package com.mdm.mcp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.MergeResult;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only JDBC access to the {@code merge_results} table. On PostgreSQL rows
+ * are streamed with {@code COPY ... FROM STDIN}; other databases get a single
+ * JDBC batch per call.
+ */
+@Repository
+public class MergeResultRepository {
+
+    private static final String SCHEMA = "db/merge-results.sql";
+
+    private static final String COLUMNS = "merge_id, status, message, applied_rule_name, confidence_score, " +
+        "merged_entity_id, source_entity_ids, duplicate_entity_ids, survivorship_decisions, " +
+        "rule_execution_details, relationship_changes, created_at";
+
+    private static final String INSERT = "INSERT INTO merge_results (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COPY = "COPY merge_results (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final DateTimeFormatter COPY_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void createSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(jdbcTemplate.getDataSource());
+    }
+
+    public void insertAll(List<MergeResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                copy(connection.unwrap(PGConnection.class), results);
+            } else {
+                batchInsert(results);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Records the golden record of every source entity of the MERGED results,
+     * replacing earlier links of the same sources.
+     */
+    public void saveGoldenRecordLinks(List<MergeResult> results) {
+        List<Object[]> links = new ArrayList<>();
+        for (MergeResult result : results) {
+            if ("MERGED".equals(result.getStatus()) && result.getMergedEntityId() != null && result.getSourceEntityIds() != null) {
+                for (String sourceId : result.getSourceEntityIds()) {
+                    links.add(new Object[] {sourceId, result.getMergedEntityId(), result.getMergeId()});
+                }
+            }
+        }
+        if (links.isEmpty()) {
+            return;
+        }
+        List<Object[]> sourceIds = new ArrayList<>(links.size());
+        for (Object[] link : links) {
+            sourceIds.add(new Object[] {link[0]});
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM golden_record_links WHERE source_entity_id = ?", sourceIds);
+        jdbcTemplate.batchUpdate("INSERT INTO golden_record_links (source_entity_id, golden_entity_id, merge_id) VALUES (?, ?, ?)", links);
+    }
+
+    /**
+     * @return the golden record the source entity was merged into, or {@code null}
+     */
+    public String findGoldenEntityId(String sourceEntityId) {
+        List<String> ids = jdbcTemplate.queryForList(
+            "SELECT golden_entity_id FROM golden_record_links WHERE source_entity_id = ?", String.class, sourceEntityId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM merge_results", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private void copy(PGConnection connection, List<MergeResult> results) throws SQLException {
+        StringBuilder csv = new StringBuilder(results.size() * 256);
+        for (MergeResult result : results) {
+            Object[] row = row(result);
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                appendCsv(csv, row[i]);
+            }
+            csv.append('\n');
+        }
+        try {
+            connection.getCopyAPI().copyIn(COPY, new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new SQLException("COPY into merge_results failed", e);
+        }
+    }
+
+    private void batchInsert(List<MergeResult> results) {
+        jdbcTemplate.batchUpdate(INSERT, results, results.size(), (ps, result) -> {
+            Object[] row = row(result);
+            for (int i = 0; i < row.length; i++) {
+                ps.setObject(i + 1, row[i] instanceof LocalDateTime time ? Timestamp.valueOf(time) : row[i]);
+            }
+        });
+    }
+
+    private Object[] row(MergeResult result) {
+        return new Object[] {
+            result.getMergeId(),
+            result.getStatus(),
+            result.getMessage(),
+            result.getAppliedRuleName(),
+            result.getConfidenceScore(),
+            result.getMergedEntityId(),
+            toJson(result.getSourceEntityIds()),
+            toJson(result.getDuplicateEntityIds()),
+            toJson(result.getSurvivorshipDecisions()),
+            toJson(result.getRuleExecutionDetails()),
+            toJson(result.getRelationshipChanges()),
+            result.getTimestamp() == null ? LocalDateTime.now() : result.getTimestamp()
+        };
+    }
+
+    // In CSV format an unquoted empty field is NULL; everything else is quoted
+    private static void appendCsv(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof LocalDateTime time ? COPY_TIMESTAMP.format(time) : value.toString();
+        csv.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    private String toJson(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize merge result", e);
+        }
+    }
+}
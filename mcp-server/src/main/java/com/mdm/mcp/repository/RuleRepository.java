@@ -0,0 +1,9 @@
+package com.mdm.mcp.repository;
+
+import com.mdm.mcp.model.Rule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RuleRepository extends JpaRepository<Rule, String> {
+}
@@ -0,0 +1,137 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.MatchCandidate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Scores the candidate pairs of a {@link BlockingIndex}. Blocks are already
+ * partitioned by entity type and blocking key, so each block is an independent
+ * unit of work: in parallel mode ranges of blocks are forked onto a dedicated
+ * ForkJoinPool, each worker writing into its own per-block result slot.
+ * Concatenating the slots in block order gives the same, reproducible output
+ * as sequential mode without any locking.
+ */
+@Component
+@Slf4j
+public class BlockMatcher {
+
+    public enum Mode { SEQUENTIAL, PARALLEL }
+
+    @Autowired
+    private MergeMetrics mergeMetrics;
+
+    @Value("${mdm.matching.mode:PARALLEL}")
+    private Mode mode = Mode.PARALLEL;
+
+    /** Worker threads for parallel matching; 0 means one per available core. */
+    @Value("${mdm.matching.parallelism:0}")
+    private int parallelism;
+
+    /** Estimated pairs below which a range of blocks is no longer split. */
+    @Value("${mdm.matching.split-threshold:20000}")
+    private long splitThreshold = 20_000;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        if (mode == Mode.PARALLEL) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(threads);
+            log.info("Parallel matching enabled with {} worker threads", threads);
+        } else {
+            log.info("Sequential matching enabled");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public List<MatchCandidate> match(BlockingIndex index, Supplier<PairScorer> scorers) {
+        @SuppressWarnings("unchecked")
+        List<MatchCandidate>[] results = new List[index.blockCount()];
+
+        BlockRangeTask task = new BlockRangeTask(index, scorers, results, 0, index.blockCount());
+        if (pool == null || index.blockCount() < 2) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+
+        List<MatchCandidate> candidates = new ArrayList<>();
+        for (List<MatchCandidate> blockResult : results) {
+            if (blockResult != null) {
+                candidates.addAll(blockResult);
+            }
+        }
+        return candidates;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private final class BlockRangeTask extends RecursiveAction {
+        private final BlockingIndex index;
+        private final Supplier<PairScorer> scorers;
+        private final List<MatchCandidate>[] results;
+        private final int from;
+        private final int to;
+
+        BlockRangeTask(BlockingIndex index, Supplier<PairScorer> scorers, List<MatchCandidate>[] results, int from, int to) {
+            this.index = index;
+            this.scorers = scorers;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (pool != null && to - from > 1 && estimatedPairs() > splitThreshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockRangeTask(index, scorers, results, from, middle),
+                    new BlockRangeTask(index, scorers, results, middle, to));
+                return;
+            }
+            try (PairScorer scorer = scorers.get()) {
+                for (int b = from; b < to; b++) {
+                    mergeMetrics.recordBlockSize(index.blockMembers(b).length);
+                    if (index.estimatedPairs(b) == 0) {
+                        continue;
+                    }
+                    List<MatchCandidate> blockResult = new ArrayList<>();
+                    index.forEachCandidatePairInBlock(b,
+                        (i, j) -> scorer.score(index.entity(i), index.entity(j), blockResult));
+                    mergeMetrics.recordBlockCandidates(blockResult.size());
+                    if (!blockResult.isEmpty()) {
+                        results[b] = blockResult;
+                    }
+                }
+            }
+        }
+
+        private long estimatedPairs() {
+            long pairs = 0;
+            for (int b = from; b < to && pairs <= splitThreshold; b++) {
+                pairs += index.estimatedPairs(b);
+            }
+            return pairs;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchKeys;
+import com.mdm.mcp.model.NameSignature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash-based inverted index over normalized match keys (email, phone, SSN,
+ * company name + address and name tokens). Candidate pairs are only generated
+ * between entities sharing at least one block, so matching cost follows the
+ * number of real candidate pairs instead of n^2.
+ *
+ * Blocks larger than {@code maxBlockSize} (e.g. shared "info@" mailboxes or very
+ * common first names) are skipped rather than expanded quadratically. Whether a
+ * block is oversized is only decided once all entities are added, so streamed
+ * input is blocked with a {@link Builder} and scored after it ends.
+ */
+public class BlockingIndex {
+
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 1000;
+
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int left, int right);
+    }
+
+    private final List<DataEntity> entities;
+    private final List<String> blockKeys;
+    private final List<int[]> blockMembers;
+    private final boolean[] oversized;
+    private final int[][] entityBlocks;
+    private final int oversizedBlockCount;
+
+    private BlockingIndex(List<DataEntity> entities, List<String> blockKeys, List<int[]> blockMembers,
+                          boolean[] oversized, int[][] entityBlocks) {
+        this.entities = entities;
+        this.blockKeys = blockKeys;
+        this.blockMembers = blockMembers;
+        this.oversized = oversized;
+        this.entityBlocks = entityBlocks;
+        int count = 0;
+        for (boolean skipped : oversized) {
+            if (skipped) {
+                count++;
+            }
+        }
+        this.oversizedBlockCount = count;
+    }
+
+    public static BlockingIndex build(List<DataEntity> entities, int maxBlockSize) {
+        Builder builder = new Builder(maxBlockSize);
+        for (DataEntity entity : entities) {
+            builder.add(entity);
+        }
+        return builder.build(entities);
+    }
+
+    /**
+     * Blocks entities added one at a time, keeping only the blocks they are in.
+     * The index it builds has no entities; its pairs are positions in the order
+     * the entities were added, for callers that read the entities back themselves.
+     */
+    public static final class Builder {
+        private final int maxBlockSize;
+        private final Map<String, Integer> blockIds = new HashMap<>();
+        private final List<String> blockKeys = new ArrayList<>();
+        private final List<IntBuffer> members = new ArrayList<>();
+        private final List<int[]> entityBlocks = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+
+        public Builder(int maxBlockSize) {
+            this.maxBlockSize = maxBlockSize;
+        }
+
+        /**
+         * @return the position of the entity in the index
+         */
+        public int add(DataEntity entity) {
+            int position = entityBlocks.size();
+            keys.clear();
+            blockingKeys(entity, keys);
+
+            int[] ids = new int[keys.size()];
+            int distinct = 0;
+            for (String key : keys) {
+                Integer blockId = blockIds.get(key);
+                if (blockId == null) {
+                    blockId = blockKeys.size();
+                    blockIds.put(key, blockId);
+                    blockKeys.add(key);
+                    members.add(new IntBuffer());
+                }
+                IntBuffer block = members.get(blockId);
+                // An entity can produce the same key twice (e.g. repeated name tokens)
+                if (block.size() == 0 || block.last() != position) {
+                    block.add(position);
+                    ids[distinct++] = blockId;
+                }
+            }
+            ids = Arrays.copyOf(ids, distinct);
+            Arrays.sort(ids);
+            entityBlocks.add(ids);
+            return position;
+        }
+
+        public int size() {
+            return entityBlocks.size();
+        }
+
+        public BlockingIndex build() {
+            return build(null);
+        }
+
+        private BlockingIndex build(List<DataEntity> entities) {
+            List<int[]> blockMembers = new ArrayList<>(members.size());
+            boolean[] oversized = new boolean[members.size()];
+            for (int b = 0; b < members.size(); b++) {
+                IntBuffer block = members.get(b);
+                blockMembers.add(block.toArray());
+                oversized[b] = block.size() > maxBlockSize;
+            }
+            return new BlockingIndex(entities, new ArrayList<>(blockKeys), blockMembers, oversized,
+                entityBlocks.toArray(new int[0][]));
+        }
+    }
+
+    /**
+     * Emits every candidate pair exactly once, with {@code left < right}. A pair
+     * sharing several blocks is only reported from the lowest-numbered usable
+     * block they have in common, so no pair set has to be materialized.
+     */
+    public void forEachCandidatePair(PairConsumer consumer) {
+        for (int b = 0; b < blockMembers.size(); b++) {
+            forEachCandidatePairInBlock(b, consumer);
+        }
+    }
+
+    /**
+     * Emits the candidate pairs owned by a single block. Blocks are independent
+     * units of work, so different blocks can be scanned concurrently.
+     */
+    public void forEachCandidatePairInBlock(int blockId, PairConsumer consumer) {
+        if (oversized[blockId]) {
+            return;
+        }
+        int[] block = blockMembers.get(blockId);
+        for (int x = 0; x < block.length; x++) {
+            for (int y = x + 1; y < block.length; y++) {
+                int left = block[x];
+                int right = block[y];
+                if (firstSharedBlock(entityBlocks[left], entityBlocks[right]) == blockId) {
+                    consumer.accept(left, right);
+                }
+            }
+        }
+    }
+
+    /**
+     * Upper bound of the pairs a block can produce, used to balance parallel work.
+     */
+    public long estimatedPairs(int blockId) {
+        if (oversized[blockId]) {
+            return 0;
+        }
+        long size = blockMembers.get(blockId).length;
+        return size * (size - 1) / 2;
+    }
+
+    /**
+     * @throws IllegalStateException if the index was built from a {@link Builder}
+     */
+    public DataEntity entity(int index) {
+        if (entities == null) {
+            throw new IllegalStateException("Index was built without its entities");
+        }
+        return entities.get(index);
+    }
+
+    public int entityCount() {
+        return entityBlocks.length;
+    }
+
+    public int blockCount() {
+        return blockMembers.size();
+    }
+
+    public int oversizedBlockCount() {
+        return oversizedBlockCount;
+    }
+
+    public String blockKey(int blockId) {
+        return blockKeys.get(blockId);
+    }
+
+    public int[] blockMembers(int blockId) {
+        return blockMembers.get(blockId);
+    }
+
+    public boolean isOversized(int blockId) {
+        return oversized[blockId];
+    }
+
+    private int firstSharedBlock(int[] blocks1, int[] blocks2) {
+        int i = 0;
+        int j = 0;
+        while (i < blocks1.length && j < blocks2.length) {
+            if (blocks1[i] < blocks2[j]) {
+                i++;
+            } else if (blocks1[i] > blocks2[j]) {
+                j++;
+            } else {
+                if (!oversized[blocks1[i]]) {
+                    return blocks1[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Derives the blocking keys of an entity from its standardized match keys.
+     * Keys are scoped by entity type since none of the match rules compare
+     * entities of different types.
+     */
+    static void blockingKeys(DataEntity entity, List<String> keys) {
+        MatchKeys matchKeys = entity.getMatchKeys();
+        String scope = entity.getEntityType() + "|";
+
+        if (matchKeys.getEmail() != null) {
+            keys.add(scope + "email:" + matchKeys.getEmail());
+        }
+        if (matchKeys.getPhone() != null) {
+            keys.add(scope + "phone:" + matchKeys.getPhone());
+        }
+        if (matchKeys.getSsn() != null) {
+            keys.add(scope + "ssn:" + matchKeys.getSsn());
+        }
+        if (matchKeys.getCompany() != null) {
+            keys.add(scope + "company:" + matchKeys.getCompany());
+        }
+        NameSignature name = matchKeys.getNameSignature();
+        for (int i = 0; i < name.tokenCount(); i++) {
+            if (name.token(i).length() > 1) {
+                keys.add(scope + "name:" + name.token(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mdm.mcp.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Subscribes {@link EntityCache} to the invalidations published by all
+ * instances, so that every near cache drops entities changed elsewhere.
+ *
+ * The listener container is not a bean: it is started once the application is
+ * ready and retried in the background, so that an unreachable Redis does not
+ * prevent startup.
+ */
+@Component
+@ConditionalOnProperty(name = "mdm.cache.redis.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CacheInvalidationSubscriber {
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Value("${mdm.cache.redis.retry-interval:PT30S}")
+    private Duration retryInterval = Duration.ofSeconds(30);
+
+    private volatile RedisMessageListenerContainer container;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(
+            (message, pattern) -> entityCache.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(EntityCache.INVALIDATION_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        container = listenerContainer;
+
+        Thread subscriber = new Thread(() -> {
+            while (container == listenerContainer && !listenerContainer.isRunning()) {
+                try {
+                    listenerContainer.start();
+                    log.info("Subscribed to cache invalidations on {}", EntityCache.INVALIDATION_CHANNEL);
+                } catch (Exception e) {
+                    log.warn("Cannot subscribe to cache invalidations, retrying in {}: {}", retryInterval, e.getMessage());
+                    try {
+                        Thread.sleep(retryInterval.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }, "cache-invalidation-subscriber");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        RedisMessageListenerContainer listenerContainer = container;
+        container = null;
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+
+import java.util.List;
+
+/**
+ * Search index over the match attributes of the entities of one matching run,
+ * used by {@link CandidateSearchService} instead of blocking: every entity
+ * retrieves its most similar entities of the same type, which are then scored
+ * by the match rules. Entities are identified by their position in the run,
+ * so their ids need not be set or unique. Entities must be standardized before
+ * they are indexed.
+ */
+public interface CandidateIndex extends AutoCloseable {
+
+    /**
+     * Indexes the entities of the run. They are searchable as soon as this returns.
+     */
+    void index(List<DataEntity> entities);
+
+    /**
+     * @return for each indexed entity at positions {@code from} (inclusive) to
+     *         {@code to} (exclusive), the positions of at most {@code topK}
+     *         candidate entities, best first. The entity itself is never returned.
+     */
+    List<int[]> search(int from, int to, int topK);
+
+    /**
+     * Drops the entities of the run.
+     */
+    @Override
+    void close();
+}
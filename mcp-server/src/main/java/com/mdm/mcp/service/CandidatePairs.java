@@ -0,0 +1,132 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Match candidates between entities identified by their position in a streamed
+ * input, without the entities themselves: what the streaming pipelines hold
+ * between scoring and merging.
+ *
+ * {@link #groups()} splits the candidates into the connected components of
+ * their entities. No cluster and no review candidate spans two components, so
+ * the components can be merged one after another with the same results as all
+ * at once.
+ */
+public class CandidatePairs {
+
+    /**
+     * The candidates of one connected component. {@code key}, its lowest entity
+     * position, is the same however often the candidates are grouped.
+     */
+    public record Group(int key, int[] positions, int[] candidates) {
+    }
+
+    private final IntBuffer positions1 = new IntBuffer();
+    private final IntBuffer positions2 = new IntBuffer();
+    // Score, reason and rule of each candidate, without its entities
+    private final List<MatchCandidate> details = new ArrayList<>();
+
+    public void add(int position1, int position2, MatchCandidate candidate) {
+        positions1.add(position1);
+        positions2.add(position2);
+        details.add(MatchCandidate.builder()
+            .confidenceScore(candidate.getConfidenceScore())
+            .matchReason(candidate.getMatchReason())
+            .ruleName(candidate.getRuleName())
+            .build());
+    }
+
+    public int size() {
+        return details.size();
+    }
+
+    public int position1(int candidate) {
+        return positions1.get(candidate);
+    }
+
+    public int position2(int candidate) {
+        return positions2.get(candidate);
+    }
+
+    /**
+     * The candidate with its entities set.
+     */
+    public MatchCandidate candidate(int candidate, DataEntity entity1, DataEntity entity2) {
+        MatchCandidate scored = details.get(candidate);
+        return MatchCandidate.builder()
+            .entity1(entity1)
+            .entity2(entity2)
+            .confidenceScore(scored.getConfidenceScore())
+            .matchReason(scored.getMatchReason())
+            .ruleName(scored.getRuleName())
+            .build();
+    }
+
+    /**
+     * The connected components, ordered by key; positions and candidates are
+     * ascending within each.
+     */
+    public List<Group> groups() {
+        int[] entities = new int[size() * 2];
+        for (int i = 0; i < size(); i++) {
+            entities[2 * i] = positions1.get(i);
+            entities[2 * i + 1] = positions2.get(i);
+        }
+        int[] distinct = Arrays.stream(entities).sorted().distinct().toArray();
+
+        // Elements are numbered in position order, so the groups come out ordered by key
+        UnionFind unionFind = new UnionFind(distinct.length);
+        for (int i = 0; i < size(); i++) {
+            unionFind.union(Arrays.binarySearch(distinct, positions1.get(i)), Arrays.binarySearch(distinct, positions2.get(i)));
+        }
+        int[][] components = unionFind.groups(1);
+        int[] componentOfRoot = new int[distinct.length];
+        List<IntBuffer> candidates = new ArrayList<>(components.length);
+        for (int c = 0; c < components.length; c++) {
+            componentOfRoot[unionFind.find(components[c][0])] = c;
+            candidates.add(new IntBuffer());
+        }
+        for (int i = 0; i < size(); i++) {
+            int root = unionFind.find(Arrays.binarySearch(distinct, positions1.get(i)));
+            candidates.get(componentOfRoot[root]).add(i);
+        }
+
+        List<Group> groups = new ArrayList<>(components.length);
+        for (int c = 0; c < components.length; c++) {
+            int[] members = components[c];
+            for (int m = 0; m < members.length; m++) {
+                members[m] = distinct[members[m]];
+            }
+            groups.add(new Group(members[0], members, candidates.get(c).toArray()));
+        }
+        return groups;
+    }
+
+    /**
+     * Splits groups, in order, into batches of about {@code batchEntities}
+     * entities; a group is never split.
+     */
+    public static List<List<Group>> batches(List<Group> groups, int batchEntities) {
+        List<List<Group>> batches = new ArrayList<>();
+        List<Group> batch = new ArrayList<>();
+        int entities = 0;
+        for (Group group : groups) {
+            batch.add(group);
+            entities += group.positions().length;
+            if (entities >= batchEntities) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                entities = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Candidate generation through a {@link CandidateIndex} instead of the in-JVM
+ * {@link BlockingIndex}. All entities of a run are indexed in an index of their
+ * own, by position, so entities without an id or with duplicate ids are
+ * matched like with blocking; then each entity
+ * retrieves its top-k candidates, in batches of one multi-search per
+ * {@code batch-size} entities, and every distinct pair is scored once.
+ *
+ * The backend is selected with {@code mdm.matching.search.backend}: {@code NONE}
+ * keeps blocking, {@code ELASTICSEARCH} uses the Elasticsearch node configured by
+ * {@code spring.elasticsearch.uris} and {@code IN_MEMORY} an in-process stand-in.
+ */
+@Service
+@Slf4j
+public class CandidateSearchService {
+
+    public enum Backend {
+        NONE,
+        IN_MEMORY,
+        ELASTICSEARCH
+    }
+
+    @Autowired
+    private MergeMetrics mergeMetrics;
+
+    // Only defined with the ELASTICSEARCH backend
+    @Autowired
+    private ObjectProvider<ElasticsearchCandidateIndex> elasticsearchIndex;
+
+    @Value("${mdm.matching.search.backend:NONE}")
+    private Backend backend = Backend.NONE;
+
+    @Value("${mdm.matching.search.top-k:20}")
+    private int topK = 20;
+
+    // Entities per multi-search request
+    @Value("${mdm.matching.search.batch-size:200}")
+    private int batchSize = 200;
+
+    // Terms of the IN_MEMORY index shared by more entities are ignored
+    @Value("${mdm.matching.name.max-posting-size:" + BlockingIndex.DEFAULT_MAX_BLOCK_SIZE + "}")
+    private int maxPostingSize = BlockingIndex.DEFAULT_MAX_BLOCK_SIZE;
+
+    public boolean isEnabled() {
+        return backend != Backend.NONE;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Indexes the (standardized) entities and scores each of them against its
+     * retrieved candidates within {@code entities}.
+     */
+    public List<MatchCandidate> match(List<DataEntity> entities, Supplier<PairScorer> scorers) {
+        try (CandidateIndex index = openIndex()) {
+            long start = System.nanoTime();
+            index.index(entities);
+            mergeMetrics.recordPhase(MergeMetrics.Phase.BLOCKING, start);
+            long indexed = System.nanoTime();
+
+            // Sorted candidate positions per entity, so a pair found from both sides is scored only once
+            int[][] found = new int[entities.size()][];
+            List<MatchCandidate> candidates = new ArrayList<>();
+            long pairs = 0;
+            try (PairScorer scorer = scorers.get()) {
+                for (int from = 0; from < entities.size(); from += batchSize) {
+                    int to = Math.min(from + batchSize, entities.size());
+                    List<int[]> hits = index.search(from, to, topK);
+                    for (int i = from; i < to; i++) {
+                        found[i] = sorted(hits.get(i - from));
+                    }
+                    for (int i = from; i < to; i++) {
+                        for (int j : found[i]) {
+                            if (j > i || Arrays.binarySearch(found[j], i) < 0) {
+                                pairs++;
+                                scorer.score(entities.get(Math.min(i, j)), entities.get(Math.max(i, j)), candidates);
+                            }
+                        }
+                    }
+                }
+            }
+            mergeMetrics.recordPhase(MergeMetrics.Phase.SCORING, indexed);
+            log.info("{} candidate search over {} entities: indexed in {} ms, scored {} pairs in {} ms",
+                backend, entities.size(), (indexed - start) / 1_000_000, pairs, (System.nanoTime() - indexed) / 1_000_000);
+            return candidates;
+        }
+    }
+
+    private static int[] sorted(int[] positions) {
+        int[] copy = positions.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private CandidateIndex openIndex() {
+        return switch (backend) {
+            case IN_MEMORY -> new InMemoryCandidateIndex(maxPostingSize);
+            case ELASTICSEARCH -> elasticsearchIndex.getObject().open();
+            case NONE -> throw new IllegalStateException("Candidate search is disabled");
+        };
+    }
+}
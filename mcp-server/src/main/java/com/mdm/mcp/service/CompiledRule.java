@@ -0,0 +1,63 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.Rule;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Rule} with its condition and action compiled by
+ * {@link RuleExpressionCompiler}. A rule that does not compile is kept with
+ * its error and never fires.
+ */
+final class CompiledRule {
+
+    private final String ruleId;
+    private final Predicate<DataEntity> condition;
+    private final BiConsumer<DataEntity, List<String>> action;
+    private final String error;
+
+    private CompiledRule(String ruleId, Predicate<DataEntity> condition,
+                         BiConsumer<DataEntity, List<String>> action, String error) {
+        this.ruleId = ruleId;
+        this.condition = condition;
+        this.action = action;
+        this.error = error;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the condition or action is invalid
+     */
+    static CompiledRule compile(Rule rule) {
+        return new CompiledRule(rule.getRuleId(),
+            RuleExpressionCompiler.compileCondition(rule.getCondition()),
+            RuleExpressionCompiler.compileAction(rule.getAction()), null);
+    }
+
+    static CompiledRule invalid(Rule rule, String error) {
+        return new CompiledRule(rule.getRuleId(), entity -> false, (entity, flags) -> { }, error);
+    }
+
+    String getRuleId() {
+        return ruleId;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    /**
+     * Runs the action if the condition holds.
+     *
+     * @return whether the rule fired
+     */
+    boolean apply(DataEntity entity, List<String> flags) {
+        if (!condition.test(entity)) {
+            return false;
+        }
+        action.accept(entity, flags);
+        return true;
+    }
+}
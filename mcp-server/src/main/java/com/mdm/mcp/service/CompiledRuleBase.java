@@ -0,0 +1,157 @@
+package com.mdm.mcp.service;
+
+import org.drools.model.codegen.ExecutableModelProject;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.model.KieModuleModel;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.KieSessionsPool;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, fully compiled set of match and merge KieBases,
+ * each with its own pool of reusable KieSessions. The DRL sources are turned
+ * into an executable model once, so borrowing a session never triggers any
+ * rule compilation.
+ *
+ * A rule base is reference counted: the {@link RuleBaseManager} holds one
+ * reference while it is the current version and every request using it holds
+ * another, released with {@link #close()}. The last release disposes it, so a
+ * replaced version stays usable until its in-flight requests are done.
+ */
+public class CompiledRuleBase implements AutoCloseable {
+
+    public static final String MATCH_KBASE = "matchKBase";
+    public static final String MERGE_KBASE = "mergeKBase";
+
+    private static final Map<String, String> KBASE_PACKAGES = Map.of(
+        MATCH_KBASE, "rules.match",
+        MERGE_KBASE, "rules.merge");
+
+    private final String version;
+    private final ReleaseId releaseId;
+    private final KieContainer container;
+    private final KieSessionsPool matchSessions;
+    private final KieSessionsPool mergeSessions;
+    private final AgendaEventListener listener;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private CompiledRuleBase(String version, ReleaseId releaseId, KieContainer container, int poolSize,
+                             AgendaEventListener listener) {
+        this.version = version;
+        this.releaseId = releaseId;
+        this.container = container;
+        this.matchSessions = container.getKieBase(MATCH_KBASE).newKieSessionsPool(poolSize);
+        this.mergeSessions = container.getKieBase(MERGE_KBASE).newKieSessionsPool(poolSize);
+        this.listener = listener;
+    }
+
+    /**
+     * Compiles the given DRL sources into a new rule base.
+     *
+     * @param version   unique version of this rule base
+     * @param resources DRL sources keyed by resource path (e.g. {@code rules/match/match-rules.drl});
+     *                  the folder decides which KieBase a file belongs to
+     * @param poolSize  initial number of pooled sessions per KieBase
+     * @param listener  agenda listener attached to every session, or {@code null}
+     * @throws IllegalStateException if any of the sources fail to compile
+     */
+    public static CompiledRuleBase compile(String version, Map<String, String> resources, int poolSize,
+                                           AgendaEventListener listener) {
+        KieServices kieServices = KieServices.Factory.get();
+        ReleaseId releaseId = kieServices.newReleaseId("com.mdm", "mcp-rules", version);
+
+        KieModuleModel moduleModel = kieServices.newKieModuleModel();
+        KBASE_PACKAGES.forEach((name, pkg) -> moduleModel.newKieBaseModel(name).addPackage(pkg));
+
+        KieFileSystem fileSystem = kieServices.newKieFileSystem();
+        fileSystem.generateAndWritePomXML(releaseId);
+        fileSystem.writeKModuleXML(moduleModel.toXML());
+        resources.forEach((path, drl) -> fileSystem.write("src/main/resources/" + path, drl));
+
+        KieBuilder builder = kieServices.newKieBuilder(fileSystem).buildAll(ExecutableModelProject.class);
+        List<Message> errors = builder.getResults().getMessages(Message.Level.ERROR);
+        if (!errors.isEmpty()) {
+            kieServices.getRepository().removeKieModule(releaseId);
+            throw new IllegalStateException("Rule compilation failed: " + errors.stream()
+                .map(Message::toString)
+                .collect(Collectors.joining("; ")));
+        }
+
+        KieContainer container = kieServices.newKieContainer(releaseId);
+        return new CompiledRuleBase(version, releaseId, container, poolSize, listener);
+    }
+
+    public KieSession newMatchSession() {
+        return withListener(matchSessions.newKieSession());
+    }
+
+    public KieSession newMergeSession() {
+        return withListener(mergeSessions.newKieSession());
+    }
+
+    // Pooled sessions may come back with the listener already attached
+    private KieSession withListener(KieSession session) {
+        if (listener != null && !session.getAgendaEventListeners().contains(listener)) {
+            session.addEventListener(listener);
+        }
+        return session;
+    }
+
+    public KieBase getKieBase(String name) {
+        return container.getKieBase(name);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getRuleCount(String kieBaseName) {
+        return getKieBase(kieBaseName).getKiePackages().stream()
+            .mapToInt(kiePackage -> kiePackage.getRules().size())
+            .sum();
+    }
+
+    /**
+     * Takes another reference, unless the rule base has already been disposed.
+     */
+    boolean retain() {
+        for (;;) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases one reference. Releasing the last one disposes the rule base.
+     */
+    @Override
+    public void close() {
+        if (references.decrementAndGet() == 0) {
+            dispose();
+        }
+    }
+
+    // Sessions still borrowed from this rule base must not be used afterwards
+    private void dispose() {
+        matchSessions.shutdown();
+        mergeSessions.shutdown();
+        container.dispose();
+        KieServices.Factory.get().getRepository().removeKieModule(releaseId);
+    }
+}
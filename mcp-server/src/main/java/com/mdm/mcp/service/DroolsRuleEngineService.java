@@ -3,164 +3,597 @@ package com.mdm.mcp.service;
 import com.mdm.mcp.model.DataEntity;
 import com.mdm.mcp.model.MergeResult;
 import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MatchCluster;
 import lombok.extern.slf4j.Slf4j;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class DroolsRuleEngineService {
     
-    private boolean droolsAvailable = false;
+    @Autowired
+    private RuleBaseManager ruleBaseManager;
     
-    public DroolsRuleEngineService() {
-        try {
-            // Try to initialize Drools
-            Class.forName("org.kie.api.KieServices");
-            droolsAvailable = true;
-            log.info("Drools rule engine is available");
-        } catch (ClassNotFoundException e) {
-            log.warn("Drools not available, using fallback rule engine");
-            droolsAvailable = false;
-        }
-    }
+    @Autowired
+    private BlockMatcher blockMatcher;
+    
+    @Autowired
+    private MatchClusterer matchClusterer;
+    
+    @Autowired
+    private MatchKeyStandardizer matchKeyStandardizer;
+    
+    @Autowired
+    private CandidateSearchService candidateSearchService;
+    
+    @Autowired
+    private MergeMetrics mergeMetrics;
+    
+    @Autowired
+    private SurvivorshipEngine survivorshipEngine;
+    
+    @Value("${mdm.matching.blocking.max-block-size:" + BlockingIndex.DEFAULT_MAX_BLOCK_SIZE + "}")
+    private int maxBlockSize = BlockingIndex.DEFAULT_MAX_BLOCK_SIZE;
+    
+    // Entities read back from the source per merge batch of the streaming pipelines
+    @Value("${mdm.matching.stream.batch-size:1000}")
+    private int streamBatchSize = 1000;
     
     public List<MergeResult> executeEntityMerging(List<DataEntity> entities) {
         log.info("Starting entity merging process for {} entities", entities.size());
+        standardize(entities);
         
-        if (!droolsAvailable) {
+        if (!isDroolsAvailable()) {
             return executeFallbackMerging(entities);
         }
         
-        // For now, return fallback behavior since Drools initialization is complex
-        return executeFallbackMerging(entities);
+        try (CompiledRuleBase rules = ruleBaseManager.acquire()) {
+            List<MatchCandidate> candidates = findRuleMatchCandidates(rules, entities);
+            List<MergeResult> results = executeRuleMerging(rules, candidates);
+            log.info("Rule-based merging completed: {} results", results.size());
+            return results;
+        }
     }
     
     public List<MatchCandidate> findMatchCandidates(List<DataEntity> entities) {
         log.info("Finding match candidates for {} entities", entities.size());
+        standardize(entities);
         
-        if (!droolsAvailable) {
+        if (!isDroolsAvailable()) {
             return findFallbackMatchCandidates(entities);
         }
         
-        // For now, return fallback behavior
-        return findFallbackMatchCandidates(entities);
+        try (CompiledRuleBase rules = ruleBaseManager.acquire()) {
+            List<MatchCandidate> candidates = findRuleMatchCandidates(rules, entities);
+            log.info("Rule-based match candidates found: {} candidates", candidates.size());
+            return candidates;
+        }
     }
     
     public MergeResult mergeEntities(DataEntity entity1, DataEntity entity2) {
         log.info("Merging entities: {} and {}", entity1.getEntityId(), entity2.getEntityId());
+        matchKeyStandardizer.standardize(entity1);
+        matchKeyStandardizer.standardize(entity2);
         
-        if (!droolsAvailable) {
-            return mergeEntitiesFallback(entity1, entity2);
+        if (!isDroolsAvailable()) {
+            MergeResult result = mergeEntitiesFallback(entity1, entity2);
+            mergeMetrics.recordOutcomes(List.of(result));
+            return result;
         }
         
-        // For now, return fallback behavior
-        return mergeEntitiesFallback(entity1, entity2);
+        try (CompiledRuleBase rules = ruleBaseManager.acquire()) {
+            RuleExecutionContext context = new RuleExecutionContext();
+            KieSession session = rules.newMatchSession();
+            try {
+                session.insert(context);
+                scorePair(session, context, entity1, entity2);
+            } finally {
+                session.dispose();
+            }
+            
+            List<MergeResult> results = executeRuleMerging(rules, context.getMatchCandidates());
+            if (results.isEmpty()) {
+                MergeResult noMatch = noMatchResult(entity1, entity2);
+                mergeMetrics.recordOutcomes(List.of(noMatch));
+                return noMatch;
+            }
+            return results.get(0);
+        }
     }
     
-    private List<MergeResult> executeFallbackMerging(List<DataEntity> entities) {
-        List<MergeResult> results = new ArrayList<>();
+    /**
+     * Scores a single entity against a pre-selected set of existing entities,
+     * e.g. the ones sharing one of its match keys.
+     */
+    public List<MatchCandidate> matchAgainst(DataEntity entity, List<DataEntity> existing) {
+        matchKeyStandardizer.standardize(entity);
+        matchKeyStandardizer.standardize(existing);
+        List<MatchCandidate> candidates = new ArrayList<>();
+        try (PairScorer scorer = newPairScorer()) {
+            for (DataEntity other : existing) {
+                if (other != entity && !Objects.equals(other.getEntityId(), entity.getEntityId())) {
+                    scorer.score(other, entity, candidates);
+                }
+            }
+        }
+        return candidates;
+    }
+    
+    /**
+     * Applies the merge (and survivorship) rules to already scored candidates.
+     */
+    public List<MergeResult> mergeCandidates(List<MatchCandidate> candidates) {
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!isDroolsAvailable()) {
+            return fallbackMergeResults(candidates);
+        }
+        try (CompiledRuleBase rules = ruleBaseManager.acquire()) {
+            return executeRuleMerging(rules, candidates);
+        }
+    }
+    
+    /**
+     * Streaming variant of {@link #findMatchCandidates(List)}. The input is read
+     * once and blocked, keeping only the blocks of each entity; the entities
+     * themselves go to {@code source}. Whether a block is oversized is known
+     * once the input ends, so the blocks are scored then, one at a time with
+     * their members loaded back from the source, and each candidate is handed to
+     * {@code sink} as soon as it is found. The candidates are the same as with
+     * {@link #findMatchCandidates(List)} on blocking.
+     *
+     * @return the number of entities consumed
+     */
+    public long streamMatchCandidates(Iterator<DataEntity> entities, EntitySource source, Consumer<MatchCandidate> sink) {
+        BlockingIndex index = block(entities, source);
+        try (StreamMatcher matcher = openStreamMatcher()) {
+            matcher.score(index, 0, index.blockCount(), source, (position1, position2, candidate) -> sink.accept(candidate));
+        }
+        return index.entityCount();
+    }
+    
+    /**
+     * Streaming variant of {@link #executeEntityMerging(List)}: the input is
+     * blocked and scored like in {@link #streamMatchCandidates}, holding only the
+     * positions and scores of the candidates. The candidates are then merged
+     * per group of connected entities, in batches of about
+     * {@code mdm.matching.stream.batch-size} entities loaded back from
+     * {@code source}, so each group of matching entities gets a single golden
+     * record.
+     *
+     * @return the number of entities consumed
+     */
+    public long streamEntityMerging(Iterator<DataEntity> entities, EntitySource source, Consumer<MergeResult> sink) {
+        BlockingIndex index = block(entities, source);
+        CandidatePairs pairs = new CandidatePairs();
+        // Matched and merged with the rule base current when the input ended
+        try (StreamMatcher matcher = openStreamMatcher()) {
+            matcher.score(index, 0, index.blockCount(), source, pairs::add);
+            for (List<CandidatePairs.Group> batch : CandidatePairs.batches(pairs.groups(), streamBatchSize)) {
+                matcher.merge(pairs, batch, source).forEach(sink);
+            }
+        }
+        return index.entityCount();
+    }
+    
+    /**
+     * The first step of the streaming pipelines: standardizes and blocks every
+     * entity of the input and hands it to {@code source}, at the position it
+     * has in the index.
+     */
+    public BlockingIndex block(Iterator<DataEntity> entities, EntitySource source) {
+        long start = System.nanoTime();
+        BlockingIndex.Builder builder = new BlockingIndex.Builder(maxBlockSize);
+        while (entities.hasNext()) {
+            DataEntity entity = matchKeyStandardizer.standardize(entities.next());
+            builder.add(entity);
+            source.add(entity);
+        }
+        BlockingIndex index = builder.build();
+        mergeMetrics.recordPhase(MergeMetrics.Phase.BLOCKING, start);
+        logOversizedBlocks(index);
+        log.info("Blocked {} streamed entities into {} blocks", index.entityCount(), index.blockCount());
+        return index;
+    }
+    
+    /**
+     * Opens a matcher for the scoring and merging steps of the streaming
+     * pipelines, for callers that run them in portions, such as resumable jobs.
+     * It holds the rule base current when it is opened until it is closed.
+     */
+    public StreamMatcher openStreamMatcher() {
+        if (!isDroolsAvailable()) {
+            return new StreamMatcher(null, FALLBACK_SCORER);
+        }
+        try (CompiledRuleBase rules = ruleBaseManager.acquire()) {
+            return new StreamMatcher(rules, new RuleMatchScorer(rules));
+        }
+    }
+    
+    /**
+     * Receives a candidate with the positions of its entities.
+     */
+    @FunctionalInterface
+    public interface ScoredPairSink {
+        void accept(int position1, int position2, MatchCandidate candidate);
+    }
+    
+    /**
+     * Scores blocks and merges groups of candidates of entities loaded back
+     * from an {@link EntitySource}, on one rule base version.
+     */
+    public final class StreamMatcher implements AutoCloseable {
+        // Null when falling back to email matching
+        private final CompiledRuleBase rules;
+        private final PairScorer scorer;
         
-        // Simple fallback logic: find entities with same email and merge them
-        for (int i = 0; i < entities.size(); i++) {
-            for (int j = i + 1; j < entities.size(); j++) {
-                DataEntity entity1 = entities.get(i);
-                DataEntity entity2 = entities.get(j);
-                
-                String email1 = entity1.getAttributes().get("email");
-                String email2 = entity2.getAttributes().get("email");
-                
-                if (email1 != null && email1.equals(email2)) {
-                    MergeResult result = MergeResult.builder()
-                        .mergeId(UUID.randomUUID().toString())
-                        .status("MERGED")
-                        .message("Entities merged based on email match")
-                        .sourceEntityIds(List.of(entity1.getEntityId(), entity2.getEntityId()))
-                        .timestamp(LocalDateTime.now())
-                        .survivorshipDecisions(new HashMap<>() {{
-                            put("email", entity1.getEntityId() + ":FALLBACK_RULE");
-                            put("firstName", entity1.getEntityId() + ":FALLBACK_RULE");
-                            put("lastName", entity1.getEntityId() + ":FALLBACK_RULE");
-                        }})
-                        .build();
-                    results.add(result);
+        private StreamMatcher(CompiledRuleBase rules, PairScorer scorer) {
+            if (rules != null && !rules.retain()) {
+                scorer.close();
+                throw new IllegalStateException("Rule base " + rules.getVersion() + " has been disposed");
+            }
+            this.rules = rules;
+            this.scorer = scorer;
+        }
+        
+        /**
+         * Scores the pairs that blocks {@code fromBlock} (inclusive) to
+         * {@code toBlock} (exclusive) own, like BlockMatcher, one block at a
+         * time with its members loaded from {@code source}.
+         */
+        public void score(BlockingIndex index, int fromBlock, int toBlock, EntitySource source, ScoredPairSink sink) {
+            long start = System.nanoTime();
+            List<MatchCandidate> found = new ArrayList<>();
+            for (int b = fromBlock; b < toBlock; b++) {
+                if (index.estimatedPairs(b) == 0) {
+                    continue;
                 }
+                int[] members = index.blockMembers(b);
+                List<DataEntity> loaded = source.load(members);
+                for (DataEntity entity : loaded) {
+                    if (entity != null) {
+                        matchKeyStandardizer.standardize(entity);
+                    }
+                }
+                index.forEachCandidatePairInBlock(b, (left, right) -> {
+                    DataEntity entity1 = loaded.get(Arrays.binarySearch(members, left));
+                    DataEntity entity2 = loaded.get(Arrays.binarySearch(members, right));
+                    if (entity1 == null || entity2 == null) {
+                        return;
+                    }
+                    scorer.score(entity1, entity2, found);
+                    for (MatchCandidate candidate : found) {
+                        boolean inOrder = candidate.getEntity1() == entity1;
+                        sink.accept(inOrder ? left : right, inOrder ? right : left, candidate);
+                    }
+                    found.clear();
+                });
             }
+            mergeMetrics.recordPhase(MergeMetrics.Phase.SCORING, start);
         }
         
-        log.info("Fallback merging completed: {} results", results.size());
-        return results;
+        /**
+         * Merges the candidates of whole groups, with their entities loaded
+         * from {@code source}; groups never share a cluster, so this gives the
+         * same results as merging all candidates at once.
+         */
+        public List<MergeResult> merge(CandidatePairs pairs, List<CandidatePairs.Group> groups, EntitySource source) {
+            List<MatchCandidate> candidates = loadCandidates(pairs, groups, source);
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+            return rules != null ? executeRuleMerging(rules, candidates) : fallbackMergeResults(candidates);
+        }
+        
+        @Override
+        public void close() {
+            scorer.close();
+            if (rules != null) {
+                rules.close();
+            }
+        }
     }
     
-    private List<MatchCandidate> findFallbackMatchCandidates(List<DataEntity> entities) {
+    // One entity instance per position, so the clustering sees each member once
+    private List<MatchCandidate> loadCandidates(CandidatePairs pairs, List<CandidatePairs.Group> groups,
+                                                EntitySource source) {
+        int[] positions = groups.stream().flatMapToInt(group -> Arrays.stream(group.positions())).sorted().toArray();
+        List<DataEntity> loaded = source.load(positions);
+        for (DataEntity entity : loaded) {
+            if (entity != null) {
+                matchKeyStandardizer.standardize(entity);
+            }
+        }
         List<MatchCandidate> candidates = new ArrayList<>();
-        
-        // Simple fallback logic: find entities with same email
-        for (int i = 0; i < entities.size(); i++) {
-            for (int j = i + 1; j < entities.size(); j++) {
-                DataEntity entity1 = entities.get(i);
-                DataEntity entity2 = entities.get(j);
-                
-                String email1 = entity1.getAttributes().get("email");
-                String email2 = entity2.getAttributes().get("email");
-                
-                if (email1 != null && email1.equals(email2)) {
-                    MatchCandidate candidate = MatchCandidate.builder()
-                        .entity1(entity1)
-                        .entity2(entity2)
-                        .confidenceScore(0.85)
-                        .matchReason("Email match")
-                        .ruleName("FALLBACK_EMAIL_RULE")
-                        .build();
-                    candidates.add(candidate);
+        for (CandidatePairs.Group group : groups) {
+            for (int candidate : group.candidates()) {
+                DataEntity entity1 = loaded.get(Arrays.binarySearch(positions, pairs.position1(candidate)));
+                DataEntity entity2 = loaded.get(Arrays.binarySearch(positions, pairs.position2(candidate)));
+                if (entity1 != null && entity2 != null) {
+                    candidates.add(pairs.candidate(candidate, entity1, entity2));
                 }
             }
         }
+        return candidates;
+    }
+    
+    /**
+     * Runs the match rules over every blocked candidate pair. Each matching worker
+     * borrows its own pooled session and scores its pairs on it (insert, fire,
+     * retract), so the working memory never holds more than two entities.
+     */
+    private PairScorer newPairScorer() {
+        if (!isDroolsAvailable()) {
+            return FALLBACK_SCORER;
+        }
+        try (CompiledRuleBase rules = ruleBaseManager.acquire()) {
+            return new RuleMatchScorer(rules);
+        }
+    }
+    
+    private List<MatchCandidate> findRuleMatchCandidates(CompiledRuleBase rules, List<DataEntity> entities) {
+        return matchAll(entities, () -> new RuleMatchScorer(rules));
+    }
+    
+    // Candidate pairs come from the search index when one is configured, from blocking otherwise
+    private List<MatchCandidate> matchAll(List<DataEntity> entities, Supplier<PairScorer> scorers) {
+        if (candidateSearchService.isEnabled()) {
+            return candidateSearchService.match(entities, scorers);
+        }
+        long start = System.nanoTime();
+        BlockingIndex index = buildBlockingIndex(entities);
+        mergeMetrics.recordPhase(MergeMetrics.Phase.BLOCKING, start);
+        start = System.nanoTime();
+        List<MatchCandidate> candidates = blockMatcher.match(index, scorers);
+        mergeMetrics.recordPhase(MergeMetrics.Phase.SCORING, start);
+        return candidates;
+    }
+    
+    private void standardize(List<DataEntity> entities) {
+        long start = System.nanoTime();
+        matchKeyStandardizer.standardize(entities);
+        mergeMetrics.recordPhase(MergeMetrics.Phase.NORMALIZATION, start);
+    }
+    
+    private static void scorePair(KieSession session, RuleExecutionContext context, DataEntity entity1, DataEntity entity2) {
+        int firstNew = context.getMatchCandidates().size();
+        FactHandle handle1 = session.insert(entity1);
+        FactHandle handle2 = session.insert(entity2);
+        session.fireAllRules();
+        session.delete(handle1);
+        session.delete(handle2);
+        // Several match rules can fire for the same pair; only the strongest one is kept
+        context.retainBestMatchCandidateFrom(firstNew);
+    }
+    
+    /**
+     * High-confidence candidates are first collapsed into clusters, so the merge
+     * rules produce one golden record per group of transitively matching entities
+     * and only the remaining, weaker candidates are reviewed pairwise.
+     */
+    private List<MergeResult> executeRuleMerging(CompiledRuleBase rules, List<MatchCandidate> candidates) {
+        long start = System.nanoTime();
+        MatchClusterer.ClusteringResult clustering = matchClusterer.cluster(candidates);
+        mergeMetrics.recordPhase(MergeMetrics.Phase.CLUSTERING, start);
+        RuleExecutionContext context = new RuleExecutionContext();
+        context.getMatchClusters().addAll(clustering.getClusters());
+        context.getMatchCandidates().addAll(clustering.getReviewCandidates());
+        
+        start = System.nanoTime();
+        KieSession session = rules.newMergeSession();
+        try {
+            session.insert(context);
+            session.fireAllRules();
+        } finally {
+            session.dispose();
+        }
+        mergeMetrics.recordPhase(MergeMetrics.Phase.MERGE, start);
+        
+        if (!context.getMergedEntities().isEmpty()) {
+            start = System.nanoTime();
+            applySurvivorship(candidates, context);
+            mergeMetrics.recordPhase(MergeMetrics.Phase.SURVIVORSHIP, start);
+        }
+        mergeMetrics.recordOutcomes(context.getMergeResults());
+        return context.getMergeResults();
+    }
+    
+    /**
+     * Fills the golden records created by the merge rules with the surviving
+     * values of their source entities.
+     */
+    private void applySurvivorship(List<MatchCandidate> candidates, RuleExecutionContext mergeContext) {
+        Map<String, DataEntity> entitiesById = new HashMap<>();
+        for (MatchCandidate candidate : candidates) {
+            entitiesById.put(candidate.getEntity1().getEntityId(), candidate.getEntity1());
+            entitiesById.put(candidate.getEntity2().getEntityId(), candidate.getEntity2());
+        }
+        Map<String, DataEntity> mergedEntities = new HashMap<>();
+        for (DataEntity mergedEntity : mergeContext.getMergedEntities()) {
+            mergedEntities.put(mergedEntity.getEntityId(), mergedEntity);
+        }
+        
+        for (MergeResult result : mergeContext.getMergeResults()) {
+            if (result.getMergedEntityId() == null) {
+                continue;
+            }
+            List<DataEntity> members = new ArrayList<>(result.getSourceEntityIds().size());
+            for (String sourceId : result.getSourceEntityIds()) {
+                members.add(entitiesById.get(sourceId));
+            }
+            DataEntity mergedEntity = mergedEntities.get(result.getMergedEntityId());
+            result.setSurvivorshipDecisions(survivorshipEngine.apply(members, mergedEntity));
+            result.setMergedEntity(mergedEntity);
+        }
+    }
+    
+    private List<MergeResult> executeFallbackMerging(List<DataEntity> entities) {
+        // Simple fallback logic: find entities with same email and merge them
+        List<MergeResult> results = fallbackMergeResults(matchAll(entities, () -> FALLBACK_SCORER));
         
+        log.info("Fallback merging completed: {} results", results.size());
+        return results;
+    }
+    
+    // Every fallback candidate is a merge, so all of them are clustered
+    private List<MergeResult> fallbackMergeResults(List<MatchCandidate> candidates) {
+        long start = System.nanoTime();
+        List<MatchCluster> clusters = matchClusterer.cluster(candidates, 0.0).getClusters();
+        mergeMetrics.recordPhase(MergeMetrics.Phase.CLUSTERING, start);
+        start = System.nanoTime();
+        List<MergeResult> results = new ArrayList<>();
+        for (MatchCluster cluster : clusters) {
+            results.add(fallbackMergeResult(cluster.getMembers(), cluster.getConfidenceScore()));
+        }
+        mergeMetrics.recordPhase(MergeMetrics.Phase.SURVIVORSHIP, start);
+        mergeMetrics.recordOutcomes(results);
+        return results;
+    }
+    
+    private List<MatchCandidate> findFallbackMatchCandidates(List<DataEntity> entities) {
+        List<MatchCandidate> candidates = matchAll(entities, () -> FALLBACK_SCORER);
         log.info("Fallback match candidates found: {} candidates", candidates.size());
         return candidates;
     }
     
+    // Simple fallback logic: find entities with same (normalized) email
+    private static final PairScorer FALLBACK_SCORER = (entity1, entity2, out) -> {
+        String email1 = entity1.getMatchKeys().getEmail();
+        String email2 = entity2.getMatchKeys().getEmail();
+        
+        if (email1 != null && email1.equals(email2)) {
+            out.add(MatchCandidate.builder()
+                .entity1(entity1)
+                .entity2(entity2)
+                .confidenceScore(0.85)
+                .matchReason("Email match")
+                .ruleName("FALLBACK_EMAIL_RULE")
+                .build());
+        }
+    };
+    
+    // Holds its own reference to the rule base, so a scorer outlives a reload
+    private static final class RuleMatchScorer implements PairScorer {
+        private final RuleExecutionContext context = new RuleExecutionContext();
+        private final CompiledRuleBase rules;
+        private final KieSession session;
+        
+        RuleMatchScorer(CompiledRuleBase rules) {
+            if (!rules.retain()) {
+                throw new IllegalStateException("Rule base " + rules.getVersion() + " has been disposed");
+            }
+            this.rules = rules;
+            session = rules.newMatchSession();
+            session.insert(context);
+        }
+        
+        @Override
+        public void score(DataEntity entity1, DataEntity entity2, List<MatchCandidate> out) {
+            scorePair(session, context, entity1, entity2);
+            if (!context.getMatchCandidates().isEmpty()) {
+                out.addAll(context.getMatchCandidates());
+                context.getMatchCandidates().clear();
+            }
+        }
+        
+        @Override
+        public void close() {
+            session.dispose();
+            rules.close();
+        }
+    }
+    
+    private BlockingIndex buildBlockingIndex(List<DataEntity> entities) {
+        BlockingIndex index = BlockingIndex.build(entities, maxBlockSize);
+        logOversizedBlocks(index);
+        return index;
+    }
+    
+    private void logOversizedBlocks(BlockingIndex index) {
+        if (index.oversizedBlockCount() > 0) {
+            log.warn("Skipped {} of {} blocks larger than {} entities",
+                index.oversizedBlockCount(), index.blockCount(), maxBlockSize);
+        }
+    }
+    
     private MergeResult mergeEntitiesFallback(DataEntity entity1, DataEntity entity2) {
-        String email1 = entity1.getAttributes().get("email");
-        String email2 = entity2.getAttributes().get("email");
+        String email1 = entity1.getMatchKeys().getEmail();
+        String email2 = entity2.getMatchKeys().getEmail();
         
         if (email1 != null && email1.equals(email2)) {
-            return MergeResult.builder()
-                .mergeId(UUID.randomUUID().toString())
-                .status("MERGED")
-                .message("Entities merged based on email match")
-                .sourceEntityIds(List.of(entity1.getEntityId(), entity2.getEntityId()))
-                .timestamp(LocalDateTime.now())
-                .survivorshipDecisions(new HashMap<>() {{
-                    put("email", entity1.getEntityId() + ":FALLBACK_RULE");
-                    put("firstName", entity1.getEntityId() + ":FALLBACK_RULE");
-                    put("lastName", entity1.getEntityId() + ":FALLBACK_RULE");
-                }})
-                .build();
+            return fallbackMergeResult(List.of(entity1, entity2), null);
         } else {
-            return MergeResult.builder()
-                .mergeId(UUID.randomUUID().toString())
-                .status("NO_MATCH")
-                .message("No matching criteria found for these entities")
-                .sourceEntityIds(List.of(entity1.getEntityId(), entity2.getEntityId()))
-                .timestamp(LocalDateTime.now())
-                .build();
+            return noMatchResult(entity1, entity2);
+        }
+    }
+    
+    // Golden record of an email match, with the same survivorship as rule-based merges
+    private MergeResult fallbackMergeResult(List<DataEntity> members, Double confidenceScore) {
+        DataEntity mergedEntity = new DataEntity();
+        mergedEntity.setEntityId("MERGED_" + UUID.randomUUID());
+        mergedEntity.setEntityType(members.get(0).getEntityType());
+        mergedEntity.setStatus("ACTIVE");
+        mergedEntity.setConfidenceScore(confidenceScore);
+        Map<String, String> decisions = survivorshipEngine.apply(members, mergedEntity);
+        
+        List<String> sourceEntityIds = new ArrayList<>(members.size());
+        for (DataEntity member : members) {
+            sourceEntityIds.add(member.getEntityId());
         }
+        return MergeResult.builder()
+            .mergeId(UUID.randomUUID().toString())
+            .status("MERGED")
+            .message("Entities merged based on email match")
+            .sourceEntityIds(sourceEntityIds)
+            .mergedEntityId(mergedEntity.getEntityId())
+            .mergedEntity(mergedEntity)
+            .confidenceScore(confidenceScore)
+            .timestamp(LocalDateTime.now())
+            .survivorshipDecisions(decisions)
+            .build();
+    }
+    
+    private MergeResult noMatchResult(DataEntity entity1, DataEntity entity2) {
+        return MergeResult.builder()
+            .mergeId(UUID.randomUUID().toString())
+            .status("NO_MATCH")
+            .message("No matching criteria found for these entities")
+            .sourceEntityIds(List.of(entity1.getEntityId(), entity2.getEntityId()))
+            .timestamp(LocalDateTime.now())
+            .build();
     }
     
-    public void reloadRules() {
-        log.info("Reloading rules (fallback mode)");
-        // In fallback mode, nothing to reload
+    /**
+     * Recompiles the rule base and the survivorship rules from the DRL files and
+     * the stored merge rules. Matching continues on the current rules meanwhile;
+     * both are replaced together once the new rule base has passed validation.
+     *
+     * @return the outcome of the rule base reload
+     */
+    public CompletableFuture<RuleBaseManager.ReloadResult> reloadRules() {
+        log.info("Reloading rules");
+        return ruleBaseManager.reload();
     }
     
     public boolean isDroolsAvailable() {
-        return droolsAvailable;
+        return ruleBaseManager.isAvailable();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package com.mdm.mcp.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link CandidateIndex} on Elasticsearch. Entities are written with the bulk
+ * API, and the candidates of a batch of entities are retrieved with a single
+ * {@code _msearch} request. Exact keys (e-mail, phone, SSN) are keyword terms;
+ * names, company names and addresses are matched fuzzily on their own analyzers
+ * and on character trigrams (see {@code search/entity-candidates-index.json}).
+ *
+ * Each run writes its entities as documents {@code <run>:<position>} tagged with
+ * the run id, searches only within the run and deletes them when it is closed,
+ * so concurrent runs do not see each other's entities.
+ *
+ * Only created with {@code mdm.matching.search.backend=ELASTICSEARCH}.
+ */
+@Component
+@ConditionalOnProperty(name = "mdm.matching.search.backend", havingValue = "ELASTICSEARCH")
+@Slf4j
+public class ElasticsearchCandidateIndex {
+
+    static final String INDEX_DEFINITION = "search/entity-candidates-index.json";
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Value("${mdm.matching.search.index-name:mdm-entity-candidates}")
+    private String indexName = "mdm-entity-candidates";
+
+    // Documents per bulk request
+    @Value("${mdm.matching.search.bulk-size:5000}")
+    private int bulkSize = 5000;
+
+    private volatile boolean indexCreated;
+
+    /**
+     * Starts a run; its entities are deleted from the index when it is closed.
+     */
+    public CandidateIndex open() {
+        return new Run(UUID.randomUUID().toString());
+    }
+
+    private final class Run implements CandidateIndex {
+        private final String runId;
+        private List<DataEntity> entities = List.of();
+
+        Run(String runId) {
+            this.runId = runId;
+        }
+
+        @Override
+        public void index(List<DataEntity> entities) {
+            this.entities = entities;
+            if (entities.isEmpty()) {
+                return;
+            }
+            try {
+                createIndexIfMissing();
+                for (int from = 0; from < entities.size(); from += bulkSize) {
+                    BulkRequest.Builder bulk = new BulkRequest.Builder().index(indexName);
+                    for (int position = from; position < Math.min(from + bulkSize, entities.size()); position++) {
+                        Map<String, Object> document = document(entities.get(position));
+                        document.put("run", runId);
+                        String id = documentId(position);
+                        bulk.operations(op -> op.index(index -> index.id(id).document(document)));
+                    }
+                    BulkResponse response = client.bulk(bulk.build());
+                    if (response.errors()) {
+                        throw new IllegalStateException("Indexing entities into " + indexName + " failed: " + firstError(response));
+                    }
+                }
+                client.indices().refresh(refresh -> refresh.index(indexName));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Indexing entities into " + indexName + " failed", e);
+            }
+            log.debug("Indexed {} entities into {} for run {}", entities.size(), indexName, runId);
+        }
+
+        @Override
+        public List<int[]> search(int from, int to, int topK) {
+            List<int[]> results = new ArrayList<>(to - from);
+            if (from >= to) {
+                return results;
+            }
+            MsearchRequest.Builder request = new MsearchRequest.Builder().index(indexName);
+            for (int position = from; position < to; position++) {
+                Query query = query(entities.get(position), runId, documentId(position));
+                request.searches(search -> search
+                    .header(header -> header)
+                    .body(body -> body.query(query).size(topK).source(source -> source.fetch(false))));
+            }
+
+            MsearchResponse<ObjectNode> response;
+            try {
+                response = client.msearch(request.build(), ObjectNode.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Candidate search on " + indexName + " failed", e);
+            }
+            for (MultiSearchResponseItem<ObjectNode> item : response.responses()) {
+                if (item.isFailure()) {
+                    throw new IllegalStateException("Candidate search on " + indexName + " failed: "
+                        + item.failure().error().reason());
+                }
+                List<Hit<ObjectNode>> hits = item.result().hits().hits();
+                int[] positions = new int[hits.size()];
+                for (int i = 0; i < positions.length; i++) {
+                    String id = hits.get(i).id();
+                    positions[i] = Integer.parseInt(id.substring(id.lastIndexOf(':') + 1));
+                }
+                results.add(positions);
+            }
+            return results;
+        }
+
+        @Override
+        public void close() {
+            if (entities.isEmpty()) {
+                return;
+            }
+            try {
+                client.deleteByQuery(delete -> delete
+                    .index(indexName)
+                    .query(q -> q.term(t -> t.field("run").value(runId)))
+                    .conflicts(Conflicts.Proceed));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not delete the documents of candidate search run {} from {}: {}", runId, indexName, e.getMessage());
+            }
+        }
+
+        private String documentId(int position) {
+            return runId + ":" + position;
+        }
+    }
+
+    private synchronized void createIndexIfMissing() throws IOException {
+        if (indexCreated) {
+            return;
+        }
+        if (!client.indices().exists(exists -> exists.index(indexName)).value()) {
+            try (InputStream definition = new ClassPathResource(INDEX_DEFINITION).getInputStream()) {
+                client.indices().create(create -> create.index(indexName).withJson(definition));
+            }
+            log.info("Created candidate index {}", indexName);
+        } else {
+            // Indexes created before runs were scoped lack the run field
+            client.indices().putMapping(mapping -> mapping.index(indexName).properties("run", run -> run.keyword(k -> k)));
+        }
+        indexCreated = true;
+    }
+
+    static Map<String, Object> document(DataEntity entity) {
+        MatchKeys keys = entity.getMatchKeys();
+        Map<String, Object> document = new HashMap<>();
+        putIfPresent(document, "entityType", entity.getEntityType());
+        putIfPresent(document, "email", keys.getEmail());
+        putIfPresent(document, "phone", keys.getPhone());
+        putIfPresent(document, "ssn", keys.getSsn());
+        putIfPresent(document, "name", keys.getName());
+        if (entity.getAttributes() != null) {
+            putIfPresent(document, "companyName", MatchKeys.normalizeText(entity.getAttributes().get("companyName")));
+            putIfPresent(document, "address", MatchKeys.normalizeText(entity.getAttributes().get("address")));
+        }
+        return document;
+    }
+
+    /**
+     * Entities of the same type and run sharing an exact key or with a similar
+     * name, company name or address. Exact keys weigh most; fuzzy term matches
+     * (edit distance AUTO) count more than trigram overlap alone.
+     */
+    private static Query query(DataEntity entity, String runId, String documentId) {
+        Map<String, Object> document = document(entity);
+        return Query.of(q -> q.bool(bool -> {
+            bool.filter(f -> f.term(t -> t.field("run").value(runId)));
+            if (entity.getEntityType() != null) {
+                bool.filter(f -> f.term(t -> t.field("entityType").value(entity.getEntityType())));
+            }
+            bool.mustNot(n -> n.ids(ids -> ids.values(documentId)));
+            exactKey(bool, document, "email");
+            exactKey(bool, document, "phone");
+            exactKey(bool, document, "ssn");
+            fuzzyText(bool, document, "name", 2.0f);
+            fuzzyText(bool, document, "companyName", 2.0f);
+            Object address = document.get("address");
+            if (address != null) {
+                bool.should(s -> s.match(m -> m.field("address").query((String) address).fuzziness("AUTO")));
+            }
+            // Without any should clause the entity has nothing to match on
+            return bool.minimumShouldMatch("1");
+        }));
+    }
+
+    private static void exactKey(BoolQuery.Builder bool, Map<String, Object> document, String field) {
+        Object value = document.get(field);
+        if (value != null) {
+            bool.should(s -> s.term(t -> t.field(field).value((String) value).boost(4.0f)));
+        }
+    }
+
+    private static void fuzzyText(BoolQuery.Builder bool, Map<String, Object> document, String field, float boost) {
+        Object value = document.get(field);
+        if (value == null) {
+            return;
+        }
+        bool.should(s -> s.match(m -> m.field(field).query((String) value).fuzziness("AUTO").prefixLength(1).boost(boost)));
+        bool.should(s -> s.match(m -> m.field(field + ".trigrams").query((String) value).minimumShouldMatch("50%")));
+    }
+
+    private static void putIfPresent(Map<String, Object> document, String field, String value) {
+        if (value != null) {
+            document.put(field, value);
+        }
+    }
+
+    private static String firstError(BulkResponse response) {
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() != null) {
+                return item.id() + ": " + item.error().reason();
+            }
+        }
+        return "unknown error";
+    }
+}
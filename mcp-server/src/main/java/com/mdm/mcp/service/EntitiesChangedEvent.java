@@ -0,0 +1,21 @@
+package com.mdm.mcp.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by {@link EntityStore} after entities were written, so that caches
+ * can drop their copies. Delivered after the writing transaction commits.
+ */
+public final class EntitiesChangedEvent {
+
+    private final List<String> entityIds;
+
+    public EntitiesChangedEvent(Collection<String> entityIds) {
+        this.entityIds = List.copyOf(entityIds);
+    }
+
+    public List<String> getEntityIds() {
+        return entityIds;
+    }
+}
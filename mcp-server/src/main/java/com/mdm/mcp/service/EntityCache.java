@@ -0,0 +1,290 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.repository.MergeResultRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier cache for entity and golden record lookups: a bounded in-process
+ * near cache (Caffeine) in front of Redis, in front of the {@link EntityStore}.
+ *
+ * Entries are evicted from both tiers when an {@link EntitiesChangedEvent}
+ * commits; other instances drop their near-cache copies when the ids arrive on
+ * the Redis {@link #INVALIDATION_CHANNEL}. If Redis fails, it is bypassed for
+ * {@code mdm.cache.redis.retry-interval} and lookups fall through to the database.
+ *
+ * Cached entities are shared and must not be modified.
+ */
+@Service
+@Slf4j
+public class EntityCache {
+
+    public static final String INVALIDATION_CHANNEL = "mdm:cache:invalidate";
+
+    private static final String ENTITY_KEY = "mdm:entity:";
+    private static final String GOLDEN_KEY = "mdm:golden:";
+
+    // Golden records merged again are followed at most this many times
+    private static final int MAX_MERGE_HOPS = 8;
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+
+    @Autowired
+    private EntityStore entityStore;
+
+    @Autowired
+    private MergeResultRepository mergeResultRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${mdm.cache.near.maximum-size:100000}")
+    private long nearMaximumSize = 100_000;
+
+    @Value("${mdm.cache.near.ttl:PT30S}")
+    private Duration nearTtl = Duration.ofSeconds(30);
+
+    @Value("${mdm.cache.redis.enabled:true}")
+    private boolean redisEnabled = true;
+
+    @Value("${mdm.cache.redis.ttl:PT1M}")
+    private Duration redisTtl = Duration.ofMinutes(1);
+
+    @Value("${mdm.cache.redis.retry-interval:PT30S}")
+    private Duration redisRetryInterval = Duration.ofSeconds(30);
+
+    private Cache<String, DataEntity> entities;
+    private Cache<String, String> goldenLinks;
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final LongAdder databaseLoads = new LongAdder();
+
+    private volatile long redisBypassedUntil;
+
+    @PostConstruct
+    public void init() {
+        entities = Caffeine.newBuilder()
+            .maximumSize(nearMaximumSize)
+            .expireAfterWrite(nearTtl)
+            .recordStats()
+            .build();
+        goldenLinks = Caffeine.newBuilder()
+            .maximumSize(nearMaximumSize)
+            .expireAfterWrite(nearTtl)
+            .recordStats()
+            .build();
+        // Near-cache gets, hits and evictions as cache_* metrics, next to the Redis tier counters
+        CaffeineCacheMetrics.monitor(registry, entities, "entity-near");
+        CaffeineCacheMetrics.monitor(registry, goldenLinks, "golden-link-near");
+        registerRedisCounter("hit", redisHits);
+        registerRedisCounter("miss", redisMisses);
+        registerRedisCounter("error", redisErrors);
+        FunctionCounter.builder("mdm.cache.database.loads", databaseLoads, LongAdder::sum)
+            .description("Entity lookups that missed both cache tiers and were loaded from the database")
+            .register(registry);
+        log.info("Entity cache: near cache of {} entries for {}, Redis {}", nearMaximumSize, nearTtl,
+            redisEnabled ? "for " + redisTtl : "disabled");
+    }
+
+    private void registerRedisCounter(String result, LongAdder counter) {
+        FunctionCounter.builder("mdm.cache.redis.gets", counter, LongAdder::sum)
+            .description("Redis tier lookups of the entity cache by result")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    public Optional<DataEntity> getEntity(String entityId) {
+        DataEntity entity = entities.getIfPresent(entityId);
+        if (entity != null) {
+            return Optional.of(entity);
+        }
+        entity = redisGet(ENTITY_KEY + entityId, DataEntity.class);
+        if (entity == null) {
+            databaseLoads.increment();
+            entity = entityStore.findByEntityId(entityId).orElse(null);
+            if (entity == null) {
+                return Optional.empty();
+            }
+            redisSet(ENTITY_KEY + entityId, entity);
+        }
+        entities.put(entityId, entity);
+        return Optional.of(entity);
+    }
+
+    /**
+     * Resolves a source entity to its current golden record: the entity itself
+     * while it is not merged, otherwise the golden record it was merged into,
+     * following golden records that were merged again.
+     */
+    public Optional<DataEntity> resolveGoldenRecord(String sourceEntityId) {
+        String entityId = sourceEntityId;
+        for (int hop = 0; hop <= MAX_MERGE_HOPS; hop++) {
+            Optional<DataEntity> entity = getEntity(entityId);
+            if (entity.isEmpty() || !"MERGED".equals(entity.get().getStatus())) {
+                return entity;
+            }
+            entityId = getGoldenEntityId(entityId);
+            if (entityId == null) {
+                // Merged without a persisted golden record, e.g. by the fallback engine
+                return Optional.empty();
+            }
+        }
+        log.warn("Golden record of {} not resolved within {} merges", sourceEntityId, MAX_MERGE_HOPS);
+        return Optional.empty();
+    }
+
+    // Absent links are not cached: they appear when the source is merged
+    private String getGoldenEntityId(String sourceEntityId) {
+        String goldenId = goldenLinks.getIfPresent(sourceEntityId);
+        if (goldenId != null) {
+            return goldenId;
+        }
+        goldenId = redisGet(GOLDEN_KEY + sourceEntityId, String.class);
+        if (goldenId == null) {
+            databaseLoads.increment();
+            goldenId = mergeResultRepository.findGoldenEntityId(sourceEntityId);
+            if (goldenId == null) {
+                return null;
+            }
+            redisSet(GOLDEN_KEY + sourceEntityId, goldenId);
+        }
+        goldenLinks.put(sourceEntityId, goldenId);
+        return goldenId;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntitiesChanged(EntitiesChangedEvent event) {
+        List<String> entityIds = event.getEntityIds();
+        evictLocal(entityIds);
+        if (!redisAvailable()) {
+            return;
+        }
+        try {
+            List<String> keys = new ArrayList<>(entityIds.size() * 2);
+            for (String entityId : entityIds) {
+                keys.add(ENTITY_KEY + entityId);
+                keys.add(GOLDEN_KEY + entityId);
+            }
+            redisTemplate.delete(keys);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, objectMapper.writeValueAsString(entityIds));
+        } catch (Exception e) {
+            redisFailed(e);
+        }
+    }
+
+    /**
+     * Handles invalidations published by any instance, including this one.
+     */
+    public void onInvalidationMessage(String message) {
+        try {
+            evictLocal(objectMapper.readValue(message, STRING_LIST));
+        } catch (Exception e) {
+            log.warn("Ignoring malformed cache invalidation message: {}", e.getMessage());
+        }
+    }
+
+    public void clear() {
+        entities.invalidateAll();
+        goldenLinks.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entities", nearCacheStats(entities));
+        stats.put("goldenLinks", nearCacheStats(goldenLinks));
+        Map<String, Object> redis = new LinkedHashMap<>();
+        redis.put("enabled", redisEnabled);
+        redis.put("available", redisAvailable());
+        redis.put("hits", redisHits.sum());
+        redis.put("misses", redisMisses.sum());
+        redis.put("errors", redisErrors.sum());
+        stats.put("redis", redis);
+        stats.put("databaseLoads", databaseLoads.sum());
+        return stats;
+    }
+
+    private static Map<String, Object> nearCacheStats(Cache<String, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("size", cache.estimatedSize());
+        values.put("hits", stats.hitCount());
+        values.put("misses", stats.missCount());
+        values.put("hitRate", stats.hitRate());
+        values.put("evictions", stats.evictionCount());
+        return values;
+    }
+
+    private void evictLocal(List<String> entityIds) {
+        entities.invalidateAll(entityIds);
+        goldenLinks.invalidateAll(entityIds);
+    }
+
+    private <T> T redisGet(String key, Class<T> type) {
+        if (!redisAvailable()) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json == null) {
+                redisMisses.increment();
+                return null;
+            }
+            redisHits.increment();
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            redisFailed(e);
+            return null;
+        }
+    }
+
+    private void redisSet(String key, Object value) {
+        if (!redisAvailable()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value), redisTtl);
+        } catch (Exception e) {
+            redisFailed(e);
+        }
+    }
+
+    private boolean redisAvailable() {
+        return redisEnabled && System.currentTimeMillis() >= redisBypassedUntil;
+    }
+
+    private void redisFailed(Exception e) {
+        redisErrors.increment();
+        redisBypassedUntil = System.currentTimeMillis() + redisRetryInterval.toMillis();
+        log.warn("Redis cache unavailable, bypassing it for {}: {}", redisRetryInterval, e.getMessage());
+    }
+}
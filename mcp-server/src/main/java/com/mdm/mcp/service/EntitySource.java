@@ -0,0 +1,30 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+
+import java.util.List;
+
+/**
+ * Where the streaming pipelines of {@link DroolsRuleEngineService} read the
+ * entities of their input back from. While the input is read only its blocking
+ * keys are kept; the entities are handed to the source and loaded again, a
+ * block or a group of clusters at a time, once the input has ended.
+ */
+public interface EntitySource extends AutoCloseable {
+
+    /**
+     * Records the next entity of the input; its position is the number of
+     * entities recorded before it.
+     */
+    void add(DataEntity entity);
+
+    /**
+     * @param positions ascending positions of recorded entities
+     * @return the entities at these positions, in the same order, with
+     *         {@code null} for an entity that no longer exists
+     */
+    List<DataEntity> load(int[] positions);
+
+    @Override
+    void close();
+}
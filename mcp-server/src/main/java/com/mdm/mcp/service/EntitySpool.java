@@ -0,0 +1,103 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link EntitySource} for input that cannot be read twice, such as a request
+ * body: the entities are appended as JSON to a temporary file, which is deleted
+ * on close, and only their offsets are kept in memory.
+ */
+public class EntitySpool implements EntitySource {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final OutputStream out;
+    private FileChannel channel;
+
+    // offsets[i] is where entity i starts; it ends where entity i + 1 starts, the last one at end
+    private long[] offsets = new long[1024];
+    private int count;
+    private long end;
+
+    public EntitySpool(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        try {
+            file = Files.createTempFile("mdm-entities-", ".json");
+            out = new BufferedOutputStream(Files.newOutputStream(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create entity spool file", e);
+        }
+    }
+
+    @Override
+    public void add(DataEntity entity) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(entity);
+            out.write(json);
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = end;
+            end += json.length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spool entity " + entity.getEntityId(), e);
+        }
+    }
+
+    @Override
+    public List<DataEntity> load(int[] positions) {
+        List<DataEntity> entities = new ArrayList<>(positions.length);
+        try {
+            if (channel == null) {
+                out.flush();
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            }
+            for (int position : positions) {
+                long from = offsets[position];
+                long to = position + 1 < count ? offsets[position + 1] : end;
+                ByteBuffer json = ByteBuffer.allocate((int) (to - from));
+                while (json.hasRemaining()) {
+                    if (channel.read(json, from + json.position()) < 0) {
+                        throw new EOFException("Spool file ends within entity " + position);
+                    }
+                }
+                entities.add(objectMapper.readValue(json.array(), DataEntity.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spooled entities", e);
+        }
+        return entities;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();
+            if (channel != null) {
+                channel.close();
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete entity spool file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.repository.EntityDocumentRepository;
+import com.mdm.mcp.repository.EntityRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Persistence of entities behind a switchable attribute store
+ * ({@code mdm.persistence.attribute-store}):
+ * <ul>
+ *   <li>{@code ELEMENT_COLLECTION} - the JPA mapping of {@link DataEntity} with one
+ *       row per attribute, collections loaded in batches</li>
+ *   <li>{@code JSONB} - one {@code entity_documents} row per entity with JSONB
+ *       attributes and indexed match keys (PostgreSQL only)</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class EntityStore {
+
+    public enum AttributeStore { ELEMENT_COLLECTION, JSONB }
+
+    private static final int MAX_IN_LIST_SIZE = 1_000;
+
+    private static final String SLICE_QUERY =
+        "SELECT DISTINCT e FROM DataEntity e LEFT JOIN FETCH e.attributes WHERE e.id IN :ids ORDER BY e.id";
+
+    // Separate from SLICE_QUERY: fetch-joining both collections returns attributes x relationships rows
+    private static final String SLICE_RELATIONSHIPS_QUERY =
+        "SELECT e.id, KEY(r), VALUE(r) FROM DataEntity e JOIN e.relationships r WHERE e.id IN :ids";
+
+    @Value("${mdm.persistence.attribute-store:ELEMENT_COLLECTION}")
+    private AttributeStore attributeStore = AttributeStore.ELEMENT_COLLECTION;
+
+    @Autowired
+    private EntityRepository entityRepository;
+
+    @Autowired
+    private EntityDocumentRepository documentRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MatchKeyIndex matchKeyIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${mdm.persistence.scan-chunk-size:1000}")
+    private int scanChunkSize = 1000;
+
+    private SessionFactory sessionFactory;
+
+    @PostConstruct
+    public void init() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        if (attributeStore == AttributeStore.JSONB) {
+            documentRepository.createSchema();
+        }
+        log.info("Entity attributes are stored as {}", attributeStore);
+    }
+
+    @Transactional
+    public DataEntity save(DataEntity entity) {
+        DataEntity saved;
+        if (attributeStore == AttributeStore.JSONB) {
+            saved = documentRepository.save(entity);
+            matchKeyIndex.index(List.of(saved));
+        } else {
+            // MatchKeyListener indexes it; flushed now, so that an update is reported before commit
+            saved = entityRepository.saveAndFlush(entity);
+        }
+        eventPublisher.publishEvent(new EntitiesChangedEvent(List.of(saved.getEntityId())));
+        return saved;
+    }
+
+    @Transactional
+    public void saveAll(Collection<DataEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (attributeStore == AttributeStore.JSONB) {
+            documentRepository.saveAll(entities);
+            matchKeyIndex.index(entities);
+        } else {
+            entityRepository.saveAllAndFlush(entities);
+        }
+        List<String> entityIds = new ArrayList<>(entities.size());
+        for (DataEntity entity : entities) {
+            entityIds.add(entity.getEntityId());
+        }
+        eventPublisher.publishEvent(new EntitiesChangedEvent(entityIds));
+    }
+
+    /**
+     * Writes back the status of entities changed by merging, e.g. MERGED sources,
+     * with one update statement per status.
+     */
+    @Transactional
+    public void updateStatuses(Collection<DataEntity> entities) {
+        Map<String, List<String>> idsByStatus = new HashMap<>();
+        for (DataEntity entity : entities) {
+            idsByStatus.computeIfAbsent(entity.getStatus(), status -> new ArrayList<>()).add(entity.getEntityId());
+        }
+        idsByStatus.forEach((status, entityIds) -> updateStatus(entityIds, status));
+    }
+
+    /**
+     * Set-based status update; JPA updates are split into IN lists of
+     * {@value #MAX_IN_LIST_SIZE} ids.
+     */
+    @Transactional
+    public int updateStatus(Collection<String> entityIds, String status) {
+        if (entityIds.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        if (attributeStore == AttributeStore.JSONB) {
+            updated = documentRepository.updateStatus(entityIds, status);
+        } else {
+            List<String> ids = new ArrayList<>(entityIds);
+            LocalDateTime now = LocalDateTime.now();
+            for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+                updated += entityRepository.updateStatusByEntityIds(
+                    ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST_SIZE)), status, now);
+            }
+        }
+        if ("MERGED".equals(status)) {
+            matchKeyIndex.remove(entityIds);
+        }
+        eventPublisher.publishEvent(new EntitiesChangedEvent(entityIds));
+        return updated;
+    }
+
+    /**
+     * Loads a single entity as a detached copy, attributes and relationships
+     * included, which stays usable (and serializable) outside the transaction.
+     */
+    @Transactional(readOnly = true)
+    public Optional<DataEntity> findByEntityId(String entityId) {
+        if (attributeStore == AttributeStore.JSONB) {
+            return documentRepository.findByEntityId(entityId);
+        }
+        return entityRepository.findByEntityId(entityId).map(EntityStore::detachedCopy);
+    }
+
+    /**
+     * Bulk loader: all entities of a type that are not MERGED, with their
+     * attributes, in as few round trips as the store allows.
+     */
+    @Transactional(readOnly = true)
+    public List<DataEntity> findActiveByEntityType(String entityType) {
+        if (attributeStore == AttributeStore.JSONB) {
+            return documentRepository.findActiveByEntityType(entityType);
+        }
+        return entityRepository.findActiveWithAttributesByEntityType(entityType);
+    }
+
+    /**
+     * The live entities of a type among the given entity ids, with their attributes.
+     */
+    @Transactional(readOnly = true)
+    public List<DataEntity> findActiveByEntityIds(String entityType, Collection<String> entityIds) {
+        if (entityIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (attributeStore == AttributeStore.JSONB) {
+            return documentRepository.findActiveByEntityIds(entityType, entityIds);
+        }
+        List<String> ids = new ArrayList<>(entityIds);
+        List<DataEntity> entities = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            entities.addAll(entityRepository.findActiveWithAttributesByEntityIds(
+                entityType, ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST_SIZE))));
+        }
+        return entities;
+    }
+
+    /**
+     * Rebuilds the match keys of the live entities of a type, e.g. for entities
+     * stored before the {@code match_keys} table existed.
+     *
+     * @return the number of entities indexed
+     */
+    public long reindexMatchKeys(String entityType) {
+        long indexed = 0;
+        List<DataEntity> chunk = new ArrayList<>(scanChunkSize);
+        try (Stream<DataEntity> entities = streamActiveByEntityType(entityType)) {
+            Iterator<DataEntity> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == scanChunkSize || !iterator.hasNext()) {
+                    matchKeyIndex.index(chunk);
+                    indexed += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        return indexed;
+    }
+
+    @Transactional(readOnly = true)
+    public List<DataEntity> findActiveByAttributeValues(String entityType, String attributeName, Collection<String> values) {
+        if (attributeStore == AttributeStore.JSONB) {
+            return documentRepository.findActiveByAttributeValues(entityType, attributeName, values);
+        }
+        return entityRepository.findActiveByAttributeValues(entityType, attributeName, values);
+    }
+
+    // Scans for full-population jobs. They read in id order, in slices of scan-chunk-size
+    // entities, and cover the entities stored when the stream was opened. JPA slices are
+    // loaded through a StatelessSession, which has no persistence context: nothing is
+    // cached or snapshotted, so only the slice being consumed is held.
+
+    public Stream<DataEntity> streamByEntityType(String entityType) {
+        return scan((afterId, limit) -> entityRepository.findIdsByEntityTypeAfter(entityType, afterId, limit),
+            (afterId, limit) -> documentRepository.findByEntityTypeAfter(entityType, afterId, limit));
+    }
+
+    /**
+     * Streaming variant of {@link #findActiveByEntityType(String)}.
+     */
+    public Stream<DataEntity> streamActiveByEntityType(String entityType) {
+        return scan((afterId, limit) -> entityRepository.findActiveIdsByEntityTypeAfter(entityType, afterId, limit),
+            (afterId, limit) -> documentRepository.findActiveByEntityTypeAfter(entityType, afterId, limit));
+    }
+
+    public Stream<DataEntity> streamByStatus(String status) {
+        return scan((afterId, limit) -> entityRepository.findIdsByStatusAfter(status, afterId, limit),
+            (afterId, limit) -> documentRepository.findByStatusAfter(status, afterId, limit));
+    }
+
+    public Stream<DataEntity> streamBySourceSystem(String sourceSystem) {
+        return scan((afterId, limit) -> entityRepository.findIdsBySourceSystemAfter(sourceSystem, afterId, limit),
+            (afterId, limit) -> documentRepository.findBySourceSystemAfter(sourceSystem, afterId, limit));
+    }
+
+    public Stream<DataEntity> streamByMinConfidenceScore(double minConfidence) {
+        return scan((afterId, limit) -> entityRepository.findIdsByMinConfidenceScoreAfter(minConfidence, afterId, limit),
+            (afterId, limit) -> documentRepository.findByMinConfidenceScoreAfter(minConfidence, afterId, limit));
+    }
+
+    /**
+     * {@link EntitySource} over stored entities, for streaming them through
+     * {@link DroolsRuleEngineService}: only the ids of the entities added are
+     * kept, and they are loaded again by id, like the scan slices.
+     */
+    public EntitySource openSource() {
+        return new StoredEntities();
+    }
+
+    public AttributeStore getAttributeStore() {
+        return attributeStore;
+    }
+
+    private static DataEntity detachedCopy(DataEntity entity) {
+        DataEntity copy = new DataEntity();
+        copy.setId(entity.getId());
+        copy.setEntityId(entity.getEntityId());
+        copy.setEntityType(entity.getEntityType());
+        copy.setSourceSystem(entity.getSourceSystem());
+        copy.setConfidenceScore(entity.getConfidenceScore());
+        copy.setStatus(entity.getStatus());
+        copy.setCreatedAt(entity.getCreatedAt());
+        copy.setUpdatedAt(entity.getUpdatedAt());
+        copy.setAttributes(new HashMap<>(entity.getAttributes()));
+        copy.setRelationships(new HashMap<>(entity.getRelationships()));
+        return copy;
+    }
+
+    @FunctionalInterface
+    private interface IdSlices {
+        List<Long> next(long afterId, Limit limit);
+    }
+
+    @FunctionalInterface
+    private interface DocumentSlices {
+        List<DataEntity> next(long afterId, int limit);
+    }
+
+    private Stream<DataEntity> scan(IdSlices ids, DocumentSlices documents) {
+        long maxId = attributeStore == AttributeStore.JSONB
+            ? documentRepository.findMaxId()
+            : Optional.ofNullable(entityRepository.findMaxId()).orElse(0L);
+        Iterator<List<DataEntity>> slices = new Iterator<>() {
+            private long afterId = Long.MIN_VALUE;
+            private List<DataEntity> next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    List<DataEntity> slice = attributeStore == AttributeStore.JSONB
+                        ? documents.next(afterId, scanChunkSize)
+                        : loadSlice(ids, afterId);
+                    slice.removeIf(entity -> entity.getId() > maxId);
+                    if (slice.isEmpty()) {
+                        done = true;
+                    } else {
+                        next = slice;
+                        afterId = slice.get(slice.size() - 1).getId();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public List<DataEntity> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<DataEntity> slice = next;
+                next = null;
+                return slice;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(slices, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .flatMap(List::stream);
+    }
+
+    private List<DataEntity> loadSlice(IdSlices ids, long afterId) {
+        List<Long> sliceIds = ids.next(afterId, Limit.of(scanChunkSize));
+        if (sliceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return loadByIds(sliceIds);
+    }
+
+    // Lazy loading needs a session, so the relationships are read in a second query and set on the entities
+    private List<DataEntity> loadByIds(List<Long> ids) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            List<DataEntity> entities = new ArrayList<>(session.createSelectionQuery(SLICE_QUERY, DataEntity.class)
+                .setParameter("ids", ids)
+                .setFetchSize(scanChunkSize)
+                .getResultList());
+            Map<Long, Map<String, String>> relationships = new HashMap<>();
+            for (Object[] row : session.createSelectionQuery(SLICE_RELATIONSHIPS_QUERY, Object[].class)
+                    .setParameter("ids", ids)
+                    .setFetchSize(scanChunkSize)
+                    .getResultList()) {
+                relationships.computeIfAbsent((Long) row[0], id -> new HashMap<>()).put((String) row[1], (String) row[2]);
+            }
+            for (DataEntity entity : entities) {
+                Map<String, String> related = relationships.get(entity.getId());
+                entity.setRelationships(related != null ? related : new HashMap<>());
+            }
+            return entities;
+        }
+    }
+
+    private final class StoredEntities implements EntitySource {
+        private long[] ids = new long[1024];
+        private int count;
+
+        @Override
+        public void add(DataEntity entity) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = entity.getId();
+        }
+
+        @Override
+        public List<DataEntity> load(int[] positions) {
+            List<Long> wanted = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                wanted.add(ids[position]);
+            }
+            Map<Long, DataEntity> byId = new HashMap<>();
+            for (int from = 0; from < wanted.size(); from += MAX_IN_LIST_SIZE) {
+                List<Long> chunk = wanted.subList(from, Math.min(wanted.size(), from + MAX_IN_LIST_SIZE));
+                List<DataEntity> loaded = attributeStore == AttributeStore.JSONB
+                    ? documentRepository.findByIds(chunk)
+                    : loadByIds(chunk);
+                for (DataEntity entity : loaded) {
+                    byId.put(entity.getId(), entity);
+                }
+            }
+            List<DataEntity> entities = new ArrayList<>(positions.length);
+            for (Long id : wanted) {
+                entities.add(byId.get(id));
+            }
+            return entities;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
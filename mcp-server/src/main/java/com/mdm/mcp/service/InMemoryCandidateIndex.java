@@ -0,0 +1,147 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchKeys;
+import com.mdm.mcp.model.NameSignature;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-process stand-in for {@link ElasticsearchCandidateIndex}, for local runs
+ * without an Elasticsearch node. Exact keys and the trigrams of names, company
+ * names and addresses are kept in posting lists, and candidates are ranked by
+ * the weighted share of their terms they have in common with the query. Terms
+ * shared by more than {@code maxPostingSize} entities are ignored, like
+ * low-idf terms in Elasticsearch.
+ *
+ * An instance holds the entities of one run and is dropped with it; it is not
+ * thread-safe.
+ */
+public class InMemoryCandidateIndex implements CandidateIndex {
+
+    private static final float EXACT_KEY_WEIGHT = 4.0f;
+    private static final float NAME_WEIGHT = 2.0f;
+    private static final float ADDRESS_WEIGHT = 1.0f;
+
+    private static final int NAME = 0;
+    private static final int COMPANY = 1;
+    private static final int ADDRESS = 2;
+
+    private final int maxPostingSize;
+
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, IntBuffer> keyPostings = new HashMap<>();
+    private final Map<Long, IntBuffer> gramPostings = new HashMap<>();
+
+    public InMemoryCandidateIndex(int maxPostingSize) {
+        this.maxPostingSize = maxPostingSize;
+    }
+
+    @Override
+    public void index(List<DataEntity> entities) {
+        for (DataEntity entity : entities) {
+            Document document = new Document(entity);
+            int position = documents.size();
+            documents.add(document);
+            for (String key : document.keys) {
+                keyPostings.computeIfAbsent(key, k -> new IntBuffer()).add(position);
+            }
+            for (int field = 0; field < document.grams.length; field++) {
+                for (int gram : document.grams[field]) {
+                    gramPostings.computeIfAbsent(gramKey(field, gram), k -> new IntBuffer()).add(position);
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<int[]> search(int from, int to, int topK) {
+        List<int[]> results = new ArrayList<>(to - from);
+        for (int position = from; position < to; position++) {
+            results.add(search(position, topK));
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        documents.clear();
+        keyPostings.clear();
+        gramPostings.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    private int[] search(int position, int topK) {
+        Document query = documents.get(position);
+        Map<Integer, Float> scores = new HashMap<>();
+        for (String key : query.keys) {
+            accumulate(scores, keyPostings.get(key), EXACT_KEY_WEIGHT);
+        }
+        for (int field = 0; field < query.grams.length; field++) {
+            int[] grams = query.grams[field];
+            float weight = (field == ADDRESS ? ADDRESS_WEIGHT : NAME_WEIGHT) / Math.max(1, grams.length);
+            for (int gram : grams) {
+                accumulate(scores, gramPostings.get(gramKey(field, gram)), weight);
+            }
+        }
+
+        List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(scores.size());
+        for (Map.Entry<Integer, Float> score : scores.entrySet()) {
+            if (score.getKey() != position
+                    && Objects.equals(documents.get(score.getKey()).entityType, query.entityType)) {
+                ranked.add(score);
+            }
+        }
+        ranked.sort(Map.Entry.<Integer, Float>comparingByValue().reversed());
+
+        int[] candidates = new int[Math.min(topK, ranked.size())];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = ranked.get(i).getKey();
+        }
+        return candidates;
+    }
+
+    private void accumulate(Map<Integer, Float> scores, IntBuffer postings, float weight) {
+        if (postings == null || postings.size() > maxPostingSize) {
+            return;
+        }
+        for (int i = 0; i < postings.size(); i++) {
+            scores.merge(postings.get(i), weight, Float::sum);
+        }
+    }
+
+    private static long gramKey(int field, int gram) {
+        return ((long) field << 32) | (gram & 0xFFFFFFFFL);
+    }
+
+    private static final class Document {
+        final String entityType;
+        final List<String> keys = new ArrayList<>(3);
+        final int[][] grams = new int[3][];
+
+        Document(DataEntity entity) {
+            MatchKeys matchKeys = entity.getMatchKeys();
+            entityType = entity.getEntityType();
+            if (matchKeys.getEmail() != null) {
+                keys.add("email:" + matchKeys.getEmail());
+            }
+            if (matchKeys.getPhone() != null) {
+                keys.add("phone:" + matchKeys.getPhone());
+            }
+            if (matchKeys.getSsn() != null) {
+                keys.add("ssn:" + matchKeys.getSsn());
+            }
+            Map<String, String> attributes = entity.getAttributes() == null ? Map.of() : entity.getAttributes();
+            grams[NAME] = matchKeys.getNameSignature().qgrams();
+            grams[COMPANY] = NameSignature.of(MatchKeys.foldAccents(attributes.get("companyName"))).qgrams();
+            grams[ADDRESS] = NameSignature.of(MatchKeys.foldAccents(attributes.get("address"))).qgrams();
+        }
+    }
+}
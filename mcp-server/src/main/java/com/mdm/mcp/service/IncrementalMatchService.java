@@ -0,0 +1,62 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Match-on-write: a saved entity is only compared with the persisted entities
+ * sharing one of its match keys, found through the {@link MatchKeyIndex},
+ * instead of re-matching the whole population.
+ */
+@Service
+@Slf4j
+public class IncrementalMatchService {
+
+    @Autowired
+    private EntityStore entityStore;
+
+    @Autowired
+    private MatchKeyIndex matchKeyIndex;
+
+    @Autowired
+    private DroolsRuleEngineService ruleEngineService;
+
+    @Autowired
+    private MergeOutputWriter mergeOutputWriter;
+
+    /**
+     * Saves the entity, scores it against the existing entities sharing its match
+     * keys and merges the resulting candidates. The merge output (results, golden
+     * records and source entities flipped to MERGED) is written in the same transaction.
+     */
+    @Transactional
+    public RuleExecutionContext saveAndMatch(DataEntity entity) {
+        DataEntity saved = entityStore.save(entity);
+        List<DataEntity> existing = findEntitiesSharingKeys(saved);
+
+        RuleExecutionContext context = new RuleExecutionContext();
+        List<MatchCandidate> candidates = ruleEngineService.matchAgainst(saved, existing);
+        context.getMatchCandidates().addAll(candidates);
+        context.getMergeResults().addAll(ruleEngineService.mergeCandidates(candidates));
+        mergeOutputWriter.write(context.getMergeResults());
+        context.addExecutionDetail("entityId", saved.getEntityId());
+        context.addExecutionDetail("lookedUpEntities", existing.size());
+
+        log.info("Incremental match for {}: {} entities looked up, {} candidates",
+            saved.getEntityId(), existing.size(), candidates.size());
+        return context;
+    }
+
+    List<DataEntity> findEntitiesSharingKeys(DataEntity entity) {
+        Set<String> entityIds = matchKeyIndex.findEntityIdsSharingKeys(entity.getEntityType(), List.of(entity))
+            .getOrDefault(entity.getEntityId(), Set.of());
+        return entityStore.findActiveByEntityIds(entity.getEntityType(), entityIds);
+    }
+}
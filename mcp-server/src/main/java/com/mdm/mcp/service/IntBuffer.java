@@ -0,0 +1,34 @@
+package com.mdm.mcp.service;
+
+import java.util.Arrays;
+
+/**
+ * Minimal growable {@code int} list, used for block member lists without boxing.
+ */
+final class IntBuffer {
+    private int[] values = new int[4];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int last() {
+        return values[size - 1];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,116 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MatchCluster;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Groups match candidates into golden-record clusters: the transitive closure of
+ * the edges scoring at or above the merge threshold. When A~B, B~C and A~C all
+ * match, a single cluster {A, B, C} is produced instead of three pairwise merges.
+ *
+ * Entities are mapped to dense indexes once and the closure is computed with a
+ * {@link UnionFind}, so the working set is a few ints per entity regardless of
+ * how many edges are folded in.
+ */
+@Component
+public class MatchClusterer {
+
+    public static final double DEFAULT_MERGE_THRESHOLD = 0.9;
+
+    @Value("${mdm.merge.cluster-threshold:" + DEFAULT_MERGE_THRESHOLD + "}")
+    private double mergeThreshold = DEFAULT_MERGE_THRESHOLD;
+
+    public ClusteringResult cluster(List<MatchCandidate> candidates) {
+        return cluster(candidates, mergeThreshold);
+    }
+
+    /**
+     * @param threshold edges scoring at least this much are merged transitively;
+     *                  weaker edges are returned for review unless both ends
+     *                  already ended up in the same cluster
+     */
+    public ClusteringResult cluster(List<MatchCandidate> candidates, double threshold) {
+        Map<DataEntity, Integer> indexes = new IdentityHashMap<>();
+        List<DataEntity> entities = new ArrayList<>();
+        int[] edges = new int[candidates.size() * 2];
+        for (int i = 0; i < candidates.size(); i++) {
+            MatchCandidate candidate = candidates.get(i);
+            edges[2 * i] = indexOf(candidate.getEntity1(), indexes, entities);
+            edges[2 * i + 1] = indexOf(candidate.getEntity2(), indexes, entities);
+        }
+
+        UnionFind unionFind = new UnionFind(entities.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (isMergeEdge(candidates.get(i), threshold)) {
+                unionFind.union(edges[2 * i], edges[2 * i + 1]);
+            }
+        }
+
+        // Weakest link and edge count per root; weaker edges inside a cluster are redundant
+        double[] minScore = new double[entities.size()];
+        int[] edgeCount = new int[entities.size()];
+        Arrays.fill(minScore, Double.MAX_VALUE);
+        List<MatchCandidate> reviewCandidates = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            MatchCandidate candidate = candidates.get(i);
+            int root = unionFind.find(edges[2 * i]);
+            if (isMergeEdge(candidate, threshold)) {
+                minScore[root] = Math.min(minScore[root], candidate.getConfidenceScore());
+                edgeCount[root]++;
+            } else if (root != unionFind.find(edges[2 * i + 1])) {
+                reviewCandidates.add(candidate);
+            }
+        }
+
+        List<MatchCluster> clusters = new ArrayList<>();
+        for (int[] group : unionFind.groups(2)) {
+            List<DataEntity> members = new ArrayList<>(group.length);
+            for (int index : group) {
+                members.add(entities.get(index));
+            }
+            int root = unionFind.find(group[0]);
+            clusters.add(MatchCluster.builder()
+                .clusterId(UUID.randomUUID().toString())
+                .members(members)
+                .confidenceScore(minScore[root])
+                .edgeCount(edgeCount[root])
+                .build());
+        }
+        return new ClusteringResult(clusters, reviewCandidates);
+    }
+
+    public double getMergeThreshold() {
+        return mergeThreshold;
+    }
+
+    private static boolean isMergeEdge(MatchCandidate candidate, double threshold) {
+        return candidate.getConfidenceScore() != null && candidate.getConfidenceScore() >= threshold;
+    }
+
+    private static int indexOf(DataEntity entity, Map<DataEntity, Integer> indexes, List<DataEntity> entities) {
+        Integer index = indexes.get(entity);
+        if (index == null) {
+            index = entities.size();
+            indexes.put(entity, index);
+            entities.add(entity);
+        }
+        return index;
+    }
+
+    @Data
+    public static class ClusteringResult {
+        private final List<MatchCluster> clusters;
+        private final List<MatchCandidate> reviewCandidates;
+    }
+}
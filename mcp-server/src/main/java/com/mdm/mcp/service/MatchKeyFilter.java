@@ -0,0 +1,225 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.repository.MatchKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * In-memory Bloom filters of the {@code match_keys} table, one per key type.
+ * A key that a filter rules out is not stored, so {@link MatchKeyIndex} does
+ * not query the database for it, and an entity whose keys are all ruled out
+ * is known to have no match on write.
+ *
+ * The filters are built from the table in the background at startup.
+ * {@link MatchKeyIndex} adds every key it writes. Until the first build
+ * completes, every key counts as possibly present. Removed keys (MERGED
+ * entities) stay in the filters until the next rebuild. Rebuilds happen every
+ * {@code mdm.match-keys.bloom.rebuild-interval}, and earlier once a filter
+ * holds more keys than it was sized for. After a rebuild, the previous
+ * generation is still consulted until the next one, so keys written while the
+ * table was being scanned cannot be missed.
+ */
+@Component
+@Slf4j
+public class MatchKeyFilter {
+
+    @Value("${mdm.match-keys.bloom.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${mdm.match-keys.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    // Filters are sized for twice the stored keys, and at least this many
+    @Value("${mdm.match-keys.bloom.min-capacity:100000}")
+    private long minCapacity = 100_000;
+
+    @Value("${mdm.match-keys.bloom.rebuild-interval:PT6H}")
+    private Duration rebuildInterval = Duration.ofHours(6);
+
+    @Autowired
+    private MatchKeyRepository matchKeyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private volatile Generation current;
+    private volatile Generation retired;
+    private volatile Generation building;
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final Map<MatchKeyIndex.KeyType, Map<String, Counter>> checks = new EnumMap<>(MatchKeyIndex.KeyType.class);
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Match key Bloom filters are disabled");
+            return;
+        }
+        for (MatchKeyIndex.KeyType type : MatchKeyIndex.KeyType.values()) {
+            String tag = type.name().toLowerCase(Locale.ROOT);
+            Map<String, Counter> counters = new LinkedHashMap<>();
+            for (String result : new String[] {"negative", "hit", "false_positive"}) {
+                counters.put(result, Counter.builder("mdm.matchkeys.bloom.checks")
+                    .description("Match key probes by Bloom filter outcome: negative (lookup skipped), hit, false_positive")
+                    .tag("type", tag)
+                    .tag("result", result)
+                    .register(registry));
+            }
+            checks.put(type, counters);
+            Gauge.builder("mdm.matchkeys.bloom.memory", this, filter -> filter.stat(type, BloomFilter::getMemoryBytes))
+                .description("Memory of the Bloom filter of a match key type")
+                .baseUnit("bytes")
+                .tag("type", tag)
+                .register(registry);
+            Gauge.builder("mdm.matchkeys.bloom.keys", this, filter -> filter.stat(type, BloomFilter::getInsertions))
+                .description("Keys added to the Bloom filter of a match key type")
+                .tag("type", tag)
+                .register(registry);
+            Gauge.builder("mdm.matchkeys.bloom.expected.fpp", this, filter -> filter.stat(type, BloomFilter::getExpectedFalsePositiveRate))
+                .description("Expected false positive rate of the Bloom filter of a match key type")
+                .tag("type", tag)
+                .register(registry);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "match-key-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules the first build and the periodic rebuilds; called by
+     * {@link MatchKeyIndex} once the table exists.
+     */
+    void start() {
+        if (executor != null) {
+            executor.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return {@code false} if the key is certainly not stored
+     */
+    public boolean mightContain(MatchKeyIndex.KeyType type, long hash) {
+        Generation filters = current;
+        if (filters == null) {
+            return true;
+        }
+        if (filters.get(type).mightContain(hash)) {
+            return true;
+        }
+        Generation previous = retired;
+        return previous != null && previous.get(type).mightContain(hash);
+    }
+
+    public void add(MatchKeyIndex.KeyType type, long hash) {
+        Generation filters = current;
+        if (filters != null) {
+            BloomFilter filter = filters.get(type);
+            filter.add(hash);
+            if (filter.getInsertions() > filter.getCapacity() && rebuildQueued.compareAndSet(false, true)) {
+                log.info("Bloom filter of {} keys is over capacity, rebuilding", type);
+                executor.execute(this::rebuild);
+            }
+        }
+        Generation next = building;
+        if (next != null) {
+            next.get(type).add(hash);
+        }
+    }
+
+    /**
+     * Records the outcome of a probe for a key, for the hit-rate metrics.
+     *
+     * @param result {@code negative}, {@code hit} or {@code false_positive}
+     */
+    void record(MatchKeyIndex.KeyType type, String result) {
+        Map<String, Counter> counters = checks.get(type);
+        if (counters != null) {
+            counters.get(result).increment();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    synchronized void rebuild() {
+        rebuildQueued.set(false);
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Long> counts = matchKeyRepository.countByKeyType();
+            Generation next = new Generation(counts);
+            building = next;
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readOnly.executeWithoutResult(status -> matchKeyRepository.forEachKey(rs -> {
+                next.get(MatchKeyIndex.KeyType.valueOf(rs.getString(1))).add(rs.getLong(2));
+            }));
+            retired = current;
+            current = next;
+            building = null;
+            log.info("Built match key Bloom filters of {} keys ({} bytes) in {} ms",
+                counts.values().stream().mapToLong(Long::longValue).sum(), next.memoryBytes(),
+                System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            building = null;
+            log.warn("Could not build the match key Bloom filters: {}", e.getMessage());
+        }
+    }
+
+    private double stat(MatchKeyIndex.KeyType type, ToDoubleFunction<BloomFilter> stat) {
+        Generation filters = current;
+        return filters == null ? 0 : stat.applyAsDouble(filters.get(type));
+    }
+
+    private final class Generation {
+        private final Map<MatchKeyIndex.KeyType, BloomFilter> filters = new EnumMap<>(MatchKeyIndex.KeyType.class);
+
+        Generation(Map<String, Long> counts) {
+            for (MatchKeyIndex.KeyType type : MatchKeyIndex.KeyType.values()) {
+                long capacity = Math.max(minCapacity, 2 * counts.getOrDefault(type.name(), 0L));
+                filters.put(type, new BloomFilter(capacity, falsePositiveRate));
+            }
+        }
+
+        BloomFilter get(MatchKeyIndex.KeyType type) {
+            return filters.get(type);
+        }
+
+        long memoryBytes() {
+            return filters.values().stream().mapToLong(BloomFilter::getMemoryBytes).sum();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchKeys;
+import com.mdm.mcp.repository.MatchKeyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Exact-match lookup of stored entities by their standardized match keys, in
+ * the {@code match_keys} table. Each key is stored as a 64-bit hash of its type
+ * and normalized value, so an exact probe is a single primary key lookup
+ * however many entities are stored. A hash collision only adds a candidate,
+ * which the match rules then reject.
+ *
+ * The table is kept in sync on write: {@link MatchKeyListener} reports
+ * entities saved through JPA, and {@link EntityStore} reports JSONB writes and
+ * entities flipped to MERGED. Within a transaction, the keys are collected and
+ * written in one batch just before commit; outside of one, they are replaced
+ * in a transaction of their own. Probes skip the keys that the
+ * {@link MatchKeyFilter} rules out, and the database entirely when it rules
+ * out all of them.
+ */
+@Service
+@Slf4j
+public class MatchKeyIndex {
+
+    public enum KeyType {
+        EMAIL(MatchKeys::getEmail),
+        PHONE(MatchKeys::getPhone),
+        SSN(MatchKeys::getSsn),
+        NAME(MatchKeys::getName),
+        COMPANY(MatchKeys::getCompany);
+
+        private final Function<MatchKeys, String> value;
+
+        KeyType(Function<MatchKeys, String> value) {
+            this.value = value;
+        }
+    }
+
+    // Digests are not thread-safe but reusable: digest() resets them
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(MatchKeyIndex::sha256);
+
+    @Autowired
+    private MatchKeyRepository matchKeyRepository;
+
+    @Autowired
+    private MatchKeyFilter matchKeyFilter;
+
+    @Autowired
+    private MatchKeyStandardizer matchKeyStandardizer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Writes outside of a writable transaction, so the delete and insert commit together
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        matchKeyRepository.createSchema();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        matchKeyFilter.start();
+    }
+
+    /**
+     * Stores the current keys of the entities, replacing their previous keys.
+     */
+    public void index(Collection<DataEntity> entities) {
+        PendingKeys pending = pendingKeys();
+        if (pending != null) {
+            for (DataEntity entity : entities) {
+                pending.saved.put(entity.getEntityId(), entity);
+                pending.removed.remove(entity.getEntityId());
+            }
+        } else {
+            transactionTemplate.executeWithoutResult(status -> write(entities, List.of()));
+        }
+    }
+
+    /**
+     * Drops the keys of entities that are deleted or no longer live (MERGED).
+     */
+    public void remove(Collection<String> entityIds) {
+        PendingKeys pending = pendingKeys();
+        if (pending != null) {
+            for (String entityId : entityIds) {
+                pending.saved.remove(entityId);
+                pending.removed.add(entityId);
+            }
+        } else {
+            transactionTemplate.executeWithoutResult(status -> write(List.of(), entityIds));
+        }
+    }
+
+    /**
+     * Batch probe: for each entity, the ids of the stored entities of its type
+     * sharing at least one match key with it, the entity itself excluded. All
+     * keys of all entities are resolved together, in one query per thousand keys.
+     */
+    public Map<String, Set<String>> findEntityIdsSharingKeys(String entityType, Collection<DataEntity> entities) {
+        Map<DataEntity, List<Long>> keysByEntity = new LinkedHashMap<>();
+        Map<Long, KeyType> probed = new HashMap<>();
+        for (DataEntity entity : entities) {
+            List<Long> candidates = new ArrayList<>();
+            keys(entity).forEach((hash, type) -> {
+                if (matchKeyFilter.mightContain(type, hash)) {
+                    candidates.add(hash);
+                    probed.put(hash, type);
+                } else {
+                    matchKeyFilter.record(type, "negative");
+                }
+            });
+            keysByEntity.put(entity, candidates);
+        }
+        // Nothing to look up when the Bloom filters rule out every key
+        Map<Long, List<String>> entityIdsByKey = probed.isEmpty()
+            ? Map.of()
+            : matchKeyRepository.findEntityIds(entityType, probed.keySet());
+        probed.forEach((hash, type) -> matchKeyFilter.record(type, entityIdsByKey.containsKey(hash) ? "hit" : "false_positive"));
+
+        Map<String, Set<String>> found = new LinkedHashMap<>();
+        keysByEntity.forEach((entity, keys) -> {
+            Set<String> entityIds = new LinkedHashSet<>();
+            for (Long key : keys) {
+                entityIds.addAll(entityIdsByKey.getOrDefault(key, List.of()));
+            }
+            entityIds.remove(entity.getEntityId());
+            found.put(entity.getEntityId(), entityIds);
+        });
+        return found;
+    }
+
+    public long count() {
+        return matchKeyRepository.count();
+    }
+
+    /**
+     * The key hashes of an entity with their types; entities without a usable
+     * value for a key type have no key of that type. The entity is standardized
+     * first, so the keys reflect its current attributes.
+     */
+    Map<Long, KeyType> keys(DataEntity entity) {
+        MatchKeys matchKeys = matchKeyStandardizer.standardize(entity).getMatchKeys();
+        Map<Long, KeyType> keys = new HashMap<>();
+        for (KeyType type : KeyType.values()) {
+            String value = type.value.apply(matchKeys);
+            if (value != null) {
+                keys.put(hash(type, value), type);
+            }
+        }
+        return keys;
+    }
+
+    // First 8 bytes of SHA-256 over "TYPE:value"
+    static long hash(KeyType type, String value) {
+        byte[] digest = SHA_256.get().digest((type.name() + ':' + value).getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void write(Collection<DataEntity> saved, Collection<String> removed) {
+        List<String> entityIds = new ArrayList<>(removed);
+        List<Object[]> rows = new ArrayList<>();
+        for (DataEntity entity : saved) {
+            entityIds.add(entity.getEntityId());
+            keys(entity).forEach((hash, type) -> {
+                rows.add(new Object[] {hash, entity.getEntityId(), type.name(), entity.getEntityType()});
+                matchKeyFilter.add(type, hash);
+            });
+        }
+        matchKeyRepository.replace(entityIds, rows);
+    }
+
+    private PendingKeys pendingKeys() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        PendingKeys pending = (PendingKeys) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingKeys();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private final class PendingKeys implements TransactionSynchronization {
+
+        private final Map<String, DataEntity> saved = new LinkedHashMap<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Flush first: updates are only detected (and reported by MatchKeyListener) when JPA flushes
+            if (TransactionSynchronizationManager.hasResource(entityManager.getEntityManagerFactory())) {
+                entityManager.flush();
+            }
+            if (!saved.isEmpty() || !removed.isEmpty()) {
+                write(saved.values(), removed);
+                log.debug("Indexed match keys of {} entities, removed {}", saved.size(), removed.size());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MatchKeyIndex.this);
+        }
+    }
+}
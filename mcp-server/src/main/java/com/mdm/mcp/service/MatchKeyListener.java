@@ -0,0 +1,37 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * JPA entity listener of {@link DataEntity} that keeps the {@link MatchKeyIndex}
+ * in sync with entities written through JPA. Hibernate obtains it from the
+ * Spring context, so it can be injected. Updates are only seen when JPA
+ * flushes, and must be flushed before the transaction commits to be indexed
+ * with it; {@link EntityStore} saves with an explicit flush.
+ */
+@Component
+public class MatchKeyListener {
+
+    // Resolved lazily: listeners are created while the EntityManagerFactory is being built
+    @Autowired
+    private ObjectProvider<MatchKeyIndex> matchKeyIndex;
+
+    @PrePersist
+    @PreUpdate
+    public void onSaved(DataEntity entity) {
+        matchKeyIndex.getObject().index(List.of(entity));
+    }
+
+    @PostRemove
+    public void onRemoved(DataEntity entity) {
+        matchKeyIndex.getObject().remove(List.of(entity.getEntityId()));
+    }
+}
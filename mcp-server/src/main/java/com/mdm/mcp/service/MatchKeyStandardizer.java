@@ -0,0 +1,41 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchKeys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Standardization stage run once per entity before matching. It derives the
+ * {@link MatchKeys} from the raw attributes, so matchers compare normalized
+ * values instead of re-normalizing strings for every candidate pair.
+ *
+ * The keys are recomputed on every run, which picks up attribute changes made
+ * since the entity was last matched. Entities that reach a matcher without
+ * this stage derive their keys on first use, with the same country code.
+ */
+@Component
+public class MatchKeyStandardizer {
+
+    @Value("${mdm.matching.phone.default-country-code:" + MatchKeys.DEFAULT_COUNTRY_CODE + "}")
+    private String defaultCountryCode = MatchKeys.DEFAULT_COUNTRY_CODE;
+
+    @PostConstruct
+    public void init() {
+        MatchKeys.configureDefaultCountryCode(defaultCountryCode);
+    }
+
+    public void standardize(Collection<DataEntity> entities) {
+        for (DataEntity entity : entities) {
+            standardize(entity);
+        }
+    }
+
+    public DataEntity standardize(DataEntity entity) {
+        entity.setMatchKeys(MatchKeys.from(entity.getAttributes(), defaultCountryCode));
+        return entity;
+    }
+}
@@ -0,0 +1,533 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MergeJob;
+import com.mdm.mcp.model.MergeResult;
+import com.mdm.mcp.repository.MergeJobRepository;
+import com.mdm.shared.core.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs bulk merges as asynchronous jobs, so large runs are not tied to a
+ * request. The input is stored with the job; like the streaming endpoints, a
+ * job holds only the blocks of its entities and the positions of its
+ * candidates, and reads the entities back from the job tables when it scores
+ * or merges them. A job has two phases:
+ * <ol>
+ *   <li>MATCHING: the input is blocked, then the blocks are scored in ranges of
+ *   about {@code mdm.jobs.chunk-size} entities; after every range its
+ *   candidates and the progress are stored in one transaction.</li>
+ *   <li>MERGING: the candidates are merged per group of connected entities, in
+ *   batches of about {@code mdm.jobs.chunk-size} entities, and the results of
+ *   each batch are written with the progress.</li>
+ * </ol>
+ * The stored progress is the checkpoint a job resumes from. Every instance
+ * sends heartbeats for the jobs it owns; a job whose owner stopped sending them
+ * for {@code mdm.jobs.stale-after} is taken over by another (or the restarted)
+ * instance. It blocks the input again and scores the blocks after the
+ * checkpoint; in the merging phase it merges the groups after the last one
+ * written. A job resumed after a rule reload keeps the results written so far
+ * and merges the remaining groups on the new rules.
+ *
+ * The results are those of the streaming endpoints for the same input: jobs
+ * always find their candidates through blocking, also where the synchronous
+ * endpoints use a search backend ({@code mdm.matching.search.backend}).
+ *
+ * Jobs run on virtual threads where available; at most
+ * {@code mdm.jobs.max-concurrent} of them run at once, the others wait in order.
+ */
+@Service
+@Slf4j
+public class MergeJobService {
+
+    @Autowired
+    private MergeJobRepository mergeJobRepository;
+
+    @Autowired
+    private DroolsRuleEngineService ruleEngineService;
+
+    @Autowired
+    private EntityStore entityStore;
+
+    @Autowired
+    private MergeOutputWriter mergeOutputWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mdm.jobs.max-concurrent:2}")
+    private int maxConcurrent = 2;
+
+    // Entities scored, or merged, per checkpoint
+    @Value("${mdm.jobs.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${mdm.jobs.heartbeat-interval:PT15S}")
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    @Value("${mdm.jobs.stale-after:PT1M}")
+    private Duration staleAfter = Duration.ofMinutes(1);
+
+    private final String instanceId = instanceId();
+    private final Map<String, RunningJob> localJobs = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+    private Semaphore permits;
+    private ExecutorService workers;
+    private ScheduledExecutorService monitor;
+
+    @PostConstruct
+    public void init() {
+        mergeJobRepository.createSchema();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        permits = new Semaphore(maxConcurrent, true);
+        workers = VirtualThreads.newExecutor("merge-job-", maxConcurrent);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMonitor() {
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "merge-job-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(this::heartbeatAndAdopt, 0, heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Merge jobs run on {} threads as instance {}", VirtualThreads.isAvailable() ? "virtual" : "platform", instanceId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+        // Interrupted jobs keep their last checkpoint and are adopted once they are stale
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queues a job merging the given entities. Its results are only persisted
+     * to the entity store if {@code persistOutput} is set.
+     */
+    public MergeJob submit(List<DataEntity> entities, boolean persistOutput) {
+        MergeJob job = newJob(null, persistOutput);
+        job.setTotalEntities(entities.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            mergeJobRepository.insert(job);
+            storeInput(job.getJobId(), entities);
+        });
+        start(job.getJobId());
+        return job;
+    }
+
+    /**
+     * Queues a job merging the live stored entities of a type, like
+     * {@code /bulk-merge-stored}; its results are always persisted.
+     */
+    public MergeJob submitStored(String entityType) {
+        MergeJob job = newJob(entityType, true);
+        mergeJobRepository.insert(job);
+        start(job.getJobId());
+        return job;
+    }
+
+    /**
+     * The job with the progress of its current chunk, if it runs here.
+     */
+    public Optional<MergeJob> find(String jobId) {
+        Optional<MergeJob> job = mergeJobRepository.findById(jobId);
+        RunningJob running = localJobs.get(jobId);
+        if (job.isPresent() && running != null && !job.get().getStatus().isFinished()) {
+            job.get().setProcessedEntities(Math.max(job.get().getProcessedEntities(), running.processed.get()));
+        }
+        return job;
+    }
+
+    public List<MergeJob> findRecent(int limit) {
+        return mergeJobRepository.findRecent(limit);
+    }
+
+    /**
+     * Results as JSON, starting at result number {@code offset}.
+     */
+    public List<String> findResults(String jobId, long offset, int limit) {
+        return mergeJobRepository.findResults(jobId, offset, limit);
+    }
+
+    /**
+     * Cancels a queued or running job and drops its working data; the results
+     * written so far are kept. A job running on another instance stops at its
+     * next checkpoint, which fails once the job is cancelled.
+     *
+     * @return {@code false} if the job does not exist or has already finished
+     */
+    public boolean cancel(String jobId) {
+        if (!mergeJobRepository.cancel(jobId)) {
+            return false;
+        }
+        RunningJob running = localJobs.get(jobId);
+        if (running != null) {
+            running.cancelled = true;
+        }
+        mergeJobRepository.deleteWorkingData(jobId);
+        return true;
+    }
+
+    private MergeJob newJob(String entityType, boolean persistOutput) {
+        LocalDateTime now = LocalDateTime.now();
+        return MergeJob.builder()
+            .jobId(UUID.randomUUID().toString())
+            .status(MergeJob.Status.QUEUED)
+            .entityType(entityType)
+            .persistOutput(persistOutput)
+            .owner(instanceId)
+            .heartbeatAt(now)
+            .createdAt(now)
+            .build();
+    }
+
+    private void start(String jobId) {
+        RunningJob running = new RunningJob();
+        if (localJobs.putIfAbsent(jobId, running) == null) {
+            workers.execute(() -> run(jobId, running));
+        }
+    }
+
+    private void heartbeatAndAdopt() {
+        try {
+            if (!localJobs.isEmpty()) {
+                mergeJobRepository.heartbeat(localJobs.keySet(), instanceId);
+            }
+            LocalDateTime staleBefore = LocalDateTime.now().minus(staleAfter);
+            for (String jobId : mergeJobRepository.findStale(staleBefore)) {
+                if (!localJobs.containsKey(jobId) && mergeJobRepository.claim(jobId, instanceId, staleBefore)) {
+                    log.info("Resuming merge job {}", jobId);
+                    start(jobId);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Merge job heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void run(String jobId, RunningJob running) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            localJobs.remove(jobId);
+            return;
+        }
+        MergeJob job = null;
+        try {
+            job = mergeJobRepository.findById(jobId).orElse(null);
+            if (job == null || job.getStatus().isFinished() || !instanceId.equals(job.getOwner())) {
+                return;
+            }
+            job.setStatus(MergeJob.Status.RUNNING);
+            if (job.getPhase() == null) {
+                job.setPhase(MergeJob.Phase.MATCHING);
+            }
+            checkpoint(job, running);
+            execute(job, running);
+        } catch (JobStoppedException e) {
+            log.info("Merge job {} stopped: {}", jobId, e.getMessage());
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Merge job {} interrupted by shutdown", jobId);
+            } else if (job != null) {
+                log.error("Merge job {} failed", jobId, e);
+                job.setStatus(MergeJob.Status.FAILED);
+                job.setError(e.getMessage());
+                job.setFinishedAt(LocalDateTime.now());
+                if (mergeJobRepository.update(job)) {
+                    mergeJobRepository.deleteWorkingData(jobId);
+                }
+            }
+        } finally {
+            localJobs.remove(jobId);
+            permits.release();
+        }
+    }
+
+    private void execute(MergeJob job, RunningJob running) {
+        long start = System.currentTimeMillis();
+        if (job.getTotalEntities() == null) {
+            copyStoredInput(job);
+        }
+        JobInput input = new JobInput(job.getJobId());
+        try (DroolsRuleEngineService.StreamMatcher matcher = ruleEngineService.openStreamMatcher()) {
+            if (job.getPhase() == MergeJob.Phase.MATCHING) {
+                match(job, running, input, matcher);
+            }
+            merge(job, running, input, matcher);
+        }
+
+        job.setStatus(MergeJob.Status.COMPLETED);
+        job.setFinishedAt(LocalDateTime.now());
+        checkpoint(job, running);
+        mergeJobRepository.deleteWorkingData(job.getJobId());
+        log.info("Merge job {} completed in {} ms: {} entities, {} candidates, {} results, {} merges", job.getJobId(),
+            System.currentTimeMillis() - start, job.getTotalEntities(), job.getCandidates(), job.getResultsWritten(), job.getMerges());
+    }
+
+    // Blocking is redone when a job resumes; it only reads the input, which is cheap next to scoring it
+    private void match(MergeJob job, RunningJob running, JobInput input, DroolsRuleEngineService.StreamMatcher matcher) {
+        running.processed.set(0);
+        BlockingIndex index = ruleEngineService.block(readInput(job.getJobId(), running), input);
+        job.setProcessedEntities(index.entityCount());
+        job.setTotalBlocks(index.blockCount());
+        checkpoint(job, running);
+
+        int from = job.getScoredBlocks();
+        while (from < index.blockCount()) {
+            int to = from;
+            int entities = 0;
+            while (to < index.blockCount() && entities < chunkSize) {
+                if (index.estimatedPairs(to) > 0) {
+                    entities += index.blockMembers(to).length;
+                }
+                to++;
+            }
+            checkRunning(running);
+            List<Object[]> rows = new ArrayList<>();
+            matcher.score(index, from, to, input, (position1, position2, candidate) -> rows.add(new Object[] {
+                position1, position2, candidate.getConfidenceScore(), candidate.getMatchReason(), candidate.getRuleName()}));
+
+            long firstSeq = job.getCandidates();
+            job.setScoredBlocks(to);
+            job.setCandidates(firstSeq + rows.size());
+            transactionTemplate.executeWithoutResult(status -> {
+                mergeJobRepository.insertCandidates(job.getJobId(), firstSeq, rows);
+                checkpoint(job, running);
+            });
+            from = to;
+        }
+        job.setPhase(MergeJob.Phase.MERGING);
+        checkpoint(job, running);
+    }
+
+    private void merge(MergeJob job, RunningJob running, JobInput input, DroolsRuleEngineService.StreamMatcher matcher) {
+        CandidatePairs pairs = loadCandidates(job.getJobId());
+        // Group keys are stable, as the candidates are stored; the groups up to the checkpoint were
+        // merged by an earlier run of the job, possibly on rules that have been reloaded since
+        Integer mergedThrough = job.getMergedThrough();
+        List<CandidatePairs.Group> groups = pairs.groups().stream()
+            .filter(group -> mergedThrough == null || group.key() > mergedThrough)
+            .toList();
+        for (List<CandidatePairs.Group> batch : CandidatePairs.batches(groups, chunkSize)) {
+            checkRunning(running);
+            List<MergeResult> results = matcher.merge(pairs, batch, input);
+            writeResults(job, running, results, batch.get(batch.size() - 1).key());
+        }
+    }
+
+    private void writeResults(MergeJob job, RunningJob running, List<MergeResult> results, int mergedThrough) {
+        List<String> json = new ArrayList<>(results.size());
+        long merges = 0;
+        for (MergeResult result : results) {
+            json.add(toJson(result));
+            if ("MERGED".equals(result.getStatus())) {
+                merges++;
+            }
+        }
+        long firstSeq = job.getResultsWritten();
+        job.setResultsWritten(firstSeq + results.size());
+        job.setMerges(job.getMerges() + merges);
+        job.setMergedThrough(mergedThrough);
+        transactionTemplate.executeWithoutResult(status -> {
+            mergeJobRepository.insertResults(job.getJobId(), firstSeq, json);
+            if (job.isPersistOutput() && !results.isEmpty()) {
+                mergeOutputWriter.write(results);
+            }
+            checkpoint(job, running);
+        });
+    }
+
+    // Stored entities are copied into the job on its first run, so a resumed job sees the same input
+    private void copyStoredInput(MergeJob job) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int copied = 0;
+            List<String> chunk = new ArrayList<>(chunkSize);
+            try (Stream<DataEntity> scan = entityStore.streamActiveByEntityType(job.getEntityType())) {
+                Iterator<DataEntity> entities = scan.iterator();
+                while (entities.hasNext()) {
+                    chunk.add(toJson(entities.next()));
+                    if (chunk.size() == chunkSize || !entities.hasNext()) {
+                        mergeJobRepository.insertEntities(job.getJobId(), copied, chunk);
+                        copied += chunk.size();
+                        chunk.clear();
+                    }
+                }
+            }
+            job.setTotalEntities(copied);
+            if (!mergeJobRepository.update(job)) {
+                throw new JobStoppedException("cancelled or taken over");
+            }
+        });
+    }
+
+    private void storeInput(String jobId, List<DataEntity> entities) {
+        for (int from = 0; from < entities.size(); from += chunkSize) {
+            List<DataEntity> chunk = entities.subList(from, Math.min(from + chunkSize, entities.size()));
+            List<String> json = new ArrayList<>(chunk.size());
+            for (DataEntity entity : chunk) {
+                json.add(toJson(entity));
+            }
+            mergeJobRepository.insertEntities(jobId, from, json);
+        }
+    }
+
+    // The input in seq order, read a chunk at a time
+    private Iterator<DataEntity> readInput(String jobId, RunningJob running) {
+        return new Iterator<>() {
+            private Iterator<String> chunk = Collections.emptyIterator();
+            private int nextSeq;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (!chunk.hasNext() && !done) {
+                    checkRunning(running);
+                    List<String> json = mergeJobRepository.findEntities(jobId, nextSeq, chunkSize);
+                    nextSeq += json.size();
+                    done = json.size() < chunkSize;
+                    chunk = json.iterator();
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public DataEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                running.processed.incrementAndGet();
+                return fromJson(chunk.next());
+            }
+        };
+    }
+
+    private CandidatePairs loadCandidates(String jobId) {
+        CandidatePairs pairs = new CandidatePairs();
+        mergeJobRepository.forEachCandidate(jobId, rs -> pairs.add(rs.getInt(1), rs.getInt(2), MatchCandidate.builder()
+            .confidenceScore((Double) rs.getObject(3, Double.class))
+            .matchReason(rs.getString(4))
+            .ruleName(rs.getString(5))
+            .build()));
+        return pairs;
+    }
+
+    private void checkpoint(MergeJob job, RunningJob running) {
+        checkRunning(running);
+        if (!mergeJobRepository.update(job)) {
+            throw new JobStoppedException("cancelled or taken over");
+        }
+    }
+
+    private static void checkRunning(RunningJob running) {
+        if (running.cancelled) {
+            throw new JobStoppedException("cancelled");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new JobStoppedException("interrupted");
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private DataEntity fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, DataEntity.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read job input", e);
+        }
+    }
+
+    private static String instanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // The input is stored by seq, which is each entity's position, so blocking it records nothing
+    private final class JobInput implements EntitySource {
+        private final String jobId;
+
+        private JobInput(String jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public void add(DataEntity entity) {
+        }
+
+        @Override
+        public List<DataEntity> load(int[] positions) {
+            Map<Integer, String> json = mergeJobRepository.findEntities(jobId, positions);
+            List<DataEntity> entities = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                String entity = json.get(position);
+                entities.add(entity == null ? null : fromJson(entity));
+            }
+            return entities;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class RunningJob {
+        private final AtomicInteger processed = new AtomicInteger();
+        private volatile boolean cancelled;
+    }
+
+    private static final class JobStoppedException extends RuntimeException {
+        JobStoppedException(String reason) {
+            super(reason);
+        }
+    }
+}
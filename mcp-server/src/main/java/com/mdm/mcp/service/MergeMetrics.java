@@ -0,0 +1,142 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.MergeResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the matching and merge pipeline, exported through the
+ * Actuator {@code /actuator/prometheus} endpoint:
+ * <ul>
+ *   <li>{@code mdm.merge.phase}: time per pipeline phase, tagged {@code phase}</li>
+ *   <li>{@code mdm.rules.fired}: firings and consequence time per DRL rule, tagged {@code package} and {@code rule}</li>
+ *   <li>{@code mdm.blocking.block.size} and {@code mdm.blocking.block.candidates}: histograms per block</li>
+ *   <li>{@code mdm.merge.outcomes}: merge results, tagged {@code status}</li>
+ * </ul>
+ */
+@Component
+public class MergeMetrics {
+
+    public enum Phase {
+        NORMALIZATION,
+        BLOCKING,
+        SCORING,
+        CLUSTERING,
+        MERGE,
+        SURVIVORSHIP,
+        PERSISTENCE
+    }
+
+    @Autowired
+    private MeterRegistry registry;
+
+    // Rule timing costs two clock reads per firing; it can be switched off for the hot scoring path
+    @Value("${mdm.metrics.rules.enabled:true}")
+    private boolean ruleMetricsEnabled = true;
+
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final Map<Rule, Timer> ruleTimers = new ConcurrentHashMap<>();
+    private final AgendaEventListener ruleListener = new RuleTimingListener();
+    private DistributionSummary blockSizes;
+    private DistributionSummary blockCandidates;
+
+    @PostConstruct
+    public void init() {
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("mdm.merge.phase")
+                .description("Time spent per phase of the matching and merge pipeline")
+                .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                .register(registry));
+        }
+        blockSizes = DistributionSummary.builder("mdm.blocking.block.size")
+            .description("Entities per blocking block")
+            .baseUnit("entities")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue((double) BlockingIndex.DEFAULT_MAX_BLOCK_SIZE * 10)
+            .register(registry);
+        blockCandidates = DistributionSummary.builder("mdm.blocking.block.candidates")
+            .description("Match candidates generated per block with at least one pair")
+            .baseUnit("candidates")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue((double) BlockingIndex.DEFAULT_MAX_BLOCK_SIZE * 10)
+            .register(registry);
+    }
+
+    /**
+     * Records the time since {@code startNanos} (a {@link System#nanoTime()} value) for the phase.
+     */
+    public void recordPhase(Phase phase, long startNanos) {
+        phaseTimers.get(phase).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBlockSize(int size) {
+        blockSizes.record(size);
+    }
+
+    public void recordBlockCandidates(int candidates) {
+        blockCandidates.record(candidates);
+    }
+
+    public void recordOutcomes(Collection<MergeResult> results) {
+        for (MergeResult result : results) {
+            String status = result.getStatus() == null ? "UNKNOWN" : result.getStatus();
+            outcomes.computeIfAbsent(status, s -> Counter.builder("mdm.merge.outcomes")
+                .description("Merge results by status")
+                .tag("status", s)
+                .register(registry)).increment();
+        }
+    }
+
+    /**
+     * Listener that times every rule firing, or {@code null} if rule metrics are disabled.
+     * It is shared by all sessions and is safe to use from concurrent sessions.
+     */
+    public AgendaEventListener ruleListener() {
+        return ruleMetricsEnabled ? ruleListener : null;
+    }
+
+    private Timer ruleTimer(Rule rule) {
+        return ruleTimers.computeIfAbsent(rule, r -> Timer.builder("mdm.rules.fired")
+            .description("Firings and consequence time per rule")
+            .tag("package", r.getPackageName())
+            .tag("rule", r.getName())
+            .register(registry));
+    }
+
+    // A session fires one consequence at a time on its calling thread, so a per-thread start time suffices
+    private final class RuleTimingListener extends DefaultAgendaEventListener {
+        private final ThreadLocal<long[]> firingStart = ThreadLocal.withInitial(() -> new long[1]);
+
+        @Override
+        public void beforeMatchFired(BeforeMatchFiredEvent event) {
+            firingStart.get()[0] = System.nanoTime();
+        }
+
+        @Override
+        public void afterMatchFired(AfterMatchFiredEvent event) {
+            long elapsed = System.nanoTime() - firingStart.get()[0];
+            ruleTimer(event.getMatch().getRule()).record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MergeResult;
+import com.mdm.mcp.repository.MergeResultRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persists the output of bulk merges: the merge results, the golden records, the
+ * links from source entities to their golden record and the MERGED status of the
+ * sources. Writes are buffered and flushed in
+ * chunks of {@code mdm.persistence.write-chunk-size} results, each chunk in its
+ * own transaction (or in the caller's, if there is one) and with batched
+ * statements rather than one round trip per row.
+ */
+@Service
+@Slf4j
+public class MergeOutputWriter {
+
+    @Autowired
+    private EntityStore entityStore;
+
+    @Autowired
+    private MergeResultRepository mergeResultRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MergeMetrics mergeMetrics;
+
+    @Value("${mdm.persistence.write-chunk-size:5000}")
+    private int chunkSize = 5000;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        mergeResultRepository.createSchema();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Writes all results and returns the number written.
+     */
+    public long write(Collection<MergeResult> results) {
+        try (Batch batch = open()) {
+            results.forEach(batch::add);
+            return batch.getWritten();
+        }
+    }
+
+    /**
+     * Opens a buffer for results that arrive one at a time, e.g. from a stream.
+     * Closing it flushes the last, partial chunk.
+     */
+    public Batch open() {
+        return new Batch();
+    }
+
+    public final class Batch implements AutoCloseable {
+
+        private final List<MergeResult> results = new ArrayList<>();
+        private final List<DataEntity> goldenRecords = new ArrayList<>();
+        private final List<String> mergedSourceIds = new ArrayList<>();
+        private long written;
+
+        private Batch() {
+        }
+
+        public void add(MergeResult result) {
+            results.add(result);
+            if ("MERGED".equals(result.getStatus())) {
+                if (result.getMergedEntity() != null) {
+                    goldenRecords.add(result.getMergedEntity());
+                }
+                if (result.getSourceEntityIds() != null) {
+                    mergedSourceIds.addAll(result.getSourceEntityIds());
+                }
+            }
+            if (results.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        public void flush() {
+            if (results.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                mergeResultRepository.insertAll(results);
+                mergeResultRepository.saveGoldenRecordLinks(results);
+                entityStore.saveAll(goldenRecords);
+                entityStore.updateStatus(mergedSourceIds, "MERGED");
+            });
+            mergeMetrics.recordPhase(MergeMetrics.Phase.PERSISTENCE, start);
+            log.debug("Wrote {} merge results, {} golden records and {} status updates in {} ms",
+                results.size(), goldenRecords.size(), mergedSourceIds.size(), (System.nanoTime() - start) / 1_000_000);
+            written += results.size();
+            results.clear();
+            goldenRecords.clear();
+            mergedSourceIds.clear();
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.NameSignature;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from name trigrams to names, used to find the names whose trigram
+ * sets overlap a query by at least a given Dice coefficient without comparing
+ * every pair.
+ *
+ * Uses prefix filtering: the trigrams of each name are ordered from rarest to most
+ * common, and two names can only reach the required overlap if they share one of
+ * the first few rare trigrams of both names. Only those prefixes are indexed, so
+ * the postings of very common trigrams stay short. Queries must therefore use a
+ * Dice threshold at least as strict as the one the index was built for.
+ *
+ * Names are short, so a loose threshold still puts common trigrams (e.g. those of
+ * frequent first names) into the prefixes. Like oversized blocks in
+ * {@link BlockingIndex}, trigrams shared by more than {@code maxPostingSize} names
+ * are dropped; names only related through such trigrams are not reported.
+ */
+public class NameNgramIndex {
+
+    @FunctionalInterface
+    public interface CandidateConsumer {
+        void accept(int index);
+    }
+
+    private final NameSignature[] names;
+    // Per name, the trigram ranks sorted ascending (rank 0 = rarest trigram)
+    private final int[][] rankedGrams;
+    private final int[][] postings;
+    private final Map<Integer, Integer> rankOfGram;
+    private final double minDice;
+    private final int droppedGramCount;
+
+    private NameNgramIndex(NameSignature[] names, int[][] rankedGrams, int[][] postings,
+                           Map<Integer, Integer> rankOfGram, double minDice, int droppedGramCount) {
+        this.names = names;
+        this.rankedGrams = rankedGrams;
+        this.postings = postings;
+        this.rankOfGram = rankOfGram;
+        this.minDice = minDice;
+        this.droppedGramCount = droppedGramCount;
+    }
+
+    /**
+     * @param minDice        the lowest Dice coefficient that queries against this index will use
+     * @param maxPostingSize trigrams indexed for more names than this are dropped
+     */
+    public static NameNgramIndex build(List<NameSignature> signatures, double minDice, int maxPostingSize) {
+        NameSignature[] names = signatures.toArray(new NameSignature[0]);
+        Map<Integer, int[]> frequencies = new HashMap<>();
+        for (NameSignature name : names) {
+            for (int gram : name.qgrams()) {
+                frequencies.computeIfAbsent(gram, g -> new int[1])[0]++;
+            }
+        }
+
+        // Rank trigrams by ascending frequency
+        int[] grams = new int[frequencies.size()];
+        int g = 0;
+        for (Integer gram : frequencies.keySet()) {
+            grams[g++] = gram;
+        }
+        long[] order = new long[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            order[i] = ((long) frequencies.get(grams[i])[0] << 32) | i;
+        }
+        Arrays.sort(order);
+        Map<Integer, Integer> rankOfGram = new HashMap<>(grams.length * 2);
+        for (int rank = 0; rank < order.length; rank++) {
+            rankOfGram.put(grams[(int) order[rank]], rank);
+        }
+
+        int[][] rankedGrams = new int[names.length][];
+        IntBuffer[] lists = new IntBuffer[grams.length];
+        for (int i = 0; i < names.length; i++) {
+            rankedGrams[i] = ranks(names[i], rankOfGram);
+            int prefix = prefixLength(rankedGrams[i].length, minDice);
+            for (int p = 0; p < prefix; p++) {
+                int rank = rankedGrams[i][p];
+                if (lists[rank] == null) {
+                    lists[rank] = new IntBuffer();
+                }
+                lists[rank].add(i);
+            }
+        }
+        int[][] postings = new int[grams.length][];
+        int dropped = 0;
+        for (int rank = 0; rank < grams.length; rank++) {
+            if (lists[rank] == null) {
+                postings[rank] = new int[0];
+            } else if (lists[rank].size() > maxPostingSize) {
+                postings[rank] = new int[0];
+                dropped++;
+            } else {
+                postings[rank] = lists[rank].toArray();
+            }
+        }
+        return new NameNgramIndex(names, rankedGrams, postings, rankOfGram, minDice, dropped);
+    }
+
+    /**
+     * Reports every pair of indexed names whose trigram Dice coefficient is at
+     * least {@code minDice}, once, with {@code left < right}.
+     */
+    public void forEachCandidatePair(double minDice, BlockingIndex.PairConsumer consumer) {
+        checkThreshold(minDice);
+        // stamp[other] == left + 1 once other has been checked against left
+        int[] stamp = new int[names.length];
+        for (int left = 0; left < names.length; left++) {
+            int[] query = rankedGrams[left];
+            int prefix = prefixLength(query.length, minDice);
+            for (int p = 0; p < prefix; p++) {
+                for (int right : postings[query[p]]) {
+                    if (right > left && stamp[right] != left + 1) {
+                        stamp[right] = left + 1;
+                        if (dice(query, rankedGrams[right]) >= minDice) {
+                            consumer.accept(left, right);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the indexed names whose trigram Dice coefficient with {@code name} is at
+     * least {@code minDice}.
+     */
+    public void forEachCandidate(NameSignature name, double minDice, CandidateConsumer consumer) {
+        checkThreshold(minDice);
+        int[] query = ranks(name, rankOfGram);
+        int prefix = prefixLength(query.length, minDice);
+        boolean[] seen = new boolean[names.length];
+        for (int p = 0; p < prefix; p++) {
+            int rank = query[p];
+            if (rank >= postings.length) {
+                continue;
+            }
+            for (int other : postings[rank]) {
+                if (!seen[other]) {
+                    seen[other] = true;
+                    if (dice(query, rankedGrams[other]) >= minDice) {
+                        consumer.accept(other);
+                    }
+                }
+            }
+        }
+    }
+
+    public NameSignature name(int index) {
+        return names[index];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public int droppedGramCount() {
+        return droppedGramCount;
+    }
+
+    private void checkThreshold(double queryMinDice) {
+        if (queryMinDice < minDice) {
+            throw new IllegalArgumentException("Index was built for a Dice threshold of " + minDice
+                + ", cannot answer queries at " + queryMinDice);
+        }
+    }
+
+    private static int[] ranks(NameSignature name, Map<Integer, Integer> rankOfGram) {
+        int[] qgrams = name.qgrams();
+        int[] ranks = new int[qgrams.length];
+        int unknown = Integer.MAX_VALUE;
+        for (int i = 0; i < qgrams.length; i++) {
+            Integer rank = rankOfGram.get(qgrams[i]);
+            // Trigrams never indexed cannot produce candidates; sort them last
+            ranks[i] = rank != null ? rank : unknown--;
+        }
+        Arrays.sort(ranks);
+        return ranks;
+    }
+
+    /**
+     * Number of leading (rarest) trigrams that must be probed so that any name with a
+     * Dice coefficient of at least {@code minDice} shares one of them. For a query of
+     * {@code q} trigrams, such a name overlaps it in at least {@code minDice * q / (2 - minDice)}.
+     */
+    private static int prefixLength(int gramCount, double minDice) {
+        int minOverlap = Math.max(1, (int) Math.ceil(minDice * gramCount / (2.0 - minDice)));
+        return Math.max(0, Math.min(gramCount, gramCount - minOverlap + 1));
+    }
+
+    private static double dice(int[] grams1, int[] grams2) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < grams1.length && j < grams2.length) {
+            if (grams1[i] < grams2[j]) {
+                i++;
+            } else if (grams1[i] > grams2[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return 2.0 * shared / (grams1.length + grams2.length);
+    }
+}
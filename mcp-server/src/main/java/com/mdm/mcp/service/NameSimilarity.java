@@ -0,0 +1,194 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.NameSignature;
+
+/**
+ * Token-level fuzzy name scoring over precomputed {@link NameSignature}s.
+ *
+ * Every token of the longer name is paired with its most similar, not yet paired
+ * token of the other name (exact, prefix/initial, Jaro-Winkler, bounded
+ * Levenshtein or equal Soundex code), and the score is the average over the
+ * longer name. Scoring stops
+ * as soon as the remaining tokens can no longer lift the average to the threshold.
+ */
+public final class NameSimilarity {
+
+    /** Token similarity below which a token counts as unmatched. */
+    static final double MIN_TOKEN_SIMILARITY = 0.8;
+
+    static final double PREFIX_SIMILARITY = 0.9;
+    static final double PHONETIC_SIMILARITY = 0.9;
+    static final double MIN_PHONETIC_JARO_WINKLER = 0.75;
+
+    private NameSimilarity() {
+    }
+
+    /**
+     * @return the similarity in [0, 1], or 0 as soon as it is known to stay below {@code threshold}
+     */
+    public static double score(NameSignature name1, NameSignature name2, double threshold) {
+        if (name1 == null || name2 == null || name1.isEmpty() || name2.isEmpty()) {
+            return 0.0;
+        }
+        NameSignature longer = name1.tokenCount() >= name2.tokenCount() ? name1 : name2;
+        NameSignature shorter = longer == name1 ? name2 : name1;
+        int n = longer.tokenCount();
+        double required = threshold * n;
+
+        int m = Math.min(shorter.tokenCount(), 64);
+
+        double sum = 0.0;
+        long paired = 0L;
+        for (int i = 0; i < n; i++) {
+            if (sum + (n - i) < required) {
+                return 0.0;
+            }
+            double best = 0.0;
+            int bestToken = -1;
+            for (int j = 0; j < m && best < 1.0; j++) {
+                if ((paired & (1L << j)) == 0) {
+                    double similarity = tokenSimilarity(longer, i, shorter, j);
+                    if (similarity > best) {
+                        best = similarity;
+                        bestToken = j;
+                    }
+                }
+            }
+            if (bestToken >= 0) {
+                paired |= 1L << bestToken;
+                sum += best;
+            }
+        }
+        return sum / n;
+    }
+
+    static double tokenSimilarity(NameSignature name1, int i, NameSignature name2, int j) {
+        String token1 = name1.token(i);
+        String token2 = name2.token(j);
+        if (token1.equals(token2)) {
+            return 1.0;
+        }
+        if (token1.startsWith(token2) || token2.startsWith(token1)) {
+            return PREFIX_SIMILARITY;
+        }
+        double similarity = jaroWinkler(token1, token2);
+        // Equal Soundex codes only confirm tokens that are already close; codes collide too often on their own
+        if (similarity >= MIN_PHONETIC_JARO_WINKLER && similarity < PHONETIC_SIMILARITY
+                && name1.phoneticCode(i) >= 0 && name1.phoneticCode(i) == name2.phoneticCode(j)) {
+            similarity = PHONETIC_SIMILARITY;
+        }
+        if (similarity < MIN_TOKEN_SIMILARITY) {
+            // A single edit in a longer token (e.g. "jonathon" / "jonathan") still counts
+            int maxLength = Math.max(token1.length(), token2.length());
+            int maxDistance = (int) ((1.0 - MIN_TOKEN_SIMILARITY) * maxLength);
+            if (maxDistance > 0) {
+                int distance = levenshtein(token1, token2, maxDistance);
+                if (distance <= maxDistance) {
+                    similarity = Math.max(similarity, 1.0 - (double) distance / maxLength);
+                }
+            }
+        }
+        return similarity >= MIN_TOKEN_SIMILARITY ? similarity : 0.0;
+    }
+
+    public static double jaroWinkler(String s1, String s2) {
+        int length1 = s1.length();
+        int length2 = s2.length();
+        if (length1 == 0 || length2 == 0) {
+            return length1 == length2 ? 1.0 : 0.0;
+        }
+        if (length1 > 64 || length2 > 64) {
+            return s1.equals(s2) ? 1.0 : 0.0;
+        }
+
+        int window = Math.max(0, Math.max(length1, length2) / 2 - 1);
+        long matched1 = 0L;
+        long matched2 = 0L;
+        int matches = 0;
+        for (int i = 0; i < length1; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(length2 - 1, i + window);
+            char c = s1.charAt(i);
+            for (int j = from; j <= to; j++) {
+                if ((matched2 & (1L << j)) == 0 && s2.charAt(j) == c) {
+                    matched1 |= 1L << i;
+                    matched2 |= 1L << j;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+
+        int transpositions = 0;
+        int j = 0;
+        for (int i = 0; i < length1; i++) {
+            if ((matched1 & (1L << i)) != 0) {
+                while ((matched2 & (1L << j)) == 0) {
+                    j++;
+                }
+                if (s1.charAt(i) != s2.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+
+        double m = matches;
+        double jaro = (m / length1 + m / length2 + (m - transpositions / 2.0) / m) / 3.0;
+        int prefix = 0;
+        int maxPrefix = Math.min(4, Math.min(length1, length2));
+        while (prefix < maxPrefix && s1.charAt(prefix) == s2.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1.0 - jaro);
+    }
+
+    /**
+     * Levenshtein distance restricted to a band of {@code maxDistance} around the
+     * diagonal.
+     *
+     * @return the distance, or {@code maxDistance + 1} once it is known to be larger
+     */
+    public static int levenshtein(String s1, String s2, int maxDistance) {
+        int length1 = s1.length();
+        int length2 = s2.length();
+        if (Math.abs(length1 - length2) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int outside = maxDistance + 1;
+        int[] previous = new int[length2 + 1];
+        int[] current = new int[length2 + 1];
+        for (int j = 0; j <= length2; j++) {
+            previous[j] = j <= maxDistance ? j : outside;
+        }
+        for (int i = 1; i <= length1; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(length2, i + maxDistance);
+            current[0] = i <= maxDistance ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = current[0];
+            char c = s1.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = c == s2.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < length2) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > maxDistance) {
+                return outside;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[length2], outside);
+    }
+}
@@ -0,0 +1,90 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.NameSignature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fuzzy name matching over large entity sets. Candidate names are retrieved from
+ * a {@link NameNgramIndex} (trigram overlap) and only those are scored with
+ * {@link NameSimilarity}, instead of scoring every pair of names.
+ */
+@Service
+@Slf4j
+public class NameSimilarityService {
+
+    public static final String RULE_NAME = "Fuzzy Name Similarity";
+
+    @Autowired
+    private MatchKeyStandardizer matchKeyStandardizer;
+
+    @Value("${mdm.matching.name.similarity-threshold:0.8}")
+    private double similarityThreshold = 0.8;
+
+    // Trigram Dice coefficient a name needs to be scored at all
+    @Value("${mdm.matching.name.min-qgram-dice:0.5}")
+    private double minQgramDice = 0.5;
+
+    @Value("${mdm.matching.name.max-posting-size:" + BlockingIndex.DEFAULT_MAX_BLOCK_SIZE + "}")
+    private int maxPostingSize = BlockingIndex.DEFAULT_MAX_BLOCK_SIZE;
+
+    public List<MatchCandidate> findSimilarNames(List<DataEntity> entities) {
+        return findSimilarNames(entities, similarityThreshold);
+    }
+
+    /**
+     * Returns the pairs of entities of the same type whose names score at least
+     * {@code threshold}. Each pair is reported once.
+     */
+    public List<MatchCandidate> findSimilarNames(List<DataEntity> entities, double threshold) {
+        matchKeyStandardizer.standardize(entities);
+        Map<String, List<DataEntity>> byType = new LinkedHashMap<>();
+        for (DataEntity entity : entities) {
+            if (!entity.getMatchKeys().getNameSignature().isEmpty()) {
+                byType.computeIfAbsent(entity.getEntityType(), type -> new ArrayList<>()).add(entity);
+            }
+        }
+
+        List<MatchCandidate> candidates = new ArrayList<>();
+        long[] scored = new long[1];
+        for (List<DataEntity> group : byType.values()) {
+            List<NameSignature> signatures = new ArrayList<>(group.size());
+            for (DataEntity entity : group) {
+                signatures.add(entity.getMatchKeys().getNameSignature());
+            }
+            NameNgramIndex index = NameNgramIndex.build(signatures, minQgramDice, maxPostingSize);
+            if (index.droppedGramCount() > 0) {
+                log.warn("Skipped {} name trigrams shared by more than {} entities", index.droppedGramCount(), maxPostingSize);
+            }
+            index.forEachCandidatePair(minQgramDice, (left, right) -> {
+                scored[0]++;
+                double score = NameSimilarity.score(index.name(left), index.name(right), threshold);
+                if (score >= threshold) {
+                    candidates.add(MatchCandidate.builder()
+                        .entity1(group.get(left))
+                        .entity2(group.get(right))
+                        .confidenceScore(score)
+                        .matchReason("Fuzzy name similarity")
+                        .ruleName(RULE_NAME)
+                        .build());
+                }
+            });
+        }
+        log.info("Fuzzy name matching over {} entities scored {} pairs, {} above {}",
+            entities.size(), scored[0], candidates.size(), threshold);
+        return candidates;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+
+import java.util.List;
+
+/**
+ * Scores candidate pairs on a single thread. Implementations may hold
+ * non-thread-safe state (such as a borrowed KieSession); the {@link BlockMatcher}
+ * creates one scorer per worker task and closes it when the task is done.
+ */
+public interface PairScorer extends AutoCloseable {
+
+    /**
+     * Appends the match candidate for the pair to {@code out}, if the pair matches.
+     */
+    void score(DataEntity entity1, DataEntity entity2, List<MatchCandidate> out);
+
+    @Override
+    default void close() {
+    }
+}
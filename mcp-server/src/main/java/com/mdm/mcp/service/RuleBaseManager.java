@@ -0,0 +1,355 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MergeRule;
+import com.mdm.mcp.repository.MergeRuleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.kie.api.runtime.KieSession;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the compiled rule base shared by all requests. The rule base is built
+ * from the DRL files under {@code classpath:rules/} plus the active MATCH and
+ * MERGE rules of the {@code merge_rules} table, whose {@code ruleCondition} and
+ * {@code ruleAction} are the DRL {@code when} and {@code then} parts.
+ *
+ * {@link #reload()} compiles and validates a new version on a background
+ * thread and then swaps it in; requests in progress finish on the version they
+ * {@link #acquire() acquired}. A version that fails to compile or validate is
+ * discarded and the running one stays in place. The survivorship rules are
+ * recompiled in the same build and published together with the rule base, so
+ * a rejected version does not leave new survivorship rules behind.
+ */
+@Component
+@Slf4j
+public class RuleBaseManager {
+
+    private static final String RULES_LOCATION = "classpath*:rules/**/*.drl";
+    private static final int PROBE_FIRING_LIMIT = 1000;
+
+    private static final String STORED_MATCH_RULES_HEADER = """
+        package rules.match;
+
+        import com.mdm.mcp.model.DataEntity;
+        import com.mdm.mcp.service.NameSimilarity;
+        import com.mdm.mcp.service.RuleExecutionContext;
+        """;
+
+    private static final String STORED_MERGE_RULES_HEADER = """
+        package rules.merge;
+
+        import com.mdm.mcp.model.DataEntity;
+        import com.mdm.mcp.model.MatchCandidate;
+        import com.mdm.mcp.model.MatchCluster;
+        import com.mdm.mcp.model.MergeResult;
+        import com.mdm.mcp.service.RuleExecutionContext;
+        import java.util.ArrayList;
+        import java.util.Arrays;
+        import java.util.List;
+        import java.util.UUID;
+        """;
+
+    @Autowired
+    private MergeMetrics mergeMetrics;
+
+    @Autowired
+    private MatchKeyStandardizer matchKeyStandardizer;
+
+    @Autowired
+    private SurvivorshipEngine survivorshipEngine;
+
+    // Optional, so the rule base can also be built without JPA (e.g. in the benchmarks)
+    @Autowired
+    private ObjectProvider<MergeRuleRepository> mergeRuleRepository;
+
+    @Value("${mdm.rules.session-pool-size:8}")
+    private int sessionPoolSize = 8;
+
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rule-base-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile CompiledRuleBase ruleBase;
+    private volatile ReloadResult lastReload;
+
+    // Reload requested but not started yet; requests arriving meanwhile share it
+    private CompletableFuture<ReloadResult> queuedReload;
+
+    @PostConstruct
+    public void init() {
+        ReloadResult result = build(true);
+        if (!result.isSuccess()) {
+            log.warn("Compiling the stored rules failed, starting with the DRL files only: {}", result.getError());
+            result = build(false);
+        }
+        if (!result.isSuccess()) {
+            log.error("Failed to compile Drools rules, using fallback rule engine: {}", result.getError());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+        CompiledRuleBase current = ruleBase;
+        ruleBase = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public boolean isAvailable() {
+        return ruleBase != null;
+    }
+
+    /**
+     * The current rule base, with a reference held for the caller. Callers must
+     * {@link CompiledRuleBase#close() close} it when their request is done,
+     * typically with try-with-resources.
+     */
+    public CompiledRuleBase acquire() {
+        for (;;) {
+            CompiledRuleBase current = ruleBase;
+            if (current == null) {
+                throw new IllegalStateException("Drools rule base is not available");
+            }
+            if (current.retain()) {
+                return current;
+            }
+            // Replaced and disposed since it was read; the next read sees its successor
+        }
+    }
+
+    /**
+     * Compiles, validates and swaps in a new rule base, and the survivorship
+     * rules with it, in the background. Matching is never paused: requests keep
+     * using the current version until the new one is in place.
+     *
+     * @return the outcome, completed once the new version is in place or rejected
+     */
+    public synchronized CompletableFuture<ReloadResult> reload() {
+        if (queuedReload == null) {
+            CompletableFuture<ReloadResult> future = new CompletableFuture<>();
+            queuedReload = future;
+            reloadExecutor.execute(() -> {
+                synchronized (this) {
+                    queuedReload = null;
+                }
+                try {
+                    future.complete(build(true));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        }
+        return queuedReload;
+    }
+
+    /**
+     * The outcome of the last build, or {@code null} before the first one.
+     */
+    public ReloadResult getLastReload() {
+        return lastReload;
+    }
+
+    // Runs on the startup thread or the reload thread, never concurrently
+    private ReloadResult build(boolean includeStoredRules) {
+        String version = "1.0." + generation.incrementAndGet();
+        long start = System.currentTimeMillis();
+        ReloadResult result = new ReloadResult(version, LocalDateTime.now());
+        CompiledRuleBase candidate = null;
+        SurvivorshipEngine.Tables survivorship = null;
+        try {
+            Map<String, String> resources = loadDrlResources();
+            if (includeStoredRules) {
+                result.setStoredRules(addStoredRules(resources));
+                survivorship = survivorshipEngine.compileTables();
+            }
+            candidate = CompiledRuleBase.compile(version, resources, sessionPoolSize, mergeMetrics.ruleListener());
+            validate(candidate, survivorship);
+            result.setMatchRules(candidate.getRuleCount(CompiledRuleBase.MATCH_KBASE));
+            result.setMergeRules(candidate.getRuleCount(CompiledRuleBase.MERGE_KBASE));
+        } catch (Exception e) {
+            if (candidate != null) {
+                candidate.close();
+            }
+            result.setError(e.getMessage());
+            result.setDurationMs(System.currentTimeMillis() - start);
+            lastReload = result;
+            log.error("Rule base {} rejected, keeping {}: {}", version,
+                ruleBase != null ? ruleBase.getVersion() : "the fallback rule engine", e.getMessage());
+            return result;
+        }
+
+        if (survivorship != null) {
+            survivorshipEngine.publish(survivorship);
+        }
+        CompiledRuleBase previous = ruleBase;
+        ruleBase = candidate;
+        if (previous != null) {
+            previous.close();
+        }
+        result.setSuccess(true);
+        result.setDurationMs(System.currentTimeMillis() - start);
+        lastReload = result;
+        log.info("Compiled Drools rule base {} ({} match and {} merge rules, {} stored) in {} ms", version,
+            result.getMatchRules(), result.getMergeRules(), result.getStoredRules(), result.getDurationMs());
+        return result;
+    }
+
+    /**
+     * Fires the match rules on a pair of identical entities and the merge rules
+     * on the candidates found, and applies the survivorship tables to the pair,
+     * so a version whose rules throw or keep re-activating each other never
+     * becomes current.
+     */
+    private void validate(CompiledRuleBase candidate, SurvivorshipEngine.Tables survivorship) {
+        for (String kieBase : List.of(CompiledRuleBase.MATCH_KBASE, CompiledRuleBase.MERGE_KBASE)) {
+            if (candidate.getRuleCount(kieBase) == 0) {
+                throw new IllegalStateException(kieBase + " has no rules");
+            }
+        }
+
+        List<DataEntity> probes = List.of(probeEntity("PROBE_1"), probeEntity("PROBE_2"));
+        RuleExecutionContext matchContext = new RuleExecutionContext();
+        KieSession matchSession = candidate.newMatchSession();
+        try {
+            matchSession.insert(matchContext);
+            probes.forEach(matchSession::insert);
+            checkTermination("Match", matchSession.fireAllRules(PROBE_FIRING_LIMIT));
+        } finally {
+            matchSession.dispose();
+        }
+
+        RuleExecutionContext mergeContext = new RuleExecutionContext();
+        mergeContext.getMatchCandidates().addAll(matchContext.getMatchCandidates());
+        KieSession mergeSession = candidate.newMergeSession();
+        try {
+            mergeSession.insert(mergeContext);
+            checkTermination("Merge", mergeSession.fireAllRules(PROBE_FIRING_LIMIT));
+        } finally {
+            mergeSession.dispose();
+        }
+
+        if (survivorship != null) {
+            for (SurvivorshipTable table : survivorship.all()) {
+                DataEntity golden = new DataEntity();
+                golden.setEntityType("PERSON");
+                golden.setAttributes(new HashMap<>());
+                golden.setRelationships(new HashMap<>());
+                table.apply(probes, golden);
+            }
+        }
+    }
+
+    private static void checkTermination(String kind, int fired) {
+        if (fired >= PROBE_FIRING_LIMIT) {
+            throw new IllegalStateException(kind + " rules fired " + fired + " times on a single pair without terminating");
+        }
+    }
+
+    private DataEntity probeEntity(String entityId) {
+        DataEntity entity = new DataEntity();
+        entity.setEntityId(entityId);
+        entity.setEntityType("PERSON");
+        entity.setSourceSystem("PROBE");
+        entity.setStatus("ACTIVE");
+        entity.setConfidenceScore(0.9);
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("firstName", "Rule");
+        attributes.put("lastName", "Probe");
+        attributes.put("fullName", "Rule Probe");
+        attributes.put("email", "rule.probe@example.com");
+        attributes.put("phoneNumber", "+15550100");
+        entity.setAttributes(attributes);
+        return matchKeyStandardizer.standardize(entity);
+    }
+
+    /**
+     * Adds the active stored MATCH and MERGE rules as one generated DRL file per
+     * KieBase. A lower priority value gives a higher salience.
+     *
+     * @return the number of stored rules added
+     */
+    private int addStoredRules(Map<String, String> resources) {
+        MergeRuleRepository repository = mergeRuleRepository.getIfAvailable();
+        if (repository == null) {
+            return 0;
+        }
+        StringBuilder matchRules = new StringBuilder(STORED_MATCH_RULES_HEADER);
+        StringBuilder mergeRules = new StringBuilder(STORED_MERGE_RULES_HEADER);
+        int count = 0;
+        for (MergeRule rule : repository.findByIsActiveTrueOrderByPriorityAsc()) {
+            StringBuilder target;
+            if ("MATCH".equals(rule.getRuleType())) {
+                target = matchRules;
+            } else if ("MERGE".equals(rule.getRuleType())) {
+                target = mergeRules;
+            } else {
+                continue;
+            }
+            if (rule.getRuleCondition() == null || rule.getRuleCondition().isBlank()
+                || rule.getRuleAction() == null || rule.getRuleAction().isBlank()) {
+                log.warn("Skipping stored rule {} without condition or action", rule.getRuleName());
+                continue;
+            }
+            target.append("\nrule \"").append(rule.getRuleName().replace('"', '\'')).append("\"\n")
+                .append("    salience ").append(rule.getPriority() != null ? -rule.getPriority() : 0).append('\n')
+                .append("    when\n").append(rule.getRuleCondition()).append('\n')
+                .append("    then\n").append(rule.getRuleAction()).append('\n')
+                .append("end\n");
+            count++;
+        }
+        resources.put("rules/match/stored-match-rules.drl", matchRules.toString());
+        resources.put("rules/merge/stored-merge-rules.drl", mergeRules.toString());
+        return count;
+    }
+
+    Map<String, String> loadDrlResources() throws IOException {
+        Map<String, String> resources = new LinkedHashMap<>();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (Resource resource : resolver.getResources(RULES_LOCATION)) {
+            String url = resource.getURL().toString();
+            String path = url.substring(url.lastIndexOf("rules/"));
+            try (InputStream in = resource.getInputStream()) {
+                resources.put(path, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return resources;
+    }
+
+    @Data
+    public static class ReloadResult {
+        private final String version;
+        private final LocalDateTime startedAt;
+        private boolean success;
+        private String error;
+        private int matchRules;
+        private int mergeRules;
+        private int storedRules;
+        private long durationMs;
+    }
+}
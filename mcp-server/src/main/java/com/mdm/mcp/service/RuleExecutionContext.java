@@ -2,6 +2,7 @@ package com.mdm.mcp.service;
 
 import com.mdm.mcp.model.DataEntity;
 import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MatchCluster;
 import com.mdm.mcp.model.MergeResult;
 import lombok.Data;
 
@@ -14,6 +15,7 @@ import java.util.Map;
 public class RuleExecutionContext {
     
     private List<MatchCandidate> matchCandidates = new ArrayList<>();
+    private List<MatchCluster> matchClusters = new ArrayList<>();
     private List<MergeResult> mergeResults = new ArrayList<>();
     private List<DataEntity> mergedEntities = new ArrayList<>();
     private Map<String, String> survivorshipDecisions = new HashMap<>();
@@ -24,6 +26,34 @@ public class RuleExecutionContext {
         matchCandidates.add(candidate);
     }
     
+    public void addMatchCandidate(DataEntity entity1, DataEntity entity2, Double confidenceScore, String matchReason, String ruleName) {
+        MatchCandidate candidate = new MatchCandidate(entity1, entity2, confidenceScore, matchReason, ruleName);
+        matchCandidates.add(candidate);
+    }
+    
+    /**
+     * Collapses the candidates added since {@code fromIndex} to the one with the
+     * highest confidence score.
+     */
+    public void retainBestMatchCandidateFrom(int fromIndex) {
+        if (matchCandidates.size() - fromIndex < 2) {
+            return;
+        }
+        MatchCandidate best = matchCandidates.get(fromIndex);
+        for (int i = fromIndex + 1; i < matchCandidates.size(); i++) {
+            MatchCandidate candidate = matchCandidates.get(i);
+            if (candidate.getConfidenceScore() > best.getConfidenceScore()) {
+                best = candidate;
+            }
+        }
+        matchCandidates.subList(fromIndex, matchCandidates.size()).clear();
+        matchCandidates.add(best);
+    }
+    
+    public void addMatchCluster(MatchCluster cluster) {
+        matchClusters.add(cluster);
+    }
+    
     public void addMergeResult(MergeResult result) {
         mergeResults.add(result);
     }
@@ -44,6 +74,10 @@ public class RuleExecutionContext {
         return matchCandidates;
     }
     
+    public List<MatchCluster> getMatchClusters() {
+        return matchClusters;
+    }
+    
     public List<MergeResult> getMergeResults() {
         return mergeResults;
     }
@@ -62,6 +96,7 @@ public class RuleExecutionContext {
     
     public void clear() {
         matchCandidates.clear();
+        matchClusters.clear();
         mergeResults.clear();
         mergedEntities.clear();
         survivorshipDecisions.clear();
@@ -0,0 +1,779 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiles the {@code condition} and {@code action} strings of generic rules
+ * into lambdas over {@link DataEntity}. The text is parsed into an AST once and
+ * the AST is turned into nested lambdas: names are bound to field getters or
+ * attribute lookups, constant subexpressions are folded and regular expressions
+ * are compiled, so evaluating a rule never looks at the text again.
+ *
+ * A condition is a boolean expression, e.g.
+ * <pre>
+ *   entityType == 'PERSON' &amp;&amp; (isBlank(email) || !(email matches '[^@]+@[^@]+'))
+ *   country in ('US', 'CA') and length(postalCode) != 5
+ * </pre>
+ * Names refer to the fields {@code entityId}, {@code entityType},
+ * {@code sourceSystem}, {@code status} and {@code confidenceScore}, and to
+ * attributes otherwise ({@code attributes.name} also works). Numbers compare
+ * numerically, also when held as attribute strings. Functions: {@code length},
+ * {@code lower}, {@code upper}, {@code trim}, {@code isBlank}, {@code isNumeric},
+ * {@code contains}, {@code startsWith}, {@code endsWith} and {@code coalesce}.
+ *
+ * An action is a list of statements separated by {@code ;}: assignments to a
+ * field or attribute (assigning {@code null} removes the attribute) and
+ * {@code flag(message)}, e.g. {@code email = lower(trim(email)); flag('email normalized')}.
+ */
+public final class RuleExpressionCompiler {
+
+    private static final Set<String> KEYWORDS = Set.of("and", "or", "not", "in", "matches", "true", "false", "null");
+
+    private RuleExpressionCompiler() {
+    }
+
+    /**
+     * @return the compiled condition; a blank condition always holds
+     * @throws IllegalArgumentException if the condition is invalid
+     */
+    public static Predicate<DataEntity> compileCondition(String condition) {
+        if (condition == null || condition.isBlank()) {
+            return entity -> true;
+        }
+        Parser parser = new Parser(condition);
+        Node node = parser.expression();
+        parser.expectEnd();
+        return predicate(node);
+    }
+
+    /**
+     * @return the compiled action, which appends flags to the list it is given;
+     *         a blank action does nothing
+     * @throws IllegalArgumentException if the action is invalid
+     */
+    public static BiConsumer<DataEntity, List<String>> compileAction(String action) {
+        if (action == null || action.isBlank()) {
+            return (entity, flags) -> { };
+        }
+        List<BiConsumer<DataEntity, List<String>>> statements = new ArrayList<>();
+        for (Node statement : new Parser(action).statements()) {
+            statements.add(statement(statement));
+        }
+        if (statements.size() == 1) {
+            return statements.get(0);
+        }
+        @SuppressWarnings("unchecked")
+        BiConsumer<DataEntity, List<String>>[] sequence = statements.toArray(new BiConsumer[0]);
+        return (entity, flags) -> {
+            for (BiConsumer<DataEntity, List<String>> statement : sequence) {
+                statement.accept(entity, flags);
+            }
+        };
+    }
+
+    // ---- AST ----
+
+    private sealed interface Node permits Literal, Name, Unary, Binary, InList, Matches, Call, Assign, Flag {
+    }
+
+    private record Literal(Object value) implements Node {
+    }
+
+    private record Name(String name) implements Node {
+    }
+
+    private record Unary(String operator, Node operand) implements Node {
+    }
+
+    private record Binary(String operator, Node left, Node right) implements Node {
+    }
+
+    private record InList(Node value, List<Node> items) implements Node {
+    }
+
+    private record Matches(Node value, Pattern pattern) implements Node {
+    }
+
+    private record Call(String function, List<Node> arguments) implements Node {
+    }
+
+    private record Assign(String target, Node value) implements Node {
+    }
+
+    private record Flag(Node message) implements Node {
+    }
+
+    // ---- Compilation ----
+
+    @FunctionalInterface
+    private interface Expr {
+        Object eval(DataEntity entity);
+    }
+
+    private static Predicate<DataEntity> predicate(Node node) {
+        Predicate<DataEntity> predicate = compilePredicate(node);
+        if (isConstant(node)) {
+            boolean value = predicate.test(null);
+            return entity -> value;
+        }
+        return predicate;
+    }
+
+    private static Predicate<DataEntity> compilePredicate(Node node) {
+        if (node instanceof Binary binary) {
+            switch (binary.operator()) {
+                case "&&": {
+                    Predicate<DataEntity> left = predicate(binary.left());
+                    Predicate<DataEntity> right = predicate(binary.right());
+                    return entity -> left.test(entity) && right.test(entity);
+                }
+                case "||": {
+                    Predicate<DataEntity> left = predicate(binary.left());
+                    Predicate<DataEntity> right = predicate(binary.right());
+                    return entity -> left.test(entity) || right.test(entity);
+                }
+                case "==": {
+                    Expr left = value(binary.left());
+                    Expr right = value(binary.right());
+                    return entity -> valuesEqual(left.eval(entity), right.eval(entity));
+                }
+                case "!=": {
+                    Expr left = value(binary.left());
+                    Expr right = value(binary.right());
+                    return entity -> !valuesEqual(left.eval(entity), right.eval(entity));
+                }
+                case "<":
+                case "<=":
+                case ">":
+                case ">=": {
+                    Expr left = value(binary.left());
+                    Expr right = value(binary.right());
+                    String operator = binary.operator();
+                    return entity -> {
+                        Integer order = compareValues(left.eval(entity), right.eval(entity));
+                        if (order == null) {
+                            return false;
+                        }
+                        return switch (operator) {
+                            case "<" -> order < 0;
+                            case "<=" -> order <= 0;
+                            case ">" -> order > 0;
+                            default -> order >= 0;
+                        };
+                    };
+                }
+                default:
+                    break;
+            }
+        } else if (node instanceof Unary unary && unary.operator().equals("!")) {
+            Predicate<DataEntity> operand = predicate(unary.operand());
+            return entity -> !operand.test(entity);
+        } else if (node instanceof InList in) {
+            Expr value = value(in.value());
+            Expr[] items = in.items().stream().map(RuleExpressionCompiler::value).toArray(Expr[]::new);
+            return entity -> {
+                Object candidate = value.eval(entity);
+                for (Expr item : items) {
+                    if (valuesEqual(candidate, item.eval(entity))) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        } else if (node instanceof Matches matches) {
+            Expr value = value(matches.value());
+            Pattern pattern = matches.pattern();
+            return entity -> {
+                Object text = value.eval(entity);
+                return text != null && pattern.matcher(text.toString()).matches();
+            };
+        }
+        Expr value = value(node);
+        return entity -> isTrue(value.eval(entity));
+    }
+
+    private static Expr value(Node node) {
+        Expr expr = compileValue(node);
+        if (isConstant(node)) {
+            Object value = expr.eval(null);
+            return entity -> value;
+        }
+        return expr;
+    }
+
+    private static Expr compileValue(Node node) {
+        if (node instanceof Literal literal) {
+            Object value = literal.value();
+            return entity -> value;
+        }
+        if (node instanceof Name name) {
+            return accessor(name.name());
+        }
+        if (node instanceof Unary unary && unary.operator().equals("-")) {
+            Expr operand = value(unary.operand());
+            return entity -> {
+                Double number = toNumber(operand.eval(entity));
+                return number == null ? null : -number;
+            };
+        }
+        if (node instanceof Binary binary && "+-*/".contains(binary.operator())) {
+            Expr left = value(binary.left());
+            Expr right = value(binary.right());
+            return switch (binary.operator()) {
+                case "+" -> entity -> add(left.eval(entity), right.eval(entity));
+                case "-" -> entity -> arithmetic('-', left.eval(entity), right.eval(entity));
+                case "*" -> entity -> arithmetic('*', left.eval(entity), right.eval(entity));
+                default -> entity -> arithmetic('/', left.eval(entity), right.eval(entity));
+            };
+        }
+        if (node instanceof Call call) {
+            return function(call);
+        }
+        // Boolean operators used as values
+        Predicate<DataEntity> predicate = compilePredicate(node);
+        return predicate::test;
+    }
+
+    private static Expr accessor(String name) {
+        switch (name) {
+            case "entityId":
+                return DataEntity::getEntityId;
+            case "entityType":
+                return DataEntity::getEntityType;
+            case "sourceSystem":
+                return DataEntity::getSourceSystem;
+            case "status":
+                return DataEntity::getStatus;
+            case "confidenceScore":
+                return DataEntity::getConfidenceScore;
+            default:
+                String attribute = attributeName(name);
+                return entity -> entity.getAttributes() == null ? null : entity.getAttributes().get(attribute);
+        }
+    }
+
+    private static Expr function(Call call) {
+        Expr[] args = call.arguments().stream().map(RuleExpressionCompiler::value).toArray(Expr[]::new);
+        switch (call.function()) {
+            case "length":
+                checkArity(call, 1);
+                return entity -> {
+                    Object value = args[0].eval(entity);
+                    return value == null ? null : (double) value.toString().length();
+                };
+            case "lower":
+                checkArity(call, 1);
+                return entity -> {
+                    Object value = args[0].eval(entity);
+                    return value == null ? null : value.toString().toLowerCase(Locale.ROOT);
+                };
+            case "upper":
+                checkArity(call, 1);
+                return entity -> {
+                    Object value = args[0].eval(entity);
+                    return value == null ? null : value.toString().toUpperCase(Locale.ROOT);
+                };
+            case "trim":
+                checkArity(call, 1);
+                return entity -> {
+                    Object value = args[0].eval(entity);
+                    return value == null ? null : value.toString().trim();
+                };
+            case "isblank":
+                checkArity(call, 1);
+                return entity -> {
+                    Object value = args[0].eval(entity);
+                    return value == null || value.toString().isBlank();
+                };
+            case "isnumeric":
+                checkArity(call, 1);
+                return entity -> toNumber(args[0].eval(entity)) != null;
+            case "contains":
+                checkArity(call, 2);
+                return entity -> {
+                    Object text = args[0].eval(entity);
+                    Object part = args[1].eval(entity);
+                    return text != null && part != null && text.toString().contains(part.toString());
+                };
+            case "startswith":
+                checkArity(call, 2);
+                return entity -> {
+                    Object text = args[0].eval(entity);
+                    Object prefix = args[1].eval(entity);
+                    return text != null && prefix != null && text.toString().startsWith(prefix.toString());
+                };
+            case "endswith":
+                checkArity(call, 2);
+                return entity -> {
+                    Object text = args[0].eval(entity);
+                    Object suffix = args[1].eval(entity);
+                    return text != null && suffix != null && text.toString().endsWith(suffix.toString());
+                };
+            case "coalesce":
+                if (args.length == 0) {
+                    throw new IllegalArgumentException("coalesce needs at least one argument");
+                }
+                return entity -> {
+                    for (Expr arg : args) {
+                        Object value = arg.eval(entity);
+                        if (value != null) {
+                            return value;
+                        }
+                    }
+                    return null;
+                };
+            default:
+                throw new IllegalArgumentException("Unknown function " + call.function());
+        }
+    }
+
+    private static BiConsumer<DataEntity, List<String>> statement(Node node) {
+        if (node instanceof Flag flag) {
+            Expr message = value(flag.message());
+            return (entity, flags) -> flags.add(String.valueOf(message.eval(entity)));
+        }
+        Assign assign = (Assign) node;
+        Expr value = value(assign.value());
+        switch (assign.target()) {
+            case "entityId":
+                throw new IllegalArgumentException("entityId cannot be assigned");
+            case "entityType":
+                return (entity, flags) -> entity.setEntityType(format(value.eval(entity)));
+            case "sourceSystem":
+                return (entity, flags) -> entity.setSourceSystem(format(value.eval(entity)));
+            case "status":
+                return (entity, flags) -> entity.setStatus(format(value.eval(entity)));
+            case "confidenceScore":
+                return (entity, flags) -> entity.setConfidenceScore(toNumber(value.eval(entity)));
+            default:
+                String attribute = attributeName(assign.target());
+                return (entity, flags) -> {
+                    String text = format(value.eval(entity));
+                    if (entity.getAttributes() == null) {
+                        entity.setAttributes(new HashMap<>());
+                    }
+                    if (text == null) {
+                        entity.getAttributes().remove(attribute);
+                    } else {
+                        entity.getAttributes().put(attribute, text);
+                    }
+                };
+        }
+    }
+
+    private static boolean isConstant(Node node) {
+        if (node instanceof Literal) {
+            return true;
+        }
+        if (node instanceof Unary unary) {
+            return isConstant(unary.operand());
+        }
+        if (node instanceof Binary binary) {
+            return isConstant(binary.left()) && isConstant(binary.right());
+        }
+        if (node instanceof InList in) {
+            return isConstant(in.value()) && in.items().stream().allMatch(RuleExpressionCompiler::isConstant);
+        }
+        if (node instanceof Matches matches) {
+            return isConstant(matches.value());
+        }
+        if (node instanceof Call call) {
+            return call.arguments().stream().allMatch(RuleExpressionCompiler::isConstant);
+        }
+        return false;
+    }
+
+    private static void checkArity(Call call, int arity) {
+        if (call.arguments().size() != arity) {
+            throw new IllegalArgumentException(call.function() + " takes " + arity + " argument" + (arity == 1 ? "" : "s"));
+        }
+    }
+
+    private static String attributeName(String name) {
+        String attribute = name.startsWith("attributes.") ? name.substring("attributes.".length()) : name;
+        if (attribute.isEmpty() || attribute.indexOf('.') >= 0) {
+            throw new IllegalArgumentException("Unknown name " + name);
+        }
+        return attribute;
+    }
+
+    // ---- Value semantics ----
+
+    private static boolean isTrue(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        return value instanceof String text && text.equalsIgnoreCase("true");
+    }
+
+    private static boolean valuesEqual(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number || right instanceof Number) {
+            Double l = toNumber(left);
+            Double r = toNumber(right);
+            return l != null && r != null && l.doubleValue() == r.doubleValue();
+        }
+        return left.toString().equals(right.toString());
+    }
+
+    // Numbers (also numeric strings) compare numerically, anything else as text; null is not ordered
+    private static Integer compareValues(Object left, Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        Double l = toNumber(left);
+        Double r = toNumber(right);
+        if (l != null && r != null) {
+            return Double.compare(l, r);
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    private static Object add(Object left, Object right) {
+        if (left instanceof Number || right instanceof Number) {
+            Double l = toNumber(left);
+            Double r = toNumber(right);
+            if (l != null && r != null) {
+                return l + r;
+            }
+        }
+        return (left == null ? "" : format(left)) + (right == null ? "" : format(right));
+    }
+
+    private static Double arithmetic(char operator, Object left, Object right) {
+        Double l = toNumber(left);
+        Double r = toNumber(right);
+        if (l == null || r == null) {
+            return null;
+        }
+        return switch (operator) {
+            case '-' -> l - r;
+            case '*' -> l * r;
+            default -> r == 0 ? null : l / r;
+        };
+    }
+
+    private static Double toNumber(Object value) {
+        if (value instanceof Double number) {
+            return number;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text && looksNumeric(text)) {
+            try {
+                return Double.valueOf(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Cheap pre-check, so non-numeric strings do not cost an exception
+    private static boolean looksNumeric(String text) {
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E' && c != ' ') {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Double number && number == Math.rint(number) && Math.abs(number) < 1e15) {
+            return String.valueOf(number.longValue());
+        }
+        return value == null ? null : value.toString();
+    }
+
+    // ---- Parsing ----
+
+    private enum Kind { NUMBER, STRING, IDENT, OP, END }
+
+    private record Token(Kind kind, String text, int position) {
+    }
+
+    private static final class Parser {
+        private final String source;
+        private final List<Token> tokens;
+        private int index;
+
+        Parser(String source) {
+            this.source = source;
+            this.tokens = tokenize(source);
+        }
+
+        List<Node> statements() {
+            List<Node> statements = new ArrayList<>();
+            while (peek().kind() != Kind.END) {
+                statements.add(statement());
+                if (!acceptOp(";")) {
+                    break;
+                }
+            }
+            expectEnd();
+            return statements;
+        }
+
+        private Node statement() {
+            Token target = expect(Kind.IDENT, "a statement");
+            if (target.text().equals("flag") && acceptOp("(")) {
+                Node message = expression();
+                expectOp(")");
+                return new Flag(message);
+            }
+            expectOp("=");
+            return new Assign(target.text(), expression());
+        }
+
+        Node expression() {
+            Node left = and();
+            while (acceptOp("||") || acceptKeyword("or")) {
+                left = new Binary("||", left, and());
+            }
+            return left;
+        }
+
+        private Node and() {
+            Node left = not();
+            while (acceptOp("&&") || acceptKeyword("and")) {
+                left = new Binary("&&", left, not());
+            }
+            return left;
+        }
+
+        private Node not() {
+            if (acceptOp("!") || acceptKeyword("not")) {
+                return new Unary("!", not());
+            }
+            return comparison();
+        }
+
+        private Node comparison() {
+            Node left = additive();
+            Token token = peek();
+            if (token.kind() == Kind.OP && Set.of("==", "!=", "<", "<=", ">", ">=").contains(token.text())) {
+                index++;
+                return new Binary(token.text(), left, additive());
+            }
+            if (acceptKeyword("matches")) {
+                Token regex = expect(Kind.STRING, "a regular expression");
+                try {
+                    return new Matches(left, Pattern.compile(regex.text()));
+                } catch (PatternSyntaxException e) {
+                    throw error(regex, "invalid regular expression: " + e.getDescription());
+                }
+            }
+            boolean negated = peek().kind() == Kind.IDENT && peek().text().equalsIgnoreCase("not")
+                && index + 1 < tokens.size() && tokens.get(index + 1).text().equalsIgnoreCase("in");
+            if (negated) {
+                index++;
+            }
+            if (acceptKeyword("in")) {
+                expectOp("(");
+                List<Node> items = new ArrayList<>();
+                do {
+                    items.add(additive());
+                } while (acceptOp(","));
+                expectOp(")");
+                Node in = new InList(left, items);
+                return negated ? new Unary("!", in) : in;
+            }
+            return left;
+        }
+
+        private Node additive() {
+            Node left = multiplicative();
+            while (peekOp("+") || peekOp("-")) {
+                String operator = tokens.get(index++).text();
+                left = new Binary(operator, left, multiplicative());
+            }
+            return left;
+        }
+
+        private Node multiplicative() {
+            Node left = unary();
+            while (peekOp("*") || peekOp("/")) {
+                String operator = tokens.get(index++).text();
+                left = new Binary(operator, left, unary());
+            }
+            return left;
+        }
+
+        private Node unary() {
+            if (acceptOp("-")) {
+                return new Unary("-", unary());
+            }
+            return primary();
+        }
+
+        private Node primary() {
+            Token token = peek();
+            switch (token.kind()) {
+                case NUMBER:
+                    index++;
+                    try {
+                        return new Literal(Double.valueOf(token.text()));
+                    } catch (NumberFormatException e) {
+                        throw error(token, "invalid number " + token.text());
+                    }
+                case STRING:
+                    index++;
+                    return new Literal(token.text());
+                case IDENT:
+                    index++;
+                    String word = token.text().toLowerCase(Locale.ROOT);
+                    if (word.equals("true") || word.equals("false")) {
+                        return new Literal(Boolean.valueOf(word));
+                    }
+                    if (word.equals("null")) {
+                        return new Literal(null);
+                    }
+                    if (KEYWORDS.contains(word)) {
+                        throw error(token, "unexpected " + token.text());
+                    }
+                    if (acceptOp("(")) {
+                        List<Node> arguments = new ArrayList<>();
+                        if (!acceptOp(")")) {
+                            do {
+                                arguments.add(expression());
+                            } while (acceptOp(","));
+                            expectOp(")");
+                        }
+                        return new Call(word, arguments);
+                    }
+                    return new Name(token.text());
+                case OP:
+                    if (acceptOp("(")) {
+                        Node inner = expression();
+                        expectOp(")");
+                        return inner;
+                    }
+                    throw error(token, "unexpected " + token.text());
+                default:
+                    throw error(token, "unexpected end");
+            }
+        }
+
+        void expectEnd() {
+            if (peek().kind() != Kind.END) {
+                throw error(peek(), "unexpected " + peek().text());
+            }
+        }
+
+        private Token peek() {
+            return tokens.get(index);
+        }
+
+        private boolean peekOp(String op) {
+            Token token = peek();
+            return token.kind() == Kind.OP && token.text().equals(op);
+        }
+
+        private boolean acceptOp(String op) {
+            if (peekOp(op)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            Token token = peek();
+            if (token.kind() == Kind.IDENT && token.text().equalsIgnoreCase(keyword)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectOp(String op) {
+            if (!acceptOp(op)) {
+                throw error(peek(), "expected " + op);
+            }
+        }
+
+        private Token expect(Kind kind, String description) {
+            Token token = peek();
+            if (token.kind() != kind) {
+                throw error(token, "expected " + description);
+            }
+            index++;
+            return token;
+        }
+
+        private IllegalArgumentException error(Token token, String message) {
+            return new IllegalArgumentException("Invalid rule expression at position " + token.position()
+                + " of '" + source + "': " + message);
+        }
+
+        private static List<Token> tokenize(String source) {
+            List<Token> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isDigit(c) || (c == '.' && i + 1 < source.length() && Character.isDigit(source.charAt(i + 1)))) {
+                    while (i < source.length() && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(new Token(Kind.NUMBER, source.substring(start, i), start));
+                } else if (c == '\'' || c == '"') {
+                    StringBuilder text = new StringBuilder();
+                    i++;
+                    while (i < source.length() && source.charAt(i) != c) {
+                        if (source.charAt(i) == '\\' && i + 1 < source.length()) {
+                            i++;
+                        }
+                        text.append(source.charAt(i++));
+                    }
+                    if (i >= source.length()) {
+                        throw new IllegalArgumentException("Invalid rule expression at position " + start
+                            + " of '" + source + "': unterminated string");
+                    }
+                    i++;
+                    tokens.add(new Token(Kind.STRING, text.toString(), start));
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    while (i < source.length() && (Character.isJavaIdentifierPart(source.charAt(i)) || source.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(new Token(Kind.IDENT, source.substring(start, i), start));
+                } else {
+                    String two = i + 1 < source.length() ? source.substring(i, i + 2) : "";
+                    if (Set.of("==", "!=", "<=", ">=", "&&", "||").contains(two)) {
+                        tokens.add(new Token(Kind.OP, two, start));
+                        i += 2;
+                    } else if ("<>!+-*/(),;=".indexOf(c) >= 0) {
+                        tokens.add(new Token(Kind.OP, String.valueOf(c), start));
+                        i++;
+                    } else {
+                        throw new IllegalArgumentException("Invalid rule expression at position " + start
+                            + " of '" + source + "': unexpected character " + c);
+                    }
+                }
+            }
+            tokens.add(new Token(Kind.END, "end", source.length()));
+            return tokens;
+        }
+    }
+}
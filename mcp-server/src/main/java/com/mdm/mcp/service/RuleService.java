@@ -1,31 +1,244 @@
 package com.mdm.mcp.service;
 
+import com.mdm.mcp.model.DataEntity;
 import com.mdm.mcp.model.Rule;
+import com.mdm.mcp.repository.RuleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.UUID;
 
+/**
+ * Rules stored in the {@code rules} table and served from an immutable
+ * snapshot of all rules, grouped by domain. Readers only dereference the
+ * current snapshot and never lock; writers are serialized, store the rule and
+ * then publish a new snapshot in which only the affected domains are copied.
+ *
+ * Within a domain, rules keep the order in which they were first saved
+ * ({@code created_at}, then rule id); saving a rule again leaves it in place.
+ * The snapshot also holds each rule compiled by {@link RuleExpressionCompiler}.
+ * A rule is compiled when it is loaded or saved, and the compiled form is
+ * carried over to later snapshots until the rule itself is replaced.
+ */
 @Service
+@Slf4j
 public class RuleService {
-    
-    private final Map<String, List<Rule>> rulesByDomain = new ConcurrentHashMap<>();
-    
-    public void saveRule(Rule rule) {
-        rulesByDomain.computeIfAbsent(rule.getDomain(), k -> new ArrayList<>()).add(rule);
+
+    // Rows from before created_at existed come first
+    private static final Sort LOAD_ORDER = Sort.by(Sort.Order.asc("createdAt").nullsFirst(), Sort.Order.asc("ruleId"));
+
+    private static final Comparator<Rule> ORDER = Comparator
+        .comparing(Rule::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+        .thenComparing(Rule::getRuleId);
+
+    @Autowired
+    private RuleRepository ruleRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    // Creation time of the newest rule, guarded by this
+    private LocalDateTime lastCreatedAt = LocalDateTime.MIN;
+
+    @PostConstruct
+    public synchronized void init() {
+        Map<String, List<Rule>> rulesByDomain = new LinkedHashMap<>();
+        Map<String, List<CompiledRule>> compiledByDomain = new HashMap<>();
+        int count = 0;
+        for (Rule rule : ruleRepository.findAll(LOAD_ORDER)) {
+            rulesByDomain.computeIfAbsent(rule.getDomain(), k -> new ArrayList<>()).add(rule);
+            compiledByDomain.computeIfAbsent(rule.getDomain(), k -> new ArrayList<>()).add(compileStored(rule));
+            if (rule.getCreatedAt() != null && rule.getCreatedAt().isAfter(lastCreatedAt)) {
+                lastCreatedAt = rule.getCreatedAt();
+            }
+            count++;
+        }
+        Map<String, List<Rule>> byDomain = new HashMap<>();
+        Map<String, CompiledRule[]> compiled = new HashMap<>();
+        rulesByDomain.forEach((domain, rules) -> {
+            byDomain.put(domain, List.copyOf(rules));
+            compiled.put(domain, compiledByDomain.get(domain).toArray(new CompiledRule[0]));
+        });
+        snapshot = new Snapshot(byDomain, compiled);
+        log.info("Loaded {} rules in {} domains", count, byDomain.size());
     }
-    
+
+    /**
+     * Stores the rule, replacing a stored rule with the same id, and publishes
+     * it to readers once the write has succeeded. Rules without an id get a
+     * random one. A missing condition or action is stored as an empty one,
+     * which always holds or does nothing.
+     *
+     * @throws IllegalArgumentException if the rule has no domain, or its
+     *         condition or action does not compile
+     */
+    public synchronized Rule saveRule(Rule rule) {
+        if (rule.getDomain() == null || rule.getDomain().isBlank()) {
+            throw new IllegalArgumentException("Rule domain is required");
+        }
+        if (rule.getRuleId() == null || rule.getRuleId().isBlank()) {
+            rule.setRuleId(UUID.randomUUID().toString());
+        }
+        rule.setCondition(rule.getCondition() == null || rule.getCondition().isBlank() ? "" : rule.getCondition());
+        rule.setAction(rule.getAction() == null || rule.getAction().isBlank() ? "" : rule.getAction());
+        CompiledRule compiledRule = CompiledRule.compile(rule);
+        // A rule saved again keeps its place
+        rule.setCreatedAt(ruleRepository.findById(rule.getRuleId())
+            .map(Rule::getCreatedAt)
+            .orElseGet(this::nextCreatedAt));
+        Rule saved = ruleRepository.save(rule);
+
+        Snapshot current = snapshot;
+        Map<String, List<Rule>> byDomain = new HashMap<>(current.byDomain);
+        Map<String, CompiledRule[]> compiled = new HashMap<>(current.compiledByDomain);
+        for (String domain : current.byDomain.keySet()) {
+            List<Rule> rules = current.byDomain.get(domain);
+            int index = indexOf(rules, saved.getRuleId());
+            if (index >= 0) {
+                List<Rule> remaining = new ArrayList<>(rules);
+                List<CompiledRule> remainingCompiled = new ArrayList<>(Arrays.asList(current.compiledByDomain.get(domain)));
+                remaining.remove(index);
+                remainingCompiled.remove(index);
+                put(byDomain, compiled, domain, remaining, remainingCompiled);
+            }
+        }
+        List<Rule> domainRules = new ArrayList<>(byDomain.getOrDefault(saved.getDomain(), List.of()));
+        List<CompiledRule> domainCompiled = new ArrayList<>(Arrays.asList(compiled.getOrDefault(saved.getDomain(), new CompiledRule[0])));
+        int insertion = Collections.binarySearch(domainRules, saved, ORDER);
+        insertion = insertion < 0 ? -insertion - 1 : insertion;
+        domainRules.add(insertion, saved);
+        domainCompiled.add(insertion, compiledRule);
+        put(byDomain, compiled, saved.getDomain(), domainRules, domainCompiled);
+        snapshot = new Snapshot(byDomain, compiled);
+        return saved;
+    }
+
     public List<Rule> getRules(String domain) {
-        return rulesByDomain.getOrDefault(domain, new ArrayList<>());
+        return snapshot.byDomain.getOrDefault(domain, List.of());
     }
-    
+
+    /**
+     * All rules, in the order they were first saved.
+     */
     public List<Rule> getAllRules() {
         List<Rule> allRules = new ArrayList<>();
-        for (List<Rule> domainRules : rulesByDomain.values()) {
-            allRules.addAll(domainRules);
+        snapshot.byDomain.values().forEach(allRules::addAll);
+        allRules.sort(ORDER);
+        return List.copyOf(allRules);
+    }
+
+    /**
+     * Runs the rules of a domain over the entities, in the order the rules were
+     * first saved. Actions change the entities in place, and later rules see the
+     * changes of earlier ones.
+     *
+     * @return one result per entity on which a rule fired or failed
+     */
+    public List<EvaluationResult> evaluate(String domain, List<DataEntity> entities) {
+        CompiledRule[] rules = snapshot.compiledByDomain.getOrDefault(domain, new CompiledRule[0]);
+        List<EvaluationResult> results = new ArrayList<>();
+        List<String> fired = new ArrayList<>();
+        List<String> flags = new ArrayList<>();
+        for (DataEntity entity : entities) {
+            for (CompiledRule rule : rules) {
+                try {
+                    if (rule.apply(entity, flags)) {
+                        fired.add(rule.getRuleId());
+                    }
+                } catch (RuntimeException e) {
+                    flags.add("Rule " + rule.getRuleId() + " failed: " + e.getMessage());
+                }
+            }
+            if (!fired.isEmpty() || !flags.isEmpty()) {
+                results.add(new EvaluationResult(entity.getEntityId(), List.copyOf(fired), List.copyOf(flags)));
+                fired.clear();
+                flags.clear();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Ids and errors of the stored rules that do not compile and never fire.
+     */
+    public Map<String, String> getInvalidRules() {
+        Map<String, String> invalid = new LinkedHashMap<>();
+        for (CompiledRule[] rules : snapshot.compiledByDomain.values()) {
+            for (CompiledRule rule : rules) {
+                if (rule.getError() != null) {
+                    invalid.put(rule.getRuleId(), rule.getError());
+                }
+            }
+        }
+        return invalid;
+    }
+
+    private CompiledRule compileStored(Rule rule) {
+        try {
+            return CompiledRule.compile(rule);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rule {} does not compile and is skipped: {}", rule.getRuleId(), e.getMessage());
+            return CompiledRule.invalid(rule, e.getMessage());
+        }
+    }
+
+    // Strictly increasing at the precision of the column, so rules saved in a row keep that order
+    private LocalDateTime nextCreatedAt() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        lastCreatedAt = now.isAfter(lastCreatedAt) ? now : lastCreatedAt.plus(1, ChronoUnit.MICROS);
+        return lastCreatedAt;
+    }
+
+    private static int indexOf(List<Rule> rules, String ruleId) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (Objects.equals(rules.get(i).getRuleId(), ruleId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Replaces the rules of one domain in the maps of the next snapshot, dropping the domain when it is empty
+    private static void put(Map<String, List<Rule>> byDomain, Map<String, CompiledRule[]> compiled,
+                            String domain, List<Rule> rules, List<CompiledRule> compiledRules) {
+        if (rules.isEmpty()) {
+            byDomain.remove(domain);
+            compiled.remove(domain);
+        } else {
+            byDomain.put(domain, List.copyOf(rules));
+            compiled.put(domain, compiledRules.toArray(new CompiledRule[0]));
+        }
+    }
+
+    @Data
+    public static class EvaluationResult {
+        private final String entityId;
+        private final List<String> firedRules;
+        private final List<String> flags;
+    }
+
+    // Rules and their compiled forms per domain, in the same order; unchanged domains are shared between snapshots
+    private static final class Snapshot {
+        private final Map<String, List<Rule>> byDomain;
+        private final Map<String, CompiledRule[]> compiledByDomain;
+
+        Snapshot(Map<String, List<Rule>> byDomain, Map<String, CompiledRule[]> compiledByDomain) {
+            this.byDomain = Map.copyOf(byDomain);
+            this.compiledByDomain = Map.copyOf(compiledByDomain);
         }
-        return allRules;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,231 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MergeRule;
+import com.mdm.mcp.repository.MergeRuleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the surviving attribute values of golden records. The survivorship
+ * rules of the active {@link MergeRule}s ({@code survivorshipRules} JSON) are
+ * compiled into one {@link SurvivorshipTable} per entity type, on top of the
+ * built-in {@link #DEFAULT_RULES}; entity types without rules use the defaults.
+ * When several rules of a type set the same attribute, the one with the lowest
+ * priority value wins.
+ *
+ * The compiled tables are replaced as a whole by {@link #reload()}, so merges in
+ * progress keep the tables they started with. A rule base reload compiles them
+ * with {@link #compileTables()} and {@link #publish publishes} them together
+ * with the new rule base, once that has passed validation.
+ */
+@Service
+@Slf4j
+public class SurvivorshipEngine {
+
+    public static final String DEFAULT_RULES = """
+        {
+          "email": "HIGHEST_CONFIDENCE",
+          "phoneNumber": "MOST_RECENT",
+          "address": "MOST_COMPLETE",
+          "fullName": "MOST_COMPLETE",
+          "ssn": "HIGHEST_CONFIDENCE",
+          "companyName": "MOST_RECENT",
+          "relationships": "MERGE_ALL",
+          "*": {"strategy": "HIGHEST_CONFIDENCE", "tiebreak": "MOST_RECENT"}
+        }""";
+
+    private static final String DEFAULT_TABLE = "DEFAULT";
+
+    // Optional, so the engine also runs without JPA (e.g. in the benchmarks)
+    @Autowired
+    private ObjectProvider<MergeRuleRepository> mergeRuleRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, JsonNode> defaultSpecification = parse(DEFAULT_TABLE, DEFAULT_RULES);
+    private final SurvivorshipTable defaultTable = SurvivorshipTable.compile(DEFAULT_TABLE, defaultSpecification);
+
+    private volatile Map<String, SurvivorshipTable> tables = Map.of();
+
+    private final AtomicLong compilations = new AtomicLong();
+    // Sequence of the published tables, guarded by this
+    private long publishedSequence;
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Could not load survivorship rules, using the defaults: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompiles the tables from the active merge rules and publishes them.
+     * Rules that fail to compile are skipped and logged.
+     */
+    public void reload() {
+        publish(compileTables());
+    }
+
+    /**
+     * Compiles the tables from the active merge rules without publishing them.
+     * Rules that fail to compile are skipped and logged.
+     */
+    public Tables compileTables() {
+        // Taken before reading, so tables compiled from newer rules get a higher sequence
+        long sequence = compilations.incrementAndGet();
+        MergeRuleRepository repository = mergeRuleRepository.getIfAvailable();
+        if (repository == null) {
+            return new Tables(sequence, Map.of());
+        }
+        Map<String, Map<String, JsonNode>> specifications = new HashMap<>();
+        for (MergeRule rule : repository.findByIsActiveTrueOrderByPriorityAsc()) {
+            if (rule.getSurvivorshipRules() == null || rule.getSurvivorshipRules().isBlank()) {
+                continue;
+            }
+            try {
+                Map<String, JsonNode> ruleSpecification = parse(rule.getRuleName(), rule.getSurvivorshipRules());
+                compile(rule.getEntityType(), ruleSpecification);
+                Map<String, JsonNode> specification = specifications.computeIfAbsent(rule.getEntityType(), type -> new HashMap<>());
+                ruleSpecification.forEach(specification::putIfAbsent);
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping survivorship rules of merge rule {}: {}", rule.getRuleName(), e.getMessage());
+            }
+        }
+
+        Map<String, SurvivorshipTable> compiled = new HashMap<>();
+        specifications.forEach((entityType, specification) -> compiled.put(entityType, compile(entityType, specification)));
+        return new Tables(sequence, compiled);
+    }
+
+    /**
+     * Makes the tables current, unless tables compiled later have already been
+     * published (e.g. by {@link #save} while a rule base reload was validating).
+     */
+    public synchronized void publish(Tables compiled) {
+        if (compiled.sequence < publishedSequence) {
+            log.info("Survivorship rules {} superseded by {}, not published", compiled.sequence, publishedSequence);
+            return;
+        }
+        publishedSequence = compiled.sequence;
+        tables = compiled.byEntityType;
+        if (mergeRuleRepository.getIfAvailable() != null) {
+            log.info("Compiled survivorship rules for entity types {}", tables.keySet());
+        }
+    }
+
+    /**
+     * Validates and stores the survivorship rules of a merge rule (replacing the
+     * stored rule with the same name) and recompiles the tables.
+     *
+     * @throws IllegalArgumentException if the rule or its survivorship rules are invalid
+     */
+    public MergeRule save(MergeRule rule) {
+        if (rule.getRuleName() == null || rule.getEntityType() == null || rule.getSurvivorshipRules() == null) {
+            throw new IllegalArgumentException("ruleName, entityType and survivorshipRules are required");
+        }
+        compile(rule.getEntityType(), rule.getSurvivorshipRules());
+
+        MergeRuleRepository repository = mergeRuleRepository.getObject();
+        MergeRule stored = repository.findByRuleName(rule.getRuleName()).orElseGet(MergeRule::new);
+        stored.setRuleName(rule.getRuleName());
+        stored.setRuleType(rule.getRuleType() != null ? rule.getRuleType() : "SURVIVORSHIP");
+        stored.setEntityType(rule.getEntityType());
+        stored.setPriority(rule.getPriority() != null ? rule.getPriority() : 0);
+        stored.setIsActive(rule.getIsActive() == null || rule.getIsActive());
+        stored.setSurvivorshipRules(rule.getSurvivorshipRules());
+        MergeRule saved = repository.save(stored);
+        reload();
+        return saved;
+    }
+
+    /**
+     * Compiles survivorship rules of an entity type on top of the defaults,
+     * e.g. to validate them before they are stored.
+     *
+     * @throws IllegalArgumentException if the rules are invalid
+     */
+    public SurvivorshipTable compile(String entityType, String survivorshipRules) {
+        return compile(entityType, parse(entityType, survivorshipRules));
+    }
+
+    /**
+     * Applies the survivorship table of the golden record's entity type.
+     *
+     * @return the survivorship decisions, see {@link SurvivorshipTable#apply}
+     */
+    public Map<String, String> apply(List<DataEntity> members, DataEntity golden) {
+        return tableFor(golden.getEntityType()).apply(members, golden);
+    }
+
+    public SurvivorshipTable tableFor(String entityType) {
+        SurvivorshipTable table = entityType == null ? null : tables.get(entityType);
+        return table != null ? table : defaultTable;
+    }
+
+    /**
+     * The strategies per entity type, with the defaults under {@code DEFAULT}.
+     */
+    public Map<String, Map<String, String>> describe() {
+        Map<String, Map<String, String>> description = new LinkedHashMap<>();
+        description.put(DEFAULT_TABLE, defaultTable.describe());
+        tables.forEach((entityType, table) -> description.put(entityType, table.describe()));
+        return description;
+    }
+
+    /**
+     * Survivorship tables per entity type, compiled but not necessarily current.
+     */
+    public static final class Tables {
+        private final long sequence;
+        private final Map<String, SurvivorshipTable> byEntityType;
+
+        Tables(long sequence, Map<String, SurvivorshipTable> byEntityType) {
+            this.sequence = sequence;
+            this.byEntityType = Map.copyOf(byEntityType);
+        }
+
+        public Collection<SurvivorshipTable> all() {
+            return byEntityType.values();
+        }
+    }
+
+    private SurvivorshipTable compile(String entityType, Map<String, JsonNode> specification) {
+        Map<String, JsonNode> merged = new LinkedHashMap<>(defaultSpecification);
+        merged.putAll(specification);
+        return SurvivorshipTable.compile(entityType, merged);
+    }
+
+    private Map<String, JsonNode> parse(String source, String json) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Survivorship rules of " + source + " are not valid JSON: " + e.getOriginalMessage());
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Survivorship rules of " + source + " must be a JSON object");
+        }
+        Map<String, JsonNode> specification = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = root.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            specification.put(field.getKey(), field.getValue());
+        }
+        return specification;
+    }
+}
@@ -0,0 +1,54 @@
+package com.mdm.mcp.service;
+
+/**
+ * How the surviving value of an attribute is chosen among the members of a
+ * cluster. Ties are broken on the lowest entityId, so the outcome does not
+ * depend on the order of the members, except with {@link #FIRST_VALUE} and
+ * {@link #LAST_VALUE}.
+ */
+public enum SurvivorshipStrategy {
+
+    /** Value of the member with the highest confidence score. */
+    HIGHEST_CONFIDENCE(true),
+
+    /** Value of the most recently updated member. */
+    MOST_RECENT(true),
+
+    /** Value of the member created first. */
+    OLDEST(true),
+
+    /** The value with the most tokens, then the longest one. */
+    MOST_COMPLETE(false),
+
+    /** Value of the member whose source system comes first in the {@code sources} list. */
+    SOURCE_PRIORITY(true),
+
+    /** Value of the first member, in cluster order, that has one. */
+    FIRST_VALUE(true),
+
+    /** Value of the last member, in cluster order, that has one. */
+    LAST_VALUE(true),
+
+    /** The value most members agree on; ties go to the value of the lowest entityId. */
+    MOST_FREQUENT(false),
+
+    /**
+     * All distinct values in the entityId order of their holders, joined by
+     * {@code separator} (relationships: the union of all maps, the lowest
+     * entityId winning on conflicting keys).
+     */
+    MERGE_ALL(true);
+
+    private final boolean applicableToRelationships;
+
+    SurvivorshipStrategy(boolean applicableToRelationships) {
+        this.applicableToRelationships = applicableToRelationships;
+    }
+
+    /**
+     * Whether the strategy can choose relationships, which have no single value to compare.
+     */
+    public boolean isApplicableToRelationships() {
+        return applicableToRelationships;
+    }
+}
@@ -0,0 +1,402 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mdm.mcp.model.DataEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Survivorship configuration of one entity type, compiled into a strategy per
+ * attribute. Each strategy is resolved once, when the table is compiled, to a
+ * {@link Preference} lambda or an aggregating slot; applying the table is a
+ * single pass over the attributes of the cluster members, without strategy
+ * lookups by name.
+ *
+ * The specification maps attribute names to a strategy, either as a name
+ * ({@code "email": "HIGHEST_CONFIDENCE"}) or as an object with parameters
+ * ({@code "companyName": {"strategy": "SOURCE_PRIORITY", "sources": ["ERP", "CRM"]}}).
+ * Strategies that rank members take an optional {@code "tiebreak"} strategy
+ * that ranks the members they consider equal, before the lowest entityId does
+ * ({@code {"strategy": "HIGHEST_CONFIDENCE", "tiebreak": "MOST_RECENT"}}).
+ * The key {@value #DEFAULT_KEY} sets the strategy of all other attributes and
+ * {@value #RELATIONSHIPS_KEY} the one of the relationships.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class SurvivorshipTable {
+
+    public static final String DEFAULT_KEY = "*";
+    public static final String RELATIONSHIPS_KEY = "relationships";
+
+    static final String DEFAULT_SEPARATOR = "; ";
+
+    /**
+     * Whether {@code candidate} (with {@code candidateValue}) replaces the current
+     * winner. Values are {@code null} when relationships are chosen.
+     */
+    @FunctionalInterface
+    interface Preference {
+        boolean prefer(DataEntity candidate, String candidateValue, DataEntity current, String currentValue);
+    }
+
+    @FunctionalInterface
+    private interface Ranking {
+        int compare(DataEntity entity1, String value1, DataEntity entity2, String value2);
+    }
+
+    private final String entityType;
+    private final Map<String, Integer> slotIndexes;
+    private final Slot[] slots;
+    private final Slot defaultSlot;
+    private final Slot relationshipSlot;
+
+    private SurvivorshipTable(String entityType, Map<String, Integer> slotIndexes, Slot[] slots,
+                              Slot defaultSlot, Slot relationshipSlot) {
+        this.entityType = entityType;
+        this.slotIndexes = slotIndexes;
+        this.slots = slots;
+        this.defaultSlot = defaultSlot;
+        this.relationshipSlot = relationshipSlot;
+    }
+
+    /**
+     * @param specification strategy per attribute; must contain {@value #DEFAULT_KEY}
+     *                      and {@value #RELATIONSHIPS_KEY}
+     * @throws IllegalArgumentException if a strategy is unknown or misses a parameter
+     */
+    public static SurvivorshipTable compile(String entityType, Map<String, JsonNode> specification) {
+        Map<String, Integer> slotIndexes = new HashMap<>();
+        List<Slot> slots = new ArrayList<>();
+        Slot defaultSlot = null;
+        Slot relationshipSlot = null;
+        for (Map.Entry<String, JsonNode> entry : specification.entrySet()) {
+            Slot slot = Slot.compile(entry.getKey(), entry.getValue());
+            switch (entry.getKey()) {
+                case DEFAULT_KEY -> defaultSlot = slot;
+                case RELATIONSHIPS_KEY -> {
+                    if (!slot.strategy.isApplicableToRelationships()
+                            || (slot.tiebreak != null && !slot.tiebreak.isApplicableToRelationships())) {
+                        throw new IllegalArgumentException(slot.strategy + " cannot be applied to relationships");
+                    }
+                    relationshipSlot = slot;
+                }
+                default -> {
+                    slotIndexes.put(entry.getKey(), slots.size());
+                    slots.add(slot);
+                }
+            }
+        }
+        if (defaultSlot == null || relationshipSlot == null) {
+            throw new IllegalArgumentException("Survivorship of " + entityType + " needs a \"" + DEFAULT_KEY
+                + "\" and a \"" + RELATIONSHIPS_KEY + "\" strategy");
+        }
+        return new SurvivorshipTable(entityType, Map.copyOf(slotIndexes), slots.toArray(new Slot[0]),
+            defaultSlot, relationshipSlot);
+    }
+
+    /**
+     * Sets the surviving attributes and relationships of {@code members} on
+     * {@code golden}.
+     *
+     * @return the decisions for the configured attributes and the relationships,
+     *         as {@code attribute -> "<sourceEntityId>:<strategy>"}
+     */
+    public Map<String, String> apply(List<DataEntity> members, DataEntity golden) {
+        State[] states = new State[slots.length];
+        Map<String, State> otherStates = new LinkedHashMap<>();
+        State relationships = new State();
+
+        for (DataEntity member : members) {
+            if (member.getAttributes() != null) {
+                for (Map.Entry<String, String> attribute : member.getAttributes().entrySet()) {
+                    String value = attribute.getValue();
+                    if (value == null) {
+                        continue;
+                    }
+                    Integer index = slotIndexes.get(attribute.getKey());
+                    if (index != null) {
+                        State state = states[index];
+                        if (state == null) {
+                            state = states[index] = new State();
+                        }
+                        slots[index].offer(state, member, value);
+                    } else {
+                        defaultSlot.offer(otherStates.computeIfAbsent(attribute.getKey(), key -> new State()), member, value);
+                    }
+                }
+            }
+            if (member.getRelationships() != null && !member.getRelationships().isEmpty()) {
+                if (relationshipSlot.preference == null) {
+                    relationships.holders.add(member);
+                } else if (relationships.winner == null
+                        || relationshipSlot.preference.prefer(member, null, relationships.winner, null)) {
+                    relationships.winner = member;
+                }
+            }
+        }
+
+        Map<String, String> decisions = new HashMap<>();
+        for (Map.Entry<String, State> other : otherStates.entrySet()) {
+            golden.getAttributes().put(other.getKey(), defaultSlot.value(other.getValue()));
+        }
+        for (int i = 0; i < slots.length; i++) {
+            if (states[i] != null) {
+                golden.getAttributes().put(slots[i].attribute, slots[i].value(states[i]));
+                decisions.put(slots[i].attribute, slots[i].source(states[i]) + ":" + slots[i].strategy);
+            }
+        }
+        if (relationshipSlot.preference == null) {
+            // On conflicting keys, the member with the lowest entityId wins
+            relationships.holders.sort(BY_ID.reversed());
+            relationships.holders.forEach(holder -> golden.getRelationships().putAll(holder.getRelationships()));
+            decisions.put(RELATIONSHIPS_KEY, "ALL:" + relationshipSlot.strategy);
+        } else if (relationships.winner != null) {
+            golden.getRelationships().putAll(relationships.winner.getRelationships());
+            decisions.put(RELATIONSHIPS_KEY, relationships.winner.getEntityId() + ":" + relationshipSlot.strategy);
+        }
+        return decisions;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * The strategy per configured attribute, including {@value #DEFAULT_KEY} and
+     * {@value #RELATIONSHIPS_KEY}.
+     */
+    public Map<String, String> describe() {
+        Map<String, String> description = new LinkedHashMap<>();
+        for (Slot slot : slots) {
+            description.put(slot.attribute, slot.describe());
+        }
+        description.put(DEFAULT_KEY, defaultSlot.describe());
+        description.put(RELATIONSHIPS_KEY, relationshipSlot.describe());
+        return description;
+    }
+
+    // Per-attribute progress while a cluster is applied
+    private static final class State {
+        DataEntity winner;
+        String value;
+        Map<String, Tally> tallies;
+        final List<DataEntity> holders = new ArrayList<>();
+    }
+
+    private static final class Tally {
+        // The member with the lowest entityId holding the value
+        DataEntity source;
+        int count;
+
+        Tally(DataEntity source) {
+            this.source = source;
+        }
+    }
+
+    private static final class Slot {
+        final String attribute;
+        final SurvivorshipStrategy strategy;
+        final SurvivorshipStrategy tiebreak;
+        final String parameters;
+        // null for the aggregating strategies (MOST_FREQUENT, MERGE_ALL)
+        final Preference preference;
+        final String separator;
+
+        private Slot(String attribute, SurvivorshipStrategy strategy, SurvivorshipStrategy tiebreak, String parameters,
+                     Preference preference, String separator) {
+            this.attribute = attribute;
+            this.strategy = strategy;
+            this.tiebreak = tiebreak;
+            this.parameters = parameters;
+            this.preference = preference;
+            this.separator = separator;
+        }
+
+        static Slot compile(String attribute, JsonNode specification) {
+            SurvivorshipStrategy strategy = strategy(attribute, specification.isObject() ? specification.get("strategy") : specification);
+            Ranking ranking = ranking(attribute, strategy, specification);
+            SurvivorshipStrategy tiebreak = null;
+            if (specification.has("tiebreak")) {
+                tiebreak = strategy(attribute, specification.get("tiebreak"));
+                Ranking tiebreakRanking = ranking(attribute, tiebreak, specification);
+                if (ranking == null || tiebreakRanking == null) {
+                    throw new IllegalArgumentException("Ties of " + strategy + " for " + attribute + " cannot be broken by " + tiebreak);
+                }
+                Ranking first = ranking;
+                ranking = (e1, v1, e2, v2) -> {
+                    int comparison = first.compare(e1, v1, e2, v2);
+                    return comparison != 0 ? comparison : tiebreakRanking.compare(e1, v1, e2, v2);
+                };
+            }
+            String parameters = specification.isObject() && specification.size() > 1 ? specification.toString() : null;
+            String separator = specification.path("separator").asText(DEFAULT_SEPARATOR);
+            Preference preference = switch (strategy) {
+                case FIRST_VALUE -> (candidate, candidateValue, current, currentValue) -> false;
+                case LAST_VALUE -> (candidate, candidateValue, current, currentValue) -> true;
+                case MOST_FREQUENT, MERGE_ALL -> null;
+                default -> best(ranking);
+            };
+            return new Slot(attribute, strategy, tiebreak, parameters, preference, separator);
+        }
+
+        private static SurvivorshipStrategy strategy(String attribute, JsonNode name) {
+            if (name == null || !name.isTextual()) {
+                throw new IllegalArgumentException("No survivorship strategy given for " + attribute);
+            }
+            try {
+                return SurvivorshipStrategy.valueOf(name.asText());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown survivorship strategy " + name.asText() + " for " + attribute);
+            }
+        }
+
+        // null for the strategies that do not rank members
+        private static Ranking ranking(String attribute, SurvivorshipStrategy strategy, JsonNode specification) {
+            return switch (strategy) {
+                case HIGHEST_CONFIDENCE -> (e1, v1, e2, v2) -> compareNullsLow(e1.getConfidenceScore(), e2.getConfidenceScore());
+                case MOST_RECENT -> (e1, v1, e2, v2) -> compareNullsLow(e1.getUpdatedAt(), e2.getUpdatedAt());
+                case OLDEST -> (e1, v1, e2, v2) -> compareEarliest(e1.getCreatedAt(), e2.getCreatedAt());
+                case MOST_COMPLETE -> SurvivorshipTable::compareCompleteness;
+                case SOURCE_PRIORITY -> sourcePriority(attribute, specification.get("sources"));
+                case FIRST_VALUE, LAST_VALUE, MOST_FREQUENT, MERGE_ALL -> null;
+            };
+        }
+
+        void offer(State state, DataEntity member, String value) {
+            if (preference != null) {
+                if (state.winner == null || preference.prefer(member, value, state.winner, state.value)) {
+                    state.winner = member;
+                    state.value = value;
+                }
+                return;
+            }
+            if (state.tallies == null) {
+                state.tallies = new HashMap<>();
+            }
+            Tally tally = state.tallies.computeIfAbsent(value, v -> new Tally(member));
+            if (BY_ID.compare(member, tally.source) < 0) {
+                tally.source = member;
+            }
+            tally.count++;
+        }
+
+        String value(State state) {
+            if (preference != null) {
+                return state.value;
+            }
+            if (strategy == SurvivorshipStrategy.MERGE_ALL) {
+                List<Map.Entry<String, Tally>> tallies = new ArrayList<>(state.tallies.entrySet());
+                tallies.sort(BY_SOURCE);
+                List<String> values = new ArrayList<>(tallies.size());
+                tallies.forEach(tally -> values.add(tally.getKey()));
+                return String.join(separator, values);
+            }
+            return mostFrequent(state).getKey();
+        }
+
+        String source(State state) {
+            if (preference != null) {
+                return state.winner.getEntityId();
+            }
+            if (strategy == SurvivorshipStrategy.MERGE_ALL) {
+                return state.tallies.size() == 1 ? state.tallies.values().iterator().next().source.getEntityId() : "ALL";
+            }
+            return mostFrequent(state).getValue().source.getEntityId();
+        }
+
+        String describe() {
+            return parameters == null ? strategy.name() : parameters;
+        }
+
+        private static Map.Entry<String, Tally> mostFrequent(State state) {
+            Map.Entry<String, Tally> best = null;
+            for (Map.Entry<String, Tally> tally : state.tallies.entrySet()) {
+                if (best == null || tally.getValue().count > best.getValue().count
+                        || (tally.getValue().count == best.getValue().count && BY_SOURCE.compare(tally, best) < 0)) {
+                    best = tally;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static Ranking sourcePriority(String attribute, JsonNode sources) {
+        if (sources == null || !sources.isArray() || sources.isEmpty()) {
+            throw new IllegalArgumentException("SOURCE_PRIORITY for " + attribute + " needs a \"sources\" list");
+        }
+        Map<String, Integer> ranks = new HashMap<>();
+        for (JsonNode source : sources) {
+            ranks.putIfAbsent(source.asText(), ranks.size());
+        }
+        Map<String, Integer> ranking = Map.copyOf(ranks);
+        // Lower rank is better; unlisted and missing source systems rank last
+        return (e1, v1, e2, v2) -> Integer.compare(
+            rank(ranking, e2.getSourceSystem()), rank(ranking, e1.getSourceSystem()));
+    }
+
+    private static int rank(Map<String, Integer> ranking, String sourceSystem) {
+        return sourceSystem == null ? Integer.MAX_VALUE : ranking.getOrDefault(sourceSystem, Integer.MAX_VALUE);
+    }
+
+    // The candidate wins if it ranks higher, or ranks the same and has the lower entityId
+    private static Preference best(Ranking ranking) {
+        return (candidate, candidateValue, current, currentValue) -> {
+            int comparison = ranking.compare(candidate, candidateValue, current, currentValue);
+            return comparison > 0 || (comparison == 0 && LOWER_ID.compare(candidate.getEntityId(), current.getEntityId()) < 0);
+        };
+    }
+
+    private static final Comparator<String> LOWER_ID = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private static final Comparator<DataEntity> BY_ID = Comparator.comparing(DataEntity::getEntityId, LOWER_ID);
+
+    // Values held by lower entityIds first, then by value
+    private static final Comparator<Map.Entry<String, Tally>> BY_SOURCE = Comparator
+        .comparing((Map.Entry<String, Tally> tally) -> tally.getValue().source, BY_ID)
+        .thenComparing(Map.Entry::getKey);
+
+    // Missing values rank lowest
+    private static <T extends Comparable<T>> int compareNullsLow(T value1, T value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        }
+        return value1.compareTo(value2);
+    }
+
+    // The earlier timestamp ranks higher; missing timestamps still rank lowest
+    private static int compareEarliest(LocalDateTime time1, LocalDateTime time2) {
+        if (time1 == null || time2 == null) {
+            return compareNullsLow(time1, time2);
+        }
+        return time2.compareTo(time1);
+    }
+
+    private static int compareCompleteness(DataEntity entity1, String value1, DataEntity entity2, String value2) {
+        int tokens = Integer.compare(tokenCount(value1), tokenCount(value2));
+        return tokens != 0 ? tokens : Integer.compare(value1.trim().length(), value2.trim().length());
+    }
+
+    private static int tokenCount(String value) {
+        int tokens = 0;
+        boolean inToken = false;
+        for (int i = 0; i < value.length(); i++) {
+            boolean whitespace = Character.isWhitespace(value.charAt(i));
+            if (!whitespace && !inToken) {
+                tokens++;
+            }
+            inToken = !whitespace;
+        }
+        return tokens;
+    }
+
+    @Override
+    public String toString() {
+        return "SurvivorshipTable[" + entityType + "=" + describe() + "]";
+    }
+}
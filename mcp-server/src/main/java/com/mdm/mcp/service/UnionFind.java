@@ -0,0 +1,102 @@
+package com.mdm.mcp.service;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint-set forest over dense {@code int} element ids, with path halving and
+ * union by rank. Only two primitive arrays are allocated, so tens of millions of
+ * edges can be folded in without building an object graph.
+ */
+public final class UnionFind {
+
+    private final int[] parent;
+    private final byte[] rank;
+    private int components;
+
+    public UnionFind(int size) {
+        parent = new int[size];
+        rank = new byte[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        components = size;
+    }
+
+    public int find(int element) {
+        int x = element;
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * @return {@code true} if the two elements were in different sets
+     */
+    public boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            rank[rootA]++;
+        }
+        components--;
+        return true;
+    }
+
+    public int size() {
+        return parent.length;
+    }
+
+    public int components() {
+        return components;
+    }
+
+    /**
+     * Returns the sets with at least {@code minSize} elements. Sets are ordered by
+     * their smallest element and their elements are sorted ascending, so the
+     * result only depends on the unions performed, not on their order.
+     */
+    public int[][] groups(int minSize) {
+        int n = parent.length;
+        // parent[i] is not necessarily the root after path halving, so resolve every root once
+        int[] roots = new int[n];
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            roots[i] = find(i);
+            counts[roots[i]]++;
+        }
+
+        // Counting sort of the elements by root; groups are numbered by first member
+        int[] groupOfRoot = new int[n];
+        Arrays.fill(groupOfRoot, -1);
+        int groupCount = 0;
+        for (int i = 0; i < n; i++) {
+            int root = roots[i];
+            if (counts[root] >= minSize && groupOfRoot[root] < 0) {
+                groupOfRoot[root] = groupCount++;
+            }
+        }
+
+        int[][] groups = new int[groupCount][];
+        int[] filled = new int[groupCount];
+        for (int i = 0; i < n; i++) {
+            int group = groupOfRoot[roots[i]];
+            if (group >= 0) {
+                if (groups[group] == null) {
+                    groups[group] = new int[counts[roots[i]]];
+                }
+                groups[group][filled[group]++] = i;
+            }
+        }
+        return groups;
+    }
+}
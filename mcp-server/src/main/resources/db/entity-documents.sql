@@ -0,0 +1,27 @@
+-- Entities with their attributes and relationships as JSONB documents
+-- (mdm.persistence.attribute-store=JSONB). Replaces the per-attribute rows of
+-- entity_attributes / entity_relationships with one row per entity.
+CREATE TABLE IF NOT EXISTS entity_documents (
+    id BIGSERIAL PRIMARY KEY,
+    entity_id VARCHAR(255) NOT NULL UNIQUE,
+    entity_type VARCHAR(255) NOT NULL,
+    source_system VARCHAR(255),
+    confidence_score DOUBLE PRECISION,
+    status VARCHAR(255),
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    attributes JSONB NOT NULL DEFAULT '{}'::jsonb,
+    relationships JSONB NOT NULL DEFAULT '{}'::jsonb
+);
+
+CREATE INDEX IF NOT EXISTS idx_entity_documents_type ON entity_documents (entity_type);
+
+-- Containment lookups on any attribute (attributes @> '{"name": "value"}')
+CREATE INDEX IF NOT EXISTS idx_entity_documents_attributes ON entity_documents USING GIN (attributes jsonb_path_ops);
+
+-- Match key lookups; must stay in sync with EntityDocumentRepository.INDEXED_ATTRIBUTES
+CREATE INDEX IF NOT EXISTS idx_entity_documents_email ON entity_documents (entity_type, (attributes ->> 'email'));
+CREATE INDEX IF NOT EXISTS idx_entity_documents_phone ON entity_documents (entity_type, (attributes ->> 'phoneNumber'));
+CREATE INDEX IF NOT EXISTS idx_entity_documents_ssn ON entity_documents (entity_type, (attributes ->> 'ssn'));
+CREATE INDEX IF NOT EXISTS idx_entity_documents_company ON entity_documents (entity_type, (attributes ->> 'companyName'));
+CREATE INDEX IF NOT EXISTS idx_entity_documents_full_name ON entity_documents (entity_type, (attributes ->> 'fullName'));
@@ -0,0 +1,12 @@
+-- Exact-match lookup table maintained by MatchKeyIndex: one row per standardized
+-- match key of an entity. key_hash is a 64-bit hash of the key type and the
+-- normalized value, so probes hit a fixed-width primary key.
+CREATE TABLE IF NOT EXISTS match_keys (
+    key_hash BIGINT NOT NULL,
+    entity_id VARCHAR(255) NOT NULL,
+    key_type VARCHAR(16) NOT NULL,
+    entity_type VARCHAR(255) NOT NULL,
+    PRIMARY KEY (key_hash, entity_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_match_keys_entity ON match_keys (entity_id);
@@ -0,0 +1,52 @@
+-- Asynchronous bulk merge jobs run by MergeJobService, with their checkpoints.
+CREATE TABLE IF NOT EXISTS merge_jobs (
+    job_id VARCHAR(64) PRIMARY KEY,
+    status VARCHAR(32) NOT NULL,
+    phase VARCHAR(32),
+    entity_type VARCHAR(255),
+    persist_output BOOLEAN NOT NULL,
+    total_entities INTEGER,
+    processed_entities INTEGER NOT NULL,
+    total_blocks INTEGER,
+    scored_blocks INTEGER NOT NULL,
+    candidates BIGINT NOT NULL,
+    merges BIGINT NOT NULL,
+    results_written BIGINT NOT NULL,
+    merged_through INTEGER,
+    error VARCHAR,
+    owner VARCHAR(255),
+    heartbeat_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_merge_jobs_status ON merge_jobs (status);
+
+-- Input entities as JSON; seq is an entity's position in the blocking index
+CREATE TABLE IF NOT EXISTS merge_job_entities (
+    job_id VARCHAR(64) NOT NULL,
+    seq INTEGER NOT NULL,
+    entity VARCHAR NOT NULL,
+    PRIMARY KEY (job_id, seq)
+);
+
+-- Match candidates found so far, referencing the input by seq
+CREATE TABLE IF NOT EXISTS merge_job_candidates (
+    job_id VARCHAR(64) NOT NULL,
+    seq BIGINT NOT NULL,
+    entity1_seq INTEGER NOT NULL,
+    entity2_seq INTEGER NOT NULL,
+    confidence_score DOUBLE PRECISION,
+    match_reason VARCHAR,
+    rule_name VARCHAR(255),
+    PRIMARY KEY (job_id, seq)
+);
+
+-- Merge results as JSON, readable while the job is still running
+CREATE TABLE IF NOT EXISTS merge_job_results (
+    job_id VARCHAR(64) NOT NULL,
+    seq BIGINT NOT NULL,
+    result VARCHAR NOT NULL,
+    PRIMARY KEY (job_id, seq)
+);
@@ -0,0 +1,25 @@
+-- Merge output written by MergeOutputWriter. List and map columns hold JSON text.
+CREATE TABLE IF NOT EXISTS merge_results (
+    merge_id VARCHAR(64) PRIMARY KEY,
+    status VARCHAR(32) NOT NULL,
+    message VARCHAR,
+    applied_rule_name VARCHAR(255),
+    confidence_score DOUBLE PRECISION,
+    merged_entity_id VARCHAR(255),
+    source_entity_ids VARCHAR,
+    duplicate_entity_ids VARCHAR,
+    survivorship_decisions VARCHAR,
+    rule_execution_details VARCHAR,
+    relationship_changes VARCHAR,
+    created_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_merge_results_merged_entity ON merge_results (merged_entity_id);
+CREATE INDEX IF NOT EXISTS idx_merge_results_status ON merge_results (status);
+
+-- Source entity -> golden record it was merged into, for resolving source ids
+CREATE TABLE IF NOT EXISTS golden_record_links (
+    source_entity_id VARCHAR(255) PRIMARY KEY,
+    golden_entity_id VARCHAR(255) NOT NULL,
+    merge_id VARCHAR(64) NOT NULL
+);
@@ -0,0 +1,81 @@
+package com.mdm.mcp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DataEntityTest {
+
+    @Test
+    void matchKeysAreDerivedWhenTheEntityWasNotStandardized() {
+        DataEntity entity = entity(Map.of("email", " Ann@Example.COM ", "firstName", "Ann", "lastName", "Lee"));
+
+        assertEquals("ann@example.com", entity.getMatchKeys().getEmail());
+        assertEquals("ann lee", entity.getMatchKeys().getName());
+        assertSame(entity.getMatchKeys(), entity.getMatchKeys());
+    }
+
+    @Test
+    void changingAnAttributeInPlaceClearsTheMatchKeys() {
+        DataEntity entity = entity(Map.of("email", "ann@example.com"));
+        entity.setMatchKeys(MatchKeys.from(entity.getAttributes()));
+
+        entity.getAttributes().put("email", "bob@example.com");
+        assertEquals("bob@example.com", entity.getMatchKeys().getEmail());
+
+        entity.getAttributes().remove("email");
+        assertNull(entity.getMatchKeys().getEmail());
+
+        entity.getAttributes().putIfAbsent("email", "cid@example.com");
+        assertEquals("cid@example.com", entity.getMatchKeys().getEmail());
+
+        entity.getAttributes().replaceAll((name, value) -> value.toUpperCase());
+        assertEquals("cid@example.com", entity.getMatchKeys().getEmail());
+        assertEquals("CID@EXAMPLE.COM", entity.getAttributes().get("email"));
+
+        entity.getAttributes().clear();
+        assertNull(entity.getMatchKeys().getEmail());
+    }
+
+    @Test
+    void replacingTheAttributesClearsTheMatchKeys() {
+        DataEntity entity = entity(Map.of("email", "ann@example.com"));
+        assertEquals("ann@example.com", entity.getMatchKeys().getEmail());
+
+        entity.setAttributes(new HashMap<>(Map.of("email", "bob@example.com")));
+        assertEquals("bob@example.com", entity.getMatchKeys().getEmail());
+
+        // Setting an entity's own attributes back keeps the underlying map
+        DataEntity copy = entity(Map.of());
+        copy.setAttributes(entity.getAttributes());
+        copy.getAttributes().put("phone", "1");
+        assertEquals("1", entity.getAttributes().get("phone"));
+    }
+
+    @Test
+    void attributeViewsAreReadOnly() {
+        DataEntity entity = entity(Map.of("email", "ann@example.com"));
+        Map<String, String> attributes = entity.getAttributes();
+
+        assertThrows(UnsupportedOperationException.class, () -> attributes.keySet().remove("email"));
+        assertThrows(UnsupportedOperationException.class, () -> attributes.values().clear());
+        assertThrows(UnsupportedOperationException.class, () -> attributes.entrySet().iterator().next().setValue("x"));
+        assertEquals(Map.of("email", "ann@example.com"), attributes);
+        assertEquals(entity(Map.of("email", "ann@example.com")), entity);
+    }
+
+    private static DataEntity entity(Map<String, String> attributes) {
+        DataEntity entity = new DataEntity();
+        entity.setEntityId("E1");
+        entity.setEntityType("PERSON");
+        entity.setAttributes(new HashMap<>(attributes));
+        entity.setRelationships(new HashMap<>());
+        return entity;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockMatcherTest {
+
+    @Test
+    void parallelMatchingGivesTheSequentialResult() {
+        BlockMatcher sequential = blockMatcher(BlockMatcher.Mode.SEQUENTIAL);
+        BlockMatcher parallel = blockMatcher(BlockMatcher.Mode.PARALLEL);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try {
+            Random random = new Random(42);
+            for (int run = 0; run < 50; run++) {
+                BlockingIndex index = BlockingIndex.build(entities(random, 50 + random.nextInt(250)), 1 + random.nextInt(40));
+
+                List<String> expected = pairs(sequential.match(index, () -> scorer(threads)));
+                threads.clear();
+                List<String> actual = pairs(parallel.match(index, () -> scorer(threads)));
+
+                assertEquals(expected, actual, "run " + run);
+                assertEquals(expected.size(), Set.copyOf(expected).size(), "pairs scored twice, run " + run);
+            }
+            // Scored on the pool rather than the calling thread
+            assertTrue(!threads.isEmpty() && threads.stream().allMatch(thread -> thread.startsWith("ForkJoinPool")), "threads " + threads);
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    // Emits every pair it is given, with the order within the pair kept
+    private static PairScorer scorer(Set<String> threads) {
+        return (entity1, entity2, out) -> {
+            threads.add(Thread.currentThread().getName());
+            out.add(MatchCandidate.builder().entity1(entity1).entity2(entity2).confidenceScore(1.0).ruleName("all").build());
+        };
+    }
+
+    private static List<String> pairs(List<MatchCandidate> candidates) {
+        List<String> pairs = new ArrayList<>();
+        candidates.forEach(candidate -> pairs.add(candidate.getEntity1().getEntityId() + "-" + candidate.getEntity2().getEntityId()));
+        return pairs;
+    }
+
+    // Entities drawing emails and names from small pools, so blocks of all sizes occur
+    static List<DataEntity> entities(Random random, int count) {
+        String[] firstNames = {"Ann", "Bob", "Cid", "Dora", "Eve", "Finn"};
+        String[] lastNames = {"Lee", "Kim", "Ortiz", "Novak", "Berg", "Sato", "Quinn", "Hale"};
+        List<DataEntity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("firstName", firstNames[random.nextInt(firstNames.length)]);
+            attributes.put("lastName", lastNames[random.nextInt(lastNames.length)]);
+            if (random.nextBoolean()) {
+                attributes.put("email", "user" + random.nextInt(count / 3 + 1) + "@example.com");
+            }
+            DataEntity entity = new DataEntity();
+            entity.setEntityId("E" + i);
+            entity.setEntityType(random.nextInt(4) == 0 ? "ORGANIZATION" : "PERSON");
+            entity.setAttributes(attributes);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static BlockMatcher blockMatcher(BlockMatcher.Mode mode) {
+        MergeMetrics mergeMetrics = new MergeMetrics();
+        set(mergeMetrics, "registry", new SimpleMeterRegistry());
+        mergeMetrics.init();
+
+        BlockMatcher blockMatcher = new BlockMatcher();
+        set(blockMatcher, "mergeMetrics", mergeMetrics);
+        set(blockMatcher, "mode", mode);
+        set(blockMatcher, "parallelism", 4);
+        set(blockMatcher, "splitThreshold", 1L);
+        blockMatcher.init();
+        return blockMatcher;
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
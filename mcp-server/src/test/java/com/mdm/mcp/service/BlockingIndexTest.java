@@ -0,0 +1,101 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockingIndexTest {
+
+    @Test
+    void pairsMatchBruteForceAndSkipOversizedBlocks() {
+        Random random = new Random(42);
+        int oversized = 0;
+        for (int run = 0; run < 200; run++) {
+            List<DataEntity> entities = BlockMatcherTest.entities(random, 2 + random.nextInt(120));
+            int maxBlockSize = 1 + random.nextInt(30);
+            BlockingIndex index = BlockingIndex.build(entities, maxBlockSize);
+
+            List<String> actual = new ArrayList<>();
+            index.forEachCandidatePair((left, right) -> {
+                assertTrue(left < right, left + "-" + right);
+                actual.add(left + "-" + right);
+            });
+
+            assertEquals(bruteForcePairs(entities, maxBlockSize), new TreeSet<>(actual), "run " + run);
+            assertEquals(actual.size(), new HashSet<>(actual).size(), "pairs emitted twice, run " + run);
+            for (int b = 0; b < index.blockCount(); b++) {
+                assertEquals(index.blockMembers(b).length > maxBlockSize, index.isOversized(b), index.blockKey(b));
+                if (index.isOversized(b)) {
+                    assertEquals(0, index.estimatedPairs(b), index.blockKey(b));
+                }
+            }
+            oversized += index.oversizedBlockCount();
+        }
+        assertTrue(oversized > 0);
+    }
+
+    @Test
+    void pairsSharingOnlyAnOversizedBlockAreSkipped() {
+        List<DataEntity> entities = List.of(
+            entity("E0", "info@acme.com", "Ann", "Lee"),
+            entity("E1", "info@acme.com", "Bob", "Kim"),
+            entity("E2", "info@acme.com", "Cid", "Lee"),
+            entity("E3", "ann@acme.com", "Ann", "Hale"));
+        BlockingIndex index = BlockingIndex.build(entities, 2);
+
+        List<String> pairs = new ArrayList<>();
+        index.forEachCandidatePair((left, right) -> pairs.add(left + "-" + right));
+
+        // info@ has three members; E0 and E2 still share "lee", E0 and E3 share "ann"
+        assertEquals(List.of("0-2", "0-3"), sorted(pairs));
+        assertEquals(1, index.oversizedBlockCount());
+    }
+
+    // Pairs sharing a blocking key held by at most maxBlockSize entities
+    private static Set<String> bruteForcePairs(List<DataEntity> entities, int maxBlockSize) {
+        List<Set<String>> keys = new ArrayList<>();
+        Map<String, Integer> blockSizes = new HashMap<>();
+        for (DataEntity entity : entities) {
+            List<String> entityKeys = new ArrayList<>();
+            BlockingIndex.blockingKeys(entity, entityKeys);
+            Set<String> distinct = new HashSet<>(entityKeys);
+            distinct.forEach(key -> blockSizes.merge(key, 1, Integer::sum));
+            keys.add(distinct);
+        }
+        Set<String> pairs = new TreeSet<>();
+        for (int i = 0; i < entities.size(); i++) {
+            for (int j = i + 1; j < entities.size(); j++) {
+                for (String key : keys.get(i)) {
+                    if (keys.get(j).contains(key) && blockSizes.get(key) <= maxBlockSize) {
+                        pairs.add(i + "-" + j);
+                        break;
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static List<String> sorted(List<String> pairs) {
+        return new ArrayList<>(new TreeSet<>(pairs));
+    }
+
+    private static DataEntity entity(String id, String email, String firstName, String lastName) {
+        DataEntity entity = new DataEntity();
+        entity.setEntityId(id);
+        entity.setEntityType("PERSON");
+        entity.setAttributes(new HashMap<>(Map.of("email", email, "firstName", firstName, "lastName", lastName)));
+        return entity;
+    }
+}
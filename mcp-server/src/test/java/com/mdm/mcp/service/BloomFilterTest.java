@@ -0,0 +1,82 @@
+package com.mdm.mcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void addedHashesAreNeverRuledOut() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            BloomFilter filter = new BloomFilter(1 + random.nextInt(2_000), 0.001 + random.nextDouble() * 0.2);
+            long[] hashes = random.longs(random.nextInt(4_000)).toArray();
+            for (long hash : hashes) {
+                filter.add(hash);
+            }
+            for (long hash : hashes) {
+                assertTrue(filter.mightContain(hash), "run " + run);
+            }
+            assertEquals(hashes.length, filter.getInsertions());
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtCapacity() {
+        SplittableRandom random = new SplittableRandom(42);
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add(random.nextLong());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        double rate = falsePositives / 100_000.0;
+        assertTrue(rate < 0.015, "false positive rate " + rate);
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.002);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(200_000, 0.01);
+        long[][] hashes = new long[4][];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < hashes.length; t++) {
+            hashes[t] = new SplittableRandom(t).longs(50_000).toArray();
+            long[] own = hashes[t];
+            threads.add(new Thread(() -> {
+                for (long hash : own) {
+                    filter.add(hash);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (long[] own : hashes) {
+            for (long hash : own) {
+                assertTrue(filter.mightContain(hash));
+            }
+        }
+        assertEquals(200_000, filter.getInsertions());
+    }
+
+    @Test
+    void falsePositiveRateMustBeAProbability() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,71 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.MatchCandidate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CandidatePairsTest {
+
+    @Test
+    void groupsAreConnectedComponentsOrderedByKey() {
+        Random random = new Random(42);
+        for (int run = 0; run < 5_000; run++) {
+            int entities = 2 + random.nextInt(60);
+            int edges = random.nextInt(entities);
+            CandidatePairs pairs = new CandidatePairs();
+            int[] label = new int[entities];
+            for (int i = 0; i < entities; i++) {
+                label[i] = i;
+            }
+            for (int e = 0; e < edges; e++) {
+                int a = random.nextInt(entities);
+                int b = random.nextInt(entities);
+                if (a == b) {
+                    continue;
+                }
+                pairs.add(a, b, MatchCandidate.builder().confidenceScore(0.9).ruleName("r").build());
+                int from = label[a];
+                for (int i = 0; i < entities; i++) {
+                    if (label[i] == from) {
+                        label[i] = label[b];
+                    }
+                }
+            }
+
+            // Expected: the labels of the entities in some pair, each with its candidates
+            TreeMap<Integer, TreeSet<Integer>> positions = new TreeMap<>();
+            TreeMap<Integer, List<Integer>> candidates = new TreeMap<>();
+            for (int c = 0; c < pairs.size(); c++) {
+                int component = label[pairs.position1(c)];
+                positions.computeIfAbsent(component, k -> new TreeSet<>()).add(pairs.position1(c));
+                positions.get(component).add(pairs.position2(c));
+                candidates.computeIfAbsent(component, k -> new ArrayList<>()).add(c);
+            }
+            List<int[]> expectedPositions = new ArrayList<>();
+            List<int[]> expectedCandidates = new ArrayList<>();
+            positions.entrySet().stream()
+                .sorted((x, y) -> Integer.compare(x.getValue().first(), y.getValue().first()))
+                .forEach(entry -> {
+                    expectedPositions.add(entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+                    expectedCandidates.add(candidates.get(entry.getKey()).stream().mapToInt(Integer::intValue).toArray());
+                });
+
+            List<CandidatePairs.Group> groups = pairs.groups();
+            assertEquals(expectedPositions.size(), groups.size(), "group count, run " + run);
+            for (int g = 0; g < groups.size(); g++) {
+                CandidatePairs.Group group = groups.get(g);
+                assertArrayEquals(expectedPositions.get(g), group.positions(), "group " + g + ", run " + run);
+                assertArrayEquals(expectedCandidates.get(g), group.candidates(), "candidates " + g + ", run " + run);
+                assertEquals(group.positions()[0], group.key(), "key " + g + ", run " + run);
+            }
+        }
+    }
+}
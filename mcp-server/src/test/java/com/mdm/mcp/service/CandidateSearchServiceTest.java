@@ -0,0 +1,202 @@
+package com.mdm.mcp.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CandidateSearchServiceTest {
+
+    // Set to an Elasticsearch URL to compare the ELASTICSEARCH backend as well
+    private static final String ELASTICSEARCH_URIS = "mdm.test.elasticsearch.uris";
+
+    private static AnnotationConfigApplicationContext blocking;
+    private static AnnotationConfigApplicationContext inMemory;
+
+    @BeforeAll
+    static void start() {
+        blocking = RuleEngineTestContext.start(Map.of("mdm.matching.search.backend", "NONE"));
+        inMemory = RuleEngineTestContext.start(Map.of(
+            "mdm.matching.search.backend", "IN_MEMORY",
+            "mdm.matching.search.batch-size", 7));
+    }
+
+    @AfterAll
+    static void stop() {
+        blocking.close();
+        inMemory.close();
+    }
+
+    @Test
+    void inMemorySearchFindsTheSameMatchesAsBlocking() {
+        assertTrue(inMemory.getBean(CandidateSearchService.class).isEnabled());
+        assertFalse(blocking.getBean(CandidateSearchService.class).isEnabled());
+
+        List<String> expected = candidateKeys(blocking.getBean(DroolsRuleEngineService.class).findMatchCandidates(fixture()));
+        List<String> searched = candidateKeys(inMemory.getBean(DroolsRuleEngineService.class).findMatchCandidates(fixture()));
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, searched);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = ELASTICSEARCH_URIS, matches = ".+")
+    void elasticsearchFindsTheSameMatchesAsInMemorySearch() {
+        String uris = System.getProperty(ELASTICSEARCH_URIS);
+        try (AnnotationConfigApplicationContext elasticsearch = RuleEngineTestContext.start(Map.of(
+                "mdm.matching.search.backend", "ELASTICSEARCH",
+                "mdm.matching.search.index-name", "mdm-entity-candidates-test",
+                "mdm.matching.search.batch-size", 7), context -> {
+            context.registerBean(ElasticsearchClient.class, () -> new ElasticsearchClient(
+                new RestClientTransport(RestClient.builder(HttpHost.create(uris)).build(), new JacksonJsonpMapper())));
+            context.register(ElasticsearchCandidateIndex.class);
+        })) {
+            List<String> expected = candidateKeys(inMemory.getBean(DroolsRuleEngineService.class).findMatchCandidates(fixture()));
+            List<String> searched = candidateKeys(elasticsearch.getBean(DroolsRuleEngineService.class).findMatchCandidates(fixture()));
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, searched);
+        }
+    }
+
+    @Test
+    void entitiesAreKeyedByPositionNotById() {
+        // Same id for several entities, or none at all: each is retrieved as its own entity
+        List<DataEntity> entities = List.of(
+            person(null, "Ann", "Lee", "ann@example.com", "+1 617 555 0001"),
+            person("dup", "Bob", "Ray", "bob@example.com", "+1 617 555 0002"),
+            person("dup", "Ann", "Lee", "ann@example.com", "+1 508 555 0003"),
+            person("dup", "Cid", "Orr", "cid@example.com", "+1 617 555 0002"),
+            person(null, "Kim", "Wu", "kim@example.com", "+1 617 555 0004"));
+
+        assertEquals(List.of("0-2", "1-3"), scoredPairs(entities));
+    }
+
+    @Test
+    void runsDoNotSeeEachOthersEntities() {
+        CandidateSearchService search = inMemory.getBean(CandidateSearchService.class);
+        List<DataEntity> first = List.of(
+            person("A1", "Ann", "Lee", "ann@example.com", "+1 617 555 0001"),
+            person("A2", "Ann", "Lee", "ann@example.com", "+1 617 555 0001"));
+        // B1 would match both entities of the first run
+        List<DataEntity> second = List.of(
+            person("B1", "Ann", "Lee", "ann@example.com", "+1 617 555 0001"),
+            person("B2", "Bob", "Ray", "bob@example.com", "+1 617 555 0001"));
+        MatchKeyStandardizer standardizer = inMemory.getBean(MatchKeyStandardizer.class);
+        standardizer.standardize(first);
+        standardizer.standardize(second);
+
+        List<String> firstPairs = new ArrayList<>();
+        List<String> secondPairs = new ArrayList<>();
+        search.match(first, () -> (entity1, entity2, out) -> {
+            // The second run starts and ends while the first one is still open
+            if (firstPairs.isEmpty()) {
+                search.match(second, () -> (other1, other2, otherOut) ->
+                    secondPairs.add(other1.getEntityId() + "-" + other2.getEntityId()));
+            }
+            firstPairs.add(entity1.getEntityId() + "-" + entity2.getEntityId());
+        });
+
+        assertEquals(List.of("A1-A2"), firstPairs);
+        assertEquals(List.of("B1-B2"), secondPairs);
+    }
+
+    @Test
+    void eachPairIsScoredOnceAcrossBatches() {
+        List<DataEntity> entities = fixture();
+        List<String> pairs = scoredPairs(entities);
+
+        assertEquals(new ArrayList<>(new TreeSet<>(pairs)), pairs);
+        assertFalse(pairs.isEmpty());
+    }
+
+    // Pairs handed to the scorer, as sorted "position-position" of the entities
+    private static List<String> scoredPairs(List<DataEntity> entities) {
+        Map<DataEntity, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            positions.put(entities.get(i), i);
+        }
+        inMemory.getBean(MatchKeyStandardizer.class).standardize(entities);
+
+        List<String> pairs = new ArrayList<>();
+        inMemory.getBean(CandidateSearchService.class).match(entities, () -> (entity1, entity2, out) ->
+            pairs.add(positions.get(entity1) + "-" + positions.get(entity2)));
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    /**
+     * Pairs that match on name and email or on phone, and a few lookalikes
+     * that do not match, shuffled.
+     */
+    private static List<DataEntity> fixture() {
+        List<DataEntity> entities = new ArrayList<>();
+        for (int k = 0; k < 40; k++) {
+            entities.add(person("a-" + k, "First" + k, "Last" + k, "p" + k + "@example.com", "+1 617 555 " + (1000 + k)));
+            if (k % 2 == 0) {
+                entities.add(person("b-" + k, "First" + k, "Last" + k, "p" + k + "@example.com", "+1 508 555 " + (1000 + k)));
+            }
+            if (k % 3 == 0) {
+                entities.add(person("c-" + k, "Other" + k, "Name" + k, "other" + k + "@example.com", "+1 617 555 " + (1000 + k)));
+            }
+            if (k % 5 == 0) {
+                entities.add(person("d-" + k, "First" + k, "Last" + k, "d" + k + "@example.com", "+1 212 555 " + (1000 + k)));
+            }
+        }
+        Collections.shuffle(entities, new Random(13));
+        return entities;
+    }
+
+    private static DataEntity person(String id, String firstName, String lastName, String email, String phone) {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("firstName", firstName);
+        attributes.put("lastName", lastName);
+        attributes.put("email", email);
+        attributes.put("phoneNumber", phone);
+        return DataEntity.builder()
+            .entityId(id)
+            .entityType("PERSON")
+            .sourceSystem("TEST")
+            .confidenceScore(0.9)
+            .status("ACTIVE")
+            .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0))
+            .attributes(attributes)
+            .relationships(new HashMap<>())
+            .build();
+    }
+
+    private static List<String> candidateKeys(List<MatchCandidate> candidates) {
+        List<String> keys = new ArrayList<>();
+        for (MatchCandidate candidate : candidates) {
+            String id1 = candidate.getEntity1().getEntityId();
+            String id2 = candidate.getEntity2().getEntityId();
+            keys.add(id1.compareTo(id2) < 0
+                ? id1 + "|" + id2 + "|" + candidate.getRuleName()
+                : id2 + "|" + id1 + "|" + candidate.getRuleName());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
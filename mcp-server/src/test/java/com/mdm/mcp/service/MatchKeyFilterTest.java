@@ -0,0 +1,195 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.repository.MatchKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchKeyFilterTest {
+
+    private static final MatchKeyIndex.KeyType EMAIL = MatchKeyIndex.KeyType.EMAIL;
+
+    private final StoredKeys stored = new StoredKeys();
+    private MatchKeyFilter filter;
+
+    @BeforeEach
+    void start() {
+        filter = new MatchKeyFilter();
+        set(filter, "matchKeyRepository", stored);
+        set(filter, "transactionManager", new NoTransactions());
+        set(filter, "registry", new SimpleMeterRegistry());
+        set(filter, "minCapacity", 1_000L);
+        filter.init();
+    }
+
+    @AfterEach
+    void stop() {
+        filter.shutdown();
+    }
+
+    @Test
+    void everyKeyMightBeStoredUntilTheFirstBuild() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.mightContain(EMAIL, hash(i)));
+        }
+    }
+
+    @Test
+    void storedAndAddedKeysAreNeverRuledOut() {
+        for (int i = 0; i < 500; i++) {
+            stored.add(EMAIL, hash(i));
+        }
+        filter.rebuild();
+        for (int i = 500; i < 800; i++) {
+            filter.add(EMAIL, hash(i));
+        }
+
+        for (int i = 0; i < 800; i++) {
+            assertTrue(filter.mightContain(EMAIL, hash(i)), "key " + i);
+        }
+        assertTrue(ruledOut(800, 1_800) > 950);
+        // Filters are per key type
+        assertTrue(ruledOutAs(MatchKeyIndex.KeyType.PHONE, 0, 500) > 450);
+    }
+
+    @Test
+    void keysWrittenDuringAScanSurviveTheNextGeneration() {
+        filter.rebuild();
+        // Written while the second build scans the table, but missed by the scan
+        stored.duringScan = () -> {
+            for (int i = 0; i < 100; i++) {
+                filter.add(EMAIL, hash(i));
+            }
+        };
+        filter.rebuild();
+        stored.duringScan = null;
+        filter.rebuild();
+        // Only the second generation, now retired, has them
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.mightContain(EMAIL, hash(i)), "key " + i);
+        }
+
+        filter.rebuild();
+        // Neither generation has them any more
+        assertTrue(ruledOut(0, 100) > 90);
+    }
+
+    @Test
+    void aFilterOverCapacityIsRebuilt() throws InterruptedException {
+        filter.rebuild();
+        assertEquals(1, stored.scans.get());
+        for (int i = 0; i <= 1_000; i++) {
+            stored.add(EMAIL, hash(i));
+            filter.add(EMAIL, hash(i));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stored.scans.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, stored.scans.get());
+    }
+
+    private int ruledOut(int from, int to) {
+        return ruledOutAs(EMAIL, from, to);
+    }
+
+    private int ruledOutAs(MatchKeyIndex.KeyType type, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!filter.mightContain(type, hash(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long hash(int key) {
+        return MatchKeyIndex.hash(EMAIL, "user" + key + "@example.com");
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    // The match_keys table as a list of (key type, hash) rows
+    private static final class StoredKeys extends MatchKeyRepository {
+        private final List<Object[]> rows = new ArrayList<>();
+        private final AtomicInteger scans = new AtomicInteger();
+        private volatile Runnable duringScan;
+
+        synchronized void add(MatchKeyIndex.KeyType type, long hash) {
+            rows.add(new Object[] {type.name(), hash});
+        }
+
+        @Override
+        public synchronized Map<String, Long> countByKeyType() {
+            Map<String, Long> counts = new HashMap<>();
+            rows.forEach(row -> counts.merge((String) row[0], 1L, Long::sum));
+            return counts;
+        }
+
+        @Override
+        public void forEachKey(RowCallbackHandler handler) {
+            List<Object[]> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(rows);
+            }
+            Runnable concurrentWrites = duringScan;
+            if (concurrentWrites != null) {
+                concurrentWrites.run();
+            }
+            try {
+                for (Object[] row : snapshot) {
+                    handler.processRow((ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                            case "getString" -> row[0];
+                            case "getLong" -> row[1];
+                            default -> throw new UnsupportedOperationException(method.getName());
+                        }));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            scans.incrementAndGet();
+        }
+    }
+
+    private static final class NoTransactions implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
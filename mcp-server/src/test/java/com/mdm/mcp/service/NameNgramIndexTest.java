@@ -0,0 +1,123 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.NameSignature;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameNgramIndexTest {
+
+    @Test
+    void pairsMatchBruteForceAtAndAboveTheIndexThreshold() {
+        Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            List<NameSignature> names = names(random, 2 + random.nextInt(80));
+            double indexDice = 0.3 + random.nextInt(6) / 10.0;
+            NameNgramIndex index = NameNgramIndex.build(names, indexDice, Integer.MAX_VALUE);
+
+            for (double minDice = indexDice; minDice <= 1.0; minDice += 0.1) {
+                List<String> actual = new ArrayList<>();
+                index.forEachCandidatePair(minDice, (left, right) -> {
+                    assertTrue(left < right, left + "-" + right);
+                    actual.add(left + "-" + right);
+                });
+                assertEquals(bruteForcePairs(names, minDice), new TreeSet<>(actual), "run " + run + " at " + minDice);
+                assertEquals(actual.size(), new HashSet<>(actual).size(), "pairs reported twice, run " + run);
+            }
+        }
+    }
+
+    @Test
+    void candidatesOfANameMatchBruteForce() {
+        Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            List<NameSignature> names = names(random, 1 + random.nextInt(80));
+            NameNgramIndex index = NameNgramIndex.build(names, 0.5, Integer.MAX_VALUE);
+            // Queries may contain trigrams the index has never seen
+            NameSignature query = NameSignature.of(NameSimilarityTest.name(random) + " " + "xyz");
+            double minDice = 0.5 + random.nextInt(5) / 10.0;
+
+            Set<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (dice(query, names.get(i)) >= minDice) {
+                    expected.add(i);
+                }
+            }
+            Set<Integer> actual = new TreeSet<>();
+            index.forEachCandidate(query, minDice, actual::add);
+            assertEquals(expected, actual, "run " + run);
+        }
+    }
+
+    @Test
+    void droppedTrigramsOnlyRemovePairs() {
+        Random random = new Random(42);
+        int dropped = 0;
+        for (int run = 0; run < 100; run++) {
+            // A shared surname makes its trigrams common enough to be dropped
+            List<NameSignature> names = new ArrayList<>();
+            for (int i = 20 + random.nextInt(80); i > 0; i--) {
+                names.add(NameSignature.of(NameSimilarityTest.token(random) + " smith"));
+            }
+            NameNgramIndex index = NameNgramIndex.build(names, 0.4, 5);
+
+            Set<String> actual = new TreeSet<>();
+            index.forEachCandidatePair(0.4, (left, right) -> actual.add(left + "-" + right));
+            Set<String> expected = bruteForcePairs(names, 0.4);
+            assertTrue(expected.containsAll(actual), "run " + run);
+            dropped += index.droppedGramCount();
+        }
+        assertTrue(dropped > 0);
+    }
+
+    @Test
+    void queriesBelowTheIndexThresholdAreRejected() {
+        NameNgramIndex index = NameNgramIndex.build(List.of(NameSignature.of("Ann Lee")), 0.6, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> index.forEachCandidatePair(0.5, (left, right) -> { }));
+        assertThrows(IllegalArgumentException.class, () -> index.forEachCandidate(NameSignature.of("Ann"), 0.5, other -> { }));
+    }
+
+    private static List<NameSignature> names(Random random, int count) {
+        List<NameSignature> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(NameSignature.of(NameSimilarityTest.name(random)));
+        }
+        return names;
+    }
+
+    private static Set<String> bruteForcePairs(List<NameSignature> names, double minDice) {
+        Set<String> pairs = new TreeSet<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                if (dice(names.get(i), names.get(j)) >= minDice) {
+                    pairs.add(i + "-" + j);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static double dice(NameSignature name1, NameSignature name2) {
+        Set<Integer> grams = new HashSet<>();
+        for (int gram : name1.qgrams()) {
+            grams.add(gram);
+        }
+        int shared = 0;
+        for (int gram : name2.qgrams()) {
+            if (grams.contains(gram)) {
+                shared++;
+            }
+        }
+        return 2.0 * shared / (name1.qgrams().length + name2.qgrams().length);
+    }
+}
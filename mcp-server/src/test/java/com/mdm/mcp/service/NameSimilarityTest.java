@@ -0,0 +1,112 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.NameSignature;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameSimilarityTest {
+
+    @Test
+    void tokensArePairedByTheirClosestMatch() {
+        assertEquals(1.0, score("Ann Lee", "lee, ann"));
+        // Prefix or initial
+        assertEquals((NameSimilarity.PREFIX_SIMILARITY + 1.0) / 2, score("J Smith", "John Smith"));
+        // Close spelling
+        assertEquals((NameSimilarity.jaroWinkler("jonathon", "jonathan") + 1.0) / 2, score("Jonathon Smith", "Jonathan Smith"));
+        // Close enough for Jaro-Winkler to let equal Soundex codes count
+        assertEquals((NameSimilarity.PHONETIC_SIMILARITY + 1.0) / 2, score("Smyth Ann", "Smitt Ann"));
+        // Different Soundex codes and too far apart
+        assertEquals(0.0, score("Ann", "Bob"));
+        // The unmatched token of the longer name counts as 0
+        assertEquals(2.0 / 3, score("Ann Beth Lee", "Ann Lee"), 1e-9);
+        assertEquals(0.0, score("", "Ann"));
+    }
+
+    @Test
+    void tokensBelowTheMinimumSimilarityCountAsUnmatched() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20_000; run++) {
+            NameSignature name1 = NameSignature.of(token(random));
+            NameSignature name2 = NameSignature.of(token(random));
+            double similarity = NameSimilarity.tokenSimilarity(name1, 0, name2, 0);
+            assertTrue(similarity == 0.0 || similarity >= NameSimilarity.MIN_TOKEN_SIMILARITY,
+                name1.getNormalized() + " / " + name2.getNormalized() + ": " + similarity);
+        }
+    }
+
+    @Test
+    void thresholdOnlyCutsOffScoresBelowIt() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20_000; run++) {
+            NameSignature name1 = NameSignature.of(name(random));
+            NameSignature name2 = NameSignature.of(name(random));
+            double full = NameSimilarity.score(name1, name2, 0.0);
+            for (double threshold = 0.1; threshold < 1.0; threshold += 0.1) {
+                double cut = NameSimilarity.score(name1, name2, threshold);
+                String pair = name1.getNormalized() + " / " + name2.getNormalized() + " at " + threshold;
+                if (full >= threshold) {
+                    assertEquals(full, cut, pair);
+                } else {
+                    assertTrue(cut < threshold, pair);
+                }
+            }
+        }
+    }
+
+    @Test
+    void bandedLevenshteinMatchesTheFullDistance() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20_000; run++) {
+            String s1 = token(random);
+            String s2 = token(random);
+            int maxDistance = random.nextInt(5);
+            int full = levenshtein(s1, s2);
+            int expected = full <= maxDistance ? full : maxDistance + 1;
+            assertEquals(expected, NameSimilarity.levenshtein(s1, s2, maxDistance), s1 + " / " + s2 + " within " + maxDistance);
+        }
+    }
+
+    private static double score(String name1, String name2) {
+        return NameSimilarity.score(NameSignature.of(name1), NameSignature.of(name2), 0.0);
+    }
+
+    // Tokens from a small alphabet, so close and equal tokens are common
+    static String token(Random random) {
+        String letters = "aeinorstl";
+        StringBuilder token = new StringBuilder();
+        int length = 1 + random.nextInt(9);
+        for (int i = 0; i < length; i++) {
+            token.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return token.toString();
+    }
+
+    static String name(Random random) {
+        StringBuilder name = new StringBuilder(token(random));
+        int tokens = random.nextInt(3);
+        for (int i = 0; i < tokens; i++) {
+            name.append(' ').append(token(random));
+        }
+        return name.toString();
+    }
+
+    private static int levenshtein(String s1, String s2) {
+        int[][] distance = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0 || j == 0) {
+                    distance[i][j] = i + j;
+                } else {
+                    int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                    distance[i][j] = Math.min(Math.min(distance[i - 1][j] + 1, distance[i][j - 1] + 1),
+                        distance[i - 1][j - 1] + cost);
+                }
+            }
+        }
+        return distance[s1.length()][s2.length()];
+    }
+}
@@ -0,0 +1,43 @@
+package com.mdm.mcp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Starts just the rule engine beans, without web, JPA or Redis, like the
+ * benchmarks do. Properties override the {@code @Value} defaults.
+ */
+final class RuleEngineTestContext {
+
+    private RuleEngineTestContext() {
+    }
+
+    static AnnotationConfigApplicationContext start(Map<String, Object> properties) {
+        return start(properties, context -> { });
+    }
+
+    /**
+     * Like {@link #start(Map)}, letting {@code beans} register further beans first.
+     */
+    static AnnotationConfigApplicationContext start(Map<String, Object> properties,
+                                                    Consumer<AnnotationConfigApplicationContext> beans) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        beans.accept(context);
+        context.register(MergeMetrics.class, RuleBaseManager.class, BlockMatcher.class, MatchClusterer.class,
+            MatchKeyStandardizer.class, CandidateSearchService.class,
+            SurvivorshipEngine.class, DroolsRuleEngineService.class);
+        context.refresh();
+        if (!context.getBean(DroolsRuleEngineService.class).isDroolsAvailable()) {
+            context.close();
+            throw new IllegalStateException("Drools rule base failed to compile");
+        }
+        return context;
+    }
+}
@@ -0,0 +1,264 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.Rule;
+import com.mdm.mcp.repository.RuleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleExpressionCompilerTest {
+
+    @Test
+    void andBindsTighterThanOrAndNotTighterThanAnd() {
+        DataEntity entity = entity(Map.of("a", "1", "b", "2"));
+        // a == 1 || (b == 3 && false)
+        assertTrue(holds("a == 1 || b == 3 && false", entity));
+        // (!(a == 1)) || b == 2
+        assertTrue(holds("!a == 1 || b == 2", entity));
+        assertFalse(holds("!(a == 1 || b == 2)", entity));
+        assertFalse(holds("not a == 1 and b == 2", entity));
+        assertTrue(holds("(a == 2 or b == 2) and not b == 3", entity));
+        // b == 2 or (a == 2 and b == 3)
+        assertTrue(holds("b == 2 or a == 2 and b == 3", entity));
+    }
+
+    @Test
+    void inListsAndNotIn() {
+        DataEntity entity = entity(Map.of("country", "CA", "code", "007"));
+        assertTrue(holds("country in ('US', 'CA')", entity));
+        assertFalse(holds("country in ('US', 'MX')", entity));
+        assertTrue(holds("country not in ('US', 'MX')", entity));
+        // Numeric items compare numerically with numeric strings
+        assertTrue(holds("code in (1, 7)", entity));
+        assertFalse(holds("missing in ('US')", entity));
+    }
+
+    @Test
+    void matchesWholeValue() {
+        DataEntity entity = entity(Map.of("email", "jane@example.com"));
+        assertTrue(holds("email matches '[^@]+@[^@]+'", entity));
+        assertFalse(holds("email matches 'example'", entity));
+        assertFalse(holds("missing matches '.*'", entity));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpressionCompiler.compileCondition("email matches '[a-'"));
+    }
+
+    @Test
+    void numericStringsCompareNumerically() {
+        DataEntity entity = entity(Map.of("age", "9", "score", "10.50", "name", "b"));
+        // As text, "9" > "10" and "10.50" != "10.5"
+        assertTrue(holds("age < 10", entity));
+        assertTrue(holds("age < '10'", entity));
+        assertTrue(holds("score == 10.5", entity));
+        assertTrue(holds("score > age", entity));
+        assertTrue(holds("confidenceScore >= 0.9", entity));
+        // Non-numeric values compare as text
+        assertTrue(holds("name > 'a'", entity));
+        assertTrue(holds("length(name) == 1", entity));
+    }
+
+    @Test
+    void nullAndMissingAttributes() {
+        DataEntity entity = entity(Map.of("email", ""));
+        assertTrue(holds("missing == null", entity));
+        assertFalse(holds("missing != null", entity));
+        assertFalse(holds("email == null", entity));
+        assertTrue(holds("isBlank(email) && isBlank(missing)", entity));
+        // null is not ordered, so both comparisons are false
+        assertFalse(holds("missing < 1", entity));
+        assertFalse(holds("missing >= 1", entity));
+        assertTrue(holds("coalesce(missing, 'x') == 'x'", entity));
+        assertTrue(holds("attributes.missing == null", entity));
+
+        DataEntity noAttributes = entity(Map.of());
+        noAttributes.setAttributes(null);
+        assertTrue(holds("missing == null", noAttributes));
+    }
+
+    @Test
+    void constantSubexpressionsAreFolded() {
+        // Folded at compile time: the entity is never looked at
+        assertTrue(RuleExpressionCompiler.compileCondition("1 + 2 * 3 == 7 && lower('ABC') == 'abc'").test(null));
+        assertFalse(RuleExpressionCompiler.compileCondition("'x' in ('a', 'b')").test(null));
+        assertTrue(RuleExpressionCompiler.compileCondition("'abc' matches '[a-c]+'").test(null));
+
+        DataEntity entity = entity(Map.of("total", "7"));
+        assertTrue(holds("total == 1 + 2 * 3", entity));
+        assertTrue(holds("total == (10 - 3) / 1", entity));
+    }
+
+    @Test
+    void assigningNullRemovesTheAttribute() {
+        DataEntity entity = entity(new HashMap<>(Map.of("email", " Jane@Example.COM ", "fax", "123")));
+        List<String> flags = new ArrayList<>();
+        RuleExpressionCompiler.compileAction("email = lower(trim(email)); fax = null; status = 'REVIEW'; confidenceScore = 0.5")
+            .accept(entity, flags);
+
+        assertEquals("jane@example.com", entity.getAttributes().get("email"));
+        assertFalse(entity.getAttributes().containsKey("fax"));
+        assertEquals("REVIEW", entity.getStatus());
+        assertEquals(0.5, entity.getConfidenceScore());
+        assertTrue(flags.isEmpty());
+    }
+
+    @Test
+    void flagAppendsMessagesInStatementOrder() {
+        DataEntity entity = entity(new HashMap<>(Map.of("count", "2")));
+        List<String> flags = new ArrayList<>();
+        BiConsumer<DataEntity, List<String>> action =
+            RuleExpressionCompiler.compileAction("flag('before ' + count); count = count + 1; flag('after ' + count)");
+        action.accept(entity, flags);
+
+        assertEquals(List.of("before 2", "after 3"), flags);
+        assertEquals("3", entity.getAttributes().get("count"));
+    }
+
+    @Test
+    void blankConditionHoldsAndBlankActionDoesNothing() {
+        assertTrue(RuleExpressionCompiler.compileCondition(" ").test(entity(Map.of())));
+        assertTrue(RuleExpressionCompiler.compileCondition(null).test(entity(Map.of())));
+        List<String> flags = new ArrayList<>();
+        RuleExpressionCompiler.compileAction("").accept(entity(Map.of()), flags);
+        assertTrue(flags.isEmpty());
+    }
+
+    @Test
+    void malformedInputIsRejected() {
+        for (String condition : List.of("a ==", "(a == 1", "a == 1)", "a === 1", "'open", "a # 1", "unknown(a)",
+                "length(a, b) == 1", "a in 1", "and", "a.b.c == 1", "a == 1 b")) {
+            assertThrows(IllegalArgumentException.class, () -> RuleExpressionCompiler.compileCondition(condition), condition);
+        }
+        for (String action : List.of("email", "email = ", "flag('x'", "entityId = 'x'", "= 1", "a = 1 b = 2")) {
+            assertThrows(IllegalArgumentException.class, () -> RuleExpressionCompiler.compileAction(action), action);
+        }
+    }
+
+    @Test
+    void evaluateRunsRulesInSaveOrderAndLaterRulesSeeEarlierChanges() {
+        RuleService ruleService = ruleService();
+        ruleService.saveRule(rule("set-tier", "confidenceScore >= 0.9", "tier = 'gold'"));
+        ruleService.saveRule(rule("flag-gold", "tier == 'gold'", "flag('gold ' + entityId)"));
+        ruleService.saveRule(rule("clear-tier", "tier != null", "tier = null"));
+        ruleService.saveRule(rule("flag-cleared", "tier == null", "flag('cleared')"));
+        ruleService.saveRule(rule("other-domain", "true", "flag('other')", "OTHER"));
+
+        DataEntity entity = entity(new HashMap<>());
+        List<RuleService.EvaluationResult> results = ruleService.evaluate("QUALITY", List.of(entity));
+
+        assertEquals(1, results.size());
+        assertEquals("E1", results.get(0).getEntityId());
+        assertEquals(List.of("set-tier", "flag-gold", "clear-tier", "flag-cleared"), results.get(0).getFiredRules());
+        assertEquals(List.of("gold E1", "cleared"), results.get(0).getFlags());
+        assertNull(entity.getAttributes().get("tier"));
+    }
+
+    @Test
+    void savingARuleAgainKeepsItsPlace() {
+        RuleService ruleService = ruleService();
+        ruleService.saveRule(rule("first", "true", "flag('first')"));
+        ruleService.saveRule(rule("second", "true", "flag('second')"));
+        ruleService.saveRule(rule("third", "true", "flag('third')"));
+        ruleService.saveRule(rule("first", "true", "flag('first again')"));
+
+        assertEquals(List.of("first", "second", "third"), ruleIds(ruleService.getRules("QUALITY")));
+        assertEquals(List.of("first again", "second", "third"),
+            ruleService.evaluate("QUALITY", List.of(entity(Map.of()))).get(0).getFlags());
+
+        // Moving a rule to another domain keeps its place among all rules
+        ruleService.saveRule(rule("second", "true", "flag('second')", "OTHER"));
+        assertEquals(List.of("first", "third"), ruleIds(ruleService.getRules("QUALITY")));
+        assertEquals(List.of("second"), ruleIds(ruleService.getRules("OTHER")));
+        assertEquals(List.of("first", "second", "third"), ruleIds(ruleService.getAllRules()));
+    }
+
+    @Test
+    void missingConditionsAndActionsAreStoredEmpty() {
+        RuleService ruleService = ruleService();
+        Rule saved = ruleService.saveRule(rule("blank", null, "  "));
+
+        assertEquals("", saved.getCondition());
+        assertEquals("", saved.getAction());
+        assertEquals(List.of("blank"), ruleService.evaluate("QUALITY", List.of(entity(Map.of()))).get(0).getFiredRules());
+    }
+
+    private static List<String> ruleIds(List<Rule> rules) {
+        List<String> ids = new ArrayList<>();
+        rules.forEach(rule -> ids.add(rule.getRuleId()));
+        return ids;
+    }
+
+    private static Rule copy(Rule rule) {
+        Rule copy = rule(rule.getRuleId(), rule.getCondition(), rule.getAction(), rule.getDomain());
+        copy.setCreatedAt(rule.getCreatedAt());
+        return copy;
+    }
+
+    private static boolean holds(String condition, DataEntity entity) {
+        Predicate<DataEntity> predicate = RuleExpressionCompiler.compileCondition(condition);
+        return predicate.test(entity);
+    }
+
+    private static DataEntity entity(Map<String, String> attributes) {
+        DataEntity entity = new DataEntity();
+        entity.setEntityId("E1");
+        entity.setEntityType("PERSON");
+        entity.setStatus("ACTIVE");
+        entity.setConfidenceScore(0.95);
+        entity.setAttributes(new HashMap<>(attributes));
+        return entity;
+    }
+
+    private static Rule rule(String ruleId, String condition, String action) {
+        return rule(ruleId, condition, action, "QUALITY");
+    }
+
+    private static Rule rule(String ruleId, String condition, String action, String domain) {
+        Rule rule = new Rule();
+        rule.setRuleId(ruleId);
+        rule.setDomain(domain);
+        rule.setCondition(condition);
+        rule.setAction(action);
+        return rule;
+    }
+
+    // A RuleService over an in-memory repository that starts empty
+    private static RuleService ruleService() {
+        Map<String, Rule> stored = new HashMap<>();
+        RuleRepository repository = (RuleRepository) Proxy.newProxyInstance(RuleRepository.class.getClassLoader(),
+            new Class<?>[] {RuleRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findById")) {
+                    return Optional.ofNullable(stored.get((String) args[0])).map(RuleExpressionCompilerTest::copy);
+                }
+                if (method.getName().startsWith("find")) {
+                    return new ArrayList<>();
+                }
+                if (method.getName().equals("save")) {
+                    Rule rule = (Rule) args[0];
+                    stored.put(rule.getRuleId(), copy(rule));
+                    return rule;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        RuleService ruleService = new RuleService();
+        Field field = ReflectionUtils.findField(RuleService.class, "ruleRepository");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, ruleService, repository);
+        ruleService.init();
+        return ruleService;
+    }
+}
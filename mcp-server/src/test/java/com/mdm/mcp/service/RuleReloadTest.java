@@ -0,0 +1,97 @@
+package com.mdm.mcp.service;
+
+import com.mdm.mcp.model.MergeRule;
+import com.mdm.mcp.repository.MergeRuleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleReloadTest {
+
+    private final List<MergeRule> storedRules = new ArrayList<>();
+    private AnnotationConfigApplicationContext context;
+    private DroolsRuleEngineService ruleEngine;
+    private SurvivorshipEngine survivorshipEngine;
+
+    @BeforeEach
+    void start() {
+        MergeRuleRepository repository = (MergeRuleRepository) Proxy.newProxyInstance(MergeRuleRepository.class.getClassLoader(),
+            new Class<?>[] {MergeRuleRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findByIsActiveTrueOrderByPriorityAsc")) {
+                    return new ArrayList<>(storedRules);
+                }
+                if (method.getDeclaringClass() == Object.class) {
+                    // As a bean the proxy goes into hash maps
+                    return switch (method.getName()) {
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> "MergeRuleRepository";
+                    };
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        context = RuleEngineTestContext.start(Map.of(),
+            beans -> beans.registerBean(MergeRuleRepository.class, () -> repository));
+        ruleEngine = context.getBean(DroolsRuleEngineService.class);
+        survivorshipEngine = context.getBean(SurvivorshipEngine.class);
+    }
+
+    @AfterEach
+    void stop() {
+        context.close();
+    }
+
+    @Test
+    void survivorshipRulesArePublishedWithTheRuleBase() throws Exception {
+        storedRules.add(survivorshipRule());
+        storedRules.add(rule("throwing-merge", "MERGE", "RuleExecutionContext()", "throw new IllegalStateException(\"probe\");"));
+
+        RuleBaseManager.ReloadResult rejected = ruleEngine.reloadRules().get(30, TimeUnit.SECONDS);
+        assertFalse(rejected.isSuccess());
+        assertFalse(survivorshipEngine.describe().containsKey("PERSON"));
+
+        storedRules.remove(1);
+        RuleBaseManager.ReloadResult accepted = ruleEngine.reloadRules().get(30, TimeUnit.SECONDS);
+        assertTrue(accepted.isSuccess(), accepted.getError());
+        assertEquals("MOST_RECENT", survivorshipEngine.describe().get("PERSON").get("email"));
+    }
+
+    @Test
+    void laterSurvivorshipRulesAreNotReplacedByAnEarlierCompilation() {
+        SurvivorshipEngine.Tables before = survivorshipEngine.compileTables();
+        storedRules.add(survivorshipRule());
+        survivorshipEngine.reload();
+
+        survivorshipEngine.publish(before);
+        assertEquals("MOST_RECENT", survivorshipEngine.describe().get("PERSON").get("email"));
+    }
+
+    private static MergeRule survivorshipRule() {
+        MergeRule rule = rule("person-survivorship", "SURVIVORSHIP", null, null);
+        rule.setSurvivorshipRules("{\"email\": \"MOST_RECENT\"}");
+        return rule;
+    }
+
+    private static MergeRule rule(String name, String type, String condition, String action) {
+        MergeRule rule = new MergeRule();
+        rule.setRuleName(name);
+        rule.setRuleType(type);
+        rule.setEntityType("PERSON");
+        rule.setPriority(0);
+        rule.setIsActive(true);
+        rule.setRuleCondition(condition);
+        rule.setRuleAction(action);
+        return rule;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+import com.mdm.mcp.model.MatchCandidate;
+import com.mdm.mcp.model.MergeResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class StreamingMatchTest {
+
+    private static final int MAX_BLOCK_SIZE = 10;
+
+    private static AnnotationConfigApplicationContext context;
+    private static DroolsRuleEngineService service;
+    private static ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void start() {
+        context = RuleEngineTestContext.start(Map.of(
+            "mdm.matching.blocking.max-block-size", MAX_BLOCK_SIZE,
+            "mdm.matching.stream.batch-size", 7));
+        service = context.getBean(DroolsRuleEngineService.class);
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void streamedCandidatesEqualBatchCandidates() {
+        List<String> batch = candidateKeys(service.findMatchCandidates(fixture()));
+
+        List<MatchCandidate> streamed = new ArrayList<>();
+        long consumed;
+        try (EntitySpool spool = new EntitySpool(objectMapper)) {
+            consumed = service.streamMatchCandidates(fixture().iterator(), spool, streamed::add);
+        }
+
+        assertEquals(fixture().size(), consumed);
+        assertFalse(batch.isEmpty());
+        assertEquals(batch, candidateKeys(streamed));
+    }
+
+    @Test
+    void oversizedBlocksAreSkippedWhenStreaming() {
+        // The shared phone block is oversized, so only its members that also share an email match
+        List<MatchCandidate> streamed = new ArrayList<>();
+        try (EntitySpool spool = new EntitySpool(objectMapper)) {
+            service.streamMatchCandidates(fixture().iterator(), spool, streamed::add);
+        }
+
+        List<String> sharedPhonePairs = candidateKeys(streamed).stream()
+            .filter(key -> key.startsWith("shared-"))
+            .toList();
+        assertEquals(List.of("shared-0|shared-1|Exact Name and Email Match"), sharedPhonePairs);
+    }
+
+    @Test
+    void streamedMergingEqualsBatchMerging() {
+        List<String> batch = resultKeys(service.executeEntityMerging(fixture()));
+
+        List<MergeResult> streamed = new ArrayList<>();
+        try (EntitySpool spool = new EntitySpool(objectMapper)) {
+            service.streamEntityMerging(fixture().iterator(), spool, streamed::add);
+        }
+
+        assertFalse(batch.isEmpty());
+        assertEquals(batch, resultKeys(streamed));
+    }
+
+    /**
+     * Pairs that match on name and email or on phone, shuffled, plus people who
+     * all share one phone number, more of them than a block may hold.
+     */
+    private static List<DataEntity> fixture() {
+        List<DataEntity> entities = new ArrayList<>();
+        for (int k = 0; k < 40; k++) {
+            entities.add(person("a-" + k, "First" + k, "Last" + k, "p" + k + "@example.com", "+1 617 555 " + (1000 + k)));
+            if (k % 2 == 0) {
+                entities.add(person("b-" + k, "First" + k, "Last" + k, "p" + k + "@example.com", "+1 508 555 " + (1000 + k)));
+            }
+            if (k % 3 == 0) {
+                entities.add(person("c-" + k, "Other" + k, "Name" + k, "other" + k + "@example.com", "+1 617 555 " + (1000 + k)));
+            }
+        }
+        for (int k = 0; k < MAX_BLOCK_SIZE + 5; k++) {
+            String email = k < 2 ? "shared@example.com" : "shared" + k + "@example.com";
+            String first = k < 2 ? "Shared" : "Shared" + k;
+            entities.add(person("shared-" + k, first, "Person", email, "+1 212 555 0100"));
+        }
+        Collections.shuffle(entities, new Random(7));
+        return entities;
+    }
+
+    private static DataEntity person(String id, String firstName, String lastName, String email, String phone) {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("firstName", firstName);
+        attributes.put("lastName", lastName);
+        attributes.put("email", email);
+        attributes.put("phoneNumber", phone);
+        return DataEntity.builder()
+            .entityId(id)
+            .entityType("PERSON")
+            .sourceSystem("TEST")
+            .confidenceScore(0.9)
+            .status("ACTIVE")
+            .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0))
+            .attributes(attributes)
+            .relationships(new HashMap<>())
+            .build();
+    }
+
+    private static List<String> candidateKeys(List<MatchCandidate> candidates) {
+        List<String> keys = new ArrayList<>();
+        for (MatchCandidate candidate : candidates) {
+            String id1 = candidate.getEntity1().getEntityId();
+            String id2 = candidate.getEntity2().getEntityId();
+            keys.add(id1.compareTo(id2) < 0
+                ? id1 + "|" + id2 + "|" + candidate.getRuleName()
+                : id2 + "|" + id1 + "|" + candidate.getRuleName());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    private static List<String> resultKeys(List<MergeResult> results) {
+        List<String> keys = new ArrayList<>();
+        for (MergeResult result : results) {
+            List<String> sources = new ArrayList<>(result.getSourceEntityIds());
+            Collections.sort(sources);
+            keys.add(result.getStatus() + " " + sources);
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
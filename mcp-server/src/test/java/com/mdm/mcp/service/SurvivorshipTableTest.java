@@ -0,0 +1,217 @@
+package com.mdm.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdm.mcp.model.DataEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SurvivorshipTableTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void rankingStrategiesBreakTiesOnTheLowestEntityIdInEveryOrder() {
+        // E3, E4 and E5 share the highest confidence
+        assertSurvives("HIGHEST_CONFIDENCE", "E3", "Ann Lee");
+        // E4 and E5 were both updated last
+        assertSurvives("MOST_RECENT", "E4", "A. Lee");
+        assertSurvives("OLDEST", "E5", "Ann");
+        // E1 and E2 have three tokens each, E2 the longer value
+        assertSurvives("MOST_COMPLETE", "E2", "Ann Beth Lee");
+        assertSurvives("{\"strategy\": \"SOURCE_PRIORITY\", \"sources\": [\"ERP\", \"CRM\"]}", "E1", "Ann B Lee");
+        // Among E3, E4 and E5, E4 and E5 are the most recent
+        assertSurvives("{\"strategy\": \"HIGHEST_CONFIDENCE\", \"tiebreak\": \"MOST_RECENT\"}", "E4", "A. Lee");
+        assertSurvives("{\"strategy\": \"MOST_RECENT\", \"tiebreak\": \"OLDEST\"}", "E5", "Ann");
+    }
+
+    @Test
+    void aggregatingStrategiesDoNotDependOnMemberOrder() {
+        // A (E3, E5) and B (E1, E2) are tied; B is held by the lower entityId
+        assertSurvives("nickname", "MOST_FREQUENT", "E1", "B");
+        assertSurvives("nickname", "MERGE_ALL", "ALL", "B; A; C");
+        assertSurvives("nickname", "{\"strategy\": \"MERGE_ALL\", \"separator\": \"|\"}", "ALL", "B|A|C");
+    }
+
+    @Test
+    void firstAndLastValueFollowMemberOrder() {
+        SurvivorshipTable first = table("{\"name\": \"FIRST_VALUE\", \"*\": \"FIRST_VALUE\", \"relationships\": \"FIRST_VALUE\"}");
+        SurvivorshipTable last = table("{\"name\": \"LAST_VALUE\", \"*\": \"LAST_VALUE\", \"relationships\": \"LAST_VALUE\"}");
+        for (List<DataEntity> members : permutations(cluster())) {
+            DataEntity golden = golden();
+            Map<String, String> decisions = first.apply(members, golden);
+            assertEquals(members.get(0).getEntityId() + ":FIRST_VALUE", decisions.get("name"));
+            assertEquals(members.get(0).getAttributes().get("name"), golden.getAttributes().get("name"));
+
+            golden = golden();
+            decisions = last.apply(members, golden);
+            assertEquals(members.get(4).getEntityId() + ":LAST_VALUE", decisions.get("name"));
+            assertEquals(members.get(4).getAttributes().get("name"), golden.getAttributes().get("name"));
+        }
+    }
+
+    @Test
+    void relationshipsAreMergedOrChosenInEveryOrder() {
+        SurvivorshipTable mergeAll = table("{\"*\": \"HIGHEST_CONFIDENCE\", \"relationships\": \"MERGE_ALL\"}");
+        SurvivorshipTable highestConfidence = table("{\"*\": \"HIGHEST_CONFIDENCE\", \"relationships\": \"HIGHEST_CONFIDENCE\"}");
+        for (List<DataEntity> members : permutations(cluster())) {
+            DataEntity golden = golden();
+            assertEquals("ALL:MERGE_ALL", mergeAll.apply(members, golden).get("relationships"));
+            // E1 and E3 both have an owner; the lower entityId wins
+            assertEquals(Map.of("owner", "O1", "parent", "P3"), golden.getRelationships());
+
+            golden = golden();
+            assertEquals("E3:HIGHEST_CONFIDENCE", highestConfidence.apply(members, golden).get("relationships"));
+            assertEquals(Map.of("owner", "O3", "parent", "P3"), golden.getRelationships());
+        }
+    }
+
+    @Test
+    void otherAttributesDefaultToHighestConfidenceThenMostRecent() {
+        SurvivorshipTable defaults = new SurvivorshipEngine().tableFor("PERSON");
+        assertEquals("{\"strategy\":\"HIGHEST_CONFIDENCE\",\"tiebreak\":\"MOST_RECENT\"}",
+            defaults.describe().get(SurvivorshipTable.DEFAULT_KEY));
+
+        for (List<DataEntity> members : permutations(cluster())) {
+            DataEntity golden = golden();
+            defaults.apply(members, golden);
+            // E3, E4 and E5 have the highest confidence, E4 and E5 were updated last
+            assertEquals("Rome", golden.getAttributes().get("city"));
+            assertEquals("C", golden.getAttributes().get("nickname"));
+        }
+
+        List<DataEntity> withoutE4City = cluster();
+        withoutE4City.get(4).getAttributes().remove("city");
+        for (List<DataEntity> members : permutations(withoutE4City)) {
+            DataEntity golden = golden();
+            defaults.apply(members, golden);
+            assertEquals("Paris", golden.getAttributes().get("city"));
+        }
+    }
+
+    @Test
+    void invalidTiebreaksAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> table("{\"name\": {\"strategy\": \"MOST_FREQUENT\", \"tiebreak\": \"MOST_RECENT\"}, \"*\": \"OLDEST\", \"relationships\": \"MERGE_ALL\"}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> table("{\"name\": {\"strategy\": \"MOST_RECENT\", \"tiebreak\": \"LAST_VALUE\"}, \"*\": \"OLDEST\", \"relationships\": \"MERGE_ALL\"}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> table("{\"name\": {\"strategy\": \"MOST_RECENT\", \"tiebreak\": \"NEWEST\"}, \"*\": \"OLDEST\", \"relationships\": \"MERGE_ALL\"}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> table("{\"*\": \"OLDEST\", \"relationships\": {\"strategy\": \"OLDEST\", \"tiebreak\": \"MOST_COMPLETE\"}}"));
+    }
+
+    private static void assertSurvives(String strategy, String source, String value) {
+        assertSurvives("name", strategy, source, value);
+    }
+
+    // The attribute survives with the same value and source in all 120 orders of the cluster
+    private static void assertSurvives(String attribute, String strategy, String source, String value) {
+        String specification = strategy.startsWith("{") ? strategy : "\"" + strategy + "\"";
+        SurvivorshipTable table = table("{\"" + attribute + "\": " + specification
+            + ", \"*\": \"OLDEST\", \"relationships\": \"MERGE_ALL\"}");
+        String strategyName = table.describe().get(attribute).startsWith("{")
+            ? parse(table.describe().get(attribute)).get("strategy").asText()
+            : table.describe().get(attribute);
+        for (List<DataEntity> members : permutations(cluster())) {
+            DataEntity golden = golden();
+            Map<String, String> decisions = table.apply(members, golden);
+            assertEquals(value, golden.getAttributes().get(attribute), strategy + " over " + ids(members));
+            assertEquals(source + ":" + strategyName, decisions.get(attribute), strategy + " over " + ids(members));
+        }
+    }
+
+    /**
+     * Five members with ties on confidence, update time, token
+     * count and value frequency, and one member missing all of them.
+     */
+    private static List<DataEntity> cluster() {
+        List<DataEntity> members = new ArrayList<>();
+        members.add(member("E3", 0.9, LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0), "CRM",
+            Map.of("name", "Ann Lee", "nickname", "A", "city", "Bonn"), Map.of("owner", "O3", "parent", "P3")));
+        members.add(member("E1", 0.7, LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2021, 1, 1, 0, 0), "ERP",
+            Map.of("name", "Ann B Lee", "nickname", "B", "city", "Oslo"), Map.of("owner", "O1")));
+        members.add(member("E5", 0.9, LocalDateTime.of(2024, 6, 1, 0, 0), LocalDateTime.of(2018, 1, 1, 0, 0), "WEB",
+            Map.of("name", "Ann", "nickname", "A", "city", "Paris"), Map.of()));
+        members.add(member("E2", null, null, null, null,
+            Map.of("name", "Ann Beth Lee", "nickname", "B", "city", "Lima"), Map.of()));
+        members.add(member("E4", 0.9, LocalDateTime.of(2024, 6, 1, 0, 0), LocalDateTime.of(2019, 1, 1, 0, 0), "CRM",
+            Map.of("name", "A. Lee", "nickname", "C", "city", "Rome"), Map.of()));
+        return members;
+    }
+
+    private static DataEntity member(String id, Double confidence, LocalDateTime updatedAt, LocalDateTime createdAt,
+                                     String sourceSystem, Map<String, String> attributes, Map<String, String> relationships) {
+        DataEntity entity = new DataEntity();
+        entity.setEntityId(id);
+        entity.setEntityType("PERSON");
+        entity.setConfidenceScore(confidence);
+        entity.setUpdatedAt(updatedAt);
+        entity.setCreatedAt(createdAt);
+        entity.setSourceSystem(sourceSystem);
+        entity.setAttributes(new HashMap<>(attributes));
+        entity.setRelationships(new HashMap<>(relationships));
+        return entity;
+    }
+
+    private static DataEntity golden() {
+        DataEntity golden = new DataEntity();
+        golden.setEntityType("PERSON");
+        golden.setAttributes(new HashMap<>());
+        golden.setRelationships(new HashMap<>());
+        return golden;
+    }
+
+    private static List<List<DataEntity>> permutations(List<DataEntity> members) {
+        List<List<DataEntity>> permutations = new ArrayList<>();
+        permute(new ArrayList<>(members), 0, permutations);
+        return permutations;
+    }
+
+    private static void permute(List<DataEntity> members, int from, List<List<DataEntity>> out) {
+        if (from == members.size()) {
+            out.add(new ArrayList<>(members));
+            return;
+        }
+        for (int i = from; i < members.size(); i++) {
+            Collections.swap(members, from, i);
+            permute(members, from + 1, out);
+            Collections.swap(members, from, i);
+        }
+    }
+
+    private static List<String> ids(List<DataEntity> members) {
+        List<String> ids = new ArrayList<>();
+        members.forEach(member -> ids.add(member.getEntityId()));
+        return ids;
+    }
+
+    private static SurvivorshipTable table(String json) {
+        Map<String, JsonNode> specification = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = parse(json).fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            specification.put(field.getKey(), field.getValue());
+        }
+        return SurvivorshipTable.compile("PERSON", specification);
+    }
+
+    private static JsonNode parse(String json) {
+        try {
+            return OBJECT_MAPPER.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.mdm.mcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnionFindTest {
+
+    @Test
+    void groupsMatchBruteForcePartition() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20_000; run++) {
+            int size = 1 + random.nextInt(40);
+            UnionFind unionFind = new UnionFind(size);
+            int[] label = new int[size];
+            for (int i = 0; i < size; i++) {
+                label[i] = i;
+            }
+            int unions = random.nextInt(2 * size);
+            for (int u = 0; u < unions; u++) {
+                int a = random.nextInt(size);
+                int b = random.nextInt(size);
+                unionFind.union(a, b);
+                relabel(label, label[a], label[b]);
+            }
+            int minSize = 1 + random.nextInt(3);
+
+            int[][] expected = bruteForceGroups(label, minSize);
+            int[][] actual = unionFind.groups(minSize);
+            assertEquals(expected.length, actual.length, "group count, run " + run);
+            for (int g = 0; g < expected.length; g++) {
+                assertArrayEquals(expected[g], actual[g], "group " + g + ", run " + run);
+            }
+        }
+    }
+
+    @Test
+    void unionReportsWhetherSetsWereMerged() {
+        UnionFind unionFind = new UnionFind(4);
+        assertTrue(unionFind.union(0, 1));
+        assertFalse(unionFind.union(1, 0));
+        assertTrue(unionFind.union(2, 3));
+        assertTrue(unionFind.union(1, 3));
+        assertEquals(1, unionFind.components());
+        assertArrayEquals(new int[] {0, 1, 2, 3}, unionFind.groups(2)[0]);
+    }
+
+    // Naive union: every element labelled 'from' is moved to 'to'
+    private static void relabel(int[] label, int from, int to) {
+        for (int i = 0; i < label.length; i++) {
+            if (label[i] == from) {
+                label[i] = to;
+            }
+        }
+    }
+
+    // Sets of at least minSize elements, ordered by smallest element, elements ascending
+    private static int[][] bruteForceGroups(int[] label, int minSize) {
+        TreeMap<Integer, List<Integer>> byFirst = new TreeMap<>();
+        boolean[] seen = new boolean[label.length];
+        for (int i = 0; i < label.length; i++) {
+            if (seen[i]) {
+                continue;
+            }
+            List<Integer> members = new ArrayList<>();
+            for (int j = i; j < label.length; j++) {
+                if (label[j] == label[i]) {
+                    members.add(j);
+                    seen[j] = true;
+                }
+            }
+            byFirst.put(i, members);
+        }
+        return byFirst.values().stream()
+            .filter(members -> members.size() >= minSize)
+            .map(members -> members.stream().mapToInt(Integer::intValue).toArray())
+            .toArray(int[][]::new);
+    }
+}
@@ -2,7 +2,8 @@ CREATE TABLE rules (
     rule_id VARCHAR(50) PRIMARY KEY,
     domain VARCHAR(50) NOT NULL,
     condition TEXT NOT NULL,
-    action TEXT NOT NULL
+    action TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
 CREATE TABLE audit_logs (
@@ -0,0 +1,281 @@
+package com.mdm.shared.api;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link MCPClient} over HTTP, on the non-blocking JDK {@link HttpClient}:
+ * <ul>
+ *   <li>{@code GET {baseUri}/mcp/context/{domain}} returns the context of a domain as text.</li>
+ *   <li>{@code POST {baseUri}/mcp/requests} sends a request as text.</li>
+ * </ul>
+ * Connections are kept alive and reused by the HTTP client; at most
+ * {@code maxConcurrentRequests} calls are in flight, the others queue.
+ *
+ * Contexts are cached for {@code cacheTtl}, up to {@code cacheMaximumSize}
+ * domains, least recently used first out. Concurrent fetches of the same
+ * domain share one call. Each attempt times out after {@code requestTimeout};
+ * connection failures, timeouts, 429 and 5xx answers are retried up to
+ * {@code maxRetries} times, after a random delay of up to
+ * {@code retryBackoff * 2^attempt}. A call waiting to be retried gives up its
+ * permit and queues for one again when its delay is over.
+ */
+public class HttpMCPClient implements MCPClient {
+
+    @Getter
+    @Builder
+    public static class Settings {
+        private final URI baseUri;
+        @Builder.Default
+        private final Duration connectTimeout = Duration.ofSeconds(2);
+        @Builder.Default
+        private final Duration requestTimeout = Duration.ofSeconds(5);
+        @Builder.Default
+        private final int maxRetries = 2;
+        @Builder.Default
+        private final Duration retryBackoff = Duration.ofMillis(100);
+        @Builder.Default
+        private final int maxConcurrentRequests = 64;
+        @Builder.Default
+        private final Duration cacheTtl = Duration.ofMinutes(1);
+        @Builder.Default
+        private final int cacheMaximumSize = 10_000;
+    }
+
+    private final Settings settings;
+    private final HttpClient httpClient;
+    private final ContextCache cache;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger permits;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    public HttpMCPClient(Settings settings) {
+        this(settings, HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(settings.getConnectTimeout())
+            .build());
+    }
+
+    public HttpMCPClient(Settings settings, HttpClient httpClient) {
+        this.settings = settings;
+        this.httpClient = httpClient;
+        this.cache = new ContextCache(settings.getCacheMaximumSize(), settings.getCacheTtl().toNanos());
+        this.permits = new AtomicInteger(settings.getMaxConcurrentRequests());
+    }
+
+    @Override
+    public String fetchContext(String domain) {
+        return MCPClientException.join(fetchContextAsync(domain));
+    }
+
+    @Override
+    public CompletableFuture<String> fetchContextAsync(String domain) {
+        String cached = cache.get(domain);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> promise = new CompletableFuture<>();
+        CompletableFuture<String> pending = inFlight.putIfAbsent(domain, promise);
+        if (pending != null) {
+            return pending.copy();
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri("/mcp/context/" + encode(domain)))
+            .timeout(settings.getRequestTimeout())
+            .header("Accept", "application/json, text/plain")
+            .GET()
+            .build();
+        send(request).whenComplete((context, error) -> {
+            if (error == null) {
+                cache.put(domain, context);
+            }
+            inFlight.remove(domain, promise);
+            if (error == null) {
+                promise.complete(context);
+            } else {
+                promise.completeExceptionally(error);
+            }
+        });
+        // Callers get a copy, so cancelling one does not fail the others
+        return promise.copy();
+    }
+
+    @Override
+    public void sendRequest(String request) {
+        MCPClientException.join(sendRequestAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendRequestAsync(String request) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(uri("/mcp/requests"))
+            .timeout(settings.getRequestTimeout())
+            .header("Content-Type", "text/plain; charset=utf-8")
+            .POST(HttpRequest.BodyPublishers.ofString(request))
+            .build();
+        return send(httpRequest).thenApply(body -> null);
+    }
+
+    /**
+     * Drops a cached context, so that the next fetch goes to the server.
+     */
+    public void invalidate(String domain) {
+        cache.remove(domain);
+    }
+
+    public int getCachedContextCount() {
+        return cache.size();
+    }
+
+    private CompletableFuture<String> send(HttpRequest request) {
+        return send(request, 0);
+    }
+
+    // Each attempt holds a permit only while it is in flight; a retry waits for its backoff without one
+    private CompletableFuture<String> send(HttpRequest request, int attempt) {
+        return limited(() -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()))
+            .handle((response, error) -> {
+                Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+                if (failure == null && response.statusCode() / 100 == 2) {
+                    return CompletableFuture.completedFuture(response.body());
+                }
+                boolean retryable = failure != null
+                    ? failure instanceof IOException
+                    : response.statusCode() == 429 || response.statusCode() >= 500;
+                if (retryable && attempt < settings.getMaxRetries()) {
+                    return retryLater(request, attempt + 1);
+                }
+                MCPClientException exception = failure != null
+                    ? new MCPClientException(request.method() + " " + request.uri() + " failed: " + failure, failure)
+                    : new MCPClientException(request.method() + " " + request.uri() + " returned " + response.statusCode(),
+                        response.statusCode());
+                return CompletableFuture.<String>failedFuture(exception);
+            })
+            .thenCompose(next -> next);
+    }
+
+    // Full jitter: a uniform delay in [0, retryBackoff * 2^(attempt - 1)], after which the retry queues for a permit
+    private CompletableFuture<String> retryLater(HttpRequest request, int attempt) {
+        long ceiling = settings.getRetryBackoff().toMillis() << Math.min(attempt - 1, 16);
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> send(request, attempt), delayed).thenCompose(next -> next);
+    }
+
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waiting.add(() -> {
+            CompletableFuture<T> started;
+            try {
+                started = call.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((value, error) -> {
+                permits.incrementAndGet();
+                drain();
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+        drain();
+        return result;
+    }
+
+    // Starts queued calls while permits are left; re-run after every release
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int available = permits.get();
+            if (available <= 0) {
+                return;
+            }
+            if (!permits.compareAndSet(available, available - 1)) {
+                continue;
+            }
+            Runnable next = waiting.poll();
+            if (next == null) {
+                permits.incrementAndGet();
+                continue;
+            }
+            next.run();
+        }
+    }
+
+    private URI uri(String path) {
+        String base = settings.getBaseUri().toString();
+        return URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) + path : base + path);
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static final class ContextCache {
+        private final int maximumSize;
+        private final long ttlNanos;
+        private final LinkedHashMap<String, Entry> entries;
+
+        private record Entry(String context, long expiresAt) {
+        }
+
+        ContextCache(int maximumSize, long ttlNanos) {
+            this.maximumSize = maximumSize;
+            this.ttlNanos = ttlNanos;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > ContextCache.this.maximumSize;
+                }
+            };
+        }
+
+        synchronized String get(String domain) {
+            Entry entry = entries.get(domain);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                entries.remove(domain);
+                return null;
+            }
+            return entry.context();
+        }
+
+        synchronized void put(String domain, String context) {
+            if (maximumSize > 0 && ttlNanos > 0) {
+                entries.put(domain, new Entry(context, System.nanoTime() + ttlNanos));
+            }
+        }
+
+        synchronized void remove(String domain) {
+            entries.remove(domain);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
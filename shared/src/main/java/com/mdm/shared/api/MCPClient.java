@@ -1,6 +1,46 @@
 package com.mdm.shared.api;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 public interface MCPClient {
     String fetchContext(String domain);
     void sendRequest(String request);
-} 
\ No newline at end of file
+
+    /**
+     * Non-blocking {@link #fetchContext}. The default runs the blocking call
+     * on the common pool; HTTP clients override it.
+     */
+    default CompletableFuture<String> fetchContextAsync(String domain) {
+        return CompletableFuture.supplyAsync(() -> fetchContext(domain));
+    }
+
+    /**
+     * Fetches the contexts of several domains concurrently.
+     *
+     * @return the context of each distinct domain, in the order given
+     */
+    default CompletableFuture<Map<String, String>> fetchContextsAsync(Collection<String> domains) {
+        List<String> distinct = List.copyOf(new LinkedHashSet<>(domains));
+        List<CompletableFuture<String>> contexts = distinct.stream().map(this::fetchContextAsync).toList();
+        return CompletableFuture.allOf(contexts.toArray(new CompletableFuture[0])).thenApply(done -> {
+            Map<String, String> byDomain = new LinkedHashMap<>();
+            for (int i = 0; i < distinct.size(); i++) {
+                byDomain.put(distinct.get(i), contexts.get(i).join());
+            }
+            return byDomain;
+        });
+    }
+
+    default Map<String, String> fetchContexts(Collection<String> domains) {
+        return MCPClientException.join(fetchContextsAsync(domains));
+    }
+
+    default CompletableFuture<Void> sendRequestAsync(String request) {
+        return CompletableFuture.runAsync(() -> sendRequest(request));
+    }
+}
@@ -0,0 +1,41 @@
+package com.mdm.shared.api;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A call to the MCP server failed: it answered with an error status, or could
+ * not be reached within the configured timeouts and retries.
+ */
+@Getter
+public class MCPClientException extends RuntimeException {
+
+    // HTTP status of the last attempt, 0 when no response was received
+    private final int status;
+
+    public MCPClientException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    public MCPClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+    }
+
+    /**
+     * Waits for the future and rethrows its failure unwrapped.
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new MCPClientException("MCP call failed", e.getCause());
+        }
+    }
+}
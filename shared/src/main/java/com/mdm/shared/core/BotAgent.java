@@ -2,12 +2,218 @@ package com.mdm.shared.core;
 
 import com.mdm.shared.api.MCPClient;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A bot answers inputs with the help of an {@link MCPClient}. Bots are
+ * registered once in a {@link BotRegistry} and shared by all callers, so
+ * implementations must be thread-safe; keeping no state besides the client
+ * is enough.
+ */
 public abstract class BotAgent {
-    protected MCPClient mcpClient;
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 32;
+    public static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(30);
+
+    // One thread per call: virtual threads on Java 21+, else a pool of this many platform threads
+    private static final int FALLBACK_THREADS = 64;
+    private static final ExecutorService EXECUTOR = VirtualThreads.newExecutor("bot-", FALLBACK_THREADS);
+
+    protected final MCPClient mcpClient;
 
     public BotAgent(MCPClient mcpClient) {
         this.mcpClient = mcpClient;
     }
 
     public abstract String execute(String input);
-} 
\ No newline at end of file
+
+    /**
+     * Non-blocking {@link #execute}. The default runs it on its own thread,
+     * which is interrupted when the returned future is cancelled; bots whose
+     * work is an MCP call override it with the client's async API. Overrides
+     * must not block the caller.
+     */
+    public CompletableFuture<String> executeAsync(String input) {
+        Execution execution = new Execution();
+        execution.started(EXECUTOR.submit(() -> execution.run(() -> execute(input))));
+        return execution;
+    }
+
+    /**
+     * {@link #executeAll(List, int, Duration)} with {@link #DEFAULT_MAX_CONCURRENCY}
+     * and {@link #DEFAULT_CALL_TIMEOUT}.
+     */
+    public List<BotResult> executeAll(List<String> inputs) {
+        return executeAll(inputs, DEFAULT_MAX_CONCURRENCY, DEFAULT_CALL_TIMEOUT);
+    }
+
+    /**
+     * Executes every input, at most {@code maxConcurrency} at a time, and waits
+     * for all of them. See {@link #executeAllAsync}.
+     *
+     * @return one result per input, in input order
+     */
+    public List<BotResult> executeAll(List<String> inputs, int maxConcurrency, Duration callTimeout) {
+        return executeAllAsync(inputs, maxConcurrency, callTimeout).join();
+    }
+
+    /**
+     * Executes every input through {@link #executeAsync}, keeping at most
+     * {@code maxConcurrency} calls in flight: each call that completes starts
+     * the next input, so no thread waits on the batch. A call that takes longer
+     * than {@code callTimeout} is cancelled; it and failed calls are reported in
+     * their result instead of failing the batch. The thread of a cancelled
+     * {@link #executeAsync} default call is interrupted, and its lane starts the
+     * next input only once that thread has returned, so a batch never runs more
+     * than {@code maxConcurrency} calls. The batch itself completes as soon as
+     * every input has its result.
+     *
+     * @return one result per input, in input order
+     */
+    public CompletableFuture<List<BotResult>> executeAllAsync(List<String> inputs, int maxConcurrency, Duration callTimeout) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        Batch batch = new Batch(List.copyOf(inputs), callTimeout);
+        if (batch.inputs.isEmpty()) {
+            batch.done.complete(List.of());
+        }
+        for (int lane = 0; lane < Math.min(maxConcurrency, batch.inputs.size()); lane++) {
+            runLane(batch);
+        }
+        return batch.done;
+    }
+
+    private final class Batch {
+        private final List<String> inputs;
+        private final Duration callTimeout;
+        private final BotResult[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<BotResult>> done = new CompletableFuture<>();
+
+        Batch(List<String> inputs, Duration callTimeout) {
+            this.inputs = inputs;
+            this.callTimeout = callTimeout;
+            this.results = new BotResult[inputs.size()];
+            this.remaining = new AtomicInteger(inputs.size());
+        }
+    }
+
+    // Runs inputs one after the other; loops while calls complete synchronously
+    // (e.g. from a cache), so the stack does not grow with the batch
+    private void runLane(Batch batch) {
+        while (true) {
+            int index = batch.next.getAndIncrement();
+            if (index >= batch.inputs.size()) {
+                return;
+            }
+            CompletableFuture<Void> call = call(batch, index);
+            if (!call.isDone()) {
+                call.thenRun(() -> runLane(batch));
+                return;
+            }
+        }
+    }
+
+    private CompletableFuture<Void> call(Batch batch, int index) {
+        String input = batch.inputs.get(index);
+        long start = System.nanoTime();
+        CompletableFuture<String> result;
+        try {
+            result = executeAsync(input);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> call = result;
+        return result.orTimeout(batch.callTimeout.toNanos(), TimeUnit.NANOSECONDS).handle((value, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            batch.results[index] = cause == null
+                ? BotResult.success(input, value, elapsedMillis(start))
+                : BotResult.failure(input, cause instanceof TimeoutException
+                    ? "Timed out after " + batch.callTimeout.toMillis() + " ms"
+                    : String.valueOf(cause.getMessage()), elapsedMillis(start));
+            if (batch.remaining.decrementAndGet() == 0) {
+                batch.done.complete(Arrays.asList(batch.results));
+            }
+            return cause instanceof TimeoutException;
+        }).thenCompose(timedOut -> timedOut && call instanceof Execution execution
+            ? execution.stop()
+            : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * The result of a default {@link #executeAsync} call, completed by the task
+     * running it. Timing out or cancelling it interrupts that task.
+     */
+    private static final class Execution extends CompletableFuture<String> {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int FINISHED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private volatile Future<?> task;
+        private volatile boolean stopping;
+
+        void started(Future<?> task) {
+            this.task = task;
+            if (stopping) {
+                task.cancel(true);
+            }
+        }
+
+        void run(Supplier<String> call) {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            try {
+                complete(call.get());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                state.set(FINISHED);
+                finished.complete(null);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            stop();
+            return cancelled;
+        }
+
+        /**
+         * Interrupts the task if it is running and drops it if it has not
+         * started yet.
+         *
+         * @return completed once the task is no longer running
+         */
+        CompletableFuture<Void> stop() {
+            stopping = true;
+            if (state.compareAndSet(QUEUED, FINISHED)) {
+                finished.complete(null);
+            }
+            Future<?> running = task;
+            if (running != null) {
+                running.cancel(true);
+            }
+            return finished;
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mdm.shared.core;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The bot instances of an application by bot type, created once and reused
+ * by every request.
+ */
+public class BotRegistry {
+
+    private final Map<String, BotAgent> bots = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a bot under a type, replacing any bot registered under it.
+     */
+    public BotRegistry register(String botType, BotAgent bot) {
+        bots.put(botType, bot);
+        return this;
+    }
+
+    public Optional<BotAgent> find(String botType) {
+        return botType == null ? Optional.empty() : Optional.ofNullable(bots.get(botType));
+    }
+
+    public Set<String> getBotTypes() {
+        return new TreeSet<>(bots.keySet());
+    }
+}
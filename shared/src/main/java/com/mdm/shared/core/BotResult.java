@@ -0,0 +1,32 @@
+package com.mdm.shared.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one input of {@link BotAgent#executeAll}: the result, or the
+ * error when the call failed or timed out.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BotResult {
+
+    private String input;
+    private String result;
+    private String error;
+    private long durationMillis;
+
+    public static BotResult success(String input, String result, long durationMillis) {
+        return new BotResult(input, result, null, durationMillis);
+    }
+
+    public static BotResult failure(String input, String error, long durationMillis) {
+        return new BotResult(input, null, error, durationMillis);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
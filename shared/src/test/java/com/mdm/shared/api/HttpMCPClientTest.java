@@ -0,0 +1,269 @@
+package com.mdm.shared.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpMCPClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+
+    // Calls per path, and the answers still to give before answering 200
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final Map<String, List<Integer>> failures = new ConcurrentHashMap<>();
+    // Bodies of POST /mcp/requests, in arrival order
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private volatile CountDownLatch entered = new CountDownLatch(0);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    // Status that makes the stub close the connection without answering
+    private static final int DROP = -1;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        serverThreads = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverThreads);
+        server.createContext("/mcp/context/", exchange -> handle(exchange, exchange.getRequestURI().getRawPath()));
+        server.createContext("/mcp/requests", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(body);
+            handle(exchange, "/mcp/requests/" + body);
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void concurrentFetchesOfOneDomainShareOneCall() throws Exception {
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        HttpMCPClient client = client(settings());
+
+        List<CompletableFuture<String>> fetches = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            fetches.add(client.fetchContextAsync("customers"));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        for (CompletableFuture<String> fetch : fetches) {
+            assertEquals("context of /mcp/context/customers", fetch.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, hits("/mcp/context/customers"));
+        // Cached now
+        assertEquals("context of /mcp/context/customers", client.fetchContext("customers"));
+        assertEquals(1, hits("/mcp/context/customers"));
+    }
+
+    @Test
+    void cachedContextsExpireAfterTheirTtl() throws Exception {
+        HttpMCPClient client = client(settings().cacheTtl(Duration.ofMillis(200)));
+
+        client.fetchContext("products");
+        client.fetchContext("products");
+        assertEquals(1, hits("/mcp/context/products"));
+
+        Thread.sleep(300);
+        client.fetchContext("products");
+        assertEquals(2, hits("/mcp/context/products"));
+
+        client.invalidate("products");
+        client.fetchContext("products");
+        assertEquals(3, hits("/mcp/context/products"));
+    }
+
+    @Test
+    void serverErrorsAndThrottlingAreRetried() {
+        failures.put("/mcp/context/orders", new ArrayList<>(List.of(503, 429)));
+        HttpMCPClient client = client(settings().maxRetries(2));
+
+        assertEquals("context of /mcp/context/orders", client.fetchContext("orders"));
+        assertEquals(3, hits("/mcp/context/orders"));
+    }
+
+    @Test
+    void failsWithTheLastStatusOnceRetriesAreUsedUp() {
+        failures.put("/mcp/context/orders", new ArrayList<>(List.of(500, 502, 503)));
+        HttpMCPClient client = client(settings().maxRetries(1));
+
+        MCPClientException error = assertThrows(MCPClientException.class, () -> client.fetchContext("orders"));
+        assertEquals(502, error.getStatus());
+        assertEquals(2, hits("/mcp/context/orders"));
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        failures.put("/mcp/context/unknown", new ArrayList<>(List.of(404)));
+        HttpMCPClient client = client(settings().maxRetries(3));
+
+        MCPClientException error = assertThrows(MCPClientException.class, () -> client.fetchContext("unknown"));
+        assertEquals(404, error.getStatus());
+        assertEquals(1, hits("/mcp/context/unknown"));
+    }
+
+    @Test
+    void droppedConnectionsAreRetried() {
+        failures.put("/mcp/requests/hello", new ArrayList<>(List.of(DROP)));
+        HttpMCPClient client = client(settings().maxRetries(1));
+
+        client.sendRequest("hello");
+        assertEquals(2, hits("/mcp/requests/hello"));
+    }
+
+    @Test
+    void unreachableServerFailsWithItsIOException() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HttpMCPClient client = client(settings().baseUri(URI.create("http://127.0.0.1:" + port)).maxRetries(1));
+
+        MCPClientException error = assertThrows(MCPClientException.class, () -> client.sendRequest("hello"));
+        assertEquals(0, error.getStatus());
+        assertTrue(error.getCause() instanceof IOException, String.valueOf(error.getCause()));
+    }
+
+    @Test
+    void retryDelaysAreRandomAndBoundedByTheBackoff() throws Exception {
+        List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+        server.createContext("/mcp/context/jitter", exchange -> {
+            arrivals.add(System.nanoTime());
+            respond(exchange, 503, "busy");
+        });
+        HttpMCPClient client = client(settings().maxRetries(1).retryBackoff(Duration.ofMillis(400)));
+
+        List<Long> delays = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            arrivals.clear();
+            assertThrows(MCPClientException.class, () -> client.fetchContext("jitter"));
+            delays.add(TimeUnit.NANOSECONDS.toMillis(arrivals.get(1) - arrivals.get(0)));
+        }
+        // Uniform in [0, 400] ms plus a roughly constant round trip: below the ceiling, and spread out
+        long min = Collections.min(delays);
+        long max = Collections.max(delays);
+        assertTrue(max < 400 + 250, delays.toString());
+        assertTrue(max - min > 100, delays.toString());
+    }
+
+    @Test
+    void noMoreThanMaxConcurrentRequestsAreInFlight() throws Exception {
+        entered = new CountDownLatch(2);
+        release = new CountDownLatch(1);
+        HttpMCPClient client = client(settings().maxConcurrentRequests(2));
+
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(client.sendRequestAsync("request " + i));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(2, concurrent.get());
+        release.countDown();
+
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(2, maxConcurrent.get());
+        assertEquals(6, requests.size());
+    }
+
+    @Test
+    void aCallWaitingToBeRetriedDoesNotHoldItsPermit() throws Exception {
+        failures.put("/mcp/requests/first", new ArrayList<>(List.of(503)));
+        HttpMCPClient client = client(settings().maxConcurrentRequests(1).maxRetries(1).retryBackoff(Duration.ofMillis(50)));
+
+        CompletableFuture<Void> first = client.sendRequestAsync("first");
+        CompletableFuture<Void> second = client.sendRequestAsync("second");
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        // The second call runs while the first one waits for its retry
+        assertEquals(List.of("first", "second", "first"), requests);
+    }
+
+    private HttpMCPClient.Settings.SettingsBuilder settings() {
+        return HttpMCPClient.Settings.builder()
+            .baseUri(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+            .requestTimeout(Duration.ofSeconds(5))
+            .retryBackoff(Duration.ofMillis(10));
+    }
+
+    private static HttpMCPClient client(HttpMCPClient.Settings.SettingsBuilder settings) {
+        return new HttpMCPClient(settings.build());
+    }
+
+    private int hits(String path) {
+        AtomicInteger count = hits.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    private void handle(HttpExchange exchange, String path) throws IOException {
+        hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+        int inFlight = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(inFlight, Math::max);
+        try {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Integer> pending = failures.get(path);
+            Integer status = null;
+            if (pending != null) {
+                synchronized (pending) {
+                    status = pending.isEmpty() ? null : pending.remove(0);
+                }
+            }
+            if (status == null) {
+                respond(exchange, 200, "context of " + path);
+            } else if (status == DROP) {
+                exchange.close();
+            } else {
+                respond(exchange, status, "failed");
+            }
+        } finally {
+            concurrent.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
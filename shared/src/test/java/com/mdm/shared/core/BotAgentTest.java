@@ -0,0 +1,108 @@
+package com.mdm.shared.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotAgentTest {
+
+    @Test
+    void resultsKeepInputOrder() {
+        BotAgent bot = new SleepingBot(input -> input.length() * 5L);
+
+        List<BotResult> results = bot.executeAll(List.of("aaaa", "b", "cc", "ddd"), 4, Duration.ofSeconds(5));
+
+        List<String> outputs = new ArrayList<>();
+        for (BotResult result : results) {
+            assertTrue(result.isSuccess(), result.getError());
+            outputs.add(result.getResult());
+        }
+        assertEquals(List.of("done aaaa", "done b", "done cc", "done ddd"), outputs);
+    }
+
+    @Test
+    void timedOutCallsAreInterruptedBeforeTheirLaneMovesOn() {
+        SleepingBot bot = new SleepingBot(input -> input.startsWith("slow") ? 60_000L : 10L);
+        List<String> inputs = List.of("slow 1", "slow 2", "fast 1", "slow 3", "fast 2", "fast 3");
+
+        long start = System.nanoTime();
+        List<BotResult> results = bot.executeAll(inputs, 2, Duration.ofMillis(200));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            BotResult result = results.get(i);
+            if (inputs.get(i).startsWith("slow")) {
+                assertFalse(result.isSuccess());
+                assertEquals("Timed out after 200 ms", result.getError());
+            } else {
+                assertTrue(result.isSuccess(), result.getError());
+            }
+        }
+        assertTrue(elapsed < 5_000, "took " + elapsed + " ms");
+        // The last timed-out call may still be returning from its interrupt
+        awaitInterrupted(bot, 3);
+        // The lanes waited for the interrupted calls, so there were never more than two
+        assertEquals(2, bot.maxRunning.get());
+    }
+
+    @Test
+    void cancellingACallInterruptsIt() throws InterruptedException {
+        SleepingBot bot = new SleepingBot(input -> 60_000L);
+
+        CompletableFuture<String> call = bot.executeAsync("slow");
+        assertTrue(bot.started.await(5, TimeUnit.SECONDS));
+        call.cancel(true);
+
+        awaitInterrupted(bot, 1);
+        assertTrue(call.isCancelled());
+    }
+
+    private static void awaitInterrupted(SleepingBot bot, int expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bot.interrupted.get() < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, bot.interrupted.get());
+    }
+
+    // Sleeps for a time that depends on the input, counting calls in flight and interruptions
+    private static final class SleepingBot extends BotAgent {
+        private final ToLongFunction<String> sleepMillis;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final AtomicInteger interrupted = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        SleepingBot(ToLongFunction<String> sleepMillis) {
+            super(null);
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public String execute(String input) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                Thread.sleep(sleepMillis.applyAsLong(input));
+                return "done " + input;
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted");
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}